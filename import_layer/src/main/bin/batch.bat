@@ -0,0 +1 @@
+@echo offREM Wrapper for the ISATAB batch validator/convertercall config.batset ILBIN=%~dp0set ILHOME=%ILBIN%\..call %ILBIN%\invoke.bat org.isatools.isatab.commandline.BatchShellCommand %*
\ No newline at end of file
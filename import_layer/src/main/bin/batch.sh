@@ -0,0 +1,7 @@
+#!/bin/sh
+#
+#Wrapper for the ISATAB batch validator/converter
+# 
+
+ILBIN=$(dirname $0)
+$ILBIN/lib/invoke.sh org.isatools.isatab.commandline.BatchShellCommand ${1+"$@"}
@@ -0,0 +1 @@
+@echo offREM Wrapper for the ISATAB job server (validation/conversion on request)call config.batset ILBIN=%~dp0set ILHOME=%ILBIN%\..call %ILBIN%\invoke.bat org.isatools.isatab.commandline.ServerShellCommand %*
\ No newline at end of file
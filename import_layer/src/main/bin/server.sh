@@ -0,0 +1,7 @@
+#!/bin/sh
+#
+#Wrapper for the ISATAB job server (validation/conversion on request)
+# 
+
+ILBIN=$(dirname $0)
+$ILBIN/lib/invoke.sh org.isatools.isatab.commandline.ServerShellCommand ${1+"$@"}
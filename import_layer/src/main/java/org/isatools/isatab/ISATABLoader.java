@@ -52,9 +52,12 @@ import org.apache.commons.io.FileUtils;
 import org.isatools.tablib.exceptions.TabDuplicatedValueException;
 import org.isatools.tablib.exceptions.TabInvalidValueException;
 import org.isatools.tablib.exceptions.TabMissingResourceException;
+import org.isatools.tablib.exceptions.TabValidationException;
 import org.isatools.tablib.mapping.FormatSetTabMapper;
 import org.isatools.tablib.parser.TabLoader;
+import org.isatools.tablib.parser.TabSource;
 import org.isatools.tablib.schema.*;
+import org.isatools.tablib.utils.logging.TabErrorCollector;
 import uk.ac.ebi.bioinvindex.utils.i18n;
 
 import java.io.BufferedInputStream;
@@ -62,6 +65,7 @@ import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.*;
+import java.util.concurrent.Callable;
 
 import static org.apache.commons.io.filefilter.FileFilterUtils.*;
 
@@ -89,6 +93,8 @@ public class ISATABLoader extends TabLoader {
      */
     protected Map<String, String> alreadyLoadedFiles = new HashMap<String, String>();
 
+    private Set<String> selectedFileIds = null;
+
     /**
      * Initializes the loader with the schema defined in {@link #ISATAB_SCHEMA_PATH}
      */
@@ -148,6 +154,44 @@ public class ISATABLoader extends TabLoader {
         }
     }
 
+    /**
+     * Reads the submission from a source, such as a ZIP archive. The investigation file is searched in the source
+     * root, with the same criteria used for directories.
+     */
+    protected ISATABLoader(FormatSet schema, final TabSource source) {
+        super(schema, source);
+
+        String location = source.getLocation();
+        List<String> ifileIds = new ArrayList<String>();
+        for (String fileId : source.getFileIds()) {
+            if (fileId.indexOf('/') == -1 && fileId.startsWith("i_") && fileId.endsWith(".txt")) {
+                ifileIds.add(fileId);
+            }
+        }
+
+        int nfiles = ifileIds.size();
+        if (nfiles < 1) {
+            investigationFileName = "investigation.csv";
+            if (!source.exists(investigationFileName)) {
+                throw new TabMissingResourceException(i18n.msg("missing_investigation_file", location));
+            }
+            log.warn("  Warning: no investigation file name i_xxx.txt found in '" + location + "'\n"
+                    + "  using '" + investigationFileName + "' instead");
+        } else if (nfiles > 1) {
+            Collections.sort(ifileIds, new Comparator<String>() {
+                public int compare(String id1, String id2) {
+                    return -1 * new Long(source.lastModified(id1)).compareTo(source.lastModified(id2));
+                }
+            });
+            investigationFileName = ifileIds.get(0);
+            log.warn("\n  Warning: More than one i_xxx.txt investigation file found in '" + location + "'\n"
+                    + "  using the most recent: '" + investigationFileName + "'");
+        } else {
+            investigationFileName = ifileIds.get(0);
+            log.info("Working with '" + investigationFileName + "' investigation file from '" + location + "'");
+        }
+    }
+
 
     /**
      * Loads the investigation file.
@@ -161,6 +205,7 @@ public class ISATABLoader extends TabLoader {
     /**
      * Loads the studies in the Study blocks of the Investigation files. Moreover, check the reference about
      * the study file made in each "Studies" section and loads the corresponding study_sample files.
+     * The files are loaded in parallel if {@link #isParallelMode()} is set.
      */
     private void loadStudies() throws IOException {
         FormatSetInstance formatSetInstance = getFormatSetInstance();
@@ -171,27 +216,41 @@ public class ISATABLoader extends TabLoader {
             return;
         }
 
+        List<Callable<FormatInstance>> loadTasks = new ArrayList<Callable<FormatInstance>>();
         for (SectionInstance studyInstance : studyInstances) {
             String studyFileId = studyInstance.getString(0, "Study File Name");
             String alreadyLoadedLabel = alreadyLoadedFiles.get(studyFileId);
             if (alreadyLoadedLabel != null) {
-                throw new TabDuplicatedValueException(i18n.msg(
-                        "study_file_already_exists", studyFileId, alreadyLoadedLabel
-                ));
+                reportInvestigationError(
+                        new TabDuplicatedValueException(i18n.msg(
+                                "study_file_already_exists", studyFileId, alreadyLoadedLabel
+                        )),
+                        "study_file_already_exists", studyInstance, studyInstance.getField("Study File Name").getIndex()
+                );
+                continue;
+            }
+            if (isSelectedFile(studyFileId)) {
+                loadTasks.add(createLoadTask(studyFileId, "study_samples"));
             }
-            FormatInstance studyFileInstance = load(studyFileId, "study_samples");
-            formatSetInstance.addFormatInstance(studyFileInstance);
             alreadyLoadedFiles.put(studyFileId, "as sample file for a study");
         }
+
+        for (FormatInstance studyFileInstance : runLoadTasks(loadTasks)) {
+            // null if it couldn't be loaded in collect-all-errors mode
+            if (studyFileInstance != null) {
+                formatSetInstance.addFormatInstance(studyFileInstance);
+            }
+        }
     }
 
     /**
      * Check all the references assays in the Study Assays of the Study block and loads the corresponding
-     * assay files.
+     * assay files. The files are loaded in parallel if {@link #isParallelMode()} is set.
      */
     protected void loadAssays() throws IOException {
         FormatSetInstance formatSetInstance = getFormatSetInstance();
         List<SectionInstance> assayInstances = formatSetInstance.getSectionInstances("investigation", "assays");
+        List<Callable<FormatInstance>> loadTasks = new ArrayList<Callable<FormatInstance>>();
 
         for (SectionInstance assayInstance : assayInstances) {
 
@@ -211,19 +270,52 @@ public class ISATABLoader extends TabLoader {
                     } else if ("Mass Spectrometry".equalsIgnoreCase(technology)) {
                         assayFormatId = "ms_spec_assay";
                     } else {
-                        throw new TabInvalidValueException(i18n.msg("unknown_assay_type", endPoint, technology));
+                        reportInvestigationError(
+                                new TabInvalidValueException(i18n.msg("unknown_assay_type", endPoint, technology)),
+                                "unknown_assay_type", assayInstance, technologyFieldIdx
+                        );
+                        continue;
                     }
 
-                    FormatInstance assayFileInstance = load(assayFileName, assayFormatId);
-                    formatSetInstance.addFormatInstance(assayFileInstance);
+                    if (isSelectedFile(assayFileName)) {
+                        loadTasks.add(createLoadTask(assayFileName, assayFormatId));
+                    }
                 }
             }
         }
+
+        for (FormatInstance assayFileInstance : runLoadTasks(loadTasks)) {
+            // null if it couldn't be loaded in collect-all-errors mode
+            if (assayFileInstance != null) {
+                formatSetInstance.addFormatInstance(assayFileInstance);
+            }
+        }
+    }
+
+
+    /**
+     * Throws an error about the files listed in the investigation file or, in
+     * {@link #getErrorCollector() collect-all-errors mode}, reports it to the collector. In the latter case the caller
+     * is expected to skip the file and go ahead with the others.
+     *
+     * @param section the investigation section the wrong file reference is in
+     * @param column  the column of the wrong value, -1 if unknown
+     */
+    protected void reportInvestigationError(
+            TabValidationException error, String rule, SectionInstance section, int column) {
+        TabErrorCollector errors = getErrorCollector();
+        if (errors == null) {
+            throw error;
+        }
+        log.error(error.getMessage());
+        errors.add(investigationFileName, section.getStartingLine(), column, rule, error.getMessage(), error);
     }
 
 
     /**
-     * Loads the whole set of ISATAB spreadsheets.
+     * Loads the whole set of ISATAB spreadsheets. In {@link #getErrorCollector() collect-all-errors mode}, a missing
+     * or wrong study/assay file is reported and skipped, while errors in the investigation file are still thrown,
+     * since nothing else can be loaded without it.
      *
      * @return the same format set instance returned by {@link TabLoader#getFormatSetInstance()}
      */
@@ -253,6 +345,27 @@ public class ISATABLoader extends TabLoader {
     }
 
 
+    /**
+     * If this is set, only the study and assay files in this set are loaded, the others are checked as usually in the
+     * investigation file, but they're skipped. The investigation file is always loaded. This is useful to
+     * re-load only what has changed in a submission. Default is null, i.e., all the files are loaded.
+     */
+    public Set<String> getSelectedFileIds() {
+        return selectedFileIds;
+    }
+
+    public void setSelectedFileIds(Set<String> selectedFileIds) {
+        this.selectedFileIds = selectedFileIds;
+    }
+
+    /**
+     * true if the study or assay file has to be loaded, see {@link #getSelectedFileIds()}.
+     */
+    protected boolean isSelectedFile(String fileId) {
+        return selectedFileIds == null || selectedFileIds.contains(fileId);
+    }
+
+
     /**
      * Returns the investigation file name detected in the class constructor
      */
@@ -0,0 +1,928 @@
+/**
+
+ The ISAconverter, ISAvalidator & BII Management Tool are components of the ISA software suite (http://www.isa-tools.org)
+
+ Exhibit A
+ The ISAconverter, ISAvalidator & BII Management Tool are licensed under the Mozilla Public License (MPL) version
+ 1.1/GPL version 2.0/LGPL version 2.1
+
+ "The contents of this file are subject to the Mozilla Public License
+ Version 1.1 (the "License"). You may not use this file except in compliance with the License.
+ You may obtain copies of the Licenses at http://www.mozilla.org/MPL/MPL-1.1.html.
+
+ Software distributed under the License is distributed on an "AS IS"
+ basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ License for the specific language governing rights and limitations
+ under the License.
+
+ The Original Code is the ISAconverter, ISAvalidator & BII Management Tool.
+
+ The Initial Developer of the Original Code is the ISA Team (Eamonn Maguire, eamonnmag@gmail.com;
+ Philippe Rocca-Serra, proccaserra@gmail.com; Susanna-Assunta Sansone, sa.sanson@gmail.com;
+ http://www.isa-tools.org). All portions of the code written by the ISA Team are Copyright (c)
+ 2007-2011 ISA Team. All Rights Reserved.
+
+ Contributor(s):
+ Rocca-Serra P, Brandizi M, Maguire E, Sklyar N, Taylor C, Begley K, Field D,
+ Harris S, Hide W, Hofmann O, Neumann S, Sterk P, Tong W, Sansone SA. ISA software suite:
+ supporting standards-compliant experimental annotation and enabling curation at the community level.
+ Bioinformatics 2010;26(18):2354-6.
+
+ Alternatively, the contents of this file may be used under the terms of either the GNU General
+ Public License Version 2 or later (the "GPL") - http://www.gnu.org/licenses/gpl-2.0.html, or
+ the GNU Lesser General Public License Version 2.1 or later (the "LGPL") -
+ http://www.gnu.org/licenses/lgpl-2.1.html, in which case the provisions of the GPL
+ or the LGPL are applicable instead of those above. If you wish to allow use of your version
+ of this file only under the terms of either the GPL or the LGPL, and not to allow others to
+ use your version of this file under the terms of the MPL, indicate your decision by deleting
+ the provisions above and replace them with the notice and other provisions required by the
+ GPL or the LGPL. If you do not delete the provisions above, a recipient may use your version
+ of this file under the terms of any one of the MPL, the GPL or the LGPL.
+
+ Sponsors:
+ The ISA Team and the ISA software suite have been funded by the EU Carcinogenomics project
+ (http://www.carcinogenomics.eu), the UK BBSRC (http://www.bbsrc.ac.uk), the UK NERC-NEBC
+ (http://nebc.nerc.ac.uk) and in part by the EU NuGO consortium (http://www.nugo.org/everyone).
+
+ */
+
+package org.isatools.isatab;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.log4j.Logger;
+import org.isatools.isatab.configurator.schema.FieldType;
+import org.isatools.isatab.configurator.schema.IsaTabConfigurationType;
+import org.isatools.isatab.configurator.schema.ProtocolFieldType;
+import org.isatools.isatab.configurator.schema.UnitFieldType;
+import org.isatools.isatab.gui_invokers.GUIInvokerResult;
+import org.isatools.isatab.isaconfigurator.ISAConfigurationSet;
+import org.isatools.isatab.isaconfigurator.validators.AbstractValidatorComponent;
+import org.isatools.isatab.isaconfigurator.validators.RequiredFieldsValidator;
+import org.isatools.isatab.isaconfigurator.validators.UnitFieldsValidator;
+import org.isatools.isatab.isaconfigurator.validators.ValidationPlan;
+import org.isatools.isatab_v1.ISATABLoader;
+import org.isatools.tablib.parser.RecordConsumer;
+import org.isatools.tablib.parser.TabSource;
+import org.isatools.tablib.schema.*;
+import org.isatools.tablib.utils.BIIObjectStore;
+import org.isatools.tablib.utils.logging.TabErrorCollector;
+import org.isatools.tablib.utils.logging.TabErrorEntry;
+import uk.ac.ebi.bioinvindex.utils.i18n;
+
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * A validate-only mode for very large submissions. The ISA-Configurator rules are checked in a single forward pass
+ * over the rows of the study and assay files, which are loaded in {@link ISATABLoader#setRecordConsumer(RecordConsumer)
+ * streaming mode}: every row is checked as soon as it's read and then dropped, neither the tables nor the BII objects
+ * are built. The memory needed doesn't depend on the number of rows, but only on the number of columns and on the
+ * sample names of the studies, which are kept to check the assay files against them.
+ * <p/>
+ * The checks are the same that {@link ISATABValidator#validateSimple()} does for the table structure (including the
+ * errors reported by the loader), the required fields, the value types, the units, the factor values, the protocols
+ * between the nodes and the sample names. The ontology terms are not checked, nor the generic assay configuration is
+ * tried when an assay file fails, since that would need a second pass. The investigation file is small and it's
+ * loaded as usually.
+ * <p/>
+ * All the errors are collected, like in {@link ISATABValidator#isCollectAllErrors() collect-all-errors mode}, but
+ * errors that can occur on every row are reported once per column (or per value) and file, with the number of
+ * occurrences, so that the report doesn't grow with the file either.
+ * <p/>
+ * The results are computed per file (see {@link FileReport}), the only check across the study and assay files
+ * (the sample names) is done at the end, on the names the files define and reference. This is what allows
+ * {@link ISATABValidationSession} to re-check only the files that have changed.
+ */
+public class ISATABStreamingValidator {
+    private final String sourcePath;
+    private final TabSource source;
+    private final ISAConfigurationSet isaConfigSet;
+
+    private final Set<String> messages = new LinkedHashSet<String>();
+    private final TabErrorCollector errors = new TabErrorCollector();
+    private long recordCount = 0;
+
+    protected static final Logger log = Logger.getLogger(ISATABStreamingValidator.class);
+
+    /**
+     * @param sourcePath the submission directory or its investigation file, like in {@link ISATABLoader}.
+     */
+    public ISATABStreamingValidator(String sourcePath) {
+        this(sourcePath, new ISAConfigurationSet());
+    }
+
+    public ISATABStreamingValidator(String sourcePath, ISAConfigurationSet isaConfigSet) {
+        this.sourcePath = sourcePath;
+        this.source = null;
+        this.isaConfigSet = isaConfigSet;
+    }
+
+    /**
+     * Reads the submission from a source, e.g., a ZIP archive, which is not closed by the validator.
+     */
+    public ISATABStreamingValidator(TabSource source, ISAConfigurationSet isaConfigSet) {
+        this.sourcePath = null;
+        this.source = source;
+        this.isaConfigSet = isaConfigSet;
+    }
+
+
+    /**
+     * Does the single pass over the submission.
+     *
+     * @return {@link GUIInvokerResult#ERROR} if there are {@link #getErrors() errors},
+     *         {@link GUIInvokerResult#WARNING} if there are only {@link #getMessages() messages}.
+     */
+    public GUIInvokerResult validate() throws IOException {
+        messages.clear();
+        errors.clear();
+        recordCount = 0;
+
+        // The same configuration is used for the whole validation, even if it's reloaded in the meantime
+        ISAConfigurationSet cfgSet = new ISAConfigurationSet(isaConfigSet.getSnapshot());
+
+        ISATABLoader loader = source == null ? new ISATABLoader(sourcePath) : new ISATABLoader(source);
+        FileChecker checker = checkFiles(loader, cfgSet);
+        Map<String, FileReport> reports = checker.getReports();
+        for (FileReport report : reports.values()) {
+            recordCount += report.getRecordCount();
+        }
+
+        GUIInvokerResult result = collectResults(
+                checker.getIndex(), checker.getUnassignedErrors(), reports, errors, messages
+        );
+        for (String msg : messages) {
+            log.warn(msg);
+        }
+        return result;
+    }
+
+
+    /**
+     * The warnings reported by the last {@link #validate()} invocation, in the order they were found.
+     */
+    public Set<String> getMessages() {
+        return Collections.unmodifiableSet(messages);
+    }
+
+    /**
+     * The errors found by the last {@link #validate()} invocation, including those reported by the loader.
+     */
+    public List<TabErrorEntry> getErrors() {
+        return errors.getErrors();
+    }
+
+    /**
+     * The no. of study and assay rows checked by the last {@link #validate()} invocation.
+     */
+    public long getRecordCount() {
+        return recordCount;
+    }
+
+
+    /**
+     * What the validation found about a single study or assay file, together with what the result depends on in
+     * the rest of the submission. The sample names are not checked against the other files here.
+     */
+    public static class FileReport {
+        private final String fileId;
+        private final boolean isSampleFile;
+        private final List<TabErrorEntry> errors;
+        private final Set<String> messages;
+        private final long recordCount;
+        private final Map<String, Integer> sampleNames;
+        private final int sampleNameColumn;
+        private final Set<String> protocolNames;
+        private final Set<String> termSourceNames;
+        private final String dependencyKey;
+
+        FileReport(
+                String fileId, boolean isSampleFile, List<TabErrorEntry> errors, Set<String> messages,
+                long recordCount, Map<String, Integer> sampleNames, int sampleNameColumn, Set<String> protocolNames,
+                Set<String> termSourceNames, String dependencyKey) {
+            this.fileId = fileId;
+            this.isSampleFile = isSampleFile;
+            this.errors = Collections.unmodifiableList(new ArrayList<TabErrorEntry>(errors));
+            this.messages = Collections.unmodifiableSet(new LinkedHashSet<String>(messages));
+            this.recordCount = recordCount;
+            this.sampleNames = Collections.unmodifiableMap(sampleNames);
+            this.sampleNameColumn = sampleNameColumn;
+            this.protocolNames = Collections.unmodifiableSet(protocolNames);
+            this.termSourceNames = Collections.unmodifiableSet(termSourceNames);
+            this.dependencyKey = dependencyKey;
+        }
+
+        public String getFileId() {
+            return fileId;
+        }
+
+        /**
+         * true for a study sample file, false for an assay file.
+         */
+        public boolean isSampleFile() {
+            return isSampleFile;
+        }
+
+        /**
+         * The errors about this file, including those reported by the loader.
+         */
+        public List<TabErrorEntry> getErrors() {
+            return errors;
+        }
+
+        public Set<String> getMessages() {
+            return messages;
+        }
+
+        public long getRecordCount() {
+            return recordCount;
+        }
+
+        /**
+         * The sample names defined by a sample file, or referred by an assay file, each with the line where it was
+         * found first.
+         */
+        public Map<String, Integer> getSampleNames() {
+            return sampleNames;
+        }
+
+        /**
+         * The protocols referred by the file, which must be declared in the investigation file.
+         */
+        public Set<String> getProtocolNames() {
+            return protocolNames;
+        }
+
+        /**
+         * The ontology sources referred by the file, which should be declared in the investigation file.
+         */
+        public Set<String> getTermSourceNames() {
+            return termSourceNames;
+        }
+
+        /**
+         * What the result depends on in the investigation file: the study, the assay type and the declarations of
+         * the protocols and the ontology sources the file refers to. If this changes, the file has to be validated
+         * again, even if it didn't change itself. See {@link InvestigationIndex#getDependencyKey(String, Set, Set)}.
+         */
+        public String getDependencyKey() {
+            return dependencyKey;
+        }
+    }
+
+
+    /**
+     * What we need to know about a study from the investigation file.
+     */
+    static class StudyInfo {
+        final String acc;
+        final String sampleFileId;
+        final Map<String, String> protocolTypes = new HashMap<String, String>();
+
+        StudyInfo(String acc, String sampleFileId) {
+            this.acc = acc;
+            this.sampleFileId = sampleFileId;
+        }
+    }
+
+    /**
+     * What we need to know about an assay file from the investigation file.
+     */
+    static class AssayInfo {
+        final StudyInfo study;
+        final String measurement, technology;
+
+        AssayInfo(StudyInfo study, String measurement, String technology) {
+            this.study = study;
+            this.measurement = measurement;
+            this.technology = technology;
+        }
+    }
+
+    /**
+     * The studies and the assay files, from the investigation file.
+     */
+    static class InvestigationIndex {
+        final Map<String, StudyInfo> studiesBySampleFile = new LinkedHashMap<String, StudyInfo>();
+        final Map<String, AssayInfo> assaysByFile = new LinkedHashMap<String, AssayInfo>();
+        final Set<String> termSourceNames = new HashSet<String>();
+
+        /**
+         * The sections of a study block follow the study section.
+         *
+         * @param investigation can be null, in which case the index is empty
+         */
+        InvestigationIndex(FormatInstance investigation) {
+            if (investigation == null) {
+                return;
+            }
+            StudyInfo study = null;
+            for (SectionInstance section : investigation.getSectionInstances()) {
+                String sectionId = section.getSection().getId();
+                int nrecords = section.getRecords().size();
+                if ("ontoSources".equals(sectionId)) {
+                    for (int i = 0; i < nrecords; i++) {
+                        String name = getValue(section, i, "Term Source Name");
+                        if (name != null) {
+                            termSourceNames.add(name);
+                        }
+                    }
+                } else if ("study".equals(sectionId)) {
+                    String sampleFileId = getValue(section, 0, "Study File Name");
+                    study = new StudyInfo(getValue(section, 0, "Study Identifier"), sampleFileId);
+                    if (sampleFileId != null) {
+                        studiesBySampleFile.put(sampleFileId, study);
+                    }
+                } else if (study == null) {
+                    continue;
+                } else if ("protocols".equals(sectionId)) {
+                    for (int i = 0; i < nrecords; i++) {
+                        String name = getValue(section, i, "Study Protocol Name");
+                        if (name != null) {
+                            study.protocolTypes.put(name, getValue(section, i, "Study Protocol Type"));
+                        }
+                    }
+                } else if ("assays".equals(sectionId)) {
+                    for (int i = 0; i < nrecords; i++) {
+                        String assayFileId = getValue(section, i, "Study Assay File Name");
+                        if (assayFileId != null) {
+                            assaysByFile.put(assayFileId, new AssayInfo(
+                                    study,
+                                    getValue(section, i, "Study Assay Measurement Type"),
+                                    getValue(section, i, "Study Assay Technology Type")
+                            ));
+                        }
+                    }
+                }
+            }
+        }
+
+        private static String getValue(SectionInstance section, int recordIndex, String fieldName) {
+            if (recordIndex >= section.getRecords().size()) {
+                return null;
+            }
+            return StringUtils.trimToNull(section.getStringUnchecked(recordIndex, fieldName));
+        }
+
+        /**
+         * The study sample files followed by the assay files, in the order they're declared.
+         */
+        List<String> getFileIds() {
+            List<String> result = new ArrayList<String>(studiesBySampleFile.keySet());
+            result.addAll(assaysByFile.keySet());
+            return result;
+        }
+
+        /**
+         * See {@link FileReport#getDependencyKey()}, null if the file is not in the investigation.
+         */
+        String getDependencyKey(String fileId, Set<String> protocolNames, Set<String> termSourceNames) {
+            StringBuilder result = new StringBuilder();
+            StudyInfo study = studiesBySampleFile.get(fileId);
+            if (study != null) {
+                result.append("sample\t").append(study.acc);
+            } else {
+                AssayInfo assay = assaysByFile.get(fileId);
+                if (assay == null) {
+                    return null;
+                }
+                study = assay.study;
+                result.append("assay\t").append(study.acc)
+                        .append('\t').append(assay.measurement).append("//").append(assay.technology);
+            }
+            for (String protocolName : new TreeSet<String>(protocolNames)) {
+                result.append("\tprotocol:").append(protocolName).append('=').append(
+                        study.protocolTypes.containsKey(protocolName) ? study.protocolTypes.get(protocolName) : "\0"
+                );
+            }
+            for (String termSourceName : new TreeSet<String>(termSourceNames)) {
+                result.append("\tsource:").append(termSourceName).append('=')
+                        .append(this.termSourceNames.contains(termSourceName));
+            }
+            return result.toString();
+        }
+    }
+
+
+    /**
+     * Sets up the loader in streaming mode and loads the submission, checking the study and assay files.
+     * Only the {@link ISATABLoader#getSelectedFileIds() selected files} are checked, if the loader has a selection.
+     */
+    static FileChecker checkFiles(ISATABLoader loader, ISAConfigurationSet cfgSet) throws IOException {
+        TabErrorCollector loadErrors = new TabErrorCollector();
+        loader.setErrorCollector(loadErrors);
+        // The file checks are independent, but this keeps the reports in the same order of the files
+        loader.setParallelMode(false);
+        FileChecker checker = new FileChecker(loader.getFormatSetInstance(), cfgSet);
+        loader.setRecordConsumer(checker);
+        loader.load();
+        checker.finish(loadErrors);
+        return checker;
+    }
+
+    /**
+     * Merges the file reports into the final result, in the order of the files, and checks the sample names
+     * referred by the assay files against those defined by their study files.
+     *
+     * @param otherErrors errors that are not about a file with a report, e.g., missing files.
+     */
+    static GUIInvokerResult collectResults(
+            InvestigationIndex index, List<TabErrorEntry> otherErrors, Map<String, FileReport> reports,
+            TabErrorCollector errors, Set<String> messages) {
+        for (TabErrorEntry error : otherErrors) {
+            errors.add(error);
+        }
+        for (String fileId : index.getFileIds()) {
+            FileReport report = reports.get(fileId);
+            if (report == null) {
+                continue;
+            }
+            for (TabErrorEntry error : report.getErrors()) {
+                errors.add(error);
+            }
+            messages.addAll(report.getMessages());
+
+            if (report.isSampleFile()) {
+                continue;
+            }
+            StudyInfo study = index.assaysByFile.get(fileId).study;
+            FileReport studyReport = study.sampleFileId == null ? null : reports.get(study.sampleFileId);
+            if (studyReport != null) {
+                checkSampleNames(report, studyReport.getSampleNames().keySet(), errors);
+            }
+        }
+
+        if (!errors.isEmpty()) {
+            return GUIInvokerResult.ERROR;
+        }
+        return messages.isEmpty() ? GUIInvokerResult.SUCCESS : GUIInvokerResult.WARNING;
+    }
+
+    /**
+     * Reports the sample names referred by the assay file and not defined by the study, once per file.
+     */
+    private static void checkSampleNames(FileReport assayReport, Set<String> definedNames, TabErrorCollector errors) {
+        String firstUndefinedName = null;
+        int nundefinedNames = 0;
+        for (String sampleName : assayReport.getSampleNames().keySet()) {
+            if (!definedNames.contains(sampleName) && nundefinedNames++ == 0) {
+                firstUndefinedName = sampleName;
+            }
+        }
+        if (nundefinedNames == 0) {
+            return;
+        }
+
+        String fileId = assayReport.getFileId();
+        int line = assayReport.getSampleNames().get(firstUndefinedName);
+        String msg = String.format(
+                "%s is a Sample Name in %s, but it is not defined in the Study Sample File (line %d, %d undefined "
+                        + "sample name(s) in total)",
+                firstUndefinedName, fileId, line, nundefinedNames
+        );
+        log.error(msg);
+        errors.add(fileId, line, assayReport.sampleNameColumn, "undefined_sample_name", msg);
+    }
+
+
+    /**
+     * Receives the rows from the loader and keeps the per-table state, which is created when the first row of a
+     * table arrives. The loader is sequential, so this is used by one thread only.
+     */
+    static class FileChecker implements RecordConsumer {
+        private final FormatSetInstance formatSetInstance;
+        private final ISAConfigurationSet cfgSet;
+        private InvestigationIndex index = null;
+
+        private final Map<SectionInstance, TableChecker> tables = new LinkedHashMap<SectionInstance, TableChecker>();
+        private TableChecker currentTable = null;
+
+        private final Map<String, FileReport> reports = new LinkedHashMap<String, FileReport>();
+        private final List<TabErrorEntry> unassignedErrors = new ArrayList<TabErrorEntry>();
+
+        FileChecker(FormatSetInstance formatSetInstance, ISAConfigurationSet cfgSet) {
+            this.formatSetInstance = formatSetInstance;
+            this.cfgSet = cfgSet;
+        }
+
+        public void consume(Record record, int lineIndex) {
+            SectionInstance table = record.getParent();
+            if (currentTable == null || currentTable.table != table) {
+                currentTable = getTableChecker(table);
+            }
+            if (currentTable != null) {
+                currentTable.check(record, lineIndex);
+            }
+        }
+
+        /**
+         * Checks the tables without rows too (their structure only) and builds the reports, assigning them the
+         * loader errors about their files.
+         */
+        void finish(TabErrorCollector loadErrors) {
+            for (FormatInstance formatInstance : formatSetInstance.getFormatInstances()) {
+                for (SectionInstance table : formatInstance.getSectionInstances()) {
+                    getTableChecker(table);
+                }
+            }
+
+            Map<String, List<TabErrorEntry>> loadErrorsByFile = new HashMap<String, List<TabErrorEntry>>();
+            for (TableChecker tableChecker : tables.values()) {
+                if (tableChecker != null) {
+                    loadErrorsByFile.put(tableChecker.fileId, new ArrayList<TabErrorEntry>());
+                }
+            }
+            for (TabErrorEntry error : loadErrors.getErrors()) {
+                List<TabErrorEntry> fileErrors = loadErrorsByFile.get(error.getFileId());
+                if (fileErrors == null) {
+                    unassignedErrors.add(error);
+                } else {
+                    fileErrors.add(error);
+                }
+            }
+
+            for (TableChecker tableChecker : tables.values()) {
+                if (tableChecker != null) {
+                    reports.put(tableChecker.fileId, tableChecker.finish(loadErrorsByFile.get(tableChecker.fileId)));
+                }
+            }
+        }
+
+        /**
+         * The index of the investigation file, which is built the first time, so it has to be called after the
+         * investigation file is loaded.
+         */
+        InvestigationIndex getIndex() {
+            if (index == null) {
+                index = new InvestigationIndex(formatSetInstance.getFormatInstance("investigation"));
+            }
+            return index;
+        }
+
+        /**
+         * The reports about the checked files, available after {@link #finish(TabErrorCollector)}.
+         */
+        Map<String, FileReport> getReports() {
+            return reports;
+        }
+
+        /**
+         * The loader errors that aren't about a checked file, e.g., about the investigation or a missing file.
+         */
+        List<TabErrorEntry> getUnassignedErrors() {
+            return unassignedErrors;
+        }
+
+        /**
+         * The checker for the table, which is created and checks the table headers the first time. null if the
+         * table is not a study or assay file.
+         */
+        private TableChecker getTableChecker(SectionInstance table) {
+            if (tables.containsKey(table)) {
+                return tables.get(table);
+            }
+            InvestigationIndex index = getIndex();
+
+            TableChecker result = null;
+            String fileId = table.getFileId();
+            if ("study_samples".equals(table.getParent().getFormat().getId())) {
+                StudyInfo study = index.studiesBySampleFile.get(fileId);
+                if (study != null) {
+                    result = new TableChecker(table, index, study, true, cfgSet.getConfig("[sample]", ""), cfgSet);
+                    if (result.cfg == null) {
+                        result.messages.add(
+                                "No ISA Configuration defined for the sample file, the ISA Configurator validation is not done for the file '"
+                                        + fileId + "'"
+                        );
+                    }
+                }
+            } else {
+                AssayInfo assay = index.assaysByFile.get(fileId);
+                if (assay != null) {
+                    result = new TableChecker(
+                            table, index, assay.study, false, cfgSet.getConfig(assay.measurement, assay.technology), cfgSet
+                    );
+                    if (result.cfg == null) {
+                        result.messages.add(
+                                "No ISA Configuration defined for the type " + assay.measurement + " / " + assay.technology
+                                        + ", the ISA Configurator validation is not done for the file '" + fileId + "'"
+                        );
+                    }
+                }
+            }
+            tables.put(table, result);
+            return result;
+        }
+    }
+
+
+    /**
+     * The checks about a single study or assay file. The structure is checked as soon as the table is met,
+     * the rows one by one, keeping only the counts and the first occurrences of the problems.
+     */
+    private static class TableChecker {
+        final SectionInstance table;
+        final InvestigationIndex index;
+        final StudyInfo study;
+        final boolean isSampleTable;
+        final IsaTabConfigurationType cfg;
+        final String fileId;
+
+        final Set<String> messages = new LinkedHashSet<String>();
+        final TabErrorCollector errors = new TabErrorCollector();
+        private long recordCount = 0;
+
+        private ValidationPlan plan = null;
+        private boolean[] hasUnitColumn = null;
+        private List<ProtocolSegment> protocolSegments = Collections.emptyList();
+        private final List<Field> factorFields = new ArrayList<Field>();
+        private final List<Field> protocolFields = new ArrayList<Field>();
+        private final List<Field> termSourceFields = new ArrayList<Field>();
+        private final Field sampleNameField;
+
+        private long[] invalidValues = null;
+        private int[] firstInvalidLines = null;
+        private final Map<String, Integer> sampleNames = new LinkedHashMap<String, Integer>();
+        private final Set<String> protocolNames = new HashSet<String>();
+        private final Set<String> termSourceNames = new HashSet<String>();
+
+        TableChecker(
+                SectionInstance table, InvestigationIndex index, StudyInfo study, boolean isSampleTable,
+                IsaTabConfigurationType cfg, ISAConfigurationSet cfgSet) {
+            this.table = table;
+            this.index = index;
+            this.study = study;
+            this.isSampleTable = isSampleTable;
+            this.cfg = cfg;
+            this.fileId = table.getFileId();
+
+            sampleNameField = table.getFieldByHeader("Sample Name");
+            for (Field field : table.getFields()) {
+                String header = field.getAttr("header");
+                if ("Protocol REF".equalsIgnoreCase(header)) {
+                    protocolFields.add(field);
+                } else if ("Term Source REF".equalsIgnoreCase(header)) {
+                    termSourceFields.add(field);
+                } else if ("Factor Value".equals(field.getId())) {
+                    factorFields.add(field);
+                }
+            }
+
+            if (cfg != null) {
+                checkStructure(cfgSet);
+            }
+        }
+
+        /**
+         * The checks that don't depend on the rows: required and repeated fields, unit columns and protocol columns.
+         * The validators used by {@link ISATABValidator} only look at the headers when the table has no records.
+         */
+        private void checkStructure(ISAConfigurationSet cfgSet) {
+            BIIObjectStore store = new BIIObjectStore();
+            AbstractValidatorComponent requiredFieldsValidator = new RequiredFieldsValidator(store, cfgSet, messages);
+            requiredFieldsValidator.setErrorCollector(errors);
+            requiredFieldsValidator.validate(table, cfg);
+            if (new UnitFieldsValidator(store, cfgSet, messages).validate(table, cfg) != GUIInvokerResult.SUCCESS) {
+                messages.add("Missing required 'Unit' column(s) in the file '" + fileId + "'");
+            }
+
+            plan = ValidationPlan.getPlan(table, cfg);
+            int ncols = plan.getColumnCount();
+            invalidValues = new long[ncols];
+            firstInvalidLines = new int[ncols];
+            hasUnitColumn = new boolean[ncols];
+            List<Field> fields = table.getFields();
+            for (int icol = 0; icol < ncols - 1; icol++) {
+                hasUnitColumn[icol] = plan.getUnitField(icol) != null
+                        && "Unit".equalsIgnoreCase(fields.get(icol + 1).getAttr("header"));
+            }
+
+            protocolSegments = getProtocolSegments(fields);
+        }
+
+        /**
+         * The protocols configured between every couple of adjacent node columns, together with the protocol columns
+         * between them.
+         */
+        private List<ProtocolSegment> getProtocolSegments(List<Field> fields) {
+            List<ProtocolSegment> result = new ArrayList<ProtocolSegment>();
+            Field inField = null;
+            List<Field> protoFields = new ArrayList<Field>();
+            for (Field field : fields) {
+                String lcHeader = field.getAttr("header").toLowerCase();
+                if ("protocol ref".equals(lcHeader)) {
+                    protoFields.add(field);
+                    continue;
+                }
+                if (!lcHeader.endsWith(" name") && !lcHeader.endsWith(" data file")
+                        && !lcHeader.endsWith(" data matrix file")) {
+                    continue;
+                }
+                if (inField != null) {
+                    FieldType cinField = plan.getConfigurationField(inField.getIndex()),
+                            coutField = plan.getConfigurationField(field.getIndex());
+                    if (cinField != null && coutField != null) {
+                        List<ProtocolFieldType> cprotos = ISAConfigurationSet.getProtocolsBetween(cinField, coutField);
+                        if (!cprotos.isEmpty()) {
+                            result.add(new ProtocolSegment(inField, field, protoFields, cprotos));
+                        }
+                    }
+                }
+                inField = field;
+                protoFields = new ArrayList<Field>();
+            }
+            if (!protoFields.isEmpty()) {
+                messages.add("Protocol REF column without output in file '" + fileId + "'");
+            }
+            return result;
+        }
+
+
+        /**
+         * Checks a single row.
+         */
+        void check(Record record, int lineIndex) {
+            recordCount++;
+            checkReferences(record, lineIndex);
+            if (cfg == null) {
+                return;
+            }
+
+            int ncols = Math.min(plan.getColumnCount(), record.size());
+            for (int icol = 0; icol < ncols; icol++) {
+                FieldType cfield = plan.getConfigurationField(icol);
+                if (cfield != null) {
+                    checkValue(record, lineIndex, icol, cfield);
+                }
+            }
+
+            for (Field factorField : factorFields) {
+                if (getValue(record, factorField.getIndex()) == null) {
+                    messages.add(i18n.msg("missing_factor", factorField.getAttr("header"), fileId));
+                }
+            }
+
+            for (ProtocolSegment segment : protocolSegments) {
+                checkProtocols(record, segment);
+            }
+        }
+
+        /**
+         * Collects what the row refers to in other files: the sample name (a definition, for the sample files),
+         * the protocols and the ontology sources. Undeclared protocols and sources are reported the first time.
+         */
+        private void checkReferences(Record record, int lineIndex) {
+            if (sampleNameField != null) {
+                String sampleName = getValue(record, sampleNameField.getIndex());
+                if (sampleName != null && !sampleNames.containsKey(sampleName)) {
+                    sampleNames.put(sampleName, lineIndex);
+                }
+            }
+
+            for (Field protocolField : protocolFields) {
+                String protocolName = getValue(record, protocolField.getIndex());
+                if (protocolName != null && protocolNames.add(protocolName)
+                        && !study.protocolTypes.containsKey(protocolName)) {
+                    String msg = i18n.msg("ref_protocol_missing", protocolName, study.acc);
+                    log.error(msg);
+                    errors.add(fileId, lineIndex, protocolField.getIndex(), "ref_protocol_missing", msg);
+                }
+            }
+
+            for (Field termSourceField : termSourceFields) {
+                String termSourceName = getValue(record, termSourceField.getIndex());
+                if (termSourceName != null && termSourceNames.add(termSourceName)
+                        && !index.termSourceNames.contains(termSourceName)) {
+                    messages.add("The ontology source '" + termSourceName
+                            + "' is not declared in the investigation file, but it is used in the file '" + fileId + "'");
+                }
+            }
+        }
+
+        private void checkValue(Record record, int lineIndex, int icol, FieldType cfield) {
+            String value = getValue(record, icol);
+            if (value == null) {
+                if (cfield.getIsRequired()) {
+                    messages.add("Missing value for the required field '" + cfield.getHeader() + "' in the file '"
+                            + fileId + "'");
+                }
+                return;
+            }
+
+            ValidationPlan.ValueChecker checker = plan.getValueChecker(icol);
+            if (checker == ValidationPlan.UNKNOWN_TYPE_CHECKER) {
+                messages.add("Unknown data type '" + StringUtils.trimToNull(cfield.getDataType()) + "' for field '"
+                        + cfield.getHeader() + "' in the file '" + fileId + "'");
+            } else if (checker != null && !checker.isValid(value)) {
+                if (invalidValues[icol]++ == 0) {
+                    firstInvalidLines[icol] = lineIndex;
+                    log.debug("Invalid value '" + value + "' for type '" + cfield.getDataType() + "' of the field '"
+                            + cfield.getHeader() + "'");
+                }
+            }
+
+            if (hasUnitColumn[icol]) {
+                UnitFieldType ucfield = plan.getUnitField(icol);
+                if (ucfield.getIsRequired() && getValue(record, icol + 1) == null) {
+                    messages.add("Missing Unit Values for the field '" + cfield.getHeader() + "' in the file '"
+                            + fileId + "'");
+                }
+            }
+        }
+
+        /**
+         * Checks the declared types of the protocols used between two nodes against the configured ones. Undeclared
+         * protocols are reported by {@link #checkReferences(Record, int)}.
+         */
+        private void checkProtocols(Record record, ProtocolSegment segment) {
+            String inHeader = segment.inField.getAttr("header"), outHeader = segment.outField.getAttr("header");
+            int[] nmatches = segment.nmatches;
+            Arrays.fill(nmatches, 0);
+
+            for (Field protoField : segment.protoFields) {
+                String protoName = getValue(record, protoField.getIndex());
+                String protoType = protoName == null ? null : StringUtils.trimToNull(study.protocolTypes.get(protoName));
+                if (protoType == null) {
+                    continue;
+                }
+
+                boolean isMatched = false;
+                for (int i = 0; i < nmatches.length; i++) {
+                    if (StringUtils.equalsIgnoreCase(
+                            StringUtils.trimToNull(segment.cfgProtos.get(i).getProtocolType()), protoType)) {
+                        isMatched = true;
+                        nmatches[i]++;
+                    }
+                }
+                if (!isMatched) {
+                    messages.add("The used protocol type '" + protoType
+                            + "' is not defined in the ISA-configuration as a protocol between '" + inHeader + "' and '"
+                            + outHeader + "', in the file '" + fileId + "'");
+                }
+            }
+
+            for (int i = 0; i < nmatches.length; i++) {
+                ProtocolFieldType cfproto = segment.cfgProtos.get(i);
+                String cfPtype = StringUtils.trimToNull(cfproto.getProtocolType());
+                if (cfPtype == null) {
+                    continue;
+                }
+                if (nmatches[i] == 0 && cfproto.getIsRequired()) {
+                    messages.add("The protocol type '" + cfPtype + "' is required between '" + inHeader + "' and '"
+                            + outHeader + "', in the file '" + fileId + "'");
+                } else if (nmatches[i] > 1) {
+                    messages.add("Strangely, the protocol type '" + cfPtype + "' is used more than once between '"
+                            + inHeader + "' and '" + outHeader + "', in the file '" + fileId + "'");
+                }
+            }
+        }
+
+        /**
+         * Reports the problems found in the rows.
+         *
+         * @param loadErrors the errors the loader reported about the file, which come first in the report
+         */
+        FileReport finish(List<TabErrorEntry> loadErrors) {
+            if (invalidValues != null) {
+                for (int icol = 0; icol < invalidValues.length; icol++) {
+                    if (invalidValues[icol] > 0) {
+                        messages.add(invalidValues[icol] + " invalid value(s) found in the field '"
+                                + plan.getConfigurationField(icol).getHeader() + "' in the file '" + fileId
+                                + "', the first at line " + firstInvalidLines[icol]);
+                    }
+                }
+            }
+
+            List<TabErrorEntry> fileErrors = new ArrayList<TabErrorEntry>(loadErrors);
+            fileErrors.addAll(errors.getErrors());
+            return new FileReport(
+                    fileId, isSampleTable, fileErrors, messages, recordCount, sampleNames,
+                    sampleNameField == null ? -1 : sampleNameField.getIndex(), protocolNames, termSourceNames,
+                    index.getDependencyKey(fileId, protocolNames, termSourceNames)
+            );
+        }
+
+        private String getValue(Record record, int icol) {
+            return icol < record.size() ? StringUtils.trimToNull(record.getString(icol)) : null;
+        }
+    }
+
+    /**
+     * The configured protocols between two node columns and the protocol columns actually found there.
+     */
+    private static class ProtocolSegment {
+        final Field inField, outField;
+        final List<Field> protoFields;
+        final List<ProtocolFieldType> cfgProtos;
+        final int[] nmatches;
+
+        ProtocolSegment(Field inField, Field outField, List<Field> protoFields, List<ProtocolFieldType> cfgProtos) {
+            this.inField = inField;
+            this.outField = outField;
+            this.protoFields = protoFields;
+            this.cfgProtos = cfgProtos;
+            nmatches = new int[cfgProtos.size()];
+        }
+    }
+
+}
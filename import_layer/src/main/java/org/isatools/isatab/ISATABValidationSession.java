@@ -0,0 +1,334 @@
+/**
+
+ The ISAconverter, ISAvalidator & BII Management Tool are components of the ISA software suite (http://www.isa-tools.org)
+
+ Exhibit A
+ The ISAconverter, ISAvalidator & BII Management Tool are licensed under the Mozilla Public License (MPL) version
+ 1.1/GPL version 2.0/LGPL version 2.1
+
+ "The contents of this file are subject to the Mozilla Public License
+ Version 1.1 (the "License"). You may not use this file except in compliance with the License.
+ You may obtain copies of the Licenses at http://www.mozilla.org/MPL/MPL-1.1.html.
+
+ Software distributed under the License is distributed on an "AS IS"
+ basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ License for the specific language governing rights and limitations
+ under the License.
+
+ The Original Code is the ISAconverter, ISAvalidator & BII Management Tool.
+
+ The Initial Developer of the Original Code is the ISA Team (Eamonn Maguire, eamonnmag@gmail.com;
+ Philippe Rocca-Serra, proccaserra@gmail.com; Susanna-Assunta Sansone, sa.sanson@gmail.com;
+ http://www.isa-tools.org). All portions of the code written by the ISA Team are Copyright (c)
+ 2007-2011 ISA Team. All Rights Reserved.
+
+ Contributor(s):
+ Rocca-Serra P, Brandizi M, Maguire E, Sklyar N, Taylor C, Begley K, Field D,
+ Harris S, Hide W, Hofmann O, Neumann S, Sterk P, Tong W, Sansone SA. ISA software suite:
+ supporting standards-compliant experimental annotation and enabling curation at the community level.
+ Bioinformatics 2010;26(18):2354-6.
+
+ Alternatively, the contents of this file may be used under the terms of either the GNU General
+ Public License Version 2 or later (the "GPL") - http://www.gnu.org/licenses/gpl-2.0.html, or
+ the GNU Lesser General Public License Version 2.1 or later (the "LGPL") -
+ http://www.gnu.org/licenses/lgpl-2.1.html, in which case the provisions of the GPL
+ or the LGPL are applicable instead of those above. If you wish to allow use of your version
+ of this file only under the terms of either the GPL or the LGPL, and not to allow others to
+ use your version of this file under the terms of the MPL, indicate your decision by deleting
+ the provisions above and replace them with the notice and other provisions required by the
+ GPL or the LGPL. If you do not delete the provisions above, a recipient may use your version
+ of this file under the terms of any one of the MPL, the GPL or the LGPL.
+
+ Sponsors:
+ The ISA Team and the ISA software suite have been funded by the EU Carcinogenomics project
+ (http://www.carcinogenomics.eu), the UK BBSRC (http://www.bbsrc.ac.uk), the UK NERC-NEBC
+ (http://nebc.nerc.ac.uk) and in part by the EU NuGO consortium (http://www.nugo.org/everyone).
+
+ */
+
+package org.isatools.isatab;
+
+import org.apache.log4j.Logger;
+import org.isatools.isatab.ISATABStreamingValidator.FileChecker;
+import org.isatools.isatab.ISATABStreamingValidator.FileReport;
+import org.isatools.isatab.ISATABStreamingValidator.InvestigationIndex;
+import org.isatools.isatab.gui_invokers.GUIInvokerResult;
+import org.isatools.isatab.isaconfigurator.ISAConfigurationSet;
+import org.isatools.isatab.isaconfigurator.ISAConfigurationSnapshot;
+import org.isatools.isatab_v1.ISATABLoader;
+import org.isatools.tablib.parser.CsvReaderTokenizer;
+import org.isatools.tablib.parser.ParseCache;
+import org.isatools.tablib.parser.TabTokenizer;
+import org.isatools.tablib.utils.logging.TabErrorCollector;
+import org.isatools.tablib.utils.logging.TabErrorEntry;
+
+import java.io.*;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.util.*;
+
+/**
+ * Validates a submission repeatedly, re-checking only what has changed since the previous run, which is what is
+ * needed in the edit-validate loop of a curator.
+ * <p/>
+ * The checks are those of {@link ISATABStreamingValidator}. For every study and assay file, the session keeps the
+ * SHA-1 hash of the contents and the {@link FileReport validation report}, which records what the file refers to in
+ * the rest of the submission: the study and the assay type it's declared with, the protocols and the ontology
+ * sources it uses (all in the investigation file), the sample names it defines or refers to. At every run, the
+ * investigation file is loaded, then a file is checked again only if it's new, its contents have changed or what
+ * it depends on in the investigation file has changed. The reports of the other files are reused and the checks
+ * across the files (i.e., the sample names referred by the assays) are redone on the kept names, without reading
+ * the files again.
+ * <p/>
+ * Everything is checked again when the ISA configuration is reloaded. The files are always hashed (modification
+ * times aren't reliable enough), the hash kept with a report is the one of the bytes that the loader actually read
+ * for that report, so that a change made while the file was being checked is seen at the next run.
+ */
+public class ISATABValidationSession {
+    private final String sourcePath;
+    private final File baseDir;
+    private final ISAConfigurationSet isaConfigSet;
+
+    private ISAConfigurationSnapshot lastSnapshot = null;
+    private final Map<String, FileState> fileStates = new HashMap<String, FileState>();
+
+    private final Set<String> messages = new LinkedHashSet<String>();
+    private final TabErrorCollector errors = new TabErrorCollector();
+    private final Set<String> revalidatedFileIds = new LinkedHashSet<String>();
+    private long recordCount = 0;
+
+    protected static final Logger log = Logger.getLogger(ISATABValidationSession.class);
+
+    /**
+     * What we know about a file since the last time it was checked.
+     */
+    private static class FileState {
+        final String hash;
+        final FileReport report;
+
+        FileState(String hash, FileReport report) {
+            this.hash = hash;
+            this.report = report;
+        }
+    }
+
+    /**
+     * A loader that hashes the files while it reads them, see {@link #getHash(File)}.
+     */
+    private static class HashingLoader extends ISATABLoader {
+        private final Map<String, String> hashes = new HashMap<String, String>();
+
+        HashingLoader(String sourcePath) {
+            super(sourcePath);
+        }
+
+        @Override
+        protected TabTokenizer createTokenizer(File file) throws IOException {
+            final String path = file.getCanonicalPath();
+            final MessageDigest digest = ParseCache.newDigest();
+            InputStream in = new DigestInputStream(new FileInputStream(file), digest) {
+                private boolean isEOF = false;
+
+                @Override
+                public int read() throws IOException {
+                    int result = super.read();
+                    if (result == -1) {
+                        recordHash();
+                    }
+                    return result;
+                }
+
+                @Override
+                public int read(byte[] buffer, int offset, int length) throws IOException {
+                    int result = super.read(buffer, offset, length);
+                    if (result == -1) {
+                        recordHash();
+                    }
+                    return result;
+                }
+
+                private void recordHash() {
+                    if (isEOF) {
+                        return;
+                    }
+                    isEOF = true;
+                    synchronized (hashes) {
+                        hashes.put(path, ParseCache.toHex(digest.digest()));
+                    }
+                }
+            };
+            return new CsvReaderTokenizer(new BufferedReader(new InputStreamReader(in)));
+        }
+
+        /**
+         * The hash of the file as it was read by the loader, null if the loader didn't read it until its end.
+         */
+        String getHash(File file) throws IOException {
+            synchronized (hashes) {
+                return hashes.get(file.getCanonicalPath());
+            }
+        }
+    }
+
+    /**
+     * @param sourcePath the submission directory or its investigation file, like in {@link ISATABLoader}.
+     */
+    public ISATABValidationSession(String sourcePath) {
+        this(sourcePath, new ISAConfigurationSet());
+    }
+
+    public ISATABValidationSession(String sourcePath, ISAConfigurationSet isaConfigSet) {
+        this.sourcePath = sourcePath;
+        this.isaConfigSet = isaConfigSet;
+        File sourceFile = new File(sourcePath);
+        this.baseDir = sourceFile.isFile() ? sourceFile.getParentFile() : sourceFile;
+    }
+
+
+    /**
+     * Validates the submission, re-checking only the files that are affected by the changes since the previous
+     * invocation (all of them the first time).
+     *
+     * @return {@link GUIInvokerResult#ERROR} if there are {@link #getErrors() errors},
+     *         {@link GUIInvokerResult#WARNING} if there are only {@link #getMessages() messages}. The result is about
+     *         the whole submission, not only the re-checked files.
+     */
+    public synchronized GUIInvokerResult validate() throws IOException {
+        messages.clear();
+        errors.clear();
+        revalidatedFileIds.clear();
+        recordCount = 0;
+
+        ISAConfigurationSnapshot snapshot = isaConfigSet.getSnapshot();
+        if (snapshot != lastSnapshot) {
+            if (lastSnapshot != null) {
+                log.info("The ISA configuration has changed, all the files in '" + sourcePath + "' will be validated");
+            }
+            fileStates.clear();
+            lastSnapshot = snapshot;
+        }
+
+        // The investigation file tells us which files there are and what they depend on, so it's loaded first and
+        // on its own. It's small, so loading it again below doesn't cost much.
+        ISATABLoader investigationLoader = new ISATABLoader(sourcePath);
+        investigationLoader.setErrorCollector(new TabErrorCollector());
+        investigationLoader.setSelectedFileIds(Collections.<String>emptySet());
+        investigationLoader.load();
+        InvestigationIndex index = new InvestigationIndex(
+                investigationLoader.getFormatSetInstance().getFormatInstance("investigation")
+        );
+
+        Map<String, FileState> newStates = new HashMap<String, FileState>();
+        for (String fileId : index.getFileIds()) {
+            File file = new File(baseDir, fileId);
+            if (!file.isFile()) {
+                // The loader reports it
+                continue;
+            }
+            FileState state = fileStates.get(fileId);
+            String hash = ParseCache.digest(new byte[0], new BufferedInputStream(new FileInputStream(file)));
+
+            if (state == null || !hash.equals(state.hash) || !isSameDependencies(index, state.report)) {
+                revalidatedFileIds.add(fileId);
+                state = null;
+            }
+            newStates.put(fileId, new FileState(hash, state == null ? null : state.report));
+        }
+        log.info("Validating " + revalidatedFileIds.size() + " file(s) out of " + newStates.size() + " in '"
+                + sourcePath + "': " + revalidatedFileIds);
+
+        HashingLoader loader = new HashingLoader(sourcePath);
+        loader.setSelectedFileIds(revalidatedFileIds);
+        FileChecker checker = ISATABStreamingValidator.checkFiles(loader, new ISAConfigurationSet(snapshot));
+
+        // Keeps the new reports and forgets the files that are not in the submission anymore
+        fileStates.clear();
+        Map<String, FileReport> reports = new HashMap<String, FileReport>();
+        for (Map.Entry<String, FileState> entry : newStates.entrySet()) {
+            String fileId = entry.getKey();
+            FileState state = entry.getValue();
+            if (revalidatedFileIds.contains(fileId)) {
+                FileReport report = checker.getReports().get(fileId);
+                if (report == null) {
+                    // It couldn't be loaded, the errors are reported by the loader, let's try again the next time
+                    continue;
+                }
+                recordCount += report.getRecordCount();
+                // The report is about what the loader read, which might differ from what was hashed above
+                String loadedHash = loader.getHash(new File(baseDir, fileId));
+                state = new FileState(loadedHash == null ? state.hash : loadedHash, report);
+            }
+            fileStates.put(fileId, state);
+            reports.put(fileId, state.report);
+        }
+
+        GUIInvokerResult result = ISATABStreamingValidator.collectResults(
+                checker.getIndex(), checker.getUnassignedErrors(), reports, errors, messages
+        );
+        for (String msg : messages) {
+            log.warn(msg);
+        }
+        return result;
+    }
+
+    /**
+     * true if what the report depends on in the investigation file is the same as when it was produced.
+     */
+    private static boolean isSameDependencies(InvestigationIndex index, FileReport report) {
+        String dependencyKey = index.getDependencyKey(
+                report.getFileId(), report.getProtocolNames(), report.getTermSourceNames()
+        );
+        return dependencyKey != null && dependencyKey.equals(report.getDependencyKey());
+    }
+
+    /**
+     * Forgets everything, so that the next {@link #validate()} checks all the files.
+     */
+    public synchronized void reset() {
+        fileStates.clear();
+        lastSnapshot = null;
+    }
+
+
+    public String getSourcePath() {
+        return sourcePath;
+    }
+
+    /**
+     * The warnings about the whole submission, as of the last {@link #validate()} invocation.
+     */
+    public synchronized Set<String> getMessages() {
+        return Collections.unmodifiableSet(new LinkedHashSet<String>(messages));
+    }
+
+    /**
+     * The errors about the whole submission, as of the last {@link #validate()} invocation.
+     */
+    public synchronized List<TabErrorEntry> getErrors() {
+        return errors.getErrors();
+    }
+
+    /**
+     * The study and assay files that were actually checked by the last {@link #validate()} invocation.
+     */
+    public synchronized Set<String> getRevalidatedFileIds() {
+        return Collections.unmodifiableSet(new LinkedHashSet<String>(revalidatedFileIds));
+    }
+
+    /**
+     * The no. of rows checked by the last {@link #validate()} invocation, i.e., the rows of the
+     * {@link #getRevalidatedFileIds() re-checked files}.
+     */
+    public synchronized long getRecordCount() {
+        return recordCount;
+    }
+
+    /**
+     * The report about a study or assay file, as of the last {@link #validate()} invocation, null if the file
+     * couldn't be checked.
+     */
+    public synchronized FileReport getFileReport(String fileId) {
+        FileState state = fileStates.get(fileId);
+        return state == null ? null : state.report;
+    }
+}
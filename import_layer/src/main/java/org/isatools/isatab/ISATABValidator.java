@@ -48,18 +48,28 @@
 
 package org.isatools.isatab;
 
+import org.apache.log4j.Logger;
 import org.isatools.isatab.gui_invokers.GUIInvokerResult;
+import org.isatools.isatab.isaconfigurator.ISAConfigurationSet;
 import org.isatools.isatab.isaconfigurator.ISAConfiguratorValidator;
+import org.isatools.isatab.isaconfigurator.validators.OntologyValidationManager;
 import org.isatools.isatab_v1.mapping.ISATABMapper;
 import org.isatools.isatab_v1.mapping.ISATABReducedMapper;
+import org.isatools.tablib.exceptions.TabValidationException;
 import org.isatools.tablib.schema.FormatSetInstance;
 import org.isatools.tablib.utils.BIIObjectStore;
+import org.isatools.tablib.utils.logging.TabErrorEntry;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 
 /**
  * The new ISATAB validator. This class collects in a single point the procedure of validating a submission,
  * which was previously scattered over different invoking classes.
  * <p/>
- * We now have two validation modes, see below.
+ * We now have two validation modes, see below. Both need the submission loaded in memory, for very large submissions
+ * {@link ISATABStreamingValidator} does most of the checks of the simple mode in a single pass over the files.
  *
  * @author brandizi
  *         <b>date</b>: Sep 22, 2009
@@ -67,9 +77,24 @@ import org.isatools.tablib.utils.BIIObjectStore;
 public class ISATABValidator {
     private BIIObjectStore store = new BIIObjectStore();
     private final FormatSetInstance isatabInstance;
+    private boolean collectAllErrors = false;
+    private List<TabErrorEntry> errors = Collections.emptyList();
+    private List<TabErrorEntry> loadErrors = Collections.emptyList();
+    private final ISAConfigurationSet isaConfigSet;
+    private OntologyValidationManager ontologyManager = null;
+
+    protected static final Logger log = Logger.getLogger(ISATABValidator.class);
 
     public ISATABValidator(FormatSetInstance isatabInstance) {
+        this(isatabInstance, new ISAConfigurationSet());
+    }
+
+    /**
+     * Uses a specific configuration set, e.g., one based on a configuration directory other than the default one.
+     */
+    public ISATABValidator(FormatSetInstance isatabInstance, ISAConfigurationSet isaConfigSet) {
         this.isatabInstance = isatabInstance;
+        this.isaConfigSet = isaConfigSet;
     }
 
 
@@ -92,8 +117,14 @@ public class ISATABValidator {
     public GUIInvokerResult validateSimple() {
         store = new BIIObjectStore();
         ISATABReducedMapper mapper = new ISATABReducedMapper(store, isatabInstance);
-        ISAConfiguratorValidator cfgValidator = new ISAConfiguratorValidator(mapper.map());
-        return cfgValidator.validate();
+        BIIObjectStore mappedStore;
+        try {
+            mappedStore = mapper.map();
+        }
+        catch (TabValidationException ex) {
+            return failMapping(ex);
+        }
+        return validate(new ISAConfiguratorValidator(mappedStore, isaConfigSet));
     }
 
     /**
@@ -107,8 +138,97 @@ public class ISATABValidator {
     public GUIInvokerResult validateFull() {
         store = new BIIObjectStore();
         ISATABMapper mapper = new ISATABMapper(store, isatabInstance);
-        ISAConfiguratorValidator cfgValidator = new ISAConfiguratorValidator(mapper.map());
-        return cfgValidator.validate();
+        BIIObjectStore mappedStore;
+        try {
+            mappedStore = mapper.map();
+        }
+        catch (TabValidationException ex) {
+            return failMapping(ex);
+        }
+        return validate(new ISAConfiguratorValidator(mappedStore, isaConfigSet));
+    }
+
+    private GUIInvokerResult validate(ISAConfiguratorValidator cfgValidator) {
+        cfgValidator.setCollectAllErrors(collectAllErrors);
+        cfgValidator.setOntologyManager(ontologyManager);
+        GUIInvokerResult result = cfgValidator.validate();
+        errors = mergeErrors(cfgValidator.getErrors(), null);
+        return loadErrors.isEmpty() ? result : GUIInvokerResult.ERROR;
+    }
+
+    /**
+     * Throws the mapping error or, in {@link #isCollectAllErrors() collect-all-errors mode}, reports it. The mapping
+     * stops at its first error, so the ISA-Configurator validation is not done in this case.
+     */
+    private GUIInvokerResult failMapping(TabValidationException ex) {
+        if (!collectAllErrors) {
+            throw ex;
+        }
+        log.error("Error while mapping the submission: " + ex.getMessage());
+        errors = mergeErrors(
+                Collections.<TabErrorEntry>emptyList(), new TabErrorEntry(null, -1, -1, "mapping", ex.getMessage(), ex)
+        );
+        return GUIInvokerResult.ERROR;
+    }
+
+    private List<TabErrorEntry> mergeErrors(List<TabErrorEntry> validationErrors, TabErrorEntry mappingError) {
+        List<TabErrorEntry> result = new ArrayList<TabErrorEntry>(loadErrors);
+        if (mappingError != null) {
+            result.add(mappingError);
+        }
+        result.addAll(validationErrors);
+        return Collections.unmodifiableList(result);
+    }
+
+    /**
+     * If true, the ISA-Configurator validation doesn't stop at the first table that fails, it reports the errors in all
+     * the tables via {@link #getErrors()}, see {@link ISAConfiguratorValidator#isCollectAllErrors()}. An error from
+     * the mapping to the BII model is reported too, rather than thrown, but the mapping stops at its first error, so
+     * there is at most one such error and the tables aren't validated in that case.
+     * <p/>
+     * This doesn't cover the loading of the submission, which happens before the validator is created: use
+     * {@link org.isatools.tablib.parser.TabLoader#setErrorCollector(org.isatools.tablib.utils.logging.TabErrorCollector)}
+     * for that and pass the errors to {@link #setLoadErrors(List)}.
+     * Default is false.
+     */
+    public boolean isCollectAllErrors() {
+        return collectAllErrors;
+    }
+
+    public void setCollectAllErrors(boolean collectAllErrors) {
+        this.collectAllErrors = collectAllErrors;
+    }
+
+    /**
+     * The manager of the ontology lookups, see {@link ISAConfiguratorValidator#getOntologyManager()}. Default is null,
+     * i.e., a new one for every validation.
+     */
+    public OntologyValidationManager getOntologyManager() {
+        return ontologyManager;
+    }
+
+    public void setOntologyManager(OntologyValidationManager ontologyManager) {
+        this.ontologyManager = ontologyManager;
+    }
+
+    /**
+     * The errors that the loader found in collect-all-errors mode, if any (see {@link #isCollectAllErrors()}). They
+     * are reported first by {@link #getErrors()} and they make the validation fail. Default is an empty list.
+     */
+    public List<TabErrorEntry> getLoadErrors() {
+        return loadErrors;
+    }
+
+    public void setLoadErrors(List<TabErrorEntry> loadErrors) {
+        this.loadErrors = loadErrors == null ? Collections.<TabErrorEntry>emptyList() : loadErrors;
+    }
+
+    /**
+     * The errors found by the last validation in {@link #isCollectAllErrors() collect-all-errors mode}, including the
+     * {@link #getLoadErrors() ones of the loader}.
+     */
+    public List<TabErrorEntry> getErrors() {
+        return errors;
     }
 
     /**
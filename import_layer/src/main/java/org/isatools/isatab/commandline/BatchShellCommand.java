@@ -0,0 +1,494 @@
+/**
+
+ The ISAconverter, ISAvalidator & BII Management Tool are components of the ISA software suite (http://www.isa-tools.org)
+
+ Exhibit A
+ The ISAconverter, ISAvalidator & BII Management Tool are licensed under the Mozilla Public License (MPL) version
+ 1.1/GPL version 2.0/LGPL version 2.1
+
+ "The contents of this file are subject to the Mozilla Public License
+ Version 1.1 (the "License"). You may not use this file except in compliance with the License.
+ You may obtain copies of the Licenses at http://www.mozilla.org/MPL/MPL-1.1.html.
+
+ Software distributed under the License is distributed on an "AS IS"
+ basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ License for the specific language governing rights and limitations
+ under the License.
+
+ The Original Code is the ISAconverter, ISAvalidator & BII Management Tool.
+
+ The Initial Developer of the Original Code is the ISA Team (Eamonn Maguire, eamonnmag@gmail.com;
+ Philippe Rocca-Serra, proccaserra@gmail.com; Susanna-Assunta Sansone, sa.sanson@gmail.com;
+ http://www.isa-tools.org). All portions of the code written by the ISA Team are Copyright (c)
+ 2007-2011 ISA Team. All Rights Reserved.
+
+ Contributor(s):
+ Rocca-Serra P, Brandizi M, Maguire E, Sklyar N, Taylor C, Begley K, Field D,
+ Harris S, Hide W, Hofmann O, Neumann S, Sterk P, Tong W, Sansone SA. ISA software suite:
+ supporting standards-compliant experimental annotation and enabling curation at the community level.
+ Bioinformatics 2010;26(18):2354-6.
+
+ Alternatively, the contents of this file may be used under the terms of either the GNU General
+ Public License Version 2 or later (the "GPL") - http://www.gnu.org/licenses/gpl-2.0.html, or
+ the GNU Lesser General Public License Version 2.1 or later (the "LGPL") -
+ http://www.gnu.org/licenses/lgpl-2.1.html, in which case the provisions of the GPL
+ or the LGPL are applicable instead of those above. If you wish to allow use of your version
+ of this file only under the terms of either the GPL or the LGPL, and not to allow others to
+ use your version of this file under the terms of the MPL, indicate your decision by deleting
+ the provisions above and replace them with the notice and other provisions required by the
+ GPL or the LGPL. If you do not delete the provisions above, a recipient may use your version
+ of this file under the terms of any one of the MPL, the GPL or the LGPL.
+
+ Sponsors:
+ The ISA Team and the ISA software suite have been funded by the EU Carcinogenomics project
+ (http://www.carcinogenomics.eu), the UK BBSRC (http://www.bbsrc.ac.uk), the UK NERC-NEBC
+ (http://nebc.nerc.ac.uk) and in part by the EU NuGO consortium (http://www.nugo.org/everyone).
+
+ */
+
+package org.isatools.isatab.commandline;
+
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.HelpFormatter;
+import org.apache.commons.cli.OptionBuilder;
+import org.apache.commons.cli.Options;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang.StringUtils;
+import org.apache.log4j.Logger;
+import org.isatools.isatab.gui_invokers.AllowedConversions;
+import org.isatools.isatab.gui_invokers.GUIInvokerResult;
+import org.isatools.isatab.isaconfigurator.ISAConfigurationSet;
+import org.isatools.isatab.server.ISATABJob;
+import org.isatools.isatab.server.ISATABJobRunner;
+import org.isatools.tablib.exceptions.TabMissingResourceException;
+import org.isatools.tablib.utils.TaskRunner;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static java.lang.System.out;
+
+/**
+ * Validates or converts many submissions in the same process, in parallel. The submissions are the subdirectories
+ * of a directory that contain an investigation file, or the paths listed in a manifest file (one per line, relative
+ * paths are relative to the manifest). Every submission is an {@link ISATABJob}, run by a shared
+ * {@link ISATABJobRunner}, so the jobs don't share any state other than the schema, the configuration and the
+ * ontology caches, and every job writes its own log file.
+ * <p/>
+ * The jobs are taken from a common queue by a fixed pool of threads, the largest submissions first, so that a big
+ * submission doesn't start at the end and delay the whole batch. At the end, a summary with the result, the time and
+ * the no. of errors of every submission is written in TSV or JSON format.
+ */
+public class BatchShellCommand extends AbstractImportLayerShellCommand {
+
+    /**
+     * The log of the whole batch is &lt;log dir&gt;/batch.log, no submission log can take this name
+     */
+    static final String BATCH_LOG_NAME = "batch";
+
+    @SuppressWarnings("static-access")
+    public static void main(String[] args) {
+        try {
+            Options clopts = createCommonOptions();
+            clopts.addOption(OptionBuilder.withArgName("configuration-path")
+                    .withDescription("Is the directory where to load the configuration files from")
+                    .hasArg()
+                    .withLongOpt("config-dir")
+                    .create("c")
+            );
+            clopts.addOption(OptionBuilder.withArgName("n")
+                    .withDescription("How many submissions are processed at the same time. Defaults to the number of processors")
+                    .hasArg()
+                    .withLongOpt("threads")
+                    .create("j")
+            );
+            clopts.addOption(OptionBuilder.withArgName("full|simple|streaming")
+                    .withDescription("The validation mode. Defaults to full")
+                    .hasArg()
+                    .withLongOpt("mode")
+                    .create("m")
+            );
+            clopts.addOption(OptionBuilder.withArgName("all|magetab|prideml|sra")
+                    .withDescription("Converts the submissions that pass the validation to this format")
+                    .hasArg()
+                    .withLongOpt("convert")
+                    .create("t")
+            );
+            clopts.addOption(OptionBuilder.withArgName("directory-path")
+                    .withDescription("Where to put the converted files, in a subdirectory per submission. " +
+                            "Defaults to <submission-path>/export")
+                    .hasArg()
+                    .withLongOpt("export-dir")
+                    .create("e")
+            );
+            clopts.addOption(OptionBuilder.withArgName("directory-path")
+                    .withDescription("Where to write the log file of every submission. Defaults to the summary directory")
+                    .hasArg()
+                    .withLongOpt("log-dir")
+                    .create("d")
+            );
+            clopts.addOption(OptionBuilder.withArgName("file-path")
+                    .withDescription("The summary file, the format is JSON if the name ends with .json, TSV otherwise. " +
+                            "Defaults to <source-path>/batch_summary.tsv")
+                    .hasArg()
+                    .withLongOpt("summary")
+                    .create("o")
+            );
+            CommandLine cmdl = AbstractImportLayerShellCommand.parseCommandLine(
+                    clopts, args, BatchShellCommand.class
+            );
+
+            args = cmdl.getArgs();
+            if (args == null || args.length == 0) {
+                printUsage(clopts);
+                System.exit(1);
+            }
+
+            setup(args);
+            File sourceFile = new File(args[0]).getAbsoluteFile();
+            File sourceDir = sourceFile.isDirectory() ? sourceFile : sourceFile.getParentFile();
+
+            String summaryPath = cmdl.getOptionValue("o");
+            File summaryFile = summaryPath == null
+                    ? new File(sourceDir, "batch_summary.tsv") : new File(summaryPath).getAbsoluteFile();
+            String logDirPath = cmdl.getOptionValue("d");
+            File logDir = logDirPath == null ? summaryFile.getParentFile() : new File(logDirPath);
+
+            setupLog4JPath(cmdl, logDir.getPath() + "/" + BATCH_LOG_NAME + ".log");
+
+            // Need to initialize this here, otherwise above config will fail
+            log = Logger.getLogger(BatchShellCommand.class);
+
+            ISAConfigurationSet.setConfigPath(cmdl.getOptionValue("c"));
+            String nthreads = cmdl.getOptionValue("j");
+            ISATABJob.ValidationMode mode = getValidationMode(cmdl.getOptionValue("m"));
+            AllowedConversions conversion = getConversion(cmdl.getOptionValue("t"));
+            String exportDir = cmdl.getOptionValue("e");
+
+            List<String> submissions = sourceFile.isDirectory()
+                    ? findSubmissions(sourceFile) : readManifest(sourceFile);
+
+            // The log files are named after the submissions, the batch log's name is reserved
+            List<ISATABJob> jobs = new ArrayList<ISATABJob>();
+            Map<ISATABJob, File> logFiles = new HashMap<ISATABJob, File>();
+            Set<String> names = new HashSet<String>();
+            names.add(BATCH_LOG_NAME);
+            for (String submission : submissions) {
+                ISATABJob job = new ISATABJob(
+                        conversion == null ? ISATABJob.Type.VALIDATE : ISATABJob.Type.CONVERT, submission
+                );
+                if (mode != null) {
+                    job.setValidationMode(mode);
+                }
+                if (conversion != null) {
+                    job.setConversion(conversion);
+                }
+
+                String name = new File(submission).getName();
+                for (int i = 2; !names.add(name); i++) {
+                    name = new File(submission).getName() + "-" + i;
+                }
+                if (exportDir != null) {
+                    job.setExportPath(exportDir + "/" + name);
+                }
+                jobs.add(job);
+                logFiles.put(job, new File(logDir, name + ".log"));
+            }
+
+            ISATABJobRunner jobRunner = new ISATABJobRunner(new ISAConfigurationSet());
+            long ts0 = System.currentTimeMillis();
+            runJobs(jobRunner, jobs, logFiles,
+                    nthreads == null ? Runtime.getRuntime().availableProcessors() : Integer.parseInt(nthreads));
+            long time = System.currentTimeMillis() - ts0;
+
+            writeSummary(jobs, logFiles, summaryFile);
+            int nfailed = 0;
+            for (ISATABJob job : jobs) {
+                if (job.getResult() == GUIInvokerResult.ERROR) {
+                    nfailed++;
+                }
+            }
+            log.info("\n\n" + jobs.size() + " submission(s) processed in " + time + " ms, " + nfailed
+                    + " with errors, summary written in '" + summaryFile + "'");
+        }
+        catch (Exception ex) {
+            String msg = "ERROR: problem while running the ISATAB batch: " + ex.getMessage();
+            if (log == null) {
+                out.println(msg + "\n");
+                ex.printStackTrace();
+            } else {
+                log.fatal(msg, ex);
+            }
+            System.exit(1);
+        }
+    }
+
+
+    /**
+     * The value of the --mode option, null if it's null.
+     *
+     * @throws IllegalArgumentException with a message for the user, if the mode is not valid.
+     */
+    static ISATABJob.ValidationMode getValidationMode(String mode) {
+        if (mode == null) {
+            return null;
+        }
+        try {
+            return ISATABJob.ValidationMode.valueOf(mode.toUpperCase());
+        }
+        catch (IllegalArgumentException ex) {
+            throw new IllegalArgumentException("Invalid validation mode '" + mode + "', use full, simple or streaming");
+        }
+    }
+
+
+    /**
+     * The value of the --convert option, null if it's null.
+     *
+     * @throws IllegalArgumentException with a message for the user, if the conversion target is not valid.
+     */
+    static AllowedConversions getConversion(String conversion) {
+        if (conversion == null) {
+            return null;
+        }
+        try {
+            return AllowedConversions.valueOf(conversion.toUpperCase());
+        }
+        catch (IllegalArgumentException ex) {
+            throw new IllegalArgumentException(
+                    "Invalid conversion target '" + conversion + "', use all, magetab, prideml or sra"
+            );
+        }
+    }
+
+
+    /**
+     * The subdirectories of dir that contain an investigation file, sorted by name.
+     */
+    static List<String> findSubmissions(File dir) {
+        List<String> result = new ArrayList<String>();
+        File[] files = dir.listFiles();
+        if (files == null) {
+            return result;
+        }
+        Arrays.sort(files);
+        for (File file : files) {
+            if (file.isDirectory() && isSubmissionDir(file)) {
+                result.add(file.getPath());
+            }
+        }
+        return result;
+    }
+
+    private static boolean isSubmissionDir(File dir) {
+        if (new File(dir, "investigation.csv").isFile()) {
+            return true;
+        }
+        String[] fileNames = dir.list();
+        if (fileNames != null) {
+            for (String fileName : fileNames) {
+                if (fileName.startsWith("i_") && fileName.endsWith(".txt")) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * The submission paths in a manifest file, one per line. Empty lines and lines starting with '#' are ignored,
+     * relative paths are relative to the directory of the manifest.
+     */
+    static List<String> readManifest(File manifest) throws IOException {
+        if (!manifest.isFile()) {
+            throw new TabMissingResourceException("The submission manifest '" + manifest + "' doesn't exist");
+        }
+        List<String> result = new ArrayList<String>();
+        for (Object lineObj : FileUtils.readLines(manifest, "UTF-8")) {
+            String line = StringUtils.trimToNull((String) lineObj);
+            if (line == null || line.startsWith("#")) {
+                continue;
+            }
+            File file = new File(line);
+            result.add(file.isAbsolute() ? line : new File(manifest.getParentFile(), line).getPath());
+        }
+        return result;
+    }
+
+
+    /**
+     * Runs the jobs with a pool of nthreads threads, the largest submissions first.
+     */
+    static void runJobs(
+            final ISATABJobRunner jobRunner, List<ISATABJob> jobs, final Map<ISATABJob, File> logFiles, int nthreads)
+            throws InterruptedException {
+        jobRunner.warmUp();
+
+        final Map<ISATABJob, Long> sizes = new HashMap<ISATABJob, Long>();
+        for (ISATABJob job : jobs) {
+            sizes.put(job, getSize(new File(job.getSourcePath())));
+        }
+        List<ISATABJob> sortedJobs = new ArrayList<ISATABJob>(jobs);
+        Collections.sort(sortedJobs, new Comparator<ISATABJob>() {
+            public int compare(ISATABJob job1, ISATABJob job2) {
+                return sizes.get(job2).compareTo(sizes.get(job1));
+            }
+        });
+
+        ExecutorService executor = Executors.newFixedThreadPool(
+                Math.max(1, nthreads), TaskRunner.newDaemonThreadFactory("isatab-batch")
+        );
+        for (final ISATABJob job : sortedJobs) {
+            executor.execute(new Runnable() {
+                public void run() {
+                    runJob(jobRunner, job, logFiles.get(job));
+                }
+            });
+        }
+        executor.shutdown();
+        executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+    }
+
+    private static void runJob(ISATABJobRunner jobRunner, ISATABJob job, File logFile) {
+        Writer logOut = null;
+        try {
+            logFile.getParentFile().mkdirs();
+            logOut = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(logFile), "UTF-8"));
+        }
+        catch (IOException ex) {
+            log.warn("Cannot write the log file '" + logFile + "': " + ex.getMessage());
+        }
+        try {
+            jobRunner.run(job, logOut);
+        }
+        finally {
+            if (logOut != null) {
+                try {
+                    logOut.close();
+                }
+                catch (IOException ex) {
+                    log.warn("Cannot close the log file '" + logFile + "': " + ex.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * The size of the files in a submission directory, or of the file itself.
+     */
+    private static long getSize(File file) {
+        if (file.isFile()) {
+            return file.length();
+        }
+        File[] files = file.listFiles();
+        long result = 0;
+        if (files != null) {
+            for (File child : files) {
+                if (child.isFile()) {
+                    result += child.length();
+                }
+            }
+        }
+        return result;
+    }
+
+
+    /**
+     * Writes the summary, in the same order as the submissions were given.
+     */
+    static void writeSummary(List<ISATABJob> jobs, Map<ISATABJob, File> logFiles, File summaryFile)
+            throws IOException {
+        summaryFile.getAbsoluteFile().getParentFile().mkdirs();
+        boolean isJson = summaryFile.getName().toLowerCase().endsWith(".json");
+        PrintWriter summaryOut = new PrintWriter(
+                new BufferedWriter(new OutputStreamWriter(new FileOutputStream(summaryFile), "UTF-8"))
+        );
+        try {
+            if (isJson) {
+                summaryOut.println("[");
+            } else {
+                summaryOut.println("Submission\tType\tResult\tTime (ms)\tErrors\tFailure\tLog File");
+            }
+
+            for (Iterator<ISATABJob> itr = jobs.iterator(); itr.hasNext(); ) {
+                ISATABJob job = itr.next();
+                String result = String.valueOf(job.getResult());
+                String type = job.getType().toString().toLowerCase();
+                String failure = StringUtils.trimToEmpty(job.getFailure());
+                String logPath = logFiles.get(job).getPath();
+                if (isJson) {
+                    summaryOut.println("  {\"submission\": \"" + escapeJson(job.getSourcePath())
+                            + "\", \"type\": \"" + type + "\", \"result\": \"" + result
+                            + "\", \"time\": " + job.getTime() + ", \"errors\": " + job.getErrors().size()
+                            + ", \"failure\": \"" + escapeJson(failure) + "\", \"log\": \"" + escapeJson(logPath)
+                            + "\"}" + (itr.hasNext() ? "," : ""));
+                } else {
+                    summaryOut.println(job.getSourcePath() + "\t" + type + "\t" + result + "\t" + job.getTime()
+                            + "\t" + job.getErrors().size() + "\t" + failure.replaceAll("\\s+", " ") + "\t" + logPath);
+                }
+            }
+
+            if (isJson) {
+                summaryOut.println("]");
+            }
+        }
+        finally {
+            summaryOut.close();
+        }
+    }
+
+    private static String escapeJson(String value) {
+        StringBuilder result = new StringBuilder();
+        for (char c : value.toCharArray()) {
+            switch (c) {
+                case '"':
+                    result.append("\\\"");
+                    break;
+                case '\\':
+                    result.append("\\\\");
+                    break;
+                case '\n':
+                    result.append("\\n");
+                    break;
+                case '\r':
+                    result.append("\\r");
+                    break;
+                case '\t':
+                    result.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        result.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        result.append(c);
+                    }
+            }
+        }
+        return result.toString();
+    }
+
+
+    public static void printUsage(Options opts) {
+        out.println();
+
+        HelpFormatter helpFormatter = new HelpFormatter();
+        PrintWriter pw = new PrintWriter(out, true);
+        helpFormatter.printHelp(pw, 80,
+                "batch [options] <source-path>",
+                "\nValidates (or converts, with --convert) many ISATAB submissions in parallel. <source-path> is " +
+                        "either a directory, whose subdirectories with an investigation file are the submissions, " +
+                        "or a manifest file, listing a submission path per line. A summary with the result, the " +
+                        "time and the no. of errors of every submission is written at the end." +
+                        "\n\nOptions:"
+                ,
+                opts,
+                2, 4,
+                "\n",
+                false
+        );
+        out.println();
+    }
+}
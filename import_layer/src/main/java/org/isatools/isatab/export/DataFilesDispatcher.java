@@ -54,9 +54,9 @@ import org.apache.log4j.Logger;
 import org.isatools.isatab.commandline.AbstractImportLayerShellCommand;
 import org.isatools.isatab.mapping.AssayGroup;
 import org.isatools.isatab.mapping.StudyWrapper;
+import org.isatools.isatab.mapping.SubmissionNameIndex;
 import org.isatools.tablib.exceptions.TabIOException;
 import org.isatools.tablib.export.FormatExporter;
-import org.isatools.tablib.schema.Record;
 import org.isatools.tablib.schema.SectionInstance;
 import org.isatools.tablib.utils.BIIObjectStore;
 import uk.ac.ebi.bioinvindex.dao.StudyDAO;
@@ -186,7 +186,8 @@ public class DataFilesDispatcher {
     }
 
     /**
-     * Dispatch the files about a given assay group
+     * Dispatch the files about a given assay group. The data files are taken from the {@link SubmissionNameIndex}, so
+     * that a file is considered once, no matter how many rows it appears in.
      *
      * @param ag the @see AssayGroup to be dispatched.
      * @throws java.io.IOException - this method is resolving file paths, IO Exceptions are therefore a likelihood.
@@ -203,11 +204,13 @@ public class DataFilesDispatcher {
         String assayFileRelativePath = assaySectionInstance.getFileId();
         dispatchFileToSubmissionRepo(ag.getStudy(), "Assay File Name", assayFileRelativePath);
 
-        for (Record record : assaySectionInstance.getRecords()) {
-            int recSize = record.size();
-            for (int fieldIndex = 0; fieldIndex < recSize; fieldIndex++) {
+        SubmissionNameIndex nameIndex = SubmissionNameIndex.getIndex(store, assaySectionInstance);
+        for (String header : nameIndex.getHeaders(assaySectionInstance)) {
+            for (SubmissionNameIndex.Occurrence occurrence : nameIndex.getNames(assaySectionInstance, header).values()) {
 
-                String[] filePathTriple = FormatExporter.getExternalFileValue(record, fieldIndex);
+                String[] filePathTriple = FormatExporter.getExternalFileValue(
+                        occurrence.getRecord(), occurrence.getColumn()
+                );
 
                 if (filePathTriple == null) {
                     continue;
@@ -278,8 +281,8 @@ public class DataFilesDispatcher {
                         );
                     }
                 } // if
-            } // for ( field )
-        } // for ( record )
+            } // for ( file )
+        } // for ( header )
     } // dispatchAssayGroup ()
 
 
@@ -50,6 +50,7 @@ package org.isatools.isatab.export.magetab;
 
 import org.isatools.isatab.mapping.AssayGroup;
 import org.isatools.isatab.mapping.AssayTypeEntries;
+import org.isatools.isatab.mapping.SubmissionNameIndex;
 import org.isatools.tablib.export.FormatExporter;
 import org.isatools.tablib.schema.*;
 import org.isatools.tablib.utils.BIIObjectStore;
@@ -96,6 +97,7 @@ public class SDRFExporter extends FormatExporter {
         //
         SectionInstance sampleSectionInstance = assayGroup.getSampleSectionInstance();
         SectionInstance assaySectionInstance = assayGroup.getAssaySectionInstance();
+        SubmissionNameIndex nameIndex = SubmissionNameIndex.getIndex(getStore(), sampleSectionInstance);
 
         List<Field> fields = new ArrayList<Field>(sampleSectionInstance.getFields());
         int nsampleFields = fields.size();
@@ -105,7 +107,7 @@ public class SDRFExporter extends FormatExporter {
         int nassayRecs = assayRecords.size();
         for (int irec = 0; irec < nassayRecs; irec++) {
             String sampleName = assaySectionInstance.getString(irec, "Sample Name");
-            Record sampleRec = getRecordBySample(sampleSectionInstance, sampleName);
+            Record sampleRec = getRecordBySample(nameIndex, sampleSectionInstance, sampleName);
             Record assayRecord = assayRecords.get(irec);
             Record sdrfRecord = new Record(sdrfSectionInstance);
 
@@ -165,17 +167,11 @@ public class SDRFExporter extends FormatExporter {
 
 
     /**
-     * Finds the first record where there is a sample name equal to the parameter
+     * Finds the first record where there is a sample name equal to the parameter, using the names in the index.
      */
-    private Record getRecordBySample(SectionInstance sectionInstance, String sampleName) {
-        List<Record> records = sectionInstance.getRecords();
-        int nrecs = records.size();
-        for (int irec = 0; irec < nrecs; irec++) {
-            if (sampleName.equals(sectionInstance.getString(irec, "Sample Name"))) {
-                return records.get(irec);
-            }
-        }
-        return null;
+    private Record getRecordBySample(SubmissionNameIndex nameIndex, SectionInstance sectionInstance, String sampleName) {
+        SubmissionNameIndex.Occurrence occurrence = nameIndex.getOccurrence("Sample Name", sampleName, sectionInstance);
+        return occurrence == null ? null : occurrence.getRecord();
     }
 
 
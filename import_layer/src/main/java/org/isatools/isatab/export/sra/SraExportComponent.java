@@ -50,7 +50,6 @@ package org.isatools.isatab.export.sra;
 
 import org.apache.log4j.Logger;
 import org.isatools.tablib.utils.BIIObjectStore;
-import org.isatools.tablib.utils.logging.TabNDC;
 
 import java.util.HashMap;
 import java.util.HashSet;
@@ -82,7 +81,6 @@ abstract class SraExportComponent {
     protected String centerName = "", brokerName = "";
 
     protected static final Logger log = Logger.getLogger(SraExporter.class);
-    protected static final TabNDC ndc = TabNDC.getInstance();
 
     /**
      * Collect here those messages that occur many times, they will be printed only once, at the end of the
@@ -57,6 +57,7 @@ import org.isatools.isatab.mapping.AssayTypeEntries;
 import org.isatools.tablib.exceptions.TabIOException;
 import org.isatools.tablib.exceptions.TabMissingValueException;
 import org.isatools.tablib.utils.BIIObjectStore;
+import org.isatools.tablib.utils.logging.TabNDC;
 import uk.ac.ebi.bioinvindex.model.Contact;
 import uk.ac.ebi.bioinvindex.model.Investigation;
 import uk.ac.ebi.bioinvindex.model.Publication;
@@ -135,6 +136,7 @@ public class SraExporter extends SraExportPipelineComponent {
      */
     public void export() {
         log.info("SraExporter.export()");
+        TabNDC ndc = TabNDC.getInstance();
         for (final Study study : store.valuesOfType(Study.class)) {
             // Go ahead only if there is some SRA assay
             boolean haveSra = false;
@@ -48,6 +48,7 @@
 
 package org.isatools.isatab.gui_invokers;
 
+import org.apache.log4j.Logger;
 import org.isatools.isatab.commandline.AbstractImportLayerShellCommand;
 import org.isatools.isatab.export.magetab.MAGETABExporter;
 import org.isatools.isatab.export.pride.DraftPrideExporter;
@@ -55,6 +56,8 @@ import org.isatools.isatab.export.sra.SraExporter;
 import org.isatools.tablib.utils.BIIObjectStore;
 import uk.ac.ebi.bioinvindex.utils.i18n;
 
+import java.io.IOException;
+
 /**
  * The ISATAB Converter.
  * <p/>
@@ -66,6 +69,8 @@ import uk.ac.ebi.bioinvindex.utils.i18n;
  *         <b>date</b>: Apr 5, 2009
  */
 public class GUIISATABConverter extends AbstractGUIInvoker {
+    protected static final Logger log = Logger.getLogger(GUIISATABConverter.class);
+
     /**
      * Do the job, the log returned by {@link #getLog()} is reset by this call.
      *
@@ -75,27 +80,7 @@ public class GUIISATABConverter extends AbstractGUIInvoker {
     public GUIInvokerResult convert(BIIObjectStore store, String isatabSubmissionPath, String exportPath, AllowedConversions conversion) {
         try {
             AbstractImportLayerShellCommand.setupLog4JPath(exportPath + "/converter.log");
-
-            // MAGETAB
-            if (conversion.equals(AllowedConversions.MAGETAB) || conversion.equals(AllowedConversions.ALL)) {
-                MAGETABExporter.dispatch(store, isatabSubmissionPath, exportPath);
-                vlog.info(i18n.msg("converter_export_done", "MAGETAB", exportPath + "/magetab'"));
-            }
-
-            // PRIDE
-            if (conversion.equals(AllowedConversions.PRIDEML) || conversion.equals(AllowedConversions.ALL)) {
-                DraftPrideExporter exporter = new DraftPrideExporter(store, isatabSubmissionPath, exportPath);
-                exporter.export();
-                vlog.info(i18n.msg("converter_export_done", "PRIDE", exportPath + "/pride"));
-            }
-
-            // SRA
-            if (conversion.equals(AllowedConversions.SRA) || conversion.equals(AllowedConversions.ALL)) {
-                SraExporter exporter = new SraExporter(store, isatabSubmissionPath, exportPath);
-                exporter.export();
-                vlog.info(i18n.msg("converter_export_done", "SRA", exportPath + "/sra"));
-            }
-
+            export(store, isatabSubmissionPath, exportPath, conversion);
             return GUIInvokerResult.SUCCESS;
         }
         catch (Exception e) {
@@ -104,6 +89,33 @@ public class GUIISATABConverter extends AbstractGUIInvoker {
         }
     }
 
+    /**
+     * Does the conversions only, without touching the log configuration, so that it can be used by processes that
+     * manage the logs on their own (e.g.: {@link org.isatools.isatab.server.ISATABJobServer}).
+     */
+    public static void export(BIIObjectStore store, String isatabSubmissionPath, String exportPath,
+                              AllowedConversions conversion) throws IOException {
+        // MAGETAB
+        if (conversion.equals(AllowedConversions.MAGETAB) || conversion.equals(AllowedConversions.ALL)) {
+            MAGETABExporter.dispatch(store, isatabSubmissionPath, exportPath);
+            log.info(i18n.msg("converter_export_done", "MAGETAB", exportPath + "/magetab'"));
+        }
+
+        // PRIDE
+        if (conversion.equals(AllowedConversions.PRIDEML) || conversion.equals(AllowedConversions.ALL)) {
+            DraftPrideExporter exporter = new DraftPrideExporter(store, isatabSubmissionPath, exportPath);
+            exporter.export();
+            log.info(i18n.msg("converter_export_done", "PRIDE", exportPath + "/pride"));
+        }
+
+        // SRA
+        if (conversion.equals(AllowedConversions.SRA) || conversion.equals(AllowedConversions.ALL)) {
+            SraExporter exporter = new SraExporter(store, isatabSubmissionPath, exportPath);
+            exporter.export();
+            log.info(i18n.msg("converter_export_done", "SRA", exportPath + "/sra"));
+        }
+    }
+
     /**
      * Defaults to ALL conversions
      */
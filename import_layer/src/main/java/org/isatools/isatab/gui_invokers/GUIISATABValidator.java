@@ -48,14 +48,19 @@
 
 package org.isatools.isatab.gui_invokers;
 
+import org.isatools.isatab.ISATABValidationSession;
 import org.isatools.isatab.ISATABValidator;
 import org.isatools.isatab.commandline.AbstractImportLayerShellCommand;
 import org.isatools.isatab_v1.ISATABLoader;
 import org.isatools.isatab_v1.mapping.ISATABMapper;
+import org.isatools.tablib.parser.ZipTabSource;
 import org.isatools.tablib.schema.FormatSetInstance;
 import org.isatools.tablib.utils.BIIObjectStore;
+import org.isatools.tablib.utils.logging.TabErrorEntry;
 import uk.ac.ebi.bioinvindex.model.Study;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -72,6 +77,7 @@ import java.util.List;
 public class GUIISATABValidator extends AbstractGUIInvoker {
     private BIIObjectStore store;
     private String isatabSubmissionPath;
+    private ISATABValidationSession session;
 
     /**
      * Do the job, the log returned by {@link #getLog()} is reset by this call.
@@ -89,28 +95,115 @@ public class GUIISATABValidator extends AbstractGUIInvoker {
             // Save there the log file
             AbstractImportLayerShellCommand.setupLog4JPath(isatabSubmissionPath + "/isatools.log");
 
-            ISATABLoader isatabLoader = new ISATABLoader(isatabSubmissionPath);
-            FormatSetInstance isatabInstance = isatabLoader.load();
+            return validate(new ISATABLoader(isatabSubmissionPath), isatabSubmissionPath, reportWarnings);
+        } catch (Exception e) {
+            vlog.error(e.getMessage(), e);
+            return GUIInvokerResult.ERROR;
+        }
+    }
 
-            System.out.println("Loaded...");
+    /**
+     * Validates a submission packed in a ZIP archive, reading it directly from the archive, i.e., without
+     * extracting it. The log file is saved in the directory containing the archive.
+     */
+    public GUIInvokerResult validateArchive(String archivePath) {
+        return validateArchive(archivePath, false);
+    }
 
-            ISATABValidator validator = new ISATABValidator(isatabInstance);
-            System.out.println("Now validating..."+ isatabSubmissionPath);
-            GUIInvokerResult result = validator.validate();
+    /**
+     * Validates a submission packed in a ZIP archive, see {@link #validateArchive(String)}.
+     *
+     * @param reportWarnings - return WARNING whenever they occur
+     */
+    public GUIInvokerResult validateArchive(String archivePath, boolean reportWarnings) {
+        ZipTabSource source = null;
+        try {
+            File archive = new File(archivePath);
+            AbstractImportLayerShellCommand.setupLog4JPath(
+                    archive.getAbsoluteFile().getParent() + "/isatools.log"
+            );
+
+            source = new ZipTabSource(archive);
+            return validate(new ISATABLoader(source), archivePath, reportWarnings);
+        } catch (Exception e) {
+            vlog.error(e.getMessage(), e);
+            return GUIInvokerResult.ERROR;
+        } finally {
+            if (source != null) {
+                try {
+                    source.close();
+                } catch (IOException e) {
+                    vlog.warn("Cannot close the archive '" + archivePath + "': " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * The common part of the validation methods.
+     */
+    private GUIInvokerResult validate(ISATABLoader isatabLoader, String isatabSubmissionPath, boolean reportWarnings)
+            throws IOException {
+        FormatSetInstance isatabInstance = isatabLoader.load();
+        vlog.info("Submission '" + isatabSubmissionPath + "' loaded, now validating it");
+
+        ISATABValidator validator = new ISATABValidator(isatabInstance);
+        GUIInvokerResult result = validator.validate();
+        if (GUIInvokerResult.WARNING == result) {
+            vlog.warn("ISA-Configurator Validation reported problems, see the messages above or the log file");
+        }
+
+        this.store = validator.getStore();
+        this.isatabSubmissionPath = isatabSubmissionPath;
+
+        return reportWarnings ? result : GUIInvokerResult.SUCCESS;
+    }
+
+
+    /**
+     * Validates a submission in the edit-validate loop of a curator: the first time the whole submission is checked,
+     * in the following invocations about the same path only the files affected by the changes are checked again.
+     * See {@link ISATABValidationSession} for details.
+     * <p/>
+     * This runs fewer checks than {@link #validate(String, boolean)}: those of
+     * {@link org.isatools.isatab.ISATABStreamingValidator}, i.e., the ISA configuration rules that can be checked file
+     * by file and the sample names across the files. The submission is not mapped to the BII objects (so the checks
+     * done by the mapping are not done) and the ontology terms are not checked against the Ontology Lookup Services.
+     * A submission that passes this should still be validated with {@link #validate(String, boolean)} before it's
+     * converted or loaded. {@link #getStore()} and {@link #getIsatabSubmissionPath()}, which refers to the store, are
+     * not changed by this method.
+     *
+     * @param reportWarnings - return WARNING whenever they occur
+     */
+    public GUIInvokerResult revalidate(String isatabSubmissionPath, boolean reportWarnings) {
+        try {
+            AbstractImportLayerShellCommand.setupLog4JPath(isatabSubmissionPath + "/isatools.log");
+
+            if (session == null || !session.getSourcePath().equals(isatabSubmissionPath)) {
+                session = new ISATABValidationSession(isatabSubmissionPath);
+            }
+            GUIInvokerResult result = session.validate();
+            for (TabErrorEntry error : session.getErrors()) {
+                vlog.error(error.getMessage());
+            }
             if (GUIInvokerResult.WARNING == result) {
                 vlog.warn("ISA-Configurator Validation reported problems, see the messages above or the log file");
             }
 
-            this.store = validator.getStore();
-            this.isatabSubmissionPath = isatabSubmissionPath;
-
-            return reportWarnings ? result : GUIInvokerResult.SUCCESS;
+            return reportWarnings || result == GUIInvokerResult.ERROR ? result : GUIInvokerResult.SUCCESS;
         } catch (Exception e) {
             vlog.error(e.getMessage(), e);
             return GUIInvokerResult.ERROR;
         }
     }
 
+    /**
+     * The session used by the last {@link #revalidate(String, boolean)} invocation, null if it was never invoked.
+     */
+    public ISATABValidationSession getSession() {
+        return session;
+    }
+
 
     /**
      * Reports a human-readable summary of all objects mapped.
@@ -0,0 +1,214 @@
+/**
+
+ The ISAconverter, ISAvalidator & BII Management Tool are components of the ISA software suite (http://www.isa-tools.org)
+
+ Exhibit A
+ The ISAconverter, ISAvalidator & BII Management Tool are licensed under the Mozilla Public License (MPL) version
+ 1.1/GPL version 2.0/LGPL version 2.1
+
+ "The contents of this file are subject to the Mozilla Public License
+ Version 1.1 (the "License"). You may not use this file except in compliance with the License.
+ You may obtain copies of the Licenses at http://www.mozilla.org/MPL/MPL-1.1.html.
+
+ Software distributed under the License is distributed on an "AS IS"
+ basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ License for the specific language governing rights and limitations
+ under the License.
+
+ The Original Code is the ISAconverter, ISAvalidator & BII Management Tool.
+
+ The Initial Developer of the Original Code is the ISA Team (Eamonn Maguire, eamonnmag@gmail.com;
+ Philippe Rocca-Serra, proccaserra@gmail.com; Susanna-Assunta Sansone, sa.sanson@gmail.com;
+ http://www.isa-tools.org). All portions of the code written by the ISA Team are Copyright (c)
+ 2007-2011 ISA Team. All Rights Reserved.
+
+ Contributor(s):
+ Rocca-Serra P, Brandizi M, Maguire E, Sklyar N, Taylor C, Begley K, Field D,
+ Harris S, Hide W, Hofmann O, Neumann S, Sterk P, Tong W, Sansone SA. ISA software suite:
+ supporting standards-compliant experimental annotation and enabling curation at the community level.
+ Bioinformatics 2010;26(18):2354-6.
+
+ Alternatively, the contents of this file may be used under the terms of either the GNU General
+ Public License Version 2 or later (the "GPL") - http://www.gnu.org/licenses/gpl-2.0.html, or
+ the GNU Lesser General Public License Version 2.1 or later (the "LGPL") -
+ http://www.gnu.org/licenses/lgpl-2.1.html, in which case the provisions of the GPL
+ or the LGPL are applicable instead of those above. If you wish to allow use of your version
+ of this file only under the terms of either the GPL or the LGPL, and not to allow others to
+ use your version of this file under the terms of the MPL, indicate your decision by deleting
+ the provisions above and replace them with the notice and other provisions required by the
+ GPL or the LGPL. If you do not delete the provisions above, a recipient may use your version
+ of this file under the terms of any one of the MPL, the GPL or the LGPL.
+
+ Sponsors:
+ The ISA Team and the ISA software suite have been funded by the EU Carcinogenomics project
+ (http://www.carcinogenomics.eu), the UK BBSRC (http://www.bbsrc.ac.uk), the UK NERC-NEBC
+ (http://nebc.nerc.ac.uk) and in part by the EU NuGO consortium (http://www.nugo.org/everyone).
+
+ */
+
+package org.isatools.isatab.isaconfigurator;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.xmlbeans.XmlObject;
+import org.isatools.isatab.configurator.schema.*;
+import org.isatools.tablib.exceptions.TabInternalErrorException;
+import uk.ac.ebi.bioinvindex.utils.i18n;
+
+import java.util.*;
+
+/**
+ * An immutable index of an {@link IsaTabConfigurationType}, which is used by {@link ISAConfigurationSet} to serve the
+ * field lookups without evaluating XPath expressions every time. The validators invoke the lookups for every column,
+ * often for every record, so this makes a big difference on large assay files.
+ * <p/>
+ * The index reflects the configuration at the time it is built, so it must be discarded when the configuration is
+ * changed, see {@link ISAConfigurationSet#invalidateCompiledConfigurations()}.
+ */
+public final class CompiledConfiguration {
+    private final IsaTabConfigurationType configuration;
+
+    /**
+     * The child elements of the configuration, in document order.
+     */
+    private final List<XmlObject> elements;
+    private final Map<XmlObject, Integer> positions = new IdentityHashMap<XmlObject, Integer>();
+
+    private final Map<String, FieldType> fieldsByHeader = new HashMap<String, FieldType>();
+    private final Set<String> ambiguousHeaders = new HashSet<String>();
+    private final Map<FieldType, UnitFieldType> unitFields = new IdentityHashMap<FieldType, UnitFieldType>();
+    private final Map<FieldType, Map<String, Set<String>>> branchIds =
+            new IdentityHashMap<FieldType, Map<String, Set<String>>>();
+
+
+    public CompiledConfiguration(IsaTabConfigurationType configuration) {
+        this.configuration = configuration;
+        this.elements = Collections.unmodifiableList(
+                Arrays.asList(ISAConfigurationSet.getAllConfigurationFields(configuration))
+        );
+
+        for (int i = 0; i < elements.size(); i++) {
+            XmlObject element = elements.get(i);
+            positions.put(element, i);
+            if (!(element instanceof FieldType)) {
+                continue;
+            }
+            FieldType field = (FieldType) element;
+
+            String header = field.getHeader();
+            if (header != null) {
+                String lheader = header.toLowerCase(Locale.ENGLISH);
+                if (fieldsByHeader.put(lheader, field) != null) {
+                    ambiguousHeaders.add(lheader);
+                }
+            }
+
+            if (i + 1 < elements.size() && elements.get(i + 1) instanceof UnitFieldType) {
+                unitFields.put(field, (UnitFieldType) elements.get(i + 1));
+            }
+
+            branchIds.put(field, Collections.unmodifiableMap(compileBranchIds(field)));
+        }
+    }
+
+
+    public IsaTabConfigurationType getConfiguration() {
+        return configuration;
+    }
+
+    /**
+     * true if the element is one of the fields in this configuration.
+     */
+    public boolean contains(XmlObject element) {
+        return positions.containsKey(element);
+    }
+
+    /**
+     * The field having the parameter header (case-insensitive search), null if there is no such field.
+     */
+    public FieldType getField(String header) {
+        String lheader = header.toLowerCase(Locale.ENGLISH);
+        if (ambiguousHeaders.contains(lheader)) {
+            throw new TabInternalErrorException(i18n.msg("isaconfig_config_syntax_error_too_many_fields", header));
+        }
+        return fieldsByHeader.get(lheader);
+    }
+
+    /**
+     * The unit field that immediately follows the field, null if there isn't any.
+     */
+    public UnitFieldType getUnitField(FieldType field) {
+        return unitFields.get(field);
+    }
+
+    /**
+     * The protocol fields that follow fieldIn, up to fieldOut (or up to the end, if fieldOut doesn't follow fieldIn),
+     * having the protocol type equal to type (case-insensitive), or all of them if type is null.
+     */
+    public List<ProtocolFieldType> getProtocolsBetween(FieldType fieldIn, FieldType fieldOut, String type) {
+        List<ProtocolFieldType> protos = new ArrayList<ProtocolFieldType>();
+        Integer in = positions.get(fieldIn);
+        if (in == null) {
+            return protos;
+        }
+
+        for (int i = in + 1; i < elements.size(); i++) {
+            XmlObject element = elements.get(i);
+            if (element == fieldOut) {
+                break;
+            }
+            if (element instanceof ProtocolFieldType) {
+                ProtocolFieldType proto = (ProtocolFieldType) element;
+                if (type == null || type.equalsIgnoreCase(proto.getProtocolType())) {
+                    protos.add(proto);
+                }
+            }
+        }
+        return protos;
+    }
+
+    /**
+     * The ontology branches recommended for the field, as a map of sourceSymbol =&gt; { termAccession }. The result
+     * can't be modified.
+     */
+    public Map<String, Set<String>> getBranchIds(FieldType field) {
+        Map<String, Set<String>> result = branchIds.get(field);
+        return result == null ? Collections.<String, Set<String>>emptyMap() : result;
+    }
+
+
+    static Map<String, Set<String>> compileBranchIds(FieldType field) {
+        Map<String, Set<String>> result = new HashMap<String, Set<String>>();
+
+        RecommendedOntologiesType recommendedOntos = field.getRecommendedOntologies();
+        if (recommendedOntos == null) {
+            return result;
+        }
+
+        for (OntologyType onto : recommendedOntos.getOntologyArray()) {
+            String osrc = StringUtils.trimToNull(onto.getAbbreviation());
+            if (osrc == null) {
+                continue;
+            }
+
+            Set<String> branches = result.get(osrc);
+            if (branches == null) {
+                branches = new HashSet<String>();
+                result.put(osrc, branches);
+            }
+
+            for (BranchType branchObj : onto.getBranchArray()) {
+                String termId = StringUtils.trimToNull(branchObj.getId());
+                if (termId == null) {
+                    continue;
+                }
+
+                branches.add(termId);
+            }
+        }
+
+        for (Map.Entry<String, Set<String>> entry : result.entrySet()) {
+            entry.setValue(Collections.unmodifiableSet(entry.getValue()));
+        }
+        return result;
+    }
+}
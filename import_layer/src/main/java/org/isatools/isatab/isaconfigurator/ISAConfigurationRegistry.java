@@ -0,0 +1,328 @@
+/**
+
+ The ISAconverter, ISAvalidator & BII Management Tool are components of the ISA software suite (http://www.isa-tools.org)
+
+ Exhibit A
+ The ISAconverter, ISAvalidator & BII Management Tool are licensed under the Mozilla Public License (MPL) version
+ 1.1/GPL version 2.0/LGPL version 2.1
+
+ "The contents of this file are subject to the Mozilla Public License
+ Version 1.1 (the "License"). You may not use this file except in compliance with the License.
+ You may obtain copies of the Licenses at http://www.mozilla.org/MPL/MPL-1.1.html.
+
+ Software distributed under the License is distributed on an "AS IS"
+ basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ License for the specific language governing rights and limitations
+ under the License.
+
+ The Original Code is the ISAconverter, ISAvalidator & BII Management Tool.
+
+ The Initial Developer of the Original Code is the ISA Team (Eamonn Maguire, eamonnmag@gmail.com;
+ Philippe Rocca-Serra, proccaserra@gmail.com; Susanna-Assunta Sansone, sa.sanson@gmail.com;
+ http://www.isa-tools.org). All portions of the code written by the ISA Team are Copyright (c)
+ 2007-2011 ISA Team. All Rights Reserved.
+
+ Contributor(s):
+ Rocca-Serra P, Brandizi M, Maguire E, Sklyar N, Taylor C, Begley K, Field D,
+ Harris S, Hide W, Hofmann O, Neumann S, Sterk P, Tong W, Sansone SA. ISA software suite:
+ supporting standards-compliant experimental annotation and enabling curation at the community level.
+ Bioinformatics 2010;26(18):2354-6.
+
+ Alternatively, the contents of this file may be used under the terms of either the GNU General
+ Public License Version 2 or later (the "GPL") - http://www.gnu.org/licenses/gpl-2.0.html, or
+ the GNU Lesser General Public License Version 2.1 or later (the "LGPL") -
+ http://www.gnu.org/licenses/lgpl-2.1.html, in which case the provisions of the GPL
+ or the LGPL are applicable instead of those above. If you wish to allow use of your version
+ of this file only under the terms of either the GPL or the LGPL, and not to allow others to
+ use your version of this file under the terms of the MPL, indicate your decision by deleting
+ the provisions above and replace them with the notice and other provisions required by the
+ GPL or the LGPL. If you do not delete the provisions above, a recipient may use your version
+ of this file under the terms of any one of the MPL, the GPL or the LGPL.
+
+ Sponsors:
+ The ISA Team and the ISA software suite have been funded by the EU Carcinogenomics project
+ (http://www.carcinogenomics.eu), the UK BBSRC (http://www.bbsrc.ac.uk), the UK NERC-NEBC
+ (http://nebc.nerc.ac.uk) and in part by the EU NuGO consortium (http://www.nugo.org/everyone).
+
+ */
+
+
+package org.isatools.isatab.isaconfigurator;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang.StringUtils;
+import org.apache.log4j.Logger;
+import org.apache.xmlbeans.XmlException;
+import org.apache.xmlbeans.XmlObject;
+import org.isatools.isatab.configurator.schema.FieldType;
+import org.isatools.isatab.configurator.schema.IsaTabConfigFileType;
+import org.isatools.isatab.configurator.schema.IsaTabConfigurationType;
+import org.isatools.isatab.configurator.schema.IsatabConfigFileDocument;
+import org.isatools.tablib.exceptions.TabIOException;
+import org.isatools.tablib.exceptions.TabInternalErrorException;
+import org.isatools.tablib.exceptions.TabMissingResourceException;
+import uk.ac.ebi.bioinvindex.utils.i18n;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * The ISA configurations loaded so far, one {@link ISAConfigurationSnapshot} per configuration directory. This is
+ * shared by all the {@link ISAConfigurationSet}s, so that switching between directories doesn't parse the XML files
+ * again, and validations that use different directories at the same time don't interfere with each other.
+ * <p/>
+ * Snapshots are read without locks. When a snapshot is requested and it wasn't checked in the last
+ * {@link #getCheckInterval()} milliseconds, the registry checks if files in the directory were added, removed or
+ * modified and, if that's the case, loads a new snapshot and replaces the old one, so readers always see
+ * either the old or the new configuration, never a mix of them.
+ */
+public class ISAConfigurationRegistry {
+    private static final ISAConfigurationRegistry instance = new ISAConfigurationRegistry();
+
+    private final ConcurrentMap<String, Entry> entries = new ConcurrentHashMap<String, Entry>();
+    private volatile long checkInterval = 2000;
+
+    protected static final Logger log = Logger.getLogger(ISAConfigurationRegistry.class);
+
+    /**
+     * The registry used by {@link ISAConfigurationSet}.
+     */
+    public static ISAConfigurationRegistry getInstance() {
+        return instance;
+    }
+
+    /**
+     * The configurations in the directory, which are loaded the first time they're requested and reloaded when the
+     * directory changes. A directory that doesn't exist gives an empty snapshot (and a warning is logged).
+     */
+    public ISAConfigurationSnapshot getSnapshot(String configPath) {
+        return getEntry(configPath).getSnapshot(false);
+    }
+
+    /**
+     * Like {@link #getSnapshot(String)}, but the directory is checked for changes straight away.
+     */
+    public ISAConfigurationSnapshot checkForChanges(String configPath) {
+        return getEntry(configPath).getSnapshot(true);
+    }
+
+    /**
+     * Makes the next request for the directory reload it, whether it has changed or not.
+     */
+    public void invalidate(String configPath) {
+        entries.remove(toKey(configPath));
+    }
+
+    public void invalidateAll() {
+        entries.clear();
+    }
+
+    /**
+     * The snapshots currently loaded, keyed by configuration directory, which can be used to monitor the registry,
+     * since they report their size and load time.
+     */
+    public Map<String, ISAConfigurationSnapshot> getSnapshots() {
+        Map<String, ISAConfigurationSnapshot> result = new TreeMap<String, ISAConfigurationSnapshot>();
+        for (Map.Entry<String, Entry> mapEntry : entries.entrySet()) {
+            ISAConfigurationSnapshot snapshot = mapEntry.getValue().snapshot;
+            if (snapshot != null) {
+                result.put(mapEntry.getKey(), snapshot);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * How often (in ms) a directory is checked for changes, at most. 0 means it is checked every time a snapshot is
+     * requested, a negative value means it's never checked (i.e.: it's reloaded only after
+     * {@link #invalidate(String)}). Default is 2 seconds.
+     */
+    public long getCheckInterval() {
+        return checkInterval;
+    }
+
+    public void setCheckInterval(long checkInterval) {
+        this.checkInterval = checkInterval;
+    }
+
+
+    private Entry getEntry(String configPath) {
+        String key = toKey(configPath);
+        Entry entry = entries.get(key);
+        if (entry != null) {
+            return entry;
+        }
+        entry = new Entry(key);
+        Entry existingEntry = entries.putIfAbsent(key, entry);
+        return existingEntry == null ? entry : existingEntry;
+    }
+
+    private static String toKey(String configPath) {
+        File dir = new File(configPath);
+        try {
+            return dir.getCanonicalPath();
+        } catch (IOException ex) {
+            return dir.getAbsolutePath();
+        }
+    }
+
+
+    /**
+     * The snapshot of a directory and the state needed to reload it.
+     */
+    private class Entry {
+        private final String configPath;
+        private volatile ISAConfigurationSnapshot snapshot;
+        private volatile long lastCheck;
+
+        Entry(String configPath) {
+            this.configPath = configPath;
+        }
+
+        ISAConfigurationSnapshot getSnapshot(boolean forceCheck) {
+            ISAConfigurationSnapshot result = snapshot;
+            if (result != null && !forceCheck && !isCheckDue()) {
+                return result;
+            }
+
+            synchronized (this) {
+                if (snapshot != null && !forceCheck && !isCheckDue()) {
+                    return snapshot;
+                }
+                List<File> files = listConfigFiles(configPath);
+                String fingerprint = getFingerprint(files);
+                lastCheck = System.currentTimeMillis();
+                if (snapshot == null || !fingerprint.equals(snapshot.getFingerprint())) {
+                    if (snapshot != null) {
+                        log.info("The ISA configuration in '" + configPath + "' has changed, reloading it");
+                        // Only the old indexes of this directory are dropped
+                        ISAConfigurationSet.invalidateCompiledConfigurations(snapshot.getConfigs().values());
+                    }
+                    snapshot = load(configPath, files, fingerprint);
+                }
+                return snapshot;
+            }
+        }
+
+        private boolean isCheckDue() {
+            long interval = checkInterval;
+            return interval >= 0 && System.currentTimeMillis() - lastCheck >= interval;
+        }
+    }
+
+
+    /**
+     * All the XML files in the directory (recursively), in a fixed order, null if the directory cannot be read.
+     */
+    @SuppressWarnings("unchecked")
+    private static List<File> listConfigFiles(String configPath) {
+        File cfgDir = new File(configPath);
+        if (!cfgDir.isDirectory() || !cfgDir.canRead()) {
+            return null;
+        }
+        List<File> result = new ArrayList<File>();
+        for (File file : (Collection<File>) FileUtils.listFiles(cfgDir, new String[]{"xml"}, true)) {
+            if (file.getName().startsWith(".")) {
+                continue;
+            }
+            result.add(file);
+        }
+        Collections.sort(result);
+        return result;
+    }
+
+    private static String getFingerprint(List<File> files) {
+        if (files == null) {
+            return "";
+        }
+        StringBuilder result = new StringBuilder();
+        for (File file : files) {
+            result.append(file.getPath()).append('|').append(file.length()).append('|').append(file.lastModified())
+                    .append('\n');
+        }
+        return result.toString();
+    }
+
+    private static ISAConfigurationSnapshot load(String configPath, List<File> files, String fingerprint) {
+        long startTime = System.currentTimeMillis();
+        Map<String, IsaTabConfigFileType> configFiles = new HashMap<String, IsaTabConfigFileType>();
+        Map<String, IsaTabConfigurationType> configs = new HashMap<String, IsaTabConfigurationType>();
+        long totalBytes = 0;
+
+        if (files == null) {
+            log.warn(
+                    "Cannot read ISAConfiguration information from the configuration directory: '" + configPath + "', "
+                            + "no ISAConfigurator validation will be performed."
+            );
+        } else {
+            for (File file : files) {
+                IsaTabConfigFileType configFile = loadConfigFile(file);
+                configFiles.put(file.getAbsolutePath(), configFile);
+                totalBytes += file.length();
+
+                for (int i = 0; i < configFile.sizeOfIsatabConfigurationArray(); i++) {
+                    IsaTabConfigurationType cfg = configFile.getIsatabConfigurationArray(i);
+                    String ep = StringUtils.trimToEmpty(cfg.getMeasurement().getTermLabel()).toLowerCase(),
+                            tech = StringUtils.trimToEmpty(cfg.getTechnology().getTermLabel()).toLowerCase();
+                    configs.put(ep + "//" + tech, cfg);
+                }
+            }
+        }
+
+        ISAConfigurationSnapshot result = new ISAConfigurationSnapshot(
+                configPath, fingerprint, configFiles, configs, totalBytes, System.currentTimeMillis() - startTime
+        );
+        log.info("ISA configuration loaded: " + result);
+        return result;
+    }
+
+    /**
+     * Reads a config file, normalising the headers of the fields, i.e., "Parameter Value[x]" becomes
+     * "Parameter Value [x]".
+     */
+    private static IsaTabConfigFileType loadConfigFile(File file) {
+        String path = file.getAbsolutePath();
+        log.debug("Loading the ISA configuration file '" + path + "'");
+        InputStream input;
+        try {
+            input = new BufferedInputStream(new FileInputStream(file));
+        } catch (FileNotFoundException e) {
+            throw new TabMissingResourceException(i18n.msg("isaconfig_missing_file", path));
+        }
+
+        try {
+            IsatabConfigFileDocument configFileDoc = IsatabConfigFileDocument.Factory.parse(input);
+            IsaTabConfigFileType configFile = configFileDoc.getIsatabConfigFile();
+
+            for (int i = 0; i < configFile.sizeOfIsatabConfigurationArray(); i++) {
+                IsaTabConfigurationType cfg = configFile.getIsatabConfigurationArray(i);
+                for (XmlObject xfieldObj : ISAConfigurationSet.getAllConfigurationFields(cfg)) {
+                    if (xfieldObj instanceof FieldType) {
+                        FieldType xfield = (FieldType) xfieldObj;
+                        String xheader = xfield.getHeader();
+                        if (xheader.contains("[")) {
+                            int iFirstBracket = xheader.indexOf('[');
+                            if (iFirstBracket > 0) {
+                                String newHeader = xheader.substring(0, iFirstBracket) + " [" + xheader.substring(iFirstBracket + 1);
+                                xfield.setHeader(newHeader);
+                            }
+                        }
+                    }
+                }
+            }
+            return configFile;
+        } catch (XmlException e) {
+            throw new TabInternalErrorException(i18n.msg("isaconfig_loading_error", path, e.getMessage()), e);
+        } catch (IOException e) {
+            throw new TabIOException(i18n.msg("isaconfig_loading_error", path, e.getMessage()), e);
+        } finally {
+            try {
+                input.close();
+            } catch (IOException e) {
+                log.warn("Error while closing the ISA configuration file '" + path + "': " + e.getMessage());
+            }
+        }
+    }
+}
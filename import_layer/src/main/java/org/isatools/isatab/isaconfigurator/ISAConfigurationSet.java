@@ -48,24 +48,27 @@
 
 package org.isatools.isatab.isaconfigurator;
 
-import org.apache.commons.io.FileUtils;
 import org.apache.commons.lang.StringUtils;
 import org.apache.log4j.Logger;
-import org.apache.xmlbeans.XmlException;
+import org.apache.xmlbeans.XmlCursor;
 import org.apache.xmlbeans.XmlObject;
 import org.isatools.isatab.commandline.AbstractImportLayerShellCommand;
 import org.isatools.isatab.configurator.schema.*;
 import org.isatools.isatab.mapping.AssayGroup;
 import org.isatools.tablib.exceptions.TabIOException;
-import org.isatools.tablib.exceptions.TabInternalErrorException;
-import org.isatools.tablib.exceptions.TabMissingResourceException;
-import uk.ac.ebi.bioinvindex.utils.i18n;
 
-import java.io.*;
+import java.io.File;
+import java.io.IOException;
 import java.util.*;
 
 /**
  * Manages a set of files that describe ISAConfigurator's configuration.
+ * <p/>
+ * The files are loaded and kept by the {@link ISAConfigurationRegistry}, a set created with a configuration
+ * directory (or the {@link #getConfigPath() default one}) fetches the current snapshot of the directory from the
+ * registry at every access, so it sees the changes in the files. A set created with a
+ * {@link #ISAConfigurationSet(ISAConfigurationSnapshot) snapshot} always uses that one instead, which gives
+ * a consistent view of the configuration for the duration of a task such as a validation.
  *
  * @author brandizi
  * see XSD file that defines the latter.
@@ -73,106 +76,175 @@ import java.util.*;
 public class ISAConfigurationSet {
     public final static String NS_CFG = "http://www.ebi.ac.uk/bii/isatab_configuration#";
 
-    private static String configPath = AbstractImportLayerShellCommand.getConfigPath() + "/isa_configurator";
+    private static volatile String configPath = AbstractImportLayerShellCommand.getConfigPath() + "/isa_configurator";
 
-    private static Map<String, IsaTabConfigFileType> _isaConfigFiles;
-    private static Map<String, IsaTabConfigurationType> _isaConfigs;
+    private final String fixedConfigPath;
+    private final ISAConfigurationSnapshot snapshot;
+
+    /**
+     * The indexes of the configurations and their fields. These are replaced by copies when new indexes are added, so
+     * that lookups don't need any lock.
+     */
+    private static volatile Map<XmlObject, CompiledConfiguration> compiledConfigs =
+            new IdentityHashMap<XmlObject, CompiledConfiguration>();
+
+    /**
+     * The configurations in {@link #compiledConfigs}, oldest first, used to keep their number within
+     * {@link #MAX_COMPILED_CONFIGURATIONS}. It is changed under the class lock only.
+     */
+    private static final LinkedList<CompiledConfiguration> compiledConfigsOrder = new LinkedList<CompiledConfiguration>();
+
+    /**
+     * The max no. of configuration indexes kept, the oldest ones are dropped (and built again if needed) beyond this.
+     */
+    private static final int MAX_COMPILED_CONFIGURATIONS = 512;
 
     protected static final Logger log = Logger.getLogger(ISAConfigurationSet.class);
 
     /**
-     * Default is  {@link AbstractImportLayerShellCommand#getConfigPath()}
+     * Uses the {@link #getConfigPath() default configuration directory}, the one that is current when the
+     * configuration is accessed.
      */
-    public static void setConfigPath(String configPath) {
-        ISAConfigurationSet.configPath = configPath;
-        _isaConfigFiles = null;
-        _isaConfigs = null;
+    public ISAConfigurationSet() {
+        this((String) null);
     }
 
     /**
-     * Reads a config file and adds up it to the config set
+     * Uses a specific configuration directory.
      */
-    private void addConfigFile(String path, InputStream input) {
-        System.out.println("addConfigFile path="+path);
-        try {
-            IsatabConfigFileDocument configFileDoc = IsatabConfigFileDocument.Factory.parse(input);
-            IsaTabConfigFileType configFile = configFileDoc.getIsatabConfigFile();
-
-            for (int i = 0; i < configFile.sizeOfIsatabConfigurationArray(); i++) {
-                IsaTabConfigurationType cfg = configFile.getIsatabConfigurationArray(i);
-                for (XmlObject xfieldObj : getAllConfigurationFields(cfg)) {
-                    if (xfieldObj instanceof FieldType) {
-                        FieldType xfield = (FieldType) xfieldObj;
-                        String xheader = xfield.getHeader();
-                        if (xheader.contains("[")) {
-                            int iFirstBracket = xheader.indexOf('[');
-                            if (iFirstBracket > 0) {
-                                String newHeader = xheader.substring(0, iFirstBracket) + " [" + xheader.substring(iFirstBracket + 1);
-                                xfield.setHeader(newHeader);
-                            }
-                        }
-                    }
-                }
-            }
+    public ISAConfigurationSet(String configPath) {
+        this.fixedConfigPath = configPath;
+        this.snapshot = null;
+    }
 
-            _isaConfigFiles.put(path, configFile);
-        } catch (XmlException e) {
-            e.printStackTrace();
-            throw new TabInternalErrorException(i18n.msg("isaconfig_loading_error", path, e.getMessage()), e);
-        } catch (IOException e) {
-            e.printStackTrace();
-            throw new TabIOException(i18n.msg("isaconfig_loading_error", path, e.getMessage()), e);
-        }
+    /**
+     * Always uses the same snapshot, even if the configuration directory is reloaded in the meantime.
+     */
+    public ISAConfigurationSet(ISAConfigurationSnapshot snapshot) {
+        this.fixedConfigPath = snapshot.getConfigPath();
+        this.snapshot = snapshot;
     }
 
     /**
-     * Reads a config file and adds up it to the config set
+     * The configurations used by this set, see the class comment.
      */
-    private void addConfigFile(File file) {
-        try {
-            addConfigFile(file.getAbsolutePath(), new BufferedInputStream(new FileInputStream(file)));
-        } catch (FileNotFoundException e) {
-            throw new TabMissingResourceException(i18n.msg("isaconfig_missing_file", file.getAbsolutePath()));
+    public ISAConfigurationSnapshot getSnapshot() {
+        if (snapshot != null) {
+            return snapshot;
         }
+        return ISAConfigurationRegistry.getInstance().getSnapshot(fixedConfigPath == null ? configPath : fixedConfigPath);
+    }
+
+    /**
+     * The default configuration directory, used by the sets created without a specific directory.
+     */
+    public static String getConfigPath() {
+        return configPath;
+    }
+
+    /**
+     * Default is  {@link AbstractImportLayerShellCommand#getConfigPath()}. The directory is checked for changes
+     * straight away, the configuration is parsed again only if it is new to the {@link ISAConfigurationRegistry}
+     * or if some file was changed.
+     */
+    public static void setConfigPath(String configPath) {
+        ISAConfigurationSet.configPath = configPath;
+        ISAConfigurationRegistry.getInstance().checkForChanges(configPath);
     }
 
     /**
-     * Reads a config file and adds up it to the config set
+     * The index used for the lookups in the configuration, which is built the first time it's needed.
      */
-    private void addConfigFile(String path) {
-        addConfigFile(new File(path));
+    public static CompiledConfiguration getCompiledConfiguration(IsaTabConfigurationType cfg) {
+        CompiledConfiguration result = compiledConfigs.get(cfg);
+        return result == null ? compileConfiguration(cfg) : result;
     }
 
     /**
-     * Add all the config files that it can find in the path, basically scan all the XML files (recursively)
+     * The index of the configuration the field belongs to, null if the field isn't part of any configuration.
      */
-    @SuppressWarnings("unchecked")
-    private void addFromConfigDir(String path) {
-        File cfgDir = new File(path);
-        if (cfgDir == null || !cfgDir.isDirectory() || !cfgDir.canRead()) {
-            log.warn(
-                    "Cannot read ISAConfiguration information from the configuration directory: '" + path + "', "
-                            + "no ISAConfigurator validation will be performed."
-            );
-            return;
+    private static CompiledConfiguration getCompiledConfiguration(FieldType field) {
+        CompiledConfiguration result = compiledConfigs.get(field);
+        if (result != null) {
+            return result;
+        }
+
+        XmlCursor cursor = field.newCursor();
+        try {
+            if (!cursor.toParent()) {
+                return null;
+            }
+            XmlObject parent = cursor.getObject();
+            return parent instanceof IsaTabConfigurationType
+                    ? getCompiledConfiguration((IsaTabConfigurationType) parent) : null;
+        }
+        finally {
+            cursor.dispose();
+        }
+    }
+
+    private static synchronized CompiledConfiguration compileConfiguration(IsaTabConfigurationType cfg) {
+        CompiledConfiguration result = compiledConfigs.get(cfg);
+        if (result != null) {
+            return result;
+        }
+
+        result = new CompiledConfiguration(cfg);
+        Map<XmlObject, CompiledConfiguration> newCompiledConfigs =
+                new IdentityHashMap<XmlObject, CompiledConfiguration>(compiledConfigs);
+        newCompiledConfigs.put(cfg, result);
+        for (XmlObject element : getAllConfigurationFields(cfg)) {
+            newCompiledConfigs.put(element, result);
         }
-        for (File file : (Collection<File>) FileUtils.listFiles(new File(path), new String[]{"xml"}, true)) {
-            if (file.getName().startsWith("."))
-                continue;
-            addConfigFile(file);
+        compiledConfigsOrder.addLast(result);
+        while (compiledConfigsOrder.size() > MAX_COMPILED_CONFIGURATIONS) {
+            removeCompiledConfiguration(newCompiledConfigs, compiledConfigsOrder.removeFirst());
         }
+        compiledConfigs = newCompiledConfigs;
+        return result;
+    }
+
+    private static void removeCompiledConfiguration(
+            Map<XmlObject, CompiledConfiguration> compiledConfigs, CompiledConfiguration compiledCfg) {
+        IsaTabConfigurationType cfg = compiledCfg.getConfiguration();
+        if (compiledConfigs.get(cfg) == compiledCfg) {
+            compiledConfigs.remove(cfg);
+        }
+        for (XmlObject element : getAllConfigurationFields(cfg)) {
+            if (compiledConfigs.get(element) == compiledCfg) {
+                compiledConfigs.remove(element);
+            }
+        }
+    }
+
+    /**
+     * Discards all the configuration indexes, which must be done when the configurations are changed
+     * programmatically.
+     */
+    public static synchronized void invalidateCompiledConfigurations() {
+        compiledConfigs = new IdentityHashMap<XmlObject, CompiledConfiguration>();
+        compiledConfigsOrder.clear();
     }
 
     /**
-     * Gets a map of name=>Config
+     * Discards the indexes of some configurations only, e.g., those of a snapshot that was reloaded, leaving the
+     * others (e.g.: other configuration directories) alone. {@link #saveConfigurationSet()} invokes this.
      */
-    private Map<String, IsaTabConfigFileType> getFileConfigs() {
-        if (_isaConfigFiles != null) {
-            return _isaConfigFiles;
+    public static synchronized void invalidateCompiledConfigurations(Collection<IsaTabConfigurationType> cfgs) {
+        Map<IsaTabConfigurationType, Boolean> invalidCfgs = new IdentityHashMap<IsaTabConfigurationType, Boolean>();
+        for (IsaTabConfigurationType cfg : cfgs) {
+            invalidCfgs.put(cfg, true);
         }
-        _isaConfigFiles = new HashMap<String, IsaTabConfigFileType>();
-        addFromConfigDir(configPath);
-        return _isaConfigFiles;
+        Map<XmlObject, CompiledConfiguration> newCompiledConfigs =
+                new IdentityHashMap<XmlObject, CompiledConfiguration>(compiledConfigs);
+        for (Iterator<CompiledConfiguration> itr = compiledConfigsOrder.iterator(); itr.hasNext(); ) {
+            CompiledConfiguration compiledCfg = itr.next();
+            if (invalidCfgs.containsKey(compiledCfg.getConfiguration())) {
+                removeCompiledConfiguration(newCompiledConfigs, compiledCfg);
+                itr.remove();
+            }
+        }
+        compiledConfigs = newCompiledConfigs;
     }
 
     /**
@@ -180,22 +252,7 @@ public class ISAConfigurationSet {
      * in the string).
      */
     private Map<String, IsaTabConfigurationType> getIsaTabConfigs() {
-        if (_isaConfigs != null) {
-            return _isaConfigs;
-        }
-
-        Map<String, IsaTabConfigFileType> isaConfigFiles = getFileConfigs();
-        _isaConfigs = new HashMap<String, IsaTabConfigurationType>();
-
-        for (IsaTabConfigFileType cfile : isaConfigFiles.values()) {
-            for (int i = 0; i < cfile.sizeOfIsatabConfigurationArray(); i++) {
-                IsaTabConfigurationType cfg = cfile.getIsatabConfigurationArray(i);
-                String ep = StringUtils.trimToEmpty(cfg.getMeasurement().getTermLabel()).toLowerCase(),
-                        tech = StringUtils.trimToEmpty(cfg.getTechnology().getTermLabel()).toLowerCase();
-                _isaConfigs.put(ep + "//" + tech, cfg);
-            }
-        }
-        return _isaConfigs;
+        return getSnapshot().getConfigs();
     }
 
     /**
@@ -283,20 +340,10 @@ public class ISAConfigurationSet {
 
     /**
      * Tells the field (field element) that has the parameter header as attribute (case-insensitive search).
+     * Uses {@link #getCompiledConfiguration(IsaTabConfigurationType) the configuration index}.
      */
     public static FieldType getConfigurationField(IsaTabConfigurationType cfg, String header) {
-        String lheader = header.toLowerCase();
-        XmlObject[] results = cfg.selectPath(
-                "declare namespace cfg='" + NS_CFG + "';"
-                        + "./cfg:field[lower-case(@header)='" + lheader + "']"
-        );
-        if (results.length == 0) {
-            return null;
-        }
-        if (results.length > 1) {
-            throw new TabInternalErrorException(i18n.msg("isaconfig_config_syntax_error_too_many_fields", header));
-        }
-        return (FieldType) results[0];
+        return getCompiledConfiguration(cfg).getField(header);
     }
 
     /**
@@ -304,13 +351,8 @@ public class ISAConfigurationSet {
      * anything like that.
      */
     public static UnitFieldType getUnitField(FieldType field) {
-        XmlObject[] results = field.selectPath("./following-sibling::*");
-        // First element seems to be $this, then there is what we want
-        if (results.length < 2) {
-            return null;
-        }
-        XmlObject result = results[1];
-        return result instanceof UnitFieldType ? (UnitFieldType) result : null;
+        CompiledConfiguration compiledCfg = getCompiledConfiguration(field);
+        return compiledCfg == null ? null : compiledCfg.getUnitField(field);
     }
 
     /**
@@ -325,23 +367,9 @@ public class ISAConfigurationSet {
      * matching the parameter type in the protocol-type attribute.
      */
     public static List<ProtocolFieldType> getProtocolsBetween(FieldType fieldIn, FieldType fieldOut, String type) {
-        List<ProtocolFieldType> protos = new ArrayList<ProtocolFieldType>();
-
-        for (XmlObject node : fieldIn.selectPath(
-                "declare namespace cfg='" + NS_CFG + "';"
-                        + "./following-sibling::*"
-        )) {
-            if (node == fieldOut) {
-                break;
-            }
-            if (node instanceof ProtocolFieldType) {
-                ProtocolFieldType proto = (ProtocolFieldType) node;
-                if (type == null || type.equalsIgnoreCase(proto.getProtocolType())) {
-                    protos.add(proto);
-                }
-            }
-        }
-        return protos;
+        CompiledConfiguration compiledCfg = getCompiledConfiguration(fieldIn);
+        return compiledCfg == null
+                ? new ArrayList<ProtocolFieldType>() : compiledCfg.getProtocolsBetween(fieldIn, fieldOut, type);
     }
 
     /**
@@ -367,40 +395,14 @@ public class ISAConfigurationSet {
 
     /**
      * Gets all the ontology roots that are specified in the branch elements of recommended ontologies
-     * elements for the field.
+     * elements for the field. The result comes from the configuration index and can't be modified.
      *
      * @return a map of sourceSymbol =&gt; { termAccession }
      */
     public static Map<String, Set<String>> getBranchIds(FieldType field) {
-        Map<String, Set<String>> result = new HashMap<String, Set<String>>();
-
-        RecommendedOntologiesType recommendedOntos = field.getRecommendedOntologies();
-        if (recommendedOntos == null) {
-            return result;
-        }
-
-        for (OntologyType onto : recommendedOntos.getOntologyArray()) {
-            String osrc = StringUtils.trimToNull(onto.getAbbreviation());
-            if (osrc == null) {
-                continue;
-            }
-
-            Set<String> branches = result.get(osrc);
-            if (branches == null) {
-                branches = new HashSet<String>();
-                result.put(osrc, branches);
-            }
-
-            for (BranchType branchObj : onto.getBranchArray()) {
-                String termId = StringUtils.trimToNull(branchObj.getId());
-                if (termId == null) {
-                    continue;
-                }
-
-                branches.add(termId);
-            }
-        }
-        return result;
+        CompiledConfiguration compiledCfg = getCompiledConfiguration(field);
+        return compiledCfg == null
+                ? CompiledConfiguration.compileBranchIds(field) : compiledCfg.getBranchIds(field);
     }
 
     /**
@@ -408,14 +410,18 @@ public class ISAConfigurationSet {
      * It's usually used in Junit tests.
      */
     public void saveConfigurationSet() {
+        ISAConfigurationSnapshot savedSnapshot = getSnapshot();
         try {
-            for (String path : _isaConfigFiles.keySet()) {
-                IsaTabConfigFileType cfg = _isaConfigFiles.get(path);
+            Map<String, IsaTabConfigFileType> configFiles = savedSnapshot.getConfigFiles();
+            for (String path : configFiles.keySet()) {
+                IsaTabConfigFileType cfg = configFiles.get(path);
 
                 IsatabConfigFileDocument cfgDoc = IsatabConfigFileDocument.Factory.newInstance();
                 cfgDoc.setIsatabConfigFile(cfg);
                 cfgDoc.save(new File(path));
             }
+            invalidateCompiledConfigurations(savedSnapshot.getConfigs().values());
+            ISAConfigurationRegistry.getInstance().invalidate(savedSnapshot.getConfigPath());
         } catch (IOException ex) {
             throw new TabIOException("Error while saving the ISATAB configuration: " + ex.getMessage(), ex);
         }
@@ -0,0 +1,147 @@
+/**
+
+ The ISAconverter, ISAvalidator & BII Management Tool are components of the ISA software suite (http://www.isa-tools.org)
+
+ Exhibit A
+ The ISAconverter, ISAvalidator & BII Management Tool are licensed under the Mozilla Public License (MPL) version
+ 1.1/GPL version 2.0/LGPL version 2.1
+
+ "The contents of this file are subject to the Mozilla Public License
+ Version 1.1 (the "License"). You may not use this file except in compliance with the License.
+ You may obtain copies of the Licenses at http://www.mozilla.org/MPL/MPL-1.1.html.
+
+ Software distributed under the License is distributed on an "AS IS"
+ basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ License for the specific language governing rights and limitations
+ under the License.
+
+ The Original Code is the ISAconverter, ISAvalidator & BII Management Tool.
+
+ The Initial Developer of the Original Code is the ISA Team (Eamonn Maguire, eamonnmag@gmail.com;
+ Philippe Rocca-Serra, proccaserra@gmail.com; Susanna-Assunta Sansone, sa.sanson@gmail.com;
+ http://www.isa-tools.org). All portions of the code written by the ISA Team are Copyright (c)
+ 2007-2011 ISA Team. All Rights Reserved.
+
+ Contributor(s):
+ Rocca-Serra P, Brandizi M, Maguire E, Sklyar N, Taylor C, Begley K, Field D,
+ Harris S, Hide W, Hofmann O, Neumann S, Sterk P, Tong W, Sansone SA. ISA software suite:
+ supporting standards-compliant experimental annotation and enabling curation at the community level.
+ Bioinformatics 2010;26(18):2354-6.
+
+ Alternatively, the contents of this file may be used under the terms of either the GNU General
+ Public License Version 2 or later (the "GPL") - http://www.gnu.org/licenses/gpl-2.0.html, or
+ the GNU Lesser General Public License Version 2.1 or later (the "LGPL") -
+ http://www.gnu.org/licenses/lgpl-2.1.html, in which case the provisions of the GPL
+ or the LGPL are applicable instead of those above. If you wish to allow use of your version
+ of this file only under the terms of either the GPL or the LGPL, and not to allow others to
+ use your version of this file under the terms of the MPL, indicate your decision by deleting
+ the provisions above and replace them with the notice and other provisions required by the
+ GPL or the LGPL. If you do not delete the provisions above, a recipient may use your version
+ of this file under the terms of any one of the MPL, the GPL or the LGPL.
+
+ Sponsors:
+ The ISA Team and the ISA software suite have been funded by the EU Carcinogenomics project
+ (http://www.carcinogenomics.eu), the UK BBSRC (http://www.bbsrc.ac.uk), the UK NERC-NEBC
+ (http://nebc.nerc.ac.uk) and in part by the EU NuGO consortium (http://www.nugo.org/everyone).
+
+ */
+
+
+package org.isatools.isatab.isaconfigurator;
+
+import org.isatools.isatab.configurator.schema.IsaTabConfigFileType;
+import org.isatools.isatab.configurator.schema.IsaTabConfigurationType;
+
+import java.util.Collections;
+import java.util.Date;
+import java.util.Map;
+
+/**
+ * The ISA configurations loaded from a configuration directory at a given time, as they are served by
+ * {@link ISAConfigurationRegistry}. The maps in the snapshot can't be modified and the snapshot is replaced as a
+ * whole when the directory is reloaded, so it can be read by many threads without any lock. The XML-Beans objects
+ * are still modifiable, changing them is only supported in tests, see {@link ISAConfigurationSet#saveConfigurationSet()}.
+ */
+public final class ISAConfigurationSnapshot {
+    private final String configPath;
+    private final String fingerprint;
+    private final Map<String, IsaTabConfigFileType> configFiles;
+    private final Map<String, IsaTabConfigurationType> configs;
+    private final long totalBytes;
+    private final long loadTime;
+    private final Date loadedAt;
+
+    ISAConfigurationSnapshot(
+            String configPath, String fingerprint, Map<String, IsaTabConfigFileType> configFiles,
+            Map<String, IsaTabConfigurationType> configs, long totalBytes, long loadTime) {
+        this.configPath = configPath;
+        this.fingerprint = fingerprint;
+        this.configFiles = Collections.unmodifiableMap(configFiles);
+        this.configs = Collections.unmodifiableMap(configs);
+        this.totalBytes = totalBytes;
+        this.loadTime = loadTime;
+        this.loadedAt = new Date();
+    }
+
+    /**
+     * The configuration directory, in canonical form.
+     */
+    public String getConfigPath() {
+        return configPath;
+    }
+
+    /**
+     * The list of files, sizes and modification times the snapshot was loaded from, used to detect changes.
+     */
+    String getFingerprint() {
+        return fingerprint;
+    }
+
+    /**
+     * The configuration files, keyed by their absolute path.
+     */
+    public Map<String, IsaTabConfigFileType> getConfigFiles() {
+        return configFiles;
+    }
+
+    /**
+     * All the configurations, every configuration is keyed by measurement type and technology (lower case, "//" is
+     * used as separator).
+     */
+    public Map<String, IsaTabConfigurationType> getConfigs() {
+        return configs;
+    }
+
+    public int getFileCount() {
+        return configFiles.size();
+    }
+
+    public int getConfigCount() {
+        return configs.size();
+    }
+
+    /**
+     * The total size of the configuration files.
+     */
+    public long getTotalBytes() {
+        return totalBytes;
+    }
+
+    /**
+     * How long it took to load the configuration directory, in milliseconds.
+     */
+    public long getLoadTime() {
+        return loadTime;
+    }
+
+    public Date getLoadedAt() {
+        return new Date(loadedAt.getTime());
+    }
+
+    @Override
+    public String toString() {
+        return "ISAConfigurationSnapshot{ path: '" + configPath + "', files: " + getFileCount() + ", configurations: "
+                + getConfigCount() + ", bytes: " + totalBytes + ", load time: " + loadTime + "ms, loaded at: "
+                + loadedAt + " }";
+    }
+}
@@ -55,15 +55,20 @@ import org.isatools.isatab.configurator.schema.IsaTabConfigurationType;
 import org.isatools.isatab.gui_invokers.GUIInvokerResult;
 import org.isatools.isatab.isaconfigurator.validators.*;
 import org.isatools.isatab.mapping.AssayGroup;
+import org.isatools.isatab.mapping.SubmissionNameIndex;
 import org.isatools.isatab_v1.mapping.ISATABReducedMapper;
+import org.isatools.tablib.exceptions.TabInternalErrorException;
 import org.isatools.tablib.exceptions.TabValidationException;
 import org.isatools.tablib.schema.SectionInstance;
 import org.isatools.tablib.utils.BIIObjectStore;
+import org.isatools.tablib.utils.TaskRunner;
+import org.isatools.tablib.utils.logging.TabErrorCollector;
+import org.isatools.tablib.utils.logging.TabErrorEntry;
 import org.isatools.tablib.utils.logging.TabNDC;
 import uk.ac.ebi.bioinvindex.utils.i18n;
 
-import java.util.HashSet;
-import java.util.Set;
+import java.util.*;
+import java.util.concurrent.Callable;
 
 /**
  * The ISAConfigurator Validator.
@@ -79,32 +84,49 @@ public class ISAConfiguratorValidator {
     private final BIIObjectStore store;
     private final ISAConfigurationSet isaConfigSet;
 
-    private Set<String> messages = new HashSet<String>();
+    private Set<String> messages = new LinkedHashSet<String>();
+    private int parallelism = Runtime.getRuntime().availableProcessors();
+    private boolean collectAllErrors = false;
+    private final TabErrorCollector errors = new TabErrorCollector();
+    private OntologyValidationManager ontologyManager = null;
 
     protected static final Logger log = Logger.getLogger(ISAConfiguratorValidator.class);
-    protected static final TabNDC ndc = TabNDC.getInstance();
 
     /**
      * If you only want to validate the tabular view, without the full validation, you just need to use the
      * {@link ISATABReducedMapper}.
      */
     public ISAConfiguratorValidator(BIIObjectStore store) {
-        isaConfigSet = new ISAConfigurationSet();
+        this(store, new ISAConfigurationSet());
+    }
+
+    /**
+     * Uses a specific configuration set, e.g., one based on a configuration directory other than the default one.
+     */
+    public ISAConfiguratorValidator(BIIObjectStore store, ISAConfigurationSet isaConfigSet) {
+        this.isaConfigSet = isaConfigSet;
         this.store = store;
     }
 
     /**
      * Do all here.
+     * <p/>
+     * By default, a {@link TabValidationException} is thrown at the first table that fails the validation. In
+     * {@link #isCollectAllErrors() collect-all-errors mode}, all the tables are validated and the result is
+     * {@link GUIInvokerResult#ERROR} if any of them failed, the details are in {@link #getErrors()}.
      */
     public GUIInvokerResult validate() {
         GUIInvokerResult result;
         messages.clear();
+        errors.clear();
 
-        if (isaConfigSet.isEmpty()) {
+        // The same configuration is used for the whole validation, even if it's reloaded in the meantime
+        ISAConfigurationSet cfgSet = new ISAConfigurationSet(isaConfigSet.getSnapshot());
+        if (cfgSet.isEmpty()) {
             return GUIInvokerResult.SUCCESS;
         }
 
-        result = validateAllTables();
+        result = validateAllTables(cfgSet);
 
         for (String msg : messages) {
             log.warn(msg);
@@ -115,96 +137,283 @@ public class ISAConfiguratorValidator {
 
 
     /**
-     * Goes through all the ISATAB tables (sample files and assay files) and uses
-     * the validators in the validators package.
+     * The messages reported by the last {@link #validate()} invocation, in the order they were found.
      */
-    private GUIInvokerResult validateAllTables() {
-        GUIInvokerResult result = GUIInvokerResult.SUCCESS;
+    public Set<String> getMessages() {
+        return Collections.unmodifiableSet(messages);
+    }
+
+    /**
+     * The errors found by the last {@link #validate()} invocation, in the order they were found. This is populated in
+     * {@link #isCollectAllErrors() collect-all-errors mode} only.
+     */
+    public List<TabErrorEntry> getErrors() {
+        return errors.getErrors();
+    }
+
+    /**
+     * If true, {@link #validate()} goes ahead after an error and reports all the errors found, instead of throwing an
+     * exception for the first one. Default is false.
+     */
+    public boolean isCollectAllErrors() {
+        return collectAllErrors;
+    }
+
+    public void setCollectAllErrors(boolean collectAllErrors) {
+        this.collectAllErrors = collectAllErrors;
+    }
+
+    /**
+     * The manager used for the ontology terms, which keeps the results of the lookups. If this is null (the default),
+     * a new one is used for every {@link #validate()} invocation. Setting a manager allows to share its caches
+     * among several validations, e.g., in a long-running process.
+     */
+    public OntologyValidationManager getOntologyManager() {
+        return ontologyManager;
+    }
 
-        AbstractValidatorComponent[] validators = new AbstractValidatorComponent[]{
-                new RequiredFieldsValidator(store, isaConfigSet, messages),
-                new FieldValuesValidator(store, isaConfigSet, messages),
-                new OntologyValidator(store, isaConfigSet, messages),
-                new UnitFieldsValidator(store, isaConfigSet, messages),
-                new ProtocolFieldsValidator(store, isaConfigSet, messages),
-                new FactorValuePresenceValidator(store, isaConfigSet, messages)
-        };
+    public void setOntologyManager(OntologyValidationManager ontologyManager) {
+        this.ontologyManager = ontologyManager;
+    }
+
+    /**
+     * The max number of tables validated at the same time. Default is the number of available processors, 1 means
+     * that the tables are validated one after the other, in the current thread.
+     */
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    public void setParallelism(int parallelism) {
+        if (parallelism < 1) {
+            throw new TabInternalErrorException(
+                    "ISAConfiguratorValidator, parallelism must be at least 1, got " + parallelism
+            );
+        }
+        this.parallelism = parallelism;
+    }
+
+
+    /**
+     * Goes through all the ISATAB tables (sample files and assay files) and uses
+     * the validators in the validators package. Tables are independent of each other, so they're validated in parallel,
+     * up to {@link #getParallelism()} at a time. Every table has its own validators and message buffer, the buffers are
+     * merged in the same order the tables would be validated sequentially. The names used across the tables are looked
+     * up in the {@link SubmissionNameIndex} of the submission, which is shared by all the tasks.
+     */
+    private GUIInvokerResult validateAllTables(ISAConfigurationSet cfgSet) {
+        // The ontology lookups are shared, so that the same terms aren't resolved again for every table
+        boolean isOwnOntologyManager = this.ontologyManager == null;
+        OntologyValidationManager ontologyManager = isOwnOntologyManager
+                ? new OntologyValidationManager() : this.ontologyManager;
+        List<TableValidationTask> tasks = new ArrayList<TableValidationTask>();
+        SubmissionNameIndex nameIndex = null;
 
         Set<SectionInstance> processedSampleSections = new HashSet<SectionInstance>();
         for (AssayGroup ag : store.valuesOfType(AssayGroup.class)) {
-            ndc.pushObject(ag.getStudy());
-
             // The Sample file
             SectionInstance sampleSection = ag.getSampleSectionInstance();
-            if (!processedSampleSections.contains(sampleSection)) {
-                IsaTabConfigurationType cfg = isaConfigSet.getConfig("[sample]", "");
-                if (cfg == null) {
-                    messages.add(
-                            "No ISA Configuration defined for the sample file, the ISA Configurator validation is not done for the file '"
-                                    + sampleSection.getFileId() + "'"
-                    );
-                } else {
-                    ndc.pushFormat(sampleSection.getParent());
-                    for (AbstractValidatorComponent validator : validators) {
-                        GUIInvokerResult valResult = validator.validate(sampleSection, cfg);
-                        if (GUIInvokerResult.ERROR == valResult) {
-                            throw new TabValidationException(i18n.msg("isacfg_validation_failed"));
-                        } else if (valResult == GUIInvokerResult.WARNING) {
-                            result = GUIInvokerResult.WARNING;
-                        }
-                    }
+            if (nameIndex == null && sampleSection != null) {
+                nameIndex = SubmissionNameIndex.getIndex(store, sampleSection);
+            }
+            if (processedSampleSections.add(sampleSection)) {
+                tasks.add(new TableValidationTask(
+                        ag, sampleSection, cfgSet, cfgSet.getConfig("[sample]", ""), true, ontologyManager, nameIndex
+                ));
+            }
 
-                    SampleNameValidator sampleNameLinkValidator = new SampleNameValidator();
-                    GUIInvokerResult sampleNameLinkResult = sampleNameLinkValidator.validate(sampleSection, ag);
-                    if (sampleNameLinkResult == GUIInvokerResult.ERROR) {
-                        throw new TabValidationException(i18n.msg("sample_link_check_failed"));
+            // The Assay file
+            SectionInstance assaySection = ag.getAssaySectionInstance();
+            if (assaySection != null) {
+                tasks.add(new TableValidationTask(
+                        ag, assaySection, cfgSet, cfgSet.getConfig(ag), false, ontologyManager, nameIndex
+                ));
+            }
+        }
+
+        List<GUIInvokerResult> taskResults;
+        try {
+            taskResults = TaskRunner.run(tasks, parallelism, "isa-validator");
+        }
+        catch (RuntimeException ex) {
+            throw ex;
+        }
+        catch (Exception ex) {
+            throw new TabInternalErrorException(
+                    "ISAConfiguratorValidator, error while validating the ISATAB tables: " + ex.getMessage(), ex
+            );
+        }
+        finally {
+            if (isOwnOntologyManager) {
+                ontologyManager.shutdown();
+            }
+        }
+
+        GUIInvokerResult result = GUIInvokerResult.SUCCESS;
+        for (int i = 0; i < tasks.size(); i++) {
+            TableValidationTask task = tasks.get(i);
+            messages.addAll(task.messages);
+            errors.addAll(task.errors);
+            GUIInvokerResult taskResult = taskResults.get(i);
+            if (taskResult == GUIInvokerResult.ERROR) {
+                result = GUIInvokerResult.ERROR;
+            } else if (taskResult == GUIInvokerResult.WARNING && result != GUIInvokerResult.ERROR) {
+                result = GUIInvokerResult.WARNING;
+            }
+        }
+        return result;
+    }
+
+
+    /**
+     * The validation of a single table (sample or assay file).
+     */
+    private class TableValidationTask implements Callable<GUIInvokerResult> {
+        private final AssayGroup ag;
+        private final SectionInstance table;
+        private final ISAConfigurationSet cfgSet;
+        private final IsaTabConfigurationType cfg;
+        private final boolean isSampleTable;
+        private final SubmissionNameIndex nameIndex;
+
+        private final Set<String> messages = new LinkedHashSet<String>();
+        private final TabErrorCollector errors = new TabErrorCollector();
+        private final AbstractValidatorComponent[] validators;
+
+        TableValidationTask(
+                AssayGroup ag, SectionInstance table, ISAConfigurationSet cfgSet, IsaTabConfigurationType cfg,
+                boolean isSampleTable, OntologyValidationManager ontologyManager, SubmissionNameIndex nameIndex) {
+            this.ag = ag;
+            this.table = table;
+            this.cfgSet = cfgSet;
+            this.cfg = cfg;
+            this.isSampleTable = isSampleTable;
+            this.nameIndex = nameIndex;
+
+            validators = new AbstractValidatorComponent[]{
+                    new RequiredFieldsValidator(store, cfgSet, messages),
+                    new FieldValuesValidator(store, cfgSet, messages),
+                    new OntologyValidator(store, cfgSet, messages, ontologyManager),
+                    new UnitFieldsValidator(store, cfgSet, messages),
+                    new ProtocolFieldsValidator(store, cfgSet, messages),
+                    new FactorValuePresenceValidator(store, cfgSet, messages)
+            };
+        }
+
+        public GUIInvokerResult call() {
+            TabNDC ndc = TabNDC.getInstance();
+            ndc.pushObject(ag.getStudy());
+            try {
+                return isSampleTable ? validateSampleTable(ndc) : validateAssayTable(ndc);
+            }
+            finally {
+                ndc.popObject(); // study
+            }
+        }
+
+        private GUIInvokerResult validateSampleTable(TabNDC ndc) {
+            if (cfg == null) {
+                messages.add(
+                        "No ISA Configuration defined for the sample file, the ISA Configurator validation is not done for the file '"
+                                + table.getFileId() + "'"
+                );
+                return GUIInvokerResult.SUCCESS;
+            }
+
+            GUIInvokerResult result = GUIInvokerResult.SUCCESS;
+            ndc.pushFormat(table.getParent());
+            try {
+                for (AbstractValidatorComponent validator : validators) {
+                    TabErrorCollector valErrors = new TabErrorCollector();
+                    validator.setErrorCollector(valErrors);
+                    GUIInvokerResult valResult = validator.validate(table, cfg);
+                    if (GUIInvokerResult.ERROR == valResult) {
+                        result = fail(valErrors, "isacfg_validation_failed");
+                    } else if (valResult == GUIInvokerResult.WARNING && result != GUIInvokerResult.ERROR) {
+                        result = GUIInvokerResult.WARNING;
                     }
+                }
 
-                    ndc.popTabDescriptor();
+                SampleNameValidator sampleNameLinkValidator = new SampleNameValidator();
+                TabErrorCollector linkErrors = new TabErrorCollector();
+                GUIInvokerResult sampleNameLinkResult =
+                        sampleNameLinkValidator.validate(nameIndex, table, ag, linkErrors);
+                if (sampleNameLinkResult == GUIInvokerResult.ERROR) {
+                    result = fail(linkErrors, "sample_link_check_failed");
                 }
+            }
+            finally {
+                ndc.popTabDescriptor();
+            }
+            return result;
+        }
 
-                processedSampleSections.add(sampleSection);
+        private GUIInvokerResult validateAssayTable(TabNDC ndc) {
+            if (cfg == null) {
+                messages.add(
+                        "No ISA Configuration defined for the type "
+                                + ag.getMeasurement().getName() + " / " + ag.getTechnologyName()
+                                + ", the ISA Configurator validation is not done for the file '" + table.getFileId() + "'"
+                );
+                return GUIInvokerResult.SUCCESS;
             }
 
-            // The Assay file
-            SectionInstance assaySection = ag.getAssaySectionInstance();
-            if (assaySection != null) {
-                IsaTabConfigurationType cfg = isaConfigSet.getConfig(ag);
-                if (cfg == null) {
-                    messages.add(
-                            "No ISA Configuration defined for the type "
-                                    + ag.getMeasurement().getName() + " / " + ag.getTechnologyName()
-                                    + ", the ISA Configurator validation is not done for the file '" + assaySection.getFileId() + "'"
-                    );
-                } else {
-                    ndc.pushFormat(assaySection.getParent());
-                    for (AbstractValidatorComponent validator : validators) {
-                        GUIInvokerResult valResult = validator.validate(assaySection, cfg);
-
-                        if (GUIInvokerResult.ERROR == valResult) {
-                            // TRY with the generic assay, if it exists.
-                            IsaTabConfigurationType genericConfig = isaConfigSet.getConfig("*", "*");
-                            if (genericConfig != null && genericConfig != cfg) {
-                                log.info("**** Trying validation with the generic assay type.");
-                                valResult = validator.validate(assaySection, genericConfig);
-                                if (valResult == GUIInvokerResult.ERROR) {
-                                    throw new TabValidationException(i18n.msg("isacfg_validation_failed"));
-                                }
-                                log.info("**** Validation successful with the generic assay type.");
-                            } else {
-                                log.info("**** No generic assay type available to validate against.");
-                                throw new TabValidationException(i18n.msg("isacfg_validation_failed"));
+            GUIInvokerResult result = GUIInvokerResult.SUCCESS;
+            ndc.pushFormat(table.getParent());
+            try {
+                for (AbstractValidatorComponent validator : validators) {
+                    TabErrorCollector valErrors = new TabErrorCollector();
+                    validator.setErrorCollector(valErrors);
+                    GUIInvokerResult valResult = validator.validate(table, cfg);
+
+                    if (GUIInvokerResult.ERROR == valResult) {
+                        // TRY with the generic assay, if it exists.
+                        IsaTabConfigurationType genericConfig = cfgSet.getConfig("*", "*");
+                        if (genericConfig != null && genericConfig != cfg) {
+                            log.info("**** Trying validation with the generic assay type.");
+                            // Only the errors against the generic assay are reported, if it fails too
+                            valErrors = new TabErrorCollector();
+                            validator.setErrorCollector(valErrors);
+                            valResult = validator.validate(table, genericConfig);
+                            if (valResult == GUIInvokerResult.ERROR) {
+                                result = fail(valErrors, "isacfg_validation_failed");
+                                continue;
                             }
-                        } else if (valResult == GUIInvokerResult.WARNING) {
-                            result = GUIInvokerResult.WARNING;
+                            log.info("**** Validation successful with the generic assay type.");
+                        } else {
+                            log.info("**** No generic assay type available to validate against.");
+                            result = fail(valErrors, "isacfg_validation_failed");
                         }
+                    } else if (valResult == GUIInvokerResult.WARNING && result != GUIInvokerResult.ERROR) {
+                        result = GUIInvokerResult.WARNING;
                     }
-                    ndc.popTabDescriptor();
                 }
             }
-            ndc.popObject(); // study
+            finally {
+                ndc.popTabDescriptor();
+            }
+            return result;
+        }
+
+        /**
+         * Throws the validation exception for the failure identified by the messageKey or, in collect-all-errors
+         * mode, adds the errors of the failed check to the task errors and tells the caller to go ahead.
+         * A check which failed without reporting the details is reported as an error about the whole table.
+         *
+         * @return {@link GUIInvokerResult#ERROR}, if no exception is thrown
+         */
+        private GUIInvokerResult fail(TabErrorCollector checkErrors, String messageKey) {
+            String msg = i18n.msg(messageKey);
+            if (!collectAllErrors) {
+                throw new TabValidationException(msg);
+            }
+            if (checkErrors.isEmpty()) {
+                errors.add(table.getFileId(), table.getStartingLine(), -1, messageKey, msg);
+            } else {
+                errors.addAll(checkErrors);
+            }
+            return GUIInvokerResult.ERROR;
         }
-        return result;
     }
 
 }
@@ -51,6 +51,7 @@ package org.isatools.isatab.isaconfigurator.ontology_services;
 import org.apache.log4j.Logger;
 import org.apache.xerces.jaxp.DocumentBuilderFactoryImpl;
 import org.apache.xpath.XPathAPI;
+import org.isatools.tablib.exceptions.TabIOException;
 import org.isatools.tablib.exceptions.TabInternalErrorException;
 import org.w3c.dom.Document;
 import org.w3c.dom.Node;
@@ -63,33 +64,55 @@ import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
 import javax.xml.transform.TransformerException;
 import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 import static java.lang.System.out;
 
 /**
  * The client for the BioPortal Service. See {@link OntologyLookupClient} for details.
+ * <p/>
+ * The HTTP calls have a {@link #getTimeout() timeout}. Network errors, timeouts and server errors are reported
+ * with a {@link TabIOException}, so that they are not mistaken for missing terms (see
+ * {@link ResilientOntologyLookupClient}).
  *
  * @author brandizi
  *         <b>date</b>: Oct 9, 2009
  */
 public class BioPortalClient extends OntologyLookupClient {
-    private Map<String, String> _ontologyIdsCache = null;
+    public static final String DEFAULT_BASE_URL = "http://rest.bioontology.org/bioportal";
+
+    /**
+     * Symbol=>BioPortalID, per base URL. It is static, so that the many clients used by the validator (see
+     * {@link org.isatools.isatab.isaconfigurator.validators.OntologyValidationManager}) download it once.
+     */
+    private static final Map<String, Map<String, String>> ONTOLOGY_IDS_CACHE =
+            new ConcurrentHashMap<String, Map<String, String>>();
+
+    private String baseUrl = DEFAULT_BASE_URL;
+    private int timeout = 10000;
     protected static final Logger log = Logger.getLogger(BioPortalClient.class);
 
     /**
      * Gives a map of Symbol=>BioPortalID. It is cached.
      */
     private Map<String, String> getOntologyIds() {
-        if (_ontologyIdsCache != null) {
-            return _ontologyIdsCache;
+        final String baseUrl = this.baseUrl;
+        Map<String, String> cachedIds = ONTOLOGY_IDS_CACHE.get(baseUrl);
+        if (cachedIds != null) {
+            return cachedIds;
         }
 
-        _ontologyIdsCache = new HashMap<String, String>();
+        // Not cached if the service fails, so that it's tried again later
+        Map<String, String> ontologyIds = new HashMap<String, String>();
         try {
-            Document dom = callREST("http://rest.bioontology.org/bioportal/ontologies");
+            Document dom = callREST(baseUrl + "/ontologies");
             if (dom == null) {
-                return _ontologyIdsCache;
+                ONTOLOGY_IDS_CACHE.put(baseUrl, ontologyIds);
+                return ontologyIds;
             }
 
             NodeIterator ontoItr = XPathAPI.selectNodeIterator(dom, "success/data/list/ontologyBean");
@@ -104,7 +127,7 @@ public class BioPortalClient extends OntologyLookupClient {
                     continue;
                 }
 
-                _ontologyIdsCache.put(abbr, id);
+                ontologyIds.put(abbr, id);
             }
 
         }
@@ -112,7 +135,8 @@ public class BioPortalClient extends OntologyLookupClient {
             log.debug("Internal error while invoking BioPortal Service:" + e.getMessage(), e);
             // throw new TabInternalErrorException ( "Internal error while invoking BioPortal Service:" + e.getMessage (), e );
         }
-        return _ontologyIdsCache;
+        ONTOLOGY_IDS_CACHE.put(baseUrl, ontologyIds);
+        return ontologyIds;
     }
 
 
@@ -137,7 +161,7 @@ public class BioPortalClient extends OntologyLookupClient {
         try {
             // It seems we have to try different combinations
             //
-            final String prefix = "http://rest.bioontology.org/bioportal/virtual/ontology/";
+            final String prefix = baseUrl + "/virtual/ontology/";
             final String[] urls = new String[]{
                     prefix + oid + "/" + source + ":" + acc,
                     prefix + oid + "/" + acc,
@@ -186,7 +210,7 @@ public class BioPortalClient extends OntologyLookupClient {
         try {
             // It seems we have to try different combinations
             //
-            final String prefix = "http://rest.bioontology.org/bioportal/virtual/parents/";
+            final String prefix = baseUrl + "/virtual/parents/";
 
             final String[] urls = new String[]
                     {
@@ -246,9 +270,26 @@ public class BioPortalClient extends OntologyLookupClient {
     /**
      * All the requests in BioPortal have to be made via a REST URL and then we need to parse the resulting
      * XML.
+     *
+     * @return null if the service answers with a client error (e.g.: the term is not found) or with something that
+     *         cannot be parsed.
+     * @throws TabIOException if the service cannot be reached, it times out or it answers with a server error.
      */
     private Document callREST(String url) {
         try {
+            HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+            connection.setConnectTimeout(timeout);
+            connection.setReadTimeout(timeout);
+
+            int status = connection.getResponseCode();
+            if (status >= 500) {
+                throw new TabIOException("BioPortal Service error, HTTP status " + status + " for '" + url + "'");
+            }
+            if (status != HttpURLConnection.HTTP_OK) {
+                log.debug("BioPortal Service returned the HTTP status " + status + " for '" + url + "'");
+                return null;
+            }
+
             DocumentBuilderFactory dbf = DocumentBuilderFactoryImpl.newInstance();
 
             dbf.setFeature("http://xml.org/sax/features/validation", false);
@@ -257,9 +298,13 @@ public class BioPortalClient extends OntologyLookupClient {
             dbf.setFeature("http://apache.org/xml/features/validation/schema-full-checking", false);
 
             DocumentBuilder db = dbf.newDocumentBuilder();
-            Document dom = db.parse(url);
-
-            return dom;
+            InputStream in = connection.getInputStream();
+            try {
+                return db.parse(in);
+            }
+            finally {
+                in.close();
+            }
         }
         catch (ParserConfigurationException e) {
             log.debug("Internal error while invoking BioPortal Services:" + e.getMessage(), e);
@@ -268,11 +313,33 @@ public class BioPortalClient extends OntologyLookupClient {
             log.debug("Internal error while invoking BioPortal Services:" + e.getMessage(), e);
         }
         catch (IOException e) {
-            log.debug("Internal error while invoking BioPortal Services:" + e.getMessage(), e);
+            throw new TabIOException("Error while invoking BioPortal Services: " + e.getMessage(), e);
         }
         return null;
     }
 
+    /**
+     * The connect and read timeout for the calls to the service, in milliseconds, default is 10 secs.
+     */
+    public int getTimeout() {
+        return timeout;
+    }
+
+    public void setTimeout(int timeout) {
+        this.timeout = timeout;
+    }
+
+    /**
+     * The URL that the REST calls start with, default is {@link #DEFAULT_BASE_URL}.
+     */
+    public String getBaseUrl() {
+        return baseUrl;
+    }
+
+    public void setBaseUrl(String baseUrl) {
+        this.baseUrl = baseUrl;
+    }
+
 
     /**
      * TODO: move to a real Junit test...
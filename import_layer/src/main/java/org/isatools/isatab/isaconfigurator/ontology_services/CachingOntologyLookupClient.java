@@ -0,0 +1,287 @@
+/**
+
+ The ISAconverter, ISAvalidator & BII Management Tool are components of the ISA software suite (http://www.isa-tools.org)
+
+ Exhibit A
+ The ISAconverter, ISAvalidator & BII Management Tool are licensed under the Mozilla Public License (MPL) version
+ 1.1/GPL version 2.0/LGPL version 2.1
+
+ "The contents of this file are subject to the Mozilla Public License
+ Version 1.1 (the "License"). You may not use this file except in compliance with the License.
+ You may obtain copies of the Licenses at http://www.mozilla.org/MPL/MPL-1.1.html.
+
+ Software distributed under the License is distributed on an "AS IS"
+ basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ License for the specific language governing rights and limitations
+ under the License.
+
+ The Original Code is the ISAconverter, ISAvalidator & BII Management Tool.
+
+ The Initial Developer of the Original Code is the ISA Team (Eamonn Maguire, eamonnmag@gmail.com;
+ Philippe Rocca-Serra, proccaserra@gmail.com; Susanna-Assunta Sansone, sa.sanson@gmail.com;
+ http://www.isa-tools.org). All portions of the code written by the ISA Team are Copyright (c)
+ 2007-2011 ISA Team. All Rights Reserved.
+
+ Contributor(s):
+ Rocca-Serra P, Brandizi M, Maguire E, Sklyar N, Taylor C, Begley K, Field D,
+ Harris S, Hide W, Hofmann O, Neumann S, Sterk P, Tong W, Sansone SA. ISA software suite:
+ supporting standards-compliant experimental annotation and enabling curation at the community level.
+ Bioinformatics 2010;26(18):2354-6.
+
+ Alternatively, the contents of this file may be used under the terms of either the GNU General
+ Public License Version 2 or later (the "GPL") - http://www.gnu.org/licenses/gpl-2.0.html, or
+ the GNU Lesser General Public License Version 2.1 or later (the "LGPL") -
+ http://www.gnu.org/licenses/lgpl-2.1.html, in which case the provisions of the GPL
+ or the LGPL are applicable instead of those above. If you wish to allow use of your version
+ of this file only under the terms of either the GPL or the LGPL, and not to allow others to
+ use your version of this file under the terms of the MPL, indicate your decision by deleting
+ the provisions above and replace them with the notice and other provisions required by the
+ GPL or the LGPL. If you do not delete the provisions above, a recipient may use your version
+ of this file under the terms of any one of the MPL, the GPL or the LGPL.
+
+ Sponsors:
+ The ISA Team and the ISA software suite have been funded by the EU Carcinogenomics project
+ (http://www.carcinogenomics.eu), the UK BBSRC (http://www.bbsrc.ac.uk), the UK NERC-NEBC
+ (http://nebc.nerc.ac.uk) and in part by the EU NuGO consortium (http://www.nugo.org/everyone).
+
+ */
+
+
+package org.isatools.isatab.isaconfigurator.ontology_services;
+
+import org.apache.commons.lang.StringUtils;
+import org.isatools.tablib.exceptions.TabIOException;
+import org.isatools.tablib.utils.TaskRunner;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * An {@link OntologyLookupClient} that keeps the results of another client in an {@link OntologyLookupCache}, so
+ * that they survive the validation run that looked them up. False/empty results are cached as negative results.
+ * <p/>
+ * Expired entries are still used (stale-while-revalidate): the stale value is returned immediately and a fresh one
+ * is fetched in background, if the wrapped client fails, the stale value stays in the cache. If the wrapped client
+ * fails (with a {@link TabIOException}) and nothing is cached, the answer is negative, but it is not cached.
+ */
+public class CachingOntologyLookupClient extends OntologyLookupClient {
+    /**
+     * Refreshes the expired entries, it's shared by all the clients.
+     */
+    private static final ExecutorService refreshExecutor =
+            Executors.newFixedThreadPool(2, TaskRunner.newDaemonThreadFactory("ontology-cache-refresh"));
+
+    /**
+     * The keys being refreshed, so that the same entry is not refreshed twice at the same time.
+     */
+    private static final ConcurrentMap<String, Boolean> pendingRefreshes = new ConcurrentHashMap<String, Boolean>();
+
+    private final OntologyLookupClient client;
+    private final OntologyLookupCache cache;
+
+    public CachingOntologyLookupClient(OntologyLookupClient client, OntologyLookupCache cache) {
+        this.client = client;
+        this.cache = cache;
+    }
+
+    @Override
+    public boolean sourceExists(final String sourceSymbol) {
+        final String key = "source:" + sourceSymbol;
+        String cachedValue = getCachedValue(key, new Runnable() {
+            public void run() {
+                fetchSource(key, sourceSymbol);
+            }
+        });
+        if (cachedValue != null) {
+            return "1".equals(cachedValue);
+        }
+        try {
+            return fetchSource(key, sourceSymbol);
+        }
+        catch (TabIOException ex) {
+            logServiceError(key, ex);
+            return false;
+        }
+    }
+
+    @Override
+    public boolean termExists(final String sourceSymbol, final String acc) {
+        final String key = "term:" + sourceSymbol + ":" + acc;
+        String cachedValue = getCachedValue(key, new Runnable() {
+            public void run() {
+                fetchTerm(key, sourceSymbol, acc);
+            }
+        });
+        if (cachedValue != null) {
+            return "1".equals(cachedValue);
+        }
+        try {
+            return fetchTerm(key, sourceSymbol, acc);
+        }
+        catch (TabIOException ex) {
+            logServiceError(key, ex);
+            return false;
+        }
+    }
+
+    /**
+     * The accessions are cached as a tab-separated list.
+     */
+    @Override
+    public Set<String> getTermParentAccessions(final String sourceSymbol, final String acc) {
+        final String key = "parents:" + sourceSymbol + ":" + acc;
+        String cachedValue = getCachedValue(key, new Runnable() {
+            public void run() {
+                fetchParents(key, sourceSymbol, acc);
+            }
+        });
+        if (cachedValue != null) {
+            return cachedValue.length() == 0
+                    ? Collections.<String>emptySet()
+                    : new HashSet<String>(Arrays.asList(StringUtils.split(cachedValue, '\t')));
+        }
+        try {
+            return fetchParents(key, sourceSymbol, acc);
+        }
+        catch (TabIOException ex) {
+            logServiceError(key, ex);
+            return Collections.emptySet();
+        }
+    }
+
+    /**
+     * Uses the cached existence and parents if available, else it asks the wrapped client for both of them.
+     */
+    @Override
+    public Set<String> lookupTerm(final String sourceSymbol, final String acc) {
+        final String termKey = "term:" + sourceSymbol + ":" + acc;
+        String cachedExistence = getCachedValue(termKey, new Runnable() {
+            public void run() {
+                fetchTermAndParents(termKey, sourceSymbol, acc);
+            }
+        });
+        if ("0".equals(cachedExistence)) {
+            return null;
+        }
+        if (cachedExistence != null) {
+            return getTermParentAccessions(sourceSymbol, acc);
+        }
+
+        try {
+            return fetchTermAndParents(termKey, sourceSymbol, acc);
+        }
+        catch (TabIOException ex) {
+            logServiceError(termKey, ex);
+            return null;
+        }
+    }
+
+
+    // The wrapped client is not thread-safe and the refreshes use it from other threads, hence the synchronisation
+
+    private boolean fetchSource(String key, String sourceSymbol) {
+        boolean result;
+        synchronized (client) {
+            result = client.sourceExists(sourceSymbol);
+        }
+        cache.put(key, result ? "1" : "0", !result);
+        return result;
+    }
+
+    private boolean fetchTerm(String key, String sourceSymbol, String acc) {
+        boolean result;
+        synchronized (client) {
+            result = client.termExists(sourceSymbol, acc);
+        }
+        cache.put(key, result ? "1" : "0", !result);
+        return result;
+    }
+
+    private Set<String> fetchParents(String key, String sourceSymbol, String acc) {
+        Set<String> result;
+        synchronized (client) {
+            result = client.getTermParentAccessions(sourceSymbol, acc);
+        }
+        cacheParents(key, result);
+        return result;
+    }
+
+    private Set<String> fetchTermAndParents(String termKey, String sourceSymbol, String acc) {
+        Set<String> result;
+        synchronized (client) {
+            result = client.lookupTerm(sourceSymbol, acc);
+        }
+        cache.put(termKey, result == null ? "0" : "1", result == null);
+        if (result != null) {
+            cacheParents("parents:" + sourceSymbol + ":" + acc, result);
+        }
+        return result;
+    }
+
+    private void cacheParents(String key, Set<String> parents) {
+        cache.put(key, StringUtils.join(parents.iterator(), '\t'), parents.isEmpty());
+    }
+
+    /**
+     * The cached value, which might be stale, in which case a refresh is started in background. null if nothing
+     * is cached for the key.
+     */
+    private String getCachedValue(String key, Runnable refresh) {
+        OntologyLookupCache.Entry entry = cache.getEntry(key);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.isExpired()) {
+            scheduleRefresh(key, refresh);
+        }
+        return entry.getValue();
+    }
+
+    private void scheduleRefresh(final String key, final Runnable refresh) {
+        if (pendingRefreshes.putIfAbsent(key, Boolean.TRUE) != null) {
+            return;
+        }
+        try {
+            refreshExecutor.execute(new Runnable() {
+                public void run() {
+                    try {
+                        refresh.run();
+                    }
+                    catch (RuntimeException ex) {
+                        log.debug("Cannot refresh the cached ontology entry '" + key + "', keeping the old value: "
+                                + ex.getMessage());
+                    }
+                    finally {
+                        pendingRefreshes.remove(key);
+                    }
+                }
+            });
+        }
+        catch (RejectedExecutionException ex) {
+            pendingRefreshes.remove(key);
+        }
+    }
+
+    private void logServiceError(String key, TabIOException ex) {
+        log.warn("Cannot look up '" + key + "' and there is no cached value for it, assuming it's not found: "
+                + ex.getMessage());
+    }
+
+    /**
+     * The no. of background refreshes that are running or waiting to run.
+     */
+    public static int getPendingRefreshes() {
+        return pendingRefreshes.size();
+    }
+
+    public OntologyLookupCache getCache() {
+        return cache;
+    }
+}
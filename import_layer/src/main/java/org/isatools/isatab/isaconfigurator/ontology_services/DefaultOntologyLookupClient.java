@@ -48,14 +48,26 @@
 
 package org.isatools.isatab.isaconfigurator.ontology_services;
 
-import java.util.Collections;
-import java.util.Set;
+import org.apache.commons.lang.StringUtils;
+import org.isatools.tablib.exceptions.TabIOException;
+
+import java.util.*;
 
 /**
  * This Ontology Lookup client uses all the specific services that are available
  * (i.e.: all the sub-classes of {@link OntologyLookupClient}) to perform its job. works by stopping a query
  * at the first service that returns a result, so the order you list/configure the existing services matter.
  * <p/>
+ * Every service is wrapped by a {@link ResilientOntologyLookupClient}, so that calls are retried and a service that
+ * is down is skipped (the next services are still queried). If no service has the term/source and some service has
+ * failed, the answer is negative but unreliable: by default this is logged, with
+ * {@link #setFailOnServiceErrors(boolean)} a {@link TabIOException} is thrown instead (e.g.:
+ * {@link CachingOntologyLookupClient} uses that to avoid caching the result).
+ * <p/>
+ * The timeout for the service calls is set by the property {@link #PROPERTY_NAME_TIMEOUT}, or by
+ * bioinvindex.ontology_services.&lt;service&gt;.timeout for a single service (e.g.:
+ * bioinvindex.ontology_services.bioportal.timeout).
+ * <p/>
  * TODO: for the moment the configured services are hardcoded in this same class.
  * We have to implement this by using the SPI approach.
  *
@@ -63,24 +75,73 @@ import java.util.Set;
  *         <b>date</b>: Oct 7, 2009
  */
 public class DefaultOntologyLookupClient extends OntologyLookupClient {
+    /**
+     * The timeout for the calls to the services, in milliseconds, default is 10 secs.
+     */
+    public static final String PROPERTY_NAME_TIMEOUT = "bioinvindex.ontology_services.timeout";
+
     /**
      * The services used
      */
-    private final OntologyLookupClient[] services = new OntologyLookupClient[]{
-            new OLSClient(),
-            new BioPortalClient()
-    };
+    private final List<ResilientOntologyLookupClient> services;
+
+    private boolean failOnServiceErrors = false;
+
+    public DefaultOntologyLookupClient() {
+        this(createServices());
+    }
+
+    /**
+     * Uses a given list of services, in the order they're queried.
+     */
+    public DefaultOntologyLookupClient(List<ResilientOntologyLookupClient> services) {
+        this.services = Collections.unmodifiableList(new ArrayList<ResilientOntologyLookupClient>(services));
+    }
+
+    private static List<ResilientOntologyLookupClient> createServices() {
+        OLSClient olsClient = new OLSClient();
+        olsClient.setTimeout(getTimeout("ols", olsClient.getTimeout()));
+        BioPortalClient bioPortalClient = new BioPortalClient();
+        bioPortalClient.setTimeout(getTimeout("bioportal", bioPortalClient.getTimeout()));
+
+        return Arrays.asList(
+                new ResilientOntologyLookupClient("ols", olsClient),
+                new ResilientOntologyLookupClient("bioportal", bioPortalClient)
+        );
+    }
+
+    private static int getTimeout(String serviceName, int defaultValue) {
+        String propName = "bioinvindex.ontology_services." + serviceName + ".timeout";
+        String value = StringUtils.trimToNull(System.getProperty(propName, System.getProperty(PROPERTY_NAME_TIMEOUT)));
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException ex) {
+            log.warn("Wrong value '" + value + "' for the timeout of the ontology service " + serviceName
+                    + ", using the default " + defaultValue);
+            return defaultValue;
+        }
+    }
 
     /**
      * Stops with the first service that finds something
      */
     @Override
     public boolean sourceExists(String sourceSymbol) {
+        TabIOException error = null;
         for (OntologyLookupClient service : services) {
-            if (service.sourceExists(sourceSymbol)) {
-                return true;
+            try {
+                if (service.sourceExists(sourceSymbol)) {
+                    return true;
+                }
+            }
+            catch (TabIOException ex) {
+                error = ex;
             }
         }
+        checkServiceError(error, "the source " + sourceSymbol);
         return false;
     }
 
@@ -89,11 +150,18 @@ public class DefaultOntologyLookupClient extends OntologyLookupClient {
      */
     @Override
     public boolean termExists(String sourceSymbol, String acc) {
+        TabIOException error = null;
         for (OntologyLookupClient service : services) {
-            if (service.termExists(sourceSymbol, acc)) {
-                return true;
+            try {
+                if (service.termExists(sourceSymbol, acc)) {
+                    return true;
+                }
+            }
+            catch (TabIOException ex) {
+                error = ex;
             }
         }
+        checkServiceError(error, "the term " + sourceSymbol + ":" + acc);
         return false;
     }
 
@@ -104,13 +172,82 @@ public class DefaultOntologyLookupClient extends OntologyLookupClient {
      */
     @Override
     public Set<String> getTermParentAccessions(String sourceSymbol, String acc) {
+        Set<String> result = lookupTerm(sourceSymbol, acc);
+        return result == null ? Collections.<String>emptySet() : result;
+    }
+
+    /**
+     * Gets the parents from the first service that has the term, without checking the term existence twice.
+     */
+    @Override
+    public Set<String> lookupTerm(String sourceSymbol, String acc) {
+        TabIOException error = null;
         for (OntologyLookupClient service : services) {
-            if (!service.termExists(sourceSymbol, acc)) {
+            try {
+                if (!service.termExists(sourceSymbol, acc)) {
+                    continue;
+                }
+            }
+            catch (TabIOException ex) {
+                error = ex;
                 continue;
             }
-            return service.getTermParentAccessions(sourceSymbol, acc);
+
+            try {
+                return service.getTermParentAccessions(sourceSymbol, acc);
+            }
+            catch (TabIOException ex) {
+                checkServiceError(ex, "the parents of " + sourceSymbol + ":" + acc);
+                return Collections.emptySet();
+            }
+        }
+        checkServiceError(error, "the term " + sourceSymbol + ":" + acc);
+        return null;
+    }
+
+    /**
+     * Called when a query couldn't be answered because of a service failure, throws the error or logs it, depending
+     * on {@link #isFailOnServiceErrors()}.
+     */
+    private void checkServiceError(TabIOException error, String description) {
+        if (error == null) {
+            return;
+        }
+        if (failOnServiceErrors) {
+            throw error;
+        }
+        log.warn("Cannot check " + description + ", due to a failing ontology service: " + error.getMessage());
+    }
+
+    /**
+     * If true, a {@link TabIOException} is thrown when a negative answer might be due to a failing service. Default
+     * is false, which means the error is logged and the answer is negative.
+     */
+    public boolean isFailOnServiceErrors() {
+        return failOnServiceErrors;
+    }
+
+    public void setFailOnServiceErrors(boolean failOnServiceErrors) {
+        this.failOnServiceErrors = failOnServiceErrors;
+    }
+
+    public List<ResilientOntologyLookupClient> getServices() {
+        return services;
+    }
+
+    /**
+     * The statistics of the services (latencies, failures, etc.), in a human-readable form.
+     */
+    public String getStatistics() {
+        StringBuilder sb = new StringBuilder();
+        for (ResilientOntologyLookupClient service : services) {
+            OntologyServiceMonitor monitor = service.getMonitor();
+            if (sb.length() > 0) {
+                sb.append("; ");
+            }
+            sb.append(monitor.getServiceName()).append(": ").append(monitor.getStatistics());
         }
-        return Collections.emptySet();
+        return sb.toString();
     }
 
 }
@@ -48,6 +48,8 @@
 
 package org.isatools.isatab.isaconfigurator.ontology_services;
 
+import org.apache.axis.client.Stub;
+import org.isatools.tablib.exceptions.TabIOException;
 import org.isatools.tablib.exceptions.TabInternalErrorException;
 import uk.ac.ebi.bioinvindex.utils.i18n;
 import uk.ac.ebi.ook.web.services.Query;
@@ -65,12 +67,20 @@ import static java.lang.System.out;
 /**
  * The client for the EBI's OLS Service. See {@link OntologyLookupClient} for details.
  * this basically uses the SOAP web service and its Java client, available via the EBI's Maven repository.
+ * <p/>
+ * The calls have a {@link #getTimeout() timeout}. Network errors and timeouts are reported with a
+ * {@link TabIOException}, so that they are not mistaken for missing terms (see {@link ResilientOntologyLookupClient}).
  *
  * @author brandizi
  *         <b>date</b>: Oct 9, 2009
  */
 public class OLSClient extends OntologyLookupClient {
-    private Set<String> _ontologySymbols;
+    /**
+     * The ontologies in OLS. It is static, so that the many clients used by the validator (see
+     * {@link org.isatools.isatab.isaconfigurator.validators.OntologyValidationManager}) download it once.
+     */
+    private static volatile Set<String> _ontologySymbols;
+    private int timeout = 10000;
 
 
     @Override
@@ -84,8 +94,7 @@ public class OLSClient extends OntologyLookupClient {
     @Override
     public boolean termExists(String sourceSymbol, String acc) {
         try {
-            QueryServiceLocator locator = new QueryServiceLocator();
-            Query service = locator.getOntologyQuery();
+            Query service = getService();
 
             // It seems we have to try different patterns
             //
@@ -103,21 +112,17 @@ public class OLSClient extends OntologyLookupClient {
             return false;
         }
         catch (RemoteException e) {
-            log.debug("Internal error while invoking EBI's OLS:" + e.getMessage(), e);
-            // throw new TabInternalErrorException ( "Internal error while invoking EBI's OLS:" + e.getMessage (), e );
+            throw new TabIOException("Error while invoking EBI's OLS: " + e.getMessage(), e);
         }
         catch (ServiceException e) {
-            log.debug("Internal error while invoking EBI's OLS:" + e.getMessage(), e);
-            // throw new TabInternalErrorException ( "Internal error while invoking EBI's OLS:" + e.getMessage (), e );
+            throw new TabIOException("Error while invoking EBI's OLS: " + e.getMessage(), e);
         }
-        return false;
     }
 
     @Override
     public Set<String> getTermParentAccessions(String sourceSymbol, String acc) {
         try {
-            QueryServiceLocator locator = new QueryServiceLocator();
-            Query service = locator.getOntologyQuery();
+            Query service = getService();
 
             // It seems we have to try different patterns
             //
@@ -142,48 +147,62 @@ public class OLSClient extends OntologyLookupClient {
             return Collections.emptySet();
         }
         catch (RemoteException e) {
-            log.debug("Internal error while invoking EBI's OLS:" + e.getMessage(), e);
-            // throw new TabInternalErrorException ( "Internal error while invoking EBI's OLS:" + e.getMessage (), e );
+            throw new TabIOException("Error while invoking EBI's OLS: " + e.getMessage(), e);
         }
         catch (ServiceException e) {
-            log.debug("Internal error while invoking EBI's OLS:" + e.getMessage(), e);
-            // throw new TabInternalErrorException ( "Internal error while invoking EBI's OLS:" + e.getMessage (), e );
+            throw new TabIOException("Error while invoking EBI's OLS: " + e.getMessage(), e);
         }
-        return Collections.emptySet();
     }
 
     /**
      * @return a list of ontology symbols present in OLS.
      */
     private Set<String> getOntologySymbols() {
-        if (_ontologySymbols != null) {
-            return _ontologySymbols;
+        Set<String> symbols = _ontologySymbols;
+        if (symbols != null) {
+            return symbols;
         }
 
-        _ontologySymbols = new HashSet<String>();
-
-        QueryServiceLocator locator = new QueryServiceLocator();
-
         try {
-            Query service = locator.getOntologyQuery();
+            Query service = getService();
             Map<String, String> ontologies = service.getOntologyNames();
 
             if (ontologies == null) {
                 throw new TabInternalErrorException(i18n.msg("ols_no_ontology"));
             }
 
-            _ontologySymbols = ontologies.keySet();
-            return _ontologySymbols;
+            symbols = Collections.unmodifiableSet(new HashSet<String>(ontologies.keySet()));
+            _ontologySymbols = symbols;
+            return symbols;
         }
         catch (RemoteException e) {
-            log.debug("Internal error while invoking EBI's OLS:" + e.getMessage(), e);
-            // throw new TabInternalErrorException ( "Internal error while invoking EBI's OLS:" + e.getMessage (), e );
+            throw new TabIOException("Error while invoking EBI's OLS: " + e.getMessage(), e);
         }
         catch (ServiceException e) {
-            log.debug("Internal error while invoking EBI's OLS:" + e.getMessage(), e);
-            // throw new TabInternalErrorException ( "Internal error while invoking EBI's OLS:" + e.getMessage (), e );
+            throw new TabIOException("Error while invoking EBI's OLS: " + e.getMessage(), e);
         }
-        return Collections.emptySet();
+    }
+
+    /**
+     * The SOAP client, with the timeout set.
+     */
+    private Query getService() throws ServiceException {
+        Query service = new QueryServiceLocator().getOntologyQuery();
+        if (service instanceof Stub) {
+            ((Stub) service).setTimeout(timeout);
+        }
+        return service;
+    }
+
+    /**
+     * The timeout for the calls to the service, in milliseconds, default is 10 secs.
+     */
+    public int getTimeout() {
+        return timeout;
+    }
+
+    public void setTimeout(int timeout) {
+        this.timeout = timeout;
     }
 
     /**
@@ -0,0 +1,236 @@
+/**
+
+ The ISAconverter, ISAvalidator & BII Management Tool are components of the ISA software suite (http://www.isa-tools.org)
+
+ Exhibit A
+ The ISAconverter, ISAvalidator & BII Management Tool are licensed under the Mozilla Public License (MPL) version
+ 1.1/GPL version 2.0/LGPL version 2.1
+
+ "The contents of this file are subject to the Mozilla Public License
+ Version 1.1 (the "License"). You may not use this file except in compliance with the License.
+ You may obtain copies of the Licenses at http://www.mozilla.org/MPL/MPL-1.1.html.
+
+ Software distributed under the License is distributed on an "AS IS"
+ basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ License for the specific language governing rights and limitations
+ under the License.
+
+ The Original Code is the ISAconverter, ISAvalidator & BII Management Tool.
+
+ The Initial Developer of the Original Code is the ISA Team (Eamonn Maguire, eamonnmag@gmail.com;
+ Philippe Rocca-Serra, proccaserra@gmail.com; Susanna-Assunta Sansone, sa.sanson@gmail.com;
+ http://www.isa-tools.org). All portions of the code written by the ISA Team are Copyright (c)
+ 2007-2011 ISA Team. All Rights Reserved.
+
+ Contributor(s):
+ Rocca-Serra P, Brandizi M, Maguire E, Sklyar N, Taylor C, Begley K, Field D,
+ Harris S, Hide W, Hofmann O, Neumann S, Sterk P, Tong W, Sansone SA. ISA software suite:
+ supporting standards-compliant experimental annotation and enabling curation at the community level.
+ Bioinformatics 2010;26(18):2354-6.
+
+ Alternatively, the contents of this file may be used under the terms of either the GNU General
+ Public License Version 2 or later (the "GPL") - http://www.gnu.org/licenses/gpl-2.0.html, or
+ the GNU Lesser General Public License Version 2.1 or later (the "LGPL") -
+ http://www.gnu.org/licenses/lgpl-2.1.html, in which case the provisions of the GPL
+ or the LGPL are applicable instead of those above. If you wish to allow use of your version
+ of this file only under the terms of either the GPL or the LGPL, and not to allow others to
+ use your version of this file under the terms of the MPL, indicate your decision by deleting
+ the provisions above and replace them with the notice and other provisions required by the
+ GPL or the LGPL. If you do not delete the provisions above, a recipient may use your version
+ of this file under the terms of any one of the MPL, the GPL or the LGPL.
+
+ Sponsors:
+ The ISA Team and the ISA software suite have been funded by the EU Carcinogenomics project
+ (http://www.carcinogenomics.eu), the UK BBSRC (http://www.bbsrc.ac.uk), the UK NERC-NEBC
+ (http://nebc.nerc.ac.uk) and in part by the EU NuGO consortium (http://www.nugo.org/everyone).
+
+ */
+
+package org.isatools.isatab.isaconfigurator.ontology_services;
+
+import org.apache.commons.lang.StringUtils;
+import org.isatools.tablib.exceptions.TabIOException;
+
+import java.io.File;
+import java.io.FileFilter;
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * An Ontology Lookup client that uses local ontology dumps, indexed in memory by {@link OntologyIndex}. This allows
+ * for validating without any network access, and makes the branch checks O(1) (see
+ * {@link #isUnderBranch(String, String, Set)}).
+ * <p/>
+ * The dumps are the .obo and .owl files in a directory, the file name (without the extension) is the source symbol
+ * (case-insensitive), e.g.: OBI.owl, MO.obo. Sources that are not in the directory are looked up via the fallback
+ * client (usually the remote services), or they're considered missing, if there is no fallback.
+ */
+public class OfflineOntologyLookupClient extends OntologyLookupClient {
+    /**
+     * The directory with the ontology dumps, there is no offline lookup if it's not set.
+     */
+    public static final String PROPERTY_NAME_PATH = "bioinvindex.ontology_index.path";
+    /**
+     * If true, only the dumps are used, the remote services are never invoked. Default is false.
+     */
+    public static final String PROPERTY_NAME_OFFLINE_ONLY = "bioinvindex.ontology_index.offline_only";
+    /**
+     * If true, the ancestors of every term are computed when the dumps are loaded (see
+     * {@link OntologyIndex#precomputeAncestors()}). Default is false.
+     */
+    public static final String PROPERTY_NAME_PRECOMPUTE_ANCESTORS = "bioinvindex.ontology_index.precompute_ancestors";
+
+    /**
+     * The indexes loaded so far, by directory, the dumps are big, so they're loaded once and shared by all the clients.
+     */
+    private static final Map<String, Map<String, OntologyIndex>> loadedIndexes =
+            new HashMap<String, Map<String, OntologyIndex>>();
+
+    private final Map<String, OntologyIndex> indexes;
+    private final OntologyLookupClient fallbackClient;
+
+    /**
+     * @param indexes        the ontologies, by source symbol
+     * @param fallbackClient used for the sources that are not in indexes, can be null
+     */
+    public OfflineOntologyLookupClient(Map<String, OntologyIndex> indexes, OntologyLookupClient fallbackClient) {
+        this.indexes = new TreeMap<String, OntologyIndex>(String.CASE_INSENSITIVE_ORDER);
+        this.indexes.putAll(indexes);
+        this.fallbackClient = fallbackClient;
+    }
+
+    /**
+     * Uses the dumps in dirPath, see {@link #getIndexes(String, boolean)}.
+     */
+    public OfflineOntologyLookupClient(String dirPath, OntologyLookupClient fallbackClient) {
+        this(getIndexes(dirPath, false), fallbackClient);
+    }
+
+    /**
+     * Loads the dumps in a directory, or returns the indexes that were already loaded from it.
+     *
+     * @return the indexes, by source symbol.
+     * @throws TabIOException if the directory or one of the dumps cannot be read.
+     */
+    public static synchronized Map<String, OntologyIndex> getIndexes(String dirPath, boolean precomputeAncestors) {
+        File dir = new File(dirPath);
+        String key;
+        try {
+            key = dir.getCanonicalPath();
+        } catch (IOException ex) {
+            throw new TabIOException(
+                    "Error while reading the ontology directory '" + dirPath + "': " + ex.getMessage(), ex
+            );
+        }
+
+        Map<String, OntologyIndex> result = loadedIndexes.get(key);
+        if (result == null) {
+            File[] files = dir.listFiles(new FileFilter() {
+                public boolean accept(File file) {
+                    String name = file.getName().toLowerCase();
+                    return file.isFile() && (name.endsWith(".obo") || name.endsWith(".owl"));
+                }
+            });
+            if (files == null) {
+                throw new TabIOException("The ontology directory '" + dirPath + "' cannot be read");
+            }
+
+            result = new TreeMap<String, OntologyIndex>(String.CASE_INSENSITIVE_ORDER);
+            for (File file : files) {
+                String source = StringUtils.substringBeforeLast(file.getName(), ".");
+                long ts0 = System.currentTimeMillis();
+                OntologyIndex index = OntologyIndex.load(file);
+                log.info("Offline ontology '" + source + "' loaded from '" + file + "', " + index.size() + " terms, "
+                        + (System.currentTimeMillis() - ts0) + " ms");
+                result.put(source, index);
+            }
+            result = Collections.unmodifiableMap(result);
+            loadedIndexes.put(key, result);
+        }
+
+        if (precomputeAncestors) {
+            for (OntologyIndex index : result.values()) {
+                index.precomputeAncestors();
+            }
+        }
+        return result;
+    }
+
+    /**
+     * The indexes from the directory set by {@link #PROPERTY_NAME_PATH}, null if the property is not set.
+     */
+    public static Map<String, OntologyIndex> getDefaultIndexes() {
+        String path = StringUtils.trimToNull(System.getProperty(PROPERTY_NAME_PATH));
+        if (path == null) {
+            return null;
+        }
+        return getIndexes(path, Boolean.getBoolean(PROPERTY_NAME_PRECOMPUTE_ANCESTORS));
+    }
+
+    /**
+     * true if {@link #PROPERTY_NAME_OFFLINE_ONLY} is set.
+     */
+    public static boolean isOfflineOnly() {
+        return Boolean.getBoolean(PROPERTY_NAME_OFFLINE_ONLY);
+    }
+
+
+    @Override
+    public boolean sourceExists(String sourceSymbol) {
+        if (indexes.containsKey(sourceSymbol)) {
+            return true;
+        }
+        return fallbackClient != null && fallbackClient.sourceExists(sourceSymbol);
+    }
+
+    @Override
+    public boolean termExists(String sourceSymbol, String acc) {
+        OntologyIndex index = indexes.get(sourceSymbol);
+        if (index != null) {
+            return index.containsTerm(acc);
+        }
+        return fallbackClient != null && fallbackClient.termExists(sourceSymbol, acc);
+    }
+
+    @Override
+    public Set<String> getTermParentAccessions(String sourceSymbol, String acc) {
+        Set<String> result = lookupTerm(sourceSymbol, acc);
+        return result == null ? Collections.<String>emptySet() : result;
+    }
+
+    @Override
+    public Set<String> lookupTerm(String sourceSymbol, String acc) {
+        OntologyIndex index = indexes.get(sourceSymbol);
+        if (index != null) {
+            return index.getParentAccessions(acc);
+        }
+        return fallbackClient == null ? null : fallbackClient.lookupTerm(sourceSymbol, acc);
+    }
+
+    /**
+     * Uses {@link OntologyIndex#isUnder(String, Collection)} if the source is available locally.
+     */
+    @Override
+    public Boolean isUnderBranch(String sourceSymbol, String acc, Set<String> branchAccs) {
+        OntologyIndex index = indexes.get(sourceSymbol);
+        if (index != null) {
+            return index.isUnder(acc, branchAccs);
+        }
+        return fallbackClient == null ? Boolean.FALSE : fallbackClient.isUnderBranch(sourceSymbol, acc, branchAccs);
+    }
+
+    @Override
+    public boolean isLocalSource(String sourceSymbol) {
+        if (indexes.containsKey(sourceSymbol)) {
+            return true;
+        }
+        return fallbackClient != null && fallbackClient.isLocalSource(sourceSymbol);
+    }
+
+    /**
+     * The sources that are available locally.
+     */
+    public Set<String> getLocalSources() {
+        return Collections.unmodifiableSet(indexes.keySet());
+    }
+}
@@ -0,0 +1,508 @@
+/**
+
+ The ISAconverter, ISAvalidator & BII Management Tool are components of the ISA software suite (http://www.isa-tools.org)
+
+ Exhibit A
+ The ISAconverter, ISAvalidator & BII Management Tool are licensed under the Mozilla Public License (MPL) version
+ 1.1/GPL version 2.0/LGPL version 2.1
+
+ "The contents of this file are subject to the Mozilla Public License
+ Version 1.1 (the "License"). You may not use this file except in compliance with the License.
+ You may obtain copies of the Licenses at http://www.mozilla.org/MPL/MPL-1.1.html.
+
+ Software distributed under the License is distributed on an "AS IS"
+ basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ License for the specific language governing rights and limitations
+ under the License.
+
+ The Original Code is the ISAconverter, ISAvalidator & BII Management Tool.
+
+ The Initial Developer of the Original Code is the ISA Team (Eamonn Maguire, eamonnmag@gmail.com;
+ Philippe Rocca-Serra, proccaserra@gmail.com; Susanna-Assunta Sansone, sa.sanson@gmail.com;
+ http://www.isa-tools.org). All portions of the code written by the ISA Team are Copyright (c)
+ 2007-2011 ISA Team. All Rights Reserved.
+
+ Contributor(s):
+ Rocca-Serra P, Brandizi M, Maguire E, Sklyar N, Taylor C, Begley K, Field D,
+ Harris S, Hide W, Hofmann O, Neumann S, Sterk P, Tong W, Sansone SA. ISA software suite:
+ supporting standards-compliant experimental annotation and enabling curation at the community level.
+ Bioinformatics 2010;26(18):2354-6.
+
+ Alternatively, the contents of this file may be used under the terms of either the GNU General
+ Public License Version 2 or later (the "GPL") - http://www.gnu.org/licenses/gpl-2.0.html, or
+ the GNU Lesser General Public License Version 2.1 or later (the "LGPL") -
+ http://www.gnu.org/licenses/lgpl-2.1.html, in which case the provisions of the GPL
+ or the LGPL are applicable instead of those above. If you wish to allow use of your version
+ of this file only under the terms of either the GPL or the LGPL, and not to allow others to
+ use your version of this file under the terms of the MPL, indicate your decision by deleting
+ the provisions above and replace them with the notice and other provisions required by the
+ GPL or the LGPL. If you do not delete the provisions above, a recipient may use your version
+ of this file under the terms of any one of the MPL, the GPL or the LGPL.
+
+ Sponsors:
+ The ISA Team and the ISA software suite have been funded by the EU Carcinogenomics project
+ (http://www.carcinogenomics.eu), the UK BBSRC (http://www.bbsrc.ac.uk), the UK NERC-NEBC
+ (http://nebc.nerc.ac.uk) and in part by the EU NuGO consortium (http://www.nugo.org/everyone).
+
+ */
+
+package org.isatools.isatab.isaconfigurator.ontology_services;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.log4j.Logger;
+import org.isatools.tablib.exceptions.TabIOException;
+import org.xml.sax.Attributes;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.DefaultHandler;
+
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.parsers.SAXParserFactory;
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A compact, read-only, in-memory index of an ontology, loaded from a local dump in OBO or OWL (RDF/XML) format. It
+ * is used by {@link OfflineOntologyLookupClient}.
+ * <p/>
+ * Terms are numbered and the graph is kept in int arrays, with a compressed sparse row layout: the parents of the
+ * term i are parentIds[parentStart[i]] ... parentIds[parentStart[i + 1] - 1], the children are stored the same way.
+ * Parents are the is_a and part_of relations.
+ * <p/>
+ * {@link #isUnder(String, Collection)} is O(1) per branch: the first time a term is used as a branch, all its
+ * descendants are marked in a bitset, which is kept for the next checks. Alternatively,
+ * {@link #precomputeAncestors()} computes the ancestors of every term in advance, which takes O(n<sup>2</sup>) bits
+ * and so is viable for small ontologies only.
+ * <p/>
+ * Terms can be looked up with their accession (e.g.: 0000070), the OBO ID (OBI:0000070), the OWL local name
+ * (OBI_0000070) or the full URI.
+ */
+public class OntologyIndex {
+    private static final String RDF_NS = "http://www.w3.org/1999/02/22-rdf-syntax-ns#";
+    private static final String RDFS_NS = "http://www.w3.org/2000/01/rdf-schema#";
+    private static final String OWL_NS = "http://www.w3.org/2002/07/owl#";
+
+    /**
+     * The part_of relation, as it is named in OBO and in OWL
+     */
+    private static final String OBO_PART_OF = "part_of", OWL_PART_OF = "BFO_0000050";
+
+    private final String[] accessions;
+    private final BitSet declaredTerms;
+    private final Map<String, Integer> termIds;
+    private final int[] parentStart, parentIds, childStart, childIds;
+
+    private volatile BitSet[] ancestors = null;
+    private final Map<Integer, BitSet> descendantsCache = new ConcurrentHashMap<Integer, BitSet>();
+
+    protected static final Logger log = Logger.getLogger(OntologyIndex.class);
+
+    private OntologyIndex(Builder builder) {
+        int nterms = builder.ids.size();
+        declaredTerms = builder.declaredTerms;
+        accessions = new String[nterms];
+        termIds = new HashMap<String, Integer>(nterms * 2);
+        for (int i = 0; i < nterms; i++) {
+            // Terms from other ontologies keep the prefix, so that they don't clash with ours
+            String localName = getLocalName(builder.ids.get(i));
+            accessions[i] = declaredTerms.get(i) ? OntologyLookupClient.id2Accession(localName) : localName;
+            if (declaredTerms.get(i)) {
+                termIds.put(accessions[i], i);
+            }
+        }
+        // Aliases and external terms don't override the accessions
+        for (int i = 0; i < nterms; i++) {
+            if (!termIds.containsKey(accessions[i])) {
+                termIds.put(accessions[i], i);
+            }
+            for (String alias : getAliases(builder.ids.get(i))) {
+                if (!termIds.containsKey(alias)) {
+                    termIds.put(alias, i);
+                }
+            }
+        }
+        for (Map.Entry<String, Integer> altId : builder.altIds.entrySet()) {
+            for (String alias : getAliases(altId.getKey())) {
+                if (!termIds.containsKey(alias)) {
+                    termIds.put(alias, altId.getValue());
+                }
+            }
+        }
+
+        int nedges = builder.nedges;
+        parentStart = new int[nterms + 1];
+        parentIds = new int[nedges];
+        childStart = new int[nterms + 1];
+        childIds = new int[nedges];
+        fillCsr(builder.edgeChildren, builder.edgeParents, nedges, parentStart, parentIds);
+        fillCsr(builder.edgeParents, builder.edgeChildren, nedges, childStart, childIds);
+    }
+
+    /**
+     * Builds the CSR arrays for the graph from-&gt;to (counting sort of the edges by their from node).
+     */
+    private static void fillCsr(int[] from, int[] to, int nedges, int[] start, int[] targets) {
+        for (int i = 0; i < nedges; i++) {
+            start[from[i] + 1]++;
+        }
+        for (int i = 1; i < start.length; i++) {
+            start[i] += start[i - 1];
+        }
+        int[] next = new int[start.length - 1];
+        System.arraycopy(start, 0, next, 0, next.length);
+        for (int i = 0; i < nedges; i++) {
+            targets[next[from[i]]++] = to[i];
+        }
+    }
+
+
+    /**
+     * Loads a dump, the format is established from the extension: .obo, or .owl/.rdf/.xml for OWL.
+     */
+    public static OntologyIndex load(File file) {
+        String name = file.getName().toLowerCase();
+        try {
+            InputStream in = new BufferedInputStream(new FileInputStream(file));
+            try {
+                OntologyIndex result = name.endsWith(".obo")
+                        ? loadObo(new InputStreamReader(in, "UTF-8")) : loadOwl(in);
+                log.debug("Ontology index loaded from '" + file + "', " + result.size() + " terms");
+                return result;
+            }
+            finally {
+                in.close();
+            }
+        } catch (IOException ex) {
+            throw new TabIOException(
+                    "Error while loading the ontology file '" + file + "': " + ex.getMessage(), ex
+            );
+        }
+    }
+
+    /**
+     * Loads an ontology in OBO format, only [Term] stanzas are considered.
+     */
+    public static OntologyIndex loadObo(Reader reader) throws IOException {
+        Builder builder = new Builder();
+        BufferedReader in = new BufferedReader(reader);
+        boolean isTermStanza = false;
+        String currentId = null;
+
+        for (String line = in.readLine(); line != null; line = in.readLine()) {
+            line = line.trim();
+            if (line.startsWith("[")) {
+                isTermStanza = "[Term]".equals(line);
+                currentId = null;
+                continue;
+            }
+            if (!isTermStanza || line.length() == 0 || line.startsWith("!")) {
+                continue;
+            }
+            int isep = line.indexOf(':');
+            if (isep <= 0) {
+                continue;
+            }
+
+            String tag = line.substring(0, isep).trim();
+            String[] values = getOboValues(line.substring(isep + 1));
+            if (values.length == 0) {
+                continue;
+            }
+
+            if ("id".equals(tag)) {
+                currentId = values[0];
+                builder.declareTerm(currentId);
+            } else if (currentId == null) {
+                continue;
+            } else if ("is_a".equals(tag)) {
+                builder.addParent(currentId, values[0]);
+            } else if ("relationship".equals(tag)) {
+                if (values.length > 1 && OBO_PART_OF.equals(values[0])) {
+                    builder.addParent(currentId, values[1]);
+                }
+            } else if ("alt_id".equals(tag)) {
+                builder.addAltId(currentId, values[0]);
+            }
+        }
+        return new OntologyIndex(builder);
+    }
+
+    /**
+     * The tokens in an OBO tag value, without the trailing comments and qualifiers.
+     */
+    private static String[] getOboValues(String value) {
+        value = StringUtils.substringBefore(value, "!");
+        value = StringUtils.substringBefore(value, "{");
+        return StringUtils.split(value);
+    }
+
+    /**
+     * Loads an ontology in OWL (RDF/XML) format. Named classes are considered, together with their rdfs:subClassOf
+     * and their part_of restrictions.
+     */
+    public static OntologyIndex loadOwl(InputStream in) throws IOException {
+        final Builder builder = new Builder();
+
+        DefaultHandler handler = new DefaultHandler() {
+            private int depth = 0, classDepth = -1;
+            private String currentClass = null, restrictionProperty = null, restrictionValue = null;
+
+            @Override
+            public void startElement(String uri, String localName, String qName, Attributes attrs) {
+                depth++;
+                if (depth == 2 && OWL_NS.equals(uri) && "Class".equals(localName)) {
+                    currentClass = attrs.getValue(RDF_NS, "about");
+                    if (currentClass == null && attrs.getValue(RDF_NS, "ID") != null) {
+                        currentClass = "#" + attrs.getValue(RDF_NS, "ID");
+                    }
+                    if (currentClass != null) {
+                        builder.declareTerm(currentClass);
+                        classDepth = depth;
+                    }
+                    return;
+                }
+                if (currentClass == null) {
+                    return;
+                }
+
+                if (depth == classDepth + 1 && RDFS_NS.equals(uri) && "subClassOf".equals(localName)) {
+                    String parent = attrs.getValue(RDF_NS, "resource");
+                    if (parent != null) {
+                        builder.addParent(currentClass, parent);
+                    }
+                } else if (depth == classDepth + 3 && OWL_NS.equals(uri)) {
+                    // subClassOf/Restriction/(onProperty|someValuesFrom)
+                    if ("onProperty".equals(localName)) {
+                        restrictionProperty = attrs.getValue(RDF_NS, "resource");
+                    } else if ("someValuesFrom".equals(localName)) {
+                        restrictionValue = attrs.getValue(RDF_NS, "resource");
+                    }
+                }
+            }
+
+            @Override
+            public void endElement(String uri, String localName, String qName) {
+                if (currentClass != null && depth == classDepth + 2) {
+                    if (restrictionProperty != null && restrictionValue != null
+                            && OWL_PART_OF.equals(getLocalName(restrictionProperty))) {
+                        builder.addParent(currentClass, restrictionValue);
+                    }
+                    restrictionProperty = restrictionValue = null;
+                } else if (depth == classDepth) {
+                    currentClass = null;
+                    classDepth = -1;
+                }
+                depth--;
+            }
+        };
+
+        try {
+            SAXParserFactory factory = SAXParserFactory.newInstance();
+            factory.setNamespaceAware(true);
+            factory.newSAXParser().parse(in, handler);
+        } catch (ParserConfigurationException ex) {
+            throw new TabIOException("Error while setting up the OWL parser: " + ex.getMessage(), ex);
+        } catch (SAXException ex) {
+            throw new TabIOException("Error while parsing the OWL file: " + ex.getMessage(), ex);
+        }
+        return new OntologyIndex(builder);
+    }
+
+
+    /**
+     * The no. of terms, including those that are only referred as parents.
+     */
+    public int size() {
+        return accessions.length;
+    }
+
+    /**
+     * The internal ID of the term, -1 if it is not in the index (in any of the forms described in the class
+     * comment).
+     */
+    private int getTermId(String acc) {
+        if (acc == null) {
+            return -1;
+        }
+        Integer id = termIds.get(acc);
+        if (id == null) {
+            id = termIds.get(getLocalName(acc));
+        }
+        return id == null ? -1 : id;
+    }
+
+    /**
+     * true if the term is defined in the ontology. Terms that are only referred as parents (e.g.: imported from other
+     * ontologies) are not considered.
+     */
+    public boolean containsTerm(String acc) {
+        int id = getTermId(acc);
+        return id != -1 && declaredTerms.get(id);
+    }
+
+    /**
+     * The accessions of the direct parents of the term, null if the term is not {@link #containsTerm(String) defined}.
+     */
+    public Set<String> getParentAccessions(String acc) {
+        int id = getTermId(acc);
+        if (id == -1 || !declaredTerms.get(id)) {
+            return null;
+        }
+        Set<String> result = new HashSet<String>();
+        for (int i = parentStart[id]; i < parentStart[id + 1]; i++) {
+            result.add(accessions[parentIds[i]]);
+        }
+        return result;
+    }
+
+    /**
+     * true if the term is one of the branches, or a descendant of one of them. As in {@link #containsTerm(String)},
+     * terms that are only referred as parents are not considered.
+     */
+    public boolean isUnder(String acc, Collection<String> branchAccs) {
+        int id = getTermId(acc);
+        if (id == -1 || !declaredTerms.get(id)) {
+            return false;
+        }
+        BitSet[] termAncestors = ancestors;
+        for (String branchAcc : branchAccs) {
+            int branchId = getTermId(branchAcc);
+            if (branchId == -1) {
+                continue;
+            }
+            if (branchId == id) {
+                return true;
+            }
+            if (termAncestors != null ? termAncestors[id].get(branchId) : getDescendants(branchId).get(id)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Computes the ancestors of every term, so that {@link #isUnder(String, Collection)} doesn't need to compute the
+     * descendants of the branches. This takes size()<sup>2</sup> bits.
+     */
+    public synchronized void precomputeAncestors() {
+        if (ancestors != null) {
+            return;
+        }
+        BitSet[] result = new BitSet[accessions.length];
+        for (int i = 0; i < accessions.length; i++) {
+            result[i] = getReachableTerms(i, parentStart, parentIds);
+        }
+        ancestors = result;
+    }
+
+    /**
+     * The descendants of a term, which are computed the first time and then cached.
+     */
+    private BitSet getDescendants(int id) {
+        BitSet result = descendantsCache.get(id);
+        if (result == null) {
+            result = getReachableTerms(id, childStart, childIds);
+            descendantsCache.put(id, result);
+        }
+        return result;
+    }
+
+    /**
+     * Visits the graph (parents or children, depending on the CSR arrays) starting from a term. Loops are possible
+     * in certain ontologies, so the start term might be in the result.
+     */
+    private static BitSet getReachableTerms(int id, int[] start, int[] targets) {
+        BitSet result = new BitSet();
+        int[] stack = new int[16];
+        int top = 0;
+        stack[top++] = id;
+        while (top > 0) {
+            int current = stack[--top];
+            for (int i = start[current]; i < start[current + 1]; i++) {
+                int target = targets[i];
+                if (result.get(target)) {
+                    continue;
+                }
+                result.set(target);
+                if (top == stack.length) {
+                    int[] newStack = new int[stack.length * 2];
+                    System.arraycopy(stack, 0, newStack, 0, top);
+                    stack = newStack;
+                }
+                stack[top++] = target;
+            }
+        }
+        return result;
+    }
+
+
+    /**
+     * The last part of an URI (after '#' or the last '/'), the parameter itself if it's not an URI.
+     */
+    private static String getLocalName(String id) {
+        int isep = Math.max(id.lastIndexOf('#'), id.lastIndexOf('/'));
+        return isep == -1 ? id : id.substring(isep + 1);
+    }
+
+    /**
+     * The forms a term ID can be looked up with: the ID itself (e.g.: the full URI), OBI:0000070, OBI_0000070, 0000070.
+     */
+    private static List<String> getAliases(String id) {
+        List<String> result = new ArrayList<String>(4);
+        result.add(id);
+        String localName = getLocalName(id);
+        result.add(localName);
+        if (localName.indexOf(':') != -1) {
+            result.add(localName.replace(':', '_'));
+            result.add(OntologyLookupClient.id2Accession(localName));
+        } else if (localName.matches("[A-Za-z][A-Za-z0-9]*_[^_]+")) {
+            result.add(localName.replace('_', ':'));
+            result.add(localName.substring(localName.indexOf('_') + 1));
+        }
+        return result;
+    }
+
+
+    /**
+     * Collects the terms and the edges while a dump is parsed.
+     */
+    private static class Builder {
+        private final List<String> ids = new ArrayList<String>();
+        private final Map<String, Integer> idMap = new HashMap<String, Integer>();
+        private final Map<String, Integer> altIds = new HashMap<String, Integer>();
+        private final BitSet declaredTerms = new BitSet();
+        private int[] edgeChildren = new int[1024], edgeParents = new int[1024];
+        private int nedges = 0;
+
+        private int getId(String termId) {
+            Integer result = idMap.get(termId);
+            if (result == null) {
+                result = ids.size();
+                ids.add(termId);
+                idMap.put(termId, result);
+            }
+            return result;
+        }
+
+        void declareTerm(String termId) {
+            declaredTerms.set(getId(termId));
+        }
+
+        void addAltId(String termId, String altId) {
+            altIds.put(altId, getId(termId));
+        }
+
+        void addParent(String termId, String parentId) {
+            if (nedges == edgeChildren.length) {
+                int[] newChildren = new int[nedges * 2], newParents = new int[nedges * 2];
+                System.arraycopy(edgeChildren, 0, newChildren, 0, nedges);
+                System.arraycopy(edgeParents, 0, newParents, 0, nedges);
+                edgeChildren = newChildren;
+                edgeParents = newParents;
+            }
+            edgeChildren[nedges] = getId(termId);
+            edgeParents[nedges] = getId(parentId);
+            nedges++;
+        }
+    }
+}
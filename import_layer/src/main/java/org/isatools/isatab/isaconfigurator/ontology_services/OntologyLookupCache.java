@@ -0,0 +1,658 @@
+/**
+
+ The ISAconverter, ISAvalidator & BII Management Tool are components of the ISA software suite (http://www.isa-tools.org)
+
+ Exhibit A
+ The ISAconverter, ISAvalidator & BII Management Tool are licensed under the Mozilla Public License (MPL) version
+ 1.1/GPL version 2.0/LGPL version 2.1
+
+ "The contents of this file are subject to the Mozilla Public License
+ Version 1.1 (the "License"). You may not use this file except in compliance with the License.
+ You may obtain copies of the Licenses at http://www.mozilla.org/MPL/MPL-1.1.html.
+
+ Software distributed under the License is distributed on an "AS IS"
+ basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ License for the specific language governing rights and limitations
+ under the License.
+
+ The Original Code is the ISAconverter, ISAvalidator & BII Management Tool.
+
+ The Initial Developer of the Original Code is the ISA Team (Eamonn Maguire, eamonnmag@gmail.com;
+ Philippe Rocca-Serra, proccaserra@gmail.com; Susanna-Assunta Sansone, sa.sanson@gmail.com;
+ http://www.isa-tools.org). All portions of the code written by the ISA Team are Copyright (c)
+ 2007-2011 ISA Team. All Rights Reserved.
+
+ Contributor(s):
+ Rocca-Serra P, Brandizi M, Maguire E, Sklyar N, Taylor C, Begley K, Field D,
+ Harris S, Hide W, Hofmann O, Neumann S, Sterk P, Tong W, Sansone SA. ISA software suite:
+ supporting standards-compliant experimental annotation and enabling curation at the community level.
+ Bioinformatics 2010;26(18):2354-6.
+
+ Alternatively, the contents of this file may be used under the terms of either the GNU General
+ Public License Version 2 or later (the "GPL") - http://www.gnu.org/licenses/gpl-2.0.html, or
+ the GNU Lesser General Public License Version 2.1 or later (the "LGPL") -
+ http://www.gnu.org/licenses/lgpl-2.1.html, in which case the provisions of the GPL
+ or the LGPL are applicable instead of those above. If you wish to allow use of your version
+ of this file only under the terms of either the GPL or the LGPL, and not to allow others to
+ use your version of this file under the terms of the MPL, indicate your decision by deleting
+ the provisions above and replace them with the notice and other provisions required by the
+ GPL or the LGPL. If you do not delete the provisions above, a recipient may use your version
+ of this file under the terms of any one of the MPL, the GPL or the LGPL.
+
+ Sponsors:
+ The ISA Team and the ISA software suite have been funded by the EU Carcinogenomics project
+ (http://www.carcinogenomics.eu), the UK BBSRC (http://www.bbsrc.ac.uk), the UK NERC-NEBC
+ (http://nebc.nerc.ac.uk) and in part by the EU NuGO consortium (http://www.nugo.org/everyone).
+
+ */
+
+
+package org.isatools.isatab.isaconfigurator.ontology_services;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.log4j.Logger;
+import org.isatools.tablib.exceptions.TabInternalErrorException;
+
+import java.io.File;
+import java.sql.*;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A persistent cache for the results of the Ontology Lookup Services, which are remote and slow, so that the same
+ * terms aren't looked up again at every validation. The cache is an embedded H2 database, opened in auto-server mode,
+ * so that it can be shared by several processes (the first one that opens it serves the others).
+ * <p/>
+ * Entries expire after {@link #getTtl()} milliseconds, negative results (e.g.: a term that doesn't exist) have their
+ * own, usually shorter, {@link #getNegativeTtl()}. When the cache grows beyond {@link #getMaxEntries()}, the least
+ * recently used entries are removed.
+ * <p/>
+ * The most recently used entries are also kept in memory, so that the frequent hits don't need the database, which is
+ * shared by the threads of the process. The last access times that the LRU eviction is based on are written back at
+ * most every {@link #getAccessUpdateInterval()}, rather than at every hit. Since the in-memory entries are kept until
+ * they expire, a value changed by another process might be seen later by this one.
+ * <p/>
+ * Expired entries are kept for another {@link #getMaxStale()} milliseconds and are available via
+ * {@link #getEntry(String)}, so that they can be used while a fresh value is being fetched, or when the services
+ * are not available (see {@link CachingOntologyLookupClient}).
+ * <p/>
+ * A cache failure is never fatal for the lookups: errors are logged and the entry is treated as missing.
+ */
+public class OntologyLookupCache {
+    /**
+     * Where the default cache is (without the file extension). The cache is used only if this is set, "none" is
+     * the same as not setting it.
+     */
+    public static final String PROPERTY_NAME_PATH = "bioinvindex.ontology_cache.path";
+    /**
+     * The default TTL, in hours, the default is one week.
+     */
+    public static final String PROPERTY_NAME_TTL = "bioinvindex.ontology_cache.ttl";
+    /**
+     * The default TTL for negative results, in hours, the default is one day.
+     */
+    public static final String PROPERTY_NAME_NEGATIVE_TTL = "bioinvindex.ontology_cache.negative_ttl";
+    /**
+     * The default max no. of entries, the default is 500000.
+     */
+    public static final String PROPERTY_NAME_MAX_ENTRIES = "bioinvindex.ontology_cache.max_entries";
+    /**
+     * How long expired entries are kept, in hours, the default is 30 days.
+     */
+    public static final String PROPERTY_NAME_MAX_STALE = "bioinvindex.ontology_cache.max_stale";
+
+    private static final long HOUR = 3600 * 1000L;
+
+    /**
+     * The size is checked after this no. of insertions.
+     */
+    private static final int EVICTION_CHECK_INTERVAL = 256;
+
+    /**
+     * The max no. of entries kept in memory.
+     */
+    private static final int FRONT_CACHE_SIZE = 10000;
+
+    private static final String TABLE = "ONTOLOGY_LOOKUP_CACHE";
+
+    private static OntologyLookupCache defaultCache = null;
+    private static boolean isDefaultCacheInitialized = false;
+
+    private final String path;
+    private Connection connection;
+
+    private volatile long ttl = 7 * 24 * HOUR;
+    private volatile long negativeTtl = 24 * HOUR;
+    private volatile int maxEntries = 500000;
+    private volatile long maxStale = 30 * 24 * HOUR;
+    private volatile long accessUpdateInterval = HOUR;
+    private int insertionsSinceEvictionCheck = 0;
+
+    /**
+     * An entry of the in-memory cache, which is not expired until expiresAt.
+     */
+    private static class FrontEntry {
+        private final String value;
+        private final long expiresAt;
+        private long lastAccess;
+
+        private FrontEntry(String value, long expiresAt, long lastAccess) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+            this.lastAccess = lastAccess;
+        }
+    }
+
+    /**
+     * The most recently used entries, in access order. It has its own lock, so that the hits don't wait for the
+     * database.
+     */
+    private final Map<String, FrontEntry> frontCache = new LinkedHashMap<String, FrontEntry>(256, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, FrontEntry> eldest) {
+            return size() > FRONT_CACHE_SIZE;
+        }
+    };
+
+    private final AtomicLong hits = new AtomicLong(), misses = new AtomicLong(), expirations = new AtomicLong(),
+            staleHits = new AtomicLong(), insertions = new AtomicLong(), evictions = new AtomicLong();
+
+    protected static final Logger log = Logger.getLogger(OntologyLookupCache.class);
+
+    /**
+     * Opens (or creates) the cache in the H2 database at the path (which is without the file extension).
+     *
+     * @throws TabInternalErrorException if the database can't be opened.
+     */
+    public OntologyLookupCache(String path) {
+        this.path = path;
+        try {
+            Class.forName("org.h2.Driver");
+            File parentDir = new File(path).getAbsoluteFile().getParentFile();
+            if (parentDir != null && !parentDir.exists() && !parentDir.mkdirs()) {
+                throw new TabInternalErrorException(
+                        "OntologyLookupCache, cannot create the cache directory '" + parentDir + "'"
+                );
+            }
+            connection = DriverManager.getConnection("jdbc:h2:" + new File(path).getAbsolutePath() + ";AUTO_SERVER=TRUE");
+            Statement stmt = connection.createStatement();
+            try {
+                stmt.execute("CREATE TABLE IF NOT EXISTS " + TABLE + " ("
+                        + "LOOKUP_KEY VARCHAR(2048) PRIMARY KEY, LOOKUP_VALUE VARCHAR, IS_NEGATIVE BOOLEAN, "
+                        + "EXPIRES_AT BIGINT, LAST_ACCESS BIGINT)");
+                stmt.execute("CREATE INDEX IF NOT EXISTS " + TABLE + "_ACCESS_IDX ON " + TABLE + " (LAST_ACCESS)");
+            }
+            finally {
+                stmt.close();
+            }
+        } catch (ClassNotFoundException ex) {
+            throw new TabInternalErrorException("OntologyLookupCache, the H2 driver is not available", ex);
+        } catch (SQLException ex) {
+            throw new TabInternalErrorException(
+                    "OntologyLookupCache, cannot open the cache '" + path + "': " + ex.getMessage(), ex
+            );
+        }
+    }
+
+    /**
+     * The cache shared by all the ontology clients, configured by the bioinvindex.ontology_cache.* properties
+     * (see the PROPERTY_NAME_* constants). null if {@link #PROPERTY_NAME_PATH} isn't set, or the cache cannot be
+     * opened (this is logged).
+     */
+    public static synchronized OntologyLookupCache getDefault() {
+        if (isDefaultCacheInitialized) {
+            return defaultCache;
+        }
+        isDefaultCacheInitialized = true;
+
+        // Opt-in, so that nothing is written outside the working places of the tools unless it's asked
+        String path = StringUtils.trimToNull(System.getProperty(PROPERTY_NAME_PATH));
+        if (path == null || "none".equalsIgnoreCase(path)) {
+            log.debug("Persistent ontology lookup cache not enabled (see " + PROPERTY_NAME_PATH + ")");
+            return null;
+        }
+
+        try {
+            defaultCache = new OntologyLookupCache(path);
+            defaultCache.setTtl(getLongProperty(PROPERTY_NAME_TTL, 7 * 24) * HOUR);
+            defaultCache.setNegativeTtl(getLongProperty(PROPERTY_NAME_NEGATIVE_TTL, 24) * HOUR);
+            defaultCache.setMaxEntries((int) getLongProperty(PROPERTY_NAME_MAX_ENTRIES, 500000));
+            defaultCache.setMaxStale(getLongProperty(PROPERTY_NAME_MAX_STALE, 30 * 24) * HOUR);
+            defaultCache.removeExpired();
+            log.info("Using the persistent ontology lookup cache at '" + path + "'");
+        } catch (TabInternalErrorException ex) {
+            log.warn("Cannot use the persistent ontology lookup cache, ontology terms won't be cached: " + ex.getMessage());
+            defaultCache = null;
+        }
+        return defaultCache;
+    }
+
+    private static long getLongProperty(String name, long defaultValue) {
+        String value = StringUtils.trimToNull(System.getProperty(name));
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException ex) {
+            log.warn("Wrong value '" + value + "' for the property " + name + ", using the default " + defaultValue);
+            return defaultValue;
+        }
+    }
+
+
+    /**
+     * A cached value, possibly expired.
+     */
+    public static class Entry {
+        private final String value;
+        private final boolean isExpired;
+
+        public Entry(String value, boolean isExpired) {
+            this.value = value;
+            this.isExpired = isExpired;
+        }
+
+        public String getValue() {
+            return value;
+        }
+
+        public boolean isExpired() {
+            return isExpired;
+        }
+    }
+
+
+    /**
+     * The cached value for the key, null if it's not in the cache or it has expired.
+     */
+    public String get(String key) {
+        Entry entry = getEntry(key);
+        return entry == null || entry.isExpired() ? null : entry.getValue();
+    }
+
+    /**
+     * The cached entry for the key, which might be expired (and so counted as a miss), null if it's not in the cache,
+     * or it has expired more than {@link #getMaxStale()} milliseconds ago.
+     * <p/>
+     * The entries that aren't expired are answered from the in-memory cache when possible, without reaching the
+     * database, their last access time is written back at most every {@link #getAccessUpdateInterval()}.
+     */
+    public Entry getEntry(String key) {
+        long now = System.currentTimeMillis();
+        boolean isAccessToUpdate = false;
+        String value = null;
+        synchronized (frontCache) {
+            FrontEntry frontEntry = frontCache.get(key);
+            if (frontEntry != null) {
+                if (frontEntry.expiresAt > now) {
+                    value = frontEntry.value;
+                    if (now - frontEntry.lastAccess >= accessUpdateInterval) {
+                        frontEntry.lastAccess = now;
+                        isAccessToUpdate = true;
+                    }
+                } else {
+                    // Let the database tell if it's stale
+                    frontCache.remove(key);
+                }
+            }
+        }
+        if (value == null) {
+            return getEntryFromDB(key, now);
+        }
+
+        if (isAccessToUpdate) {
+            updateLastAccess(key, now);
+        }
+        hits.incrementAndGet();
+        return new Entry(value, false);
+    }
+
+    private synchronized Entry getEntryFromDB(String key, long now) {
+        if (connection == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        try {
+            String value = null;
+            boolean isFound = false, isExpired = false;
+            long expiresAt = 0, lastAccess = 0;
+
+            PreparedStatement stmt = connection.prepareStatement(
+                    "SELECT LOOKUP_VALUE, EXPIRES_AT, LAST_ACCESS FROM " + TABLE + " WHERE LOOKUP_KEY = ?"
+            );
+            try {
+                stmt.setString(1, key);
+                ResultSet rs = stmt.executeQuery();
+                if (rs.next()) {
+                    expiresAt = rs.getLong(2);
+                    lastAccess = rs.getLong(3);
+                    if (expiresAt > now) {
+                        value = rs.getString(1);
+                        isFound = true;
+                    } else {
+                        expirations.incrementAndGet();
+                        if (expiresAt + maxStale > now) {
+                            value = rs.getString(1);
+                            isFound = isExpired = true;
+                        }
+                    }
+                }
+                rs.close();
+            }
+            finally {
+                stmt.close();
+            }
+
+            if (!isFound || isExpired) {
+                misses.incrementAndGet();
+            }
+            if (!isFound) {
+                return null;
+            }
+
+            if (now - lastAccess >= accessUpdateInterval) {
+                updateLastAccess(key, now);
+                lastAccess = now;
+            }
+
+            if (isExpired) {
+                staleHits.incrementAndGet();
+            } else {
+                putFrontEntry(key, value, expiresAt, lastAccess);
+                hits.incrementAndGet();
+            }
+            return new Entry(value, isExpired);
+        } catch (SQLException ex) {
+            log.warn("OntologyLookupCache, error while reading '" + key + "': " + ex.getMessage());
+            misses.incrementAndGet();
+            return null;
+        }
+    }
+
+    /**
+     * Records an access for the LRU eviction, see {@link #evict()}.
+     */
+    private synchronized void updateLastAccess(String key, long now) {
+        if (connection == null) {
+            return;
+        }
+        try {
+            PreparedStatement stmt = connection.prepareStatement(
+                    "UPDATE " + TABLE + " SET LAST_ACCESS = ? WHERE LOOKUP_KEY = ?"
+            );
+            try {
+                stmt.setLong(1, now);
+                stmt.setString(2, key);
+                stmt.executeUpdate();
+            }
+            finally {
+                stmt.close();
+            }
+        } catch (SQLException ex) {
+            log.warn("OntologyLookupCache, error while updating the access time of '" + key + "': " + ex.getMessage());
+        }
+    }
+
+    private void putFrontEntry(String key, String value, long expiresAt, long lastAccess) {
+        synchronized (frontCache) {
+            frontCache.put(key, new FrontEntry(value, expiresAt, lastAccess));
+        }
+    }
+
+    private void clearFrontCache() {
+        synchronized (frontCache) {
+            frontCache.clear();
+        }
+    }
+
+    /**
+     * Stores a value, which expires after {@link #getTtl()} or {@link #getNegativeTtl()}, depending on isNegative.
+     */
+    public synchronized void put(String key, String value, boolean isNegative) {
+        if (connection == null) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        try {
+            PreparedStatement stmt = connection.prepareStatement(
+                    "MERGE INTO " + TABLE + " (LOOKUP_KEY, LOOKUP_VALUE, IS_NEGATIVE, EXPIRES_AT, LAST_ACCESS) "
+                            + "KEY (LOOKUP_KEY) VALUES (?, ?, ?, ?, ?)"
+            );
+            try {
+                stmt.setString(1, key);
+                stmt.setString(2, value);
+                stmt.setBoolean(3, isNegative);
+                stmt.setLong(4, now + (isNegative ? negativeTtl : ttl));
+                stmt.setLong(5, now);
+                stmt.executeUpdate();
+            }
+            finally {
+                stmt.close();
+            }
+            putFrontEntry(key, value, now + (isNegative ? negativeTtl : ttl), now);
+            insertions.incrementAndGet();
+
+            if (++insertionsSinceEvictionCheck >= EVICTION_CHECK_INTERVAL) {
+                insertionsSinceEvictionCheck = 0;
+                evict();
+            }
+        } catch (SQLException ex) {
+            log.warn("OntologyLookupCache, error while writing '" + key + "': " + ex.getMessage());
+        }
+    }
+
+    /**
+     * Removes the least recently used entries that exceed {@link #getMaxEntries()}. The entries kept in memory are
+     * still valid and they're left there, they go away when they expire or are pushed out by newer ones.
+     */
+    public synchronized void evict() {
+        if (connection == null) {
+            return;
+        }
+        try {
+            int size = size();
+            int excess = size - maxEntries;
+            if (excess <= 0) {
+                return;
+            }
+            PreparedStatement stmt = connection.prepareStatement(
+                    "DELETE FROM " + TABLE + " WHERE LOOKUP_KEY IN "
+                            + "(SELECT LOOKUP_KEY FROM " + TABLE + " ORDER BY LAST_ACCESS LIMIT ?)"
+            );
+            try {
+                stmt.setInt(1, excess);
+                evictions.addAndGet(stmt.executeUpdate());
+            }
+            finally {
+                stmt.close();
+            }
+        } catch (SQLException ex) {
+            log.warn("OntologyLookupCache, error while removing old entries: " + ex.getMessage());
+        }
+    }
+
+    /**
+     * Removes the entries that expired more than {@link #getMaxStale()} milliseconds ago, which otherwise are only
+     * ignored by {@link #getEntry(String)}.
+     */
+    public synchronized void removeExpired() {
+        if (connection == null) {
+            return;
+        }
+        try {
+            PreparedStatement stmt = connection.prepareStatement("DELETE FROM " + TABLE + " WHERE EXPIRES_AT <= ?");
+            try {
+                stmt.setLong(1, System.currentTimeMillis() - maxStale);
+                stmt.executeUpdate();
+            }
+            finally {
+                stmt.close();
+            }
+        } catch (SQLException ex) {
+            log.warn("OntologyLookupCache, error while removing the expired entries: " + ex.getMessage());
+        }
+    }
+
+    /**
+     * Removes all the entries.
+     */
+    public synchronized void clear() {
+        if (connection == null) {
+            return;
+        }
+        try {
+            Statement stmt = connection.createStatement();
+            try {
+                stmt.executeUpdate("DELETE FROM " + TABLE);
+            }
+            finally {
+                stmt.close();
+            }
+            clearFrontCache();
+        } catch (SQLException ex) {
+            log.warn("OntologyLookupCache, error while clearing the cache: " + ex.getMessage());
+        }
+    }
+
+    /**
+     * The no. of entries in the cache, including those expired and not removed yet.
+     */
+    public synchronized int size() throws SQLException {
+        if (connection == null) {
+            return 0;
+        }
+        Statement stmt = connection.createStatement();
+        try {
+            ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM " + TABLE);
+            rs.next();
+            int result = rs.getInt(1);
+            rs.close();
+            return result;
+        }
+        finally {
+            stmt.close();
+        }
+    }
+
+    public synchronized void close() {
+        if (connection == null) {
+            return;
+        }
+        try {
+            connection.close();
+        } catch (SQLException ex) {
+            log.warn("OntologyLookupCache, error while closing the cache '" + path + "': " + ex.getMessage());
+        }
+        connection = null;
+        clearFrontCache();
+    }
+
+
+    public String getPath() {
+        return path;
+    }
+
+    /**
+     * How long a positive result is kept, in milliseconds.
+     */
+    public long getTtl() {
+        return ttl;
+    }
+
+    public void setTtl(long ttl) {
+        this.ttl = ttl;
+    }
+
+    /**
+     * How long a negative result is kept, in milliseconds. This is usually shorter than {@link #getTtl()}, since a
+     * negative result might be due to a temporary problem with the remote service, or to a term that is added later.
+     */
+    public long getNegativeTtl() {
+        return negativeTtl;
+    }
+
+    public void setNegativeTtl(long negativeTtl) {
+        this.negativeTtl = negativeTtl;
+    }
+
+    /**
+     * The max no. of entries kept. The limit is checked every few insertions, so the cache can exceed it slightly.
+     */
+    public int getMaxEntries() {
+        return maxEntries;
+    }
+
+    public void setMaxEntries(int maxEntries) {
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * How long an entry is kept after its expiration, in milliseconds.
+     */
+    public long getMaxStale() {
+        return maxStale;
+    }
+
+    public void setMaxStale(long maxStale) {
+        this.maxStale = maxStale;
+    }
+
+    /**
+     * An access to an entry updates its last access time (which the {@link #evict() LRU eviction} is based on) only if
+     * the stored one is older than this, in milliseconds. The default is one hour, 0 means every access is recorded.
+     */
+    public long getAccessUpdateInterval() {
+        return accessUpdateInterval;
+    }
+
+    public void setAccessUpdateInterval(long accessUpdateInterval) {
+        this.accessUpdateInterval = accessUpdateInterval;
+    }
+
+    /**
+     * The statistics since the cache was opened. Expired entries are counted both as expirations and misses, those
+     * returned by {@link #getEntry(String)} are also counted as stale hits.
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public long getExpirations() {
+        return expirations.get();
+    }
+
+    public long getStaleHits() {
+        return staleHits.get();
+    }
+
+    public long getInsertions() {
+        return insertions.get();
+    }
+
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    /**
+     * The statistics, in a human-readable form.
+     */
+    public String getStatistics() {
+        long nhits = hits.get(), nmisses = misses.get(), total = nhits + nmisses;
+        return "hits: " + nhits + ", misses: " + nmisses
+                + ", hit ratio: " + (total == 0 ? "-" : (100 * nhits / total) + "%")
+                + ", expirations: " + expirations.get() + ", stale hits: " + staleHits.get()
+                + ", insertions: " + insertions.get()
+                + ", evictions: " + evictions.get();
+    }
+
+    @Override
+    public String toString() {
+        return "OntologyLookupCache{ path: '" + path + "', " + getStatistics() + " }";
+    }
+}
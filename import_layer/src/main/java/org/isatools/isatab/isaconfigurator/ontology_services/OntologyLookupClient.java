@@ -85,6 +85,35 @@ public abstract class OntologyLookupClient {
      */
     public abstract Set<String> getTermParentAccessions(String sourceSymbol, String acc);
 
+    /**
+     * Checks that a term exists and gets its parents in one go. By default this is {@link #termExists(String, String)}
+     * followed by {@link #getTermParentAccessions(String, String)}, clients can override it to avoid repeated
+     * service calls.
+     *
+     * @return null if the term doesn't exist, the same result of {@link #getTermParentAccessions(String, String)}
+     *         otherwise.
+     */
+    public Set<String> lookupTerm(String sourceSymbol, String acc) {
+        return termExists(sourceSymbol, acc) ? getTermParentAccessions(sourceSymbol, acc) : null;
+    }
+
+    /**
+     * Tells if a term is one of the branches or one of their descendants, when the client can do it in one go (e.g.:
+     * because it has the whole ontology in memory). By default this returns null, which means the caller has to
+     * walk the ontology graph via {@link #getTermParentAccessions(String, String)}.
+     */
+    public Boolean isUnderBranch(String sourceSymbol, String acc, Set<String> branchAccs) {
+        return null;
+    }
+
+    /**
+     * true if the terms from this source are looked up locally, which makes lookups so cheap that there is no point
+     * in resolving them in advance. By default it's false.
+     */
+    public boolean isLocalSource(String sourceSymbol) {
+        return false;
+    }
+
     /**
      * Converts an ID returned by an Ontology Lookup Service into an accession, as intended in the ISATAB world,
      * for example it converts MFO:20304 into 20304. This should be used to deal with different result formats
@@ -48,15 +48,34 @@
 
 package org.isatools.isatab.isaconfigurator.ontology_services;
 
+import java.util.Map;
+
 /**
  * Entry point for getting an {@link OntologyLookupClient}. Usually it returns an instance of
- * {@link DefaultOntologyLookupClient}.
+ * {@link DefaultOntologyLookupClient}, wrapped by a {@link CachingOntologyLookupClient} that uses the
+ * {@link OntologyLookupCache#getDefault() default persistent cache}, if that is available.
+ * <p/>
+ * If local ontology dumps are configured (see {@link OfflineOntologyLookupClient#PROPERTY_NAME_PATH}), the client is
+ * an {@link OfflineOntologyLookupClient} that uses the remote services for the other sources, or for no source at all,
+ * if {@link OfflineOntologyLookupClient#PROPERTY_NAME_OFFLINE_ONLY} is set.
  *
  * @author brandizi
  *         <b>date</b>: Oct 9, 2009
  */
 public class OntologyLookupClientFactory {
     public static OntologyLookupClient newInstance() {
-        return new DefaultOntologyLookupClient();
+        Map<String, OntologyIndex> indexes = OfflineOntologyLookupClient.getDefaultIndexes();
+        if (indexes != null && OfflineOntologyLookupClient.isOfflineOnly()) {
+            return new OfflineOntologyLookupClient(indexes, null);
+        }
+
+        OntologyLookupClient client = new DefaultOntologyLookupClient();
+        OntologyLookupCache cache = OntologyLookupCache.getDefault();
+        if (cache != null) {
+            // So that answers due to failing services are not cached, and stale ones are used instead
+            ((DefaultOntologyLookupClient) client).setFailOnServiceErrors(true);
+            client = new CachingOntologyLookupClient(client, cache);
+        }
+        return indexes == null ? client : new OfflineOntologyLookupClient(indexes, client);
     }
 }
@@ -0,0 +1,289 @@
+/**
+
+ The ISAconverter, ISAvalidator & BII Management Tool are components of the ISA software suite (http://www.isa-tools.org)
+
+ Exhibit A
+ The ISAconverter, ISAvalidator & BII Management Tool are licensed under the Mozilla Public License (MPL) version
+ 1.1/GPL version 2.0/LGPL version 2.1
+
+ "The contents of this file are subject to the Mozilla Public License
+ Version 1.1 (the "License"). You may not use this file except in compliance with the License.
+ You may obtain copies of the Licenses at http://www.mozilla.org/MPL/MPL-1.1.html.
+
+ Software distributed under the License is distributed on an "AS IS"
+ basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ License for the specific language governing rights and limitations
+ under the License.
+
+ The Original Code is the ISAconverter, ISAvalidator & BII Management Tool.
+
+ The Initial Developer of the Original Code is the ISA Team (Eamonn Maguire, eamonnmag@gmail.com;
+ Philippe Rocca-Serra, proccaserra@gmail.com; Susanna-Assunta Sansone, sa.sanson@gmail.com;
+ http://www.isa-tools.org). All portions of the code written by the ISA Team are Copyright (c)
+ 2007-2011 ISA Team. All Rights Reserved.
+
+ Contributor(s):
+ Rocca-Serra P, Brandizi M, Maguire E, Sklyar N, Taylor C, Begley K, Field D,
+ Harris S, Hide W, Hofmann O, Neumann S, Sterk P, Tong W, Sansone SA. ISA software suite:
+ supporting standards-compliant experimental annotation and enabling curation at the community level.
+ Bioinformatics 2010;26(18):2354-6.
+
+ Alternatively, the contents of this file may be used under the terms of either the GNU General
+ Public License Version 2 or later (the "GPL") - http://www.gnu.org/licenses/gpl-2.0.html, or
+ the GNU Lesser General Public License Version 2.1 or later (the "LGPL") -
+ http://www.gnu.org/licenses/lgpl-2.1.html, in which case the provisions of the GPL
+ or the LGPL are applicable instead of those above. If you wish to allow use of your version
+ of this file only under the terms of either the GPL or the LGPL, and not to allow others to
+ use your version of this file under the terms of the MPL, indicate your decision by deleting
+ the provisions above and replace them with the notice and other provisions required by the
+ GPL or the LGPL. If you do not delete the provisions above, a recipient may use your version
+ of this file under the terms of any one of the MPL, the GPL or the LGPL.
+
+ Sponsors:
+ The ISA Team and the ISA software suite have been funded by the EU Carcinogenomics project
+ (http://www.carcinogenomics.eu), the UK BBSRC (http://www.bbsrc.ac.uk), the UK NERC-NEBC
+ (http://nebc.nerc.ac.uk) and in part by the EU NuGO consortium (http://www.nugo.org/everyone).
+
+ */
+
+package org.isatools.isatab.isaconfigurator.ontology_services;
+
+import org.apache.log4j.Logger;
+import org.isatools.tablib.utils.LatencyRecorder;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The health of a remote Ontology Lookup Service, shared by all the {@link ResilientOntologyLookupClient}s that use
+ * it (the clients are usually one per thread, the service is the same). This is a circuit breaker: after
+ * {@link #getFailureThreshold()} failures in a row, the service is considered down and the calls to it are skipped
+ * for {@link #getOpenTime()} milliseconds. After that, one call is let through, its success makes the service
+ * available again, a failure makes it unavailable for another period.
+ * <p/>
+ * This also keeps the retry policy and the statistics for the service, including the latencies of the calls.
+ */
+public class OntologyServiceMonitor {
+    private enum CircuitState {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private static final ConcurrentMap<String, OntologyServiceMonitor> monitors =
+            new ConcurrentHashMap<String, OntologyServiceMonitor>();
+
+    private final String serviceName;
+
+    private volatile int maxRetries = 2;
+    private volatile long retryDelay = 200;
+    private volatile int failureThreshold = 5;
+    private volatile long openTime = 30000;
+
+    private CircuitState circuitState = CircuitState.CLOSED;
+    private int consecutiveFailures = 0;
+    private long openUntil = 0;
+
+    private final LatencyRecorder latencies = new LatencyRecorder();
+    private final AtomicLong failures = new AtomicLong(), retries = new AtomicLong(), rejections = new AtomicLong();
+    private final Random random = new Random();
+
+    protected static final Logger log = Logger.getLogger(OntologyServiceMonitor.class);
+
+    public OntologyServiceMonitor(String serviceName) {
+        this.serviceName = serviceName;
+    }
+
+    /**
+     * The monitor shared by all the clients of a service, which is created the first time.
+     */
+    public static OntologyServiceMonitor getMonitor(String serviceName) {
+        OntologyServiceMonitor monitor = monitors.get(serviceName);
+        if (monitor == null) {
+            OntologyServiceMonitor newMonitor = new OntologyServiceMonitor(serviceName);
+            monitor = monitors.putIfAbsent(serviceName, newMonitor);
+            if (monitor == null) {
+                monitor = newMonitor;
+            }
+        }
+        return monitor;
+    }
+
+    /**
+     * The monitors of all the services used so far.
+     */
+    public static Collection<OntologyServiceMonitor> getMonitors() {
+        return Collections.unmodifiableCollection(new ArrayList<OntologyServiceMonitor>(monitors.values()));
+    }
+
+
+    /**
+     * true if a call can be sent to the service, false if it is down. When the service is down and the waiting time
+     * is over, this returns true for one caller only, the others get false until that call is over.
+     */
+    public synchronized boolean isCallAllowed() {
+        switch (circuitState) {
+            case CLOSED:
+                return true;
+            case OPEN:
+                if (System.currentTimeMillis() < openUntil) {
+                    rejections.incrementAndGet();
+                    return false;
+                }
+                // Let one call probe the service
+                circuitState = CircuitState.HALF_OPEN;
+                return true;
+            default:
+                // Another call is already probing it
+                rejections.incrementAndGet();
+                return false;
+        }
+    }
+
+    /**
+     * Records a successful call, which took millis milliseconds.
+     */
+    public synchronized void onSuccess(long millis) {
+        latencies.record(millis);
+        if (circuitState != CircuitState.CLOSED) {
+            log.info("The ontology service " + serviceName + " is available again");
+        }
+        circuitState = CircuitState.CLOSED;
+        consecutiveFailures = 0;
+    }
+
+    /**
+     * Records a failed call, which took millis milliseconds.
+     */
+    public synchronized void onFailure(long millis) {
+        latencies.record(millis);
+        failures.incrementAndGet();
+        consecutiveFailures++;
+        if (circuitState == CircuitState.HALF_OPEN || consecutiveFailures >= failureThreshold) {
+            if (circuitState != CircuitState.OPEN) {
+                log.warn("The ontology service " + serviceName + " is failing, it won't be used for the next "
+                        + openTime + " ms");
+            }
+            circuitState = CircuitState.OPEN;
+            openUntil = System.currentTimeMillis() + openTime;
+        }
+    }
+
+    /**
+     * How long to wait before the attempt-th retry: exponential backoff with full jitter, i.e., a random delay between
+     * 0 and retryDelay * 2^(attempt - 1). The retry is counted.
+     */
+    public long nextRetryDelay(int attempt) {
+        retries.incrementAndGet();
+        long maxDelay = retryDelay << Math.min(attempt - 1, 16);
+        synchronized (random) {
+            return (long) (random.nextDouble() * maxDelay);
+        }
+    }
+
+    /**
+     * false if the service has been failing and it is not used for the moment.
+     */
+    public synchronized boolean isAvailable() {
+        return circuitState != CircuitState.OPEN || System.currentTimeMillis() >= openUntil;
+    }
+
+    /**
+     * Makes the service available again and resets the statistics.
+     */
+    public synchronized void reset() {
+        circuitState = CircuitState.CLOSED;
+        consecutiveFailures = 0;
+        failures.set(0);
+        retries.set(0);
+        rejections.set(0);
+        latencies.clear();
+    }
+
+
+    public String getServiceName() {
+        return serviceName;
+    }
+
+    /**
+     * How many times a failed call is retried, default is 2.
+     */
+    public int getMaxRetries() {
+        return maxRetries;
+    }
+
+    public void setMaxRetries(int maxRetries) {
+        this.maxRetries = maxRetries;
+    }
+
+    /**
+     * The base for the delay before a retry, in milliseconds, default is 200. See {@link #nextRetryDelay(int)}.
+     */
+    public long getRetryDelay() {
+        return retryDelay;
+    }
+
+    public void setRetryDelay(long retryDelay) {
+        this.retryDelay = retryDelay;
+    }
+
+    /**
+     * How many failures in a row make the service unavailable, default is 5.
+     */
+    public int getFailureThreshold() {
+        return failureThreshold;
+    }
+
+    public void setFailureThreshold(int failureThreshold) {
+        this.failureThreshold = failureThreshold;
+    }
+
+    /**
+     * How long an unavailable service is not used, in milliseconds, default is 30 secs.
+     */
+    public long getOpenTime() {
+        return openTime;
+    }
+
+    public void setOpenTime(long openTime) {
+        this.openTime = openTime;
+    }
+
+    /**
+     * The durations of the calls to the service, including the failed ones.
+     */
+    public LatencyRecorder getLatencies() {
+        return latencies;
+    }
+
+    public long getFailures() {
+        return failures.get();
+    }
+
+    public long getRetries() {
+        return retries.get();
+    }
+
+    /**
+     * The calls that were not sent to the service, because it was unavailable.
+     */
+    public long getRejections() {
+        return rejections.get();
+    }
+
+    /**
+     * The statistics, in a human-readable form.
+     */
+    public String getStatistics() {
+        return latencies.getStatistics() + ", failures: " + failures.get() + ", retries: " + retries.get()
+                + ", rejections: " + rejections.get() + ", available: " + isAvailable();
+    }
+
+    @Override
+    public String toString() {
+        return "OntologyServiceMonitor{ service: " + serviceName + ", " + getStatistics() + " }";
+    }
+}
@@ -0,0 +1,192 @@
+/**
+
+ The ISAconverter, ISAvalidator & BII Management Tool are components of the ISA software suite (http://www.isa-tools.org)
+
+ Exhibit A
+ The ISAconverter, ISAvalidator & BII Management Tool are licensed under the Mozilla Public License (MPL) version
+ 1.1/GPL version 2.0/LGPL version 2.1
+
+ "The contents of this file are subject to the Mozilla Public License
+ Version 1.1 (the "License"). You may not use this file except in compliance with the License.
+ You may obtain copies of the Licenses at http://www.mozilla.org/MPL/MPL-1.1.html.
+
+ Software distributed under the License is distributed on an "AS IS"
+ basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ License for the specific language governing rights and limitations
+ under the License.
+
+ The Original Code is the ISAconverter, ISAvalidator & BII Management Tool.
+
+ The Initial Developer of the Original Code is the ISA Team (Eamonn Maguire, eamonnmag@gmail.com;
+ Philippe Rocca-Serra, proccaserra@gmail.com; Susanna-Assunta Sansone, sa.sanson@gmail.com;
+ http://www.isa-tools.org). All portions of the code written by the ISA Team are Copyright (c)
+ 2007-2011 ISA Team. All Rights Reserved.
+
+ Contributor(s):
+ Rocca-Serra P, Brandizi M, Maguire E, Sklyar N, Taylor C, Begley K, Field D,
+ Harris S, Hide W, Hofmann O, Neumann S, Sterk P, Tong W, Sansone SA. ISA software suite:
+ supporting standards-compliant experimental annotation and enabling curation at the community level.
+ Bioinformatics 2010;26(18):2354-6.
+
+ Alternatively, the contents of this file may be used under the terms of either the GNU General
+ Public License Version 2 or later (the "GPL") - http://www.gnu.org/licenses/gpl-2.0.html, or
+ the GNU Lesser General Public License Version 2.1 or later (the "LGPL") -
+ http://www.gnu.org/licenses/lgpl-2.1.html, in which case the provisions of the GPL
+ or the LGPL are applicable instead of those above. If you wish to allow use of your version
+ of this file only under the terms of either the GPL or the LGPL, and not to allow others to
+ use your version of this file under the terms of the MPL, indicate your decision by deleting
+ the provisions above and replace them with the notice and other provisions required by the
+ GPL or the LGPL. If you do not delete the provisions above, a recipient may use your version
+ of this file under the terms of any one of the MPL, the GPL or the LGPL.
+
+ Sponsors:
+ The ISA Team and the ISA software suite have been funded by the EU Carcinogenomics project
+ (http://www.carcinogenomics.eu), the UK BBSRC (http://www.bbsrc.ac.uk), the UK NERC-NEBC
+ (http://nebc.nerc.ac.uk) and in part by the EU NuGO consortium (http://www.nugo.org/everyone).
+
+ */
+
+package org.isatools.isatab.isaconfigurator.ontology_services;
+
+import org.isatools.tablib.exceptions.TabIOException;
+import org.isatools.tablib.exceptions.TabInternalErrorException;
+
+import java.util.Set;
+
+/**
+ * Wraps the client of a single remote service (e.g.: {@link BioPortalClient}) and protects the callers from its
+ * failures. A call that fails with a {@link TabIOException} (that's how the service clients report errors like
+ * timeouts or server errors) is retried, with a randomised and growing delay, so that clients don't retry all at
+ * the same time. The calls are not sent at all when the service is down. Both things are established by the
+ * {@link OntologyServiceMonitor} of the service, which also records the latencies.
+ */
+public class ResilientOntologyLookupClient extends OntologyLookupClient {
+    private final OntologyLookupClient client;
+    private final OntologyServiceMonitor monitor;
+
+    /**
+     * A call to the wrapped client.
+     */
+    private abstract class ServiceCall<T> {
+        abstract T call();
+    }
+
+    /**
+     * Uses the {@link OntologyServiceMonitor#getMonitor(String) shared monitor} for the service.
+     */
+    public ResilientOntologyLookupClient(String serviceName, OntologyLookupClient client) {
+        this(client, OntologyServiceMonitor.getMonitor(serviceName));
+    }
+
+    public ResilientOntologyLookupClient(OntologyLookupClient client, OntologyServiceMonitor monitor) {
+        this.client = client;
+        this.monitor = monitor;
+    }
+
+    @Override
+    public boolean sourceExists(final String sourceSymbol) {
+        return invoke(new ServiceCall<Boolean>() {
+            Boolean call() {
+                return client.sourceExists(sourceSymbol);
+            }
+        }, "source " + sourceSymbol);
+    }
+
+    @Override
+    public boolean termExists(final String sourceSymbol, final String acc) {
+        return invoke(new ServiceCall<Boolean>() {
+            Boolean call() {
+                return client.termExists(sourceSymbol, acc);
+            }
+        }, "term " + sourceSymbol + ":" + acc);
+    }
+
+    @Override
+    public Set<String> getTermParentAccessions(final String sourceSymbol, final String acc) {
+        return invoke(new ServiceCall<Set<String>>() {
+            Set<String> call() {
+                return client.getTermParentAccessions(sourceSymbol, acc);
+            }
+        }, "parents of " + sourceSymbol + ":" + acc);
+    }
+
+    @Override
+    public Set<String> lookupTerm(final String sourceSymbol, final String acc) {
+        return invoke(new ServiceCall<Set<String>>() {
+            Set<String> call() {
+                return client.lookupTerm(sourceSymbol, acc);
+            }
+        }, "term " + sourceSymbol + ":" + acc);
+    }
+
+    /**
+     * Does the retries, skipping the service if it's not available.
+     *
+     * @throws TabIOException if the service is not available, or it keeps failing.
+     */
+    private <T> T invoke(ServiceCall<T> call, String description) {
+        String serviceName = monitor.getServiceName();
+        TabIOException lastError = null;
+        for (int attempt = 0; attempt <= monitor.getMaxRetries(); attempt++) {
+            if (attempt > 0) {
+                waitBeforeRetry(attempt, description);
+            }
+
+            if (!monitor.isCallAllowed()) {
+                if (lastError != null) {
+                    throw lastError;
+                }
+                throw new TabIOException(
+                        "The ontology service " + serviceName + " is not available, skipping the request for "
+                                + description
+                );
+            }
+
+            long ts0 = System.currentTimeMillis();
+            try {
+                T result = call.call();
+                monitor.onSuccess(System.currentTimeMillis() - ts0);
+                return result;
+            }
+            catch (TabIOException ex) {
+                monitor.onFailure(System.currentTimeMillis() - ts0);
+                log.debug("Error from the ontology service " + serviceName + " for " + description + ", attempt "
+                        + (attempt + 1) + ": " + ex.getMessage());
+                lastError = ex;
+            }
+            catch (RuntimeException ex) {
+                // Not about the service availability (e.g., a bad answer), so it's not retried
+                monitor.onSuccess(System.currentTimeMillis() - ts0);
+                throw ex;
+            }
+        }
+        throw lastError;
+    }
+
+    private void waitBeforeRetry(int attempt, String description) {
+        try {
+            Thread.sleep(monitor.nextRetryDelay(attempt));
+        }
+        catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new TabInternalErrorException(
+                    "Interrupted while waiting to retry the ontology service " + monitor.getServiceName() + " for "
+                            + description, ex
+            );
+        }
+    }
+
+
+    public OntologyLookupClient getClient() {
+        return client;
+    }
+
+    public OntologyServiceMonitor getMonitor() {
+        return monitor;
+    }
+
+    @Override
+    public String toString() {
+        return "ResilientOntologyLookupClient{ " + monitor + " }";
+    }
+}
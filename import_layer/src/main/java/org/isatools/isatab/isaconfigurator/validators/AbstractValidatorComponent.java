@@ -55,12 +55,15 @@ import org.isatools.isatab.isaconfigurator.ISAConfigurationSet;
 import org.isatools.isatab.isaconfigurator.ISAConfiguratorValidator;
 import org.isatools.tablib.schema.SectionInstance;
 import org.isatools.tablib.utils.BIIObjectStore;
-import org.isatools.tablib.utils.logging.TabNDC;
+import org.isatools.tablib.utils.logging.TabErrorCollector;
 
 import java.util.Set;
 
 /**
  * The general structure of an ISA-Validator component.
+ * <p/>
+ * Components are not thread-safe, {@link ISAConfiguratorValidator} uses one set of components per table, each set
+ * having its own message buffer.
  *
  * @author brandizi
  *         <b>date</b>: Nov 5, 2009
@@ -70,9 +73,9 @@ public abstract class AbstractValidatorComponent {
     protected final ISAConfigurationSet isaConfigSet;
 
     protected final Set<String> messages;
+    private TabErrorCollector errorCollector = null;
 
     protected static final Logger log = Logger.getLogger(ISAConfiguratorValidator.class);
-    protected static final TabNDC ndc = TabNDC.getInstance();
 
     public AbstractValidatorComponent(BIIObjectStore store, ISAConfigurationSet isaConfigSet, Set<String> messages) {
         this.store = store;
@@ -88,4 +91,28 @@ public abstract class AbstractValidatorComponent {
      * @return true if the validation went well, without errors or warnings.
      */
     public abstract GUIInvokerResult validate(SectionInstance table, IsaTabConfigurationType cfg);
+
+    /**
+     * If set, the errors that make {@link #validate(SectionInstance, IsaTabConfigurationType)} return
+     * {@link GUIInvokerResult#ERROR} are also reported here, with their position. Default is null.
+     */
+    public TabErrorCollector getErrorCollector() {
+        return errorCollector;
+    }
+
+    public void setErrorCollector(TabErrorCollector errorCollector) {
+        this.errorCollector = errorCollector;
+    }
+
+    /**
+     * Logs an error and reports it to the {@link #getErrorCollector() error collector}, if there is one.
+     *
+     * @param column the column the error is about, -1 if it's about the whole table
+     */
+    protected void reportError(SectionInstance table, int column, String rule, String message) {
+        log.error(message);
+        if (errorCollector != null) {
+            errorCollector.add(table.getFileId(), table.getStartingLine(), column, rule, message);
+        }
+    }
 }
@@ -49,17 +49,15 @@
 package org.isatools.isatab.isaconfigurator.validators;
 
 import org.apache.commons.lang.StringUtils;
-import org.apache.commons.lang.time.DateUtils;
 import org.isatools.isatab.configurator.schema.FieldType;
 import org.isatools.isatab.configurator.schema.IsaTabConfigurationType;
 import org.isatools.isatab.gui_invokers.GUIInvokerResult;
 import org.isatools.isatab.isaconfigurator.ISAConfigurationSet;
-import org.isatools.tablib.mapping.properties.DatePropertyMappingHelper;
 import org.isatools.tablib.schema.Record;
 import org.isatools.tablib.schema.SectionInstance;
 import org.isatools.tablib.utils.BIIObjectStore;
 
-import java.text.ParseException;
+import java.util.List;
 import java.util.Set;
 
 /**
@@ -76,19 +74,25 @@ public class FieldValuesValidator extends AbstractValidatorComponent {
         super(store, isaConfigSet, messages);
     }
 
+    /**
+     * Uses a {@link ValidationPlan} and checks the table column by column.
+     */
     @Override
     public GUIInvokerResult validate(SectionInstance table, IsaTabConfigurationType cfg) {
         boolean result = true;
-        for (Record record : table.getRecords()) {
-            int ncols = record.size();
-            for (int icol = 0; icol < ncols; icol++) {
-                FieldType cfield = isaConfigSet.getConfigurationField(
-                        cfg, table.getField(icol).getAttr("header")
-                );
-                if (cfield == null) {
-                    continue;
+        ValidationPlan plan = ValidationPlan.getPlan(table, cfg);
+        List<Record> records = table.getRecords();
+        int ncols = plan.getColumnCount();
+        for (int icol = 0; icol < ncols; icol++) {
+            FieldType cfield = plan.getConfigurationField(icol);
+            ValidationPlan.ValueChecker checker = plan.getValueChecker(icol);
+            if (cfield == null || checker == null) {
+                continue;
+            }
+            for (Record record : records) {
+                if (icol < record.size()) {
+                    result &= validateSingleField(record, icol, cfield, checker);
                 }
-                result &= validateSingleField(record, icol, cfg, cfield);
             }
         }
         return result ? GUIInvokerResult.SUCCESS : GUIInvokerResult.WARNING;
@@ -98,12 +102,8 @@ public class FieldValuesValidator extends AbstractValidatorComponent {
     /**
      * Does the job for a single field.
      */
-    private boolean validateSingleField(Record record, int icol, IsaTabConfigurationType cfg, FieldType cfgField) {
-        String dataType = StringUtils.trimToNull(cfgField.getDataType());
-        if (dataType == null || "string".equalsIgnoreCase(dataType)) {
-            return true;
-        }
-
+    private boolean validateSingleField(
+            Record record, int icol, FieldType cfgField, ValidationPlan.ValueChecker checker) {
         String value = StringUtils.trimToNull(record.getString(icol));
         if (value == null) {
             if (cfgField.getIsRequired()) {
@@ -115,46 +115,21 @@ public class FieldValuesValidator extends AbstractValidatorComponent {
             return true;
         }
 
-        boolean isValidValue = true;
-
-        if ("boolean".equalsIgnoreCase(dataType)) {
-            isValidValue = "true".equalsIgnoreCase(value) || "false".equalsIgnoreCase(value);
-        } else if ("date".equalsIgnoreCase(dataType)) {
-            try {
-                DateUtils.parseDate(value, DatePropertyMappingHelper.VALID_FORMATS);
-            }
-            catch (ParseException e) {
-                isValidValue = false;
-            }
-        } else if ("integer".equalsIgnoreCase(dataType)) {
-            try {
-                Integer.parseInt(value);
-            }
-            catch (NumberFormatException e) {
-                isValidValue = false;
-            }
-        } else if ("double".equalsIgnoreCase(dataType)) {
-            try {
-                Double.parseDouble(value);
-            }
-            catch (NumberFormatException e) {
-                isValidValue = false;
-            }
-        } else if ("ontology-term".equalsIgnoreCase(dataType) || "Ontology term".equalsIgnoreCase(dataType)) {
-            return true;
-        } else {
+        if (checker == ValidationPlan.UNKNOWN_TYPE_CHECKER) {
             // TODO: list, OEs
-            messages.add("Unknown data type '" + dataType + "' for field '" + cfgField.getHeader() + "' in the file '"
-                    + record.getParent().getFileId() + "'");
+            messages.add("Unknown data type '" + StringUtils.trimToNull(cfgField.getDataType()) + "' for field '"
+                    + cfgField.getHeader() + "' in the file '" + record.getParent().getFileId() + "'");
             // TODO: false?
             return false;
         }
 
+        boolean isValidValue = checker.isValid(value);
         if (!isValidValue) {
             String header = cfgField.getHeader();
-            log.debug(
-                    "Invalid value '" + value + "' for type '" + dataType + "' of the field '" + header + "'"
-            );
+            if (log.isDebugEnabled()) {
+                log.debug("Invalid value '" + value + "' for type '" + cfgField.getDataType() + "' of the field '"
+                        + header + "'");
+            }
             messages.add("Invalid values found in the field '" + header + "' in the file '"
                     + record.getParent().getFileId()
             );
@@ -52,25 +52,145 @@ import org.isatools.isatab.configurator.schema.FieldType;
 import org.isatools.isatab.isaconfigurator.ISAConfigurationSet;
 import org.isatools.isatab.isaconfigurator.ontology_services.OntologyLookupClient;
 import org.isatools.isatab.isaconfigurator.ontology_services.OntologyLookupClientFactory;
+import org.isatools.tablib.exceptions.TabInternalErrorException;
+import org.isatools.tablib.utils.TaskRunner;
 
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.Map;
-import java.util.Set;
+import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
 
 /**
  * Some facilities for performing the Ontology Validation in the ISAConfigurator validation of the ISA Import Layer.
+ * <p/>
+ * This is thread-safe, so that one instance (and its caches) can be shared by validators running in parallel. The
+ * {@link OntologyLookupClient}s keep some state and are not meant to be used concurrently, so every lookup borrows
+ * a client that nobody else is using, from a pool of idle clients that are reused by the following lookups.
+ * <p/>
+ * The terms can be {@link #resolveTerms(String, Collection, Set) resolved in advance}, in parallel, before checking
+ * them one by one. Every term is looked up once: a request for a term that is already being looked up by another
+ * thread waits for that lookup, rather than starting a new one. The lookups run on one pool of
+ * {@link #getParallelism()} threads, which is kept by the manager and shared by all the threads that call it, so
+ * the number of requests sent to the services at the same time is bounded, no matter how many validators are
+ * running. Call {@link #shutdown()} when the manager is no longer needed.
  *
  * @author brandizi
  *         <b>date</b>: Oct 9, 2009
  */
 public class OntologyValidationManager {
-    private Map<String, Set<String>> configuredSourceCache = new HashMap<String, Set<String>>();
-    private Map<String, Boolean> termExistenceCache = new HashMap<String, Boolean>();
-    private Map<String, Boolean> existingSourceCache = new HashMap<String, Boolean>();
-    private Map<String, Boolean> branchMatchingCache = new HashMap<String, Boolean>();
+    /**
+     * The default for {@link #getParallelism()}.
+     */
+    public static final int DEFAULT_PARALLELISM = 8;
+
+    private Map<String, Set<String>> configuredSourceCache = new ConcurrentHashMap<String, Set<String>>();
+    private Map<String, Boolean> termExistenceCache = new ConcurrentHashMap<String, Boolean>();
+    private Map<String, Boolean> existingSourceCache = new ConcurrentHashMap<String, Boolean>();
+    private Map<String, Boolean> branchMatchingCache = new ConcurrentHashMap<String, Boolean>();
+
+    /**
+     * The terms looked up (or being looked up), the result is null for a term that doesn't exist, its parents
+     * otherwise.
+     */
+    private final ConcurrentMap<String, FutureTask<Set<String>>> resolvedTerms =
+            new ConcurrentHashMap<String, FutureTask<Set<String>>>();
+
+    private volatile int parallelism = DEFAULT_PARALLELISM;
+
+    /**
+     * The lookup threads, created when first needed.
+     */
+    private ExecutorService executor = null;
+    private ExecutorService sharedExecutor = null;
+
+    /**
+     * The clients that aren't being used at the moment.
+     */
+    private final Queue<OntologyLookupClient> idleClients = new ConcurrentLinkedQueue<OntologyLookupClient>();
+
+    /**
+     * Creates a new client for the pool, by means of {@link OntologyLookupClientFactory}. Subclasses can override
+     * this to use other services.
+     */
+    protected OntologyLookupClient createClient() {
+        return OntologyLookupClientFactory.newInstance();
+    }
+
+    /**
+     * Takes an idle client, or creates a new one if all are busy. It must be given back via
+     * {@link #releaseClient(OntologyLookupClient)}.
+     */
+    private OntologyLookupClient borrowClient() {
+        OntologyLookupClient client = idleClients.poll();
+        return client != null ? client : createClient();
+    }
+
+    private void releaseClient(OntologyLookupClient client) {
+        idleClients.offer(client);
+    }
+
+    private synchronized ExecutorService getExecutor() {
+        if (sharedExecutor != null) {
+            return sharedExecutor;
+        }
+        if (executor == null) {
+            executor = Executors.newFixedThreadPool(parallelism, TaskRunner.newDaemonThreadFactory("ontology-lookup"));
+        }
+        return executor;
+    }
+
+    /**
+     * A pool for the lookups that is managed by the caller, e.g., to share it among several managers, which then are
+     * all bound by its size. Default is null, i.e., the manager creates its own pool, of {@link #getParallelism()}
+     * threads.
+     */
+    public synchronized ExecutorService getSharedExecutor() {
+        return sharedExecutor;
+    }
+
+    public synchronized void setSharedExecutor(ExecutorService sharedExecutor) {
+        this.sharedExecutor = sharedExecutor;
+    }
 
-    private OntologyLookupClient ontoClient = OntologyLookupClientFactory.newInstance();
+    /**
+     * Stops the lookup threads. The manager can still be used after this, a new pool is created if needed. A
+     * {@link #getSharedExecutor() shared pool} is not stopped.
+     */
+    public synchronized void shutdown() {
+        if (executor != null) {
+            executor.shutdown();
+            executor = null;
+        }
+    }
+
+    /**
+     * The max no. of lookups that {@link #resolveTerms(String, Collection, Set)} sends at the same time, default is 8.
+     * 1 means the terms are looked up one after the other, in the current thread. With a
+     * {@link #getSharedExecutor() shared pool}, the max is the size of that pool.
+     */
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    public void setParallelism(int parallelism) {
+        if (parallelism < 1) {
+            throw new TabInternalErrorException(
+                    "OntologyValidationManager, parallelism must be at least 1, got " + parallelism
+            );
+        }
+        synchronized (this) {
+            if (parallelism != this.parallelism) {
+                // The next lookups will get a pool of the new size
+                shutdown();
+            }
+            this.parallelism = parallelism;
+        }
+    }
 
     /**
      * Checks that the ontology source used for a field corresponds to the one specified for it in the
@@ -104,10 +224,22 @@ public class OntologyValidationManager {
             if (result != null) {
                 return result;
             }
+            // If it has been resolved, we know already
+            FutureTask<Set<String>> resolution = resolvedTerms.get(termStr);
+            if (resolution != null && resolution.isDone()) {
+                return getParentsIfExists(source, acc) != null;
+            }
         }
 
         {
-            boolean result = ontoClient.termExists(source, acc);
+            boolean result;
+            OntologyLookupClient client = borrowClient();
+            try {
+                result = client.termExists(source, acc);
+            }
+            finally {
+                releaseClient(client);
+            }
             termExistenceCache.put(termStr, result);
             return result;
         }
@@ -137,7 +269,17 @@ public class OntologyValidationManager {
         }
         ;
 
-        boolean result = validateBranchMatching(source, acc, branches, new HashSet<String>());
+        // Some clients can tell it in one go, otherwise we need to walk the ontology
+        Boolean isUnderBranch;
+        OntologyLookupClient client = borrowClient();
+        try {
+            isUnderBranch = client.isUnderBranch(source, acc, branches);
+        }
+        finally {
+            releaseClient(client);
+        }
+        boolean result = isUnderBranch != null
+                ? isUnderBranch : validateBranchMatching(source, acc, branches, new HashSet<String>());
         branchMatchingCache.put(cacheKey, result);
         return result;
     }
@@ -157,7 +299,15 @@ public class OntologyValidationManager {
             return true;
         }
 
-        for (String parentId : ontoClient.getTermParentAccessions(source, acc)) {
+        Set<String> parentIds = getParentsIfExists(source, acc);
+        if (parentIds == null) {
+            return false;
+        }
+        // Check the parents first, so that a branch among them is matched without walking the other ones
+        if (!Collections.disjoint(parentIds, branchIds)) {
+            return true;
+        }
+        for (String parentId : parentIds) {
             if (validateBranchMatching(source, parentId, branchIds, visitedNodes)) {
                 return true;
             }
@@ -174,8 +324,136 @@ public class OntologyValidationManager {
             return cachedValue;
         }
 
-        boolean result = ontoClient.sourceExists(source);
+        boolean result;
+        OntologyLookupClient client = borrowClient();
+        try {
+            result = client.sourceExists(source);
+        }
+        finally {
+            releaseClient(client);
+        }
         existingSourceCache.put(source, result);
         return result;
     }
-}
\ No newline at end of file
+
+
+    /**
+     * Looks up a set of terms from the same source in parallel (up to {@link #getParallelism()} lookups at a time),
+     * together with their ancestors, level by level, so that the following checks don't need to wait for the
+     * Ontology Lookup Services. The terms in stopAccs (e.g., the branches configured for a field) are looked up, but
+     * their ancestors aren't, since they're not needed by {@link #validateBranchMatching(String, String, FieldType)}.
+     * For the same reason, the ancestors of a term that has one of them among its parents are not looked up either.
+     * Nothing is done for the sources that the client {@link OntologyLookupClient#isLocalSource(String) has locally}.
+     */
+    public void resolveTerms(String source, Collection<String> accs, Set<String> stopAccs) {
+        OntologyLookupClient client = borrowClient();
+        try {
+            if (client.isLocalSource(source)) {
+                // Nothing to gain
+                return;
+            }
+        }
+        finally {
+            releaseClient(client);
+        }
+        Set<String> visited = new LinkedHashSet<String>(accs);
+        List<String> level = new ArrayList<String>(visited);
+        while (!level.isEmpty()) {
+            List<Callable<Set<String>>> tasks = new ArrayList<Callable<Set<String>>>();
+            for (String acc : level) {
+                tasks.add(createResolutionTask(source, acc));
+            }
+
+            List<Set<String>> results;
+            try {
+                results = parallelism < 2 || tasks.size() < 2
+                        ? TaskRunner.run(tasks, 1, "ontology-lookup")
+                        : TaskRunner.run(tasks, getExecutor());
+            }
+            catch (RuntimeException ex) {
+                throw ex;
+            }
+            catch (Exception ex) {
+                throw new TabInternalErrorException(
+                        "Error while looking up the ontology terms: " + ex.getMessage(), ex
+                );
+            }
+
+            List<String> nextLevel = new ArrayList<String>();
+            for (int i = 0; i < level.size(); i++) {
+                Set<String> parents = results.get(i);
+                if (parents == null || stopAccs != null && stopAccs.contains(level.get(i))) {
+                    continue;
+                }
+                if (stopAccs != null && !Collections.disjoint(parents, stopAccs)) {
+                    // The term is resolved to a branch, its other parents are not needed
+                    parents = new HashSet<String>(parents);
+                    parents.retainAll(stopAccs);
+                }
+                for (String parent : parents) {
+                    if (visited.add(parent)) {
+                        nextLevel.add(parent);
+                    }
+                }
+            }
+            level = nextLevel;
+        }
+    }
+
+    private Callable<Set<String>> createResolutionTask(final String source, final String acc) {
+        return new Callable<Set<String>>() {
+            public Set<String> call() {
+                return getParentsIfExists(source, acc);
+            }
+        };
+    }
+
+    /**
+     * The parents of a term, null if it doesn't exist. The lookup result is kept, and if another thread is
+     * looking up the same term, this waits for its result.
+     */
+    private Set<String> getParentsIfExists(final String source, final String acc) {
+        String key = source + ":" + acc;
+        FutureTask<Set<String>> resolution = resolvedTerms.get(key);
+        if (resolution == null) {
+            FutureTask<Set<String>> newResolution = new FutureTask<Set<String>>(new Callable<Set<String>>() {
+                public Set<String> call() {
+                    OntologyLookupClient client = borrowClient();
+                    try {
+                        return client.lookupTerm(source, acc);
+                    }
+                    finally {
+                        releaseClient(client);
+                    }
+                }
+            });
+            resolution = resolvedTerms.putIfAbsent(key, newResolution);
+            if (resolution == null) {
+                resolution = newResolution;
+                newResolution.run();
+            }
+        }
+
+        try {
+            return resolution.get();
+        }
+        catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new TabInternalErrorException("Interrupted while looking up the term '" + key + "'", ex);
+        }
+        catch (ExecutionException ex) {
+            // Don't keep the failure, another check can try again
+            resolvedTerms.remove(key, resolution);
+            Throwable cause = ex.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new TabInternalErrorException(
+                    "Error while looking up the term '" + key + "': " + cause.getMessage(), cause
+            );
+        }
+    }
+}
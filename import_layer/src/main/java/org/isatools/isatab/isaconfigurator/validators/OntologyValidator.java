@@ -59,22 +59,33 @@ import org.isatools.tablib.schema.Record;
 import org.isatools.tablib.schema.SectionInstance;
 import org.isatools.tablib.utils.BIIObjectStore;
 
-import java.util.List;
-import java.util.Set;
+import java.util.*;
 
 /**
  * Validates aspects related to ontologies, such as the fact a field must come from a certain ontology or a given
- * ontology term. It uses {@link OntologyValidationManager} and connects to OLS and BioPortal.
+ * ontology term. It uses {@link OntologyValidationManager} and connects to OLS and BioPortal. For every column, the
+ * distinct terms are {@link OntologyValidationManager#resolveTerms(String, Collection, Set) looked up in parallel}
+ * first, then the values are checked one by one.
  *
  * @author brandizi
  *         <b>date</b>: Nov 5, 2009
  */
 public class OntologyValidator extends AbstractValidatorComponent {
 
-    private OntologyValidationManager ovalidator = new OntologyValidationManager();
+    private final OntologyValidationManager ovalidator;
 
     public OntologyValidator(BIIObjectStore store, ISAConfigurationSet isaConfigSet, Set<String> messages) {
+        this(store, isaConfigSet, messages, new OntologyValidationManager());
+    }
+
+    /**
+     * Allows validators running in parallel to share the same ontology manager, and hence its lookup caches.
+     */
+    public OntologyValidator(
+            BIIObjectStore store, ISAConfigurationSet isaConfigSet, Set<String> messages,
+            OntologyValidationManager ovalidator) {
         super(store, isaConfigSet, messages);
+        this.ovalidator = ovalidator;
     }
 
     @Override
@@ -84,9 +95,10 @@ public class OntologyValidator extends AbstractValidatorComponent {
         // TODO: unit
         List<Field> fields = table.getFields();
         int nfields = fields.size();
+        ValidationPlan plan = ValidationPlan.getPlan(table, cfg);
         for (Field field : fields) {
             String header = field.getAttr("header");
-            FieldType cfield = isaConfigSet.getConfigurationField(cfg, header);
+            FieldType cfield = plan.getConfigurationField(field.getIndex());
 
             if (cfield == null) {
                 continue;
@@ -110,6 +122,7 @@ public class OntologyValidator extends AbstractValidatorComponent {
                 continue;
             }
 
+            resolveTerms(table, idx, cfield);
             for (Record record : table.getRecords()) {
                 result &= validateSingleField(record, idx, cfg, cfield);
             }
@@ -118,6 +131,40 @@ public class OntologyValidator extends AbstractValidatorComponent {
         return result ? GUIInvokerResult.SUCCESS : GUIInvokerResult.WARNING;
     }
 
+    /**
+     * Looks up the distinct terms in the column at once. Only the terms that need a lookup are considered, i.e.,
+     * those from a configured source which has branches for the field.
+     */
+    private void resolveTerms(SectionInstance table, int col, FieldType cfgField) {
+        Map<String, Set<String>> branchIds = ISAConfigurationSet.getBranchIds(cfgField);
+        if (branchIds.isEmpty()) {
+            return;
+        }
+
+        Map<String, Set<String>> accsBySource = new HashMap<String, Set<String>>();
+        for (Record record : table.getRecords()) {
+            String source = StringUtils.trimToNull(record.getString(col + 1)),
+                    acc = StringUtils.trimToNull(record.getString(col + 2));
+            if (source == null || acc == null || !branchIds.containsKey(source)) {
+                continue;
+            }
+            Set<String> accs = accsBySource.get(source);
+            if (accs == null) {
+                if (!ovalidator.validateConfiguredOntologySource(source, cfgField)) {
+                    continue;
+                }
+                accs = new LinkedHashSet<String>();
+                accsBySource.put(source, accs);
+            }
+            accs.add(acc);
+        }
+
+        for (Map.Entry<String, Set<String>> entry : accsBySource.entrySet()) {
+            String source = entry.getKey();
+            ovalidator.resolveTerms(source, entry.getValue(), branchIds.get(source));
+        }
+    }
+
     private boolean validateSingleField(Record record, int col, IsaTabConfigurationType cfg, FieldType cfgField) {
         String value = StringUtils.trimToNull(record.getString(col)),
                 source = StringUtils.trimToNull(record.getString(col + 1)),
@@ -81,7 +81,10 @@ public class RequiredFieldsValidator extends AbstractValidatorComponent {
 
             Field foundField = table.getFieldByHeader(fheader, false);
             if (foundField == null) {
-                log.error("Required field '" + fheader + "' not found in the file '" + table.getFileId() + "'");
+                reportError(
+                        table, -1, "required_field",
+                        "Required field '" + fheader + "' not found in the file '" + table.getFileId() + "'"
+                );
                 result = false;
                 continue;
             }
@@ -92,7 +95,10 @@ public class RequiredFieldsValidator extends AbstractValidatorComponent {
             if (table.getFieldByHeader(fheader, foundField.getIndex()) == null) {
                 continue;
             }
-            log.error("Field '" + fheader + "' cannot have multiple values in the file '" + table.getFileId());
+            reportError(
+                    table, foundField.getIndex(), "multiple_values_field",
+                    "Field '" + fheader + "' cannot have multiple values in the file '" + table.getFileId()
+            );
             result = false;
         }
 
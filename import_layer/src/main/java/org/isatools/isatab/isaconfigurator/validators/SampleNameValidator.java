@@ -3,12 +3,12 @@ package org.isatools.isatab.isaconfigurator.validators;
 import org.apache.log4j.Logger;
 import org.isatools.isatab.gui_invokers.GUIInvokerResult;
 import org.isatools.isatab.mapping.AssayGroup;
-import org.isatools.tablib.schema.Field;
-import org.isatools.tablib.schema.Record;
+import org.isatools.isatab.mapping.SubmissionNameIndex;
 import org.isatools.tablib.schema.SectionInstance;
+import org.isatools.tablib.utils.logging.TabErrorCollector;
 
-import java.util.HashSet;
-import java.util.Set;
+import java.util.Arrays;
+import java.util.Map;
 
 /**
  * This code checks if all Assays have their sample name defined in the Study Sample file.
@@ -17,34 +17,52 @@ import java.util.Set;
  */
 public class SampleNameValidator {
     protected static final Logger log = Logger.getLogger(SampleNameValidator.class);
+
     public GUIInvokerResult validate(SectionInstance studySampleTable, AssayGroup assayGroup) {
+        return validate(studySampleTable, assayGroup, null);
+    }
+
+    /**
+     * Reports every undefined sample name to errorCollector as well, if it's not null.
+     */
+    public GUIInvokerResult validate(SectionInstance studySampleTable, AssayGroup assayGroup, TabErrorCollector errorCollector) {
+        SubmissionNameIndex nameIndex = new SubmissionNameIndex(
+                Arrays.asList(studySampleTable, assayGroup.getAssaySectionInstance())
+        );
+        return validate(nameIndex, studySampleTable, assayGroup, errorCollector);
+    }
+
+    /**
+     * Uses the names in the index, so that the tables aren't scanned again (they are, if the index doesn't contain them).
+     * Reports every undefined sample name to errorCollector as well, if it's not null.
+     */
+    public GUIInvokerResult validate(
+            SubmissionNameIndex nameIndex, SectionInstance studySampleTable, AssayGroup assayGroup,
+            TabErrorCollector errorCollector) {
 
         SectionInstance assayTable = assayGroup.getAssaySectionInstance();
         boolean errors = false;
 
         if (assayTable != null) {
-            Field studySampleNameField = studySampleTable.getFieldByHeader("Sample Name");
-            Field assaySampleNameField = assayTable.getFieldByHeader("Sample Name");
-
-            Set<String> assaySamples = new HashSet<String>();
-            Set<String> studySamples = new HashSet<String>();
-
-            getFields(assayTable, assaySampleNameField, assaySamples);
-            getFields(studySampleTable, studySampleNameField, studySamples);
-
-            for (String assaySample : assaySamples) {
-                if (!studySamples.contains(assaySample)) {
+            if (!nameIndex.contains(assayTable) || !nameIndex.contains(studySampleTable)) {
+                nameIndex = new SubmissionNameIndex(Arrays.asList(studySampleTable, assayTable));
+            }
+            Map<String, SubmissionNameIndex.Occurrence> assaySamples = nameIndex.getNames(assayTable, "Sample Name");
+            for (Map.Entry<String, SubmissionNameIndex.Occurrence> assaySample : assaySamples.entrySet()) {
+                String sampleName = assaySample.getKey();
+                if (nameIndex.getOccurrence("Sample Name", sampleName, studySampleTable) == null) {
                     errors = true;
-                    log.error(String.format("%s is a Sample Name in %s, but it is not defined in the Study Sample File.", assaySample, assayGroup.getFilePath()));
+                    String msg = String.format("%s is a Sample Name in %s, but it is not defined in the Study Sample File.", sampleName, assayGroup.getFilePath());
+                    log.error(msg);
+                    if (errorCollector != null) {
+                        errorCollector.add(
+                                assayTable.getFileId(), assayTable.getStartingLine(), assaySample.getValue().getColumn(),
+                                "undefined_sample_name", msg
+                        );
+                    }
                 }
             }
         }
         return errors ? GUIInvokerResult.ERROR : GUIInvokerResult.SUCCESS;
     }
-
-    private void getFields(SectionInstance table, Field field, Set<String> set) {
-        for (Record assayRecord : table.getRecords()) {
-            set.add(assayRecord.get(field.getIndex()).toString());
-        }
-    }
 }
@@ -80,15 +80,16 @@ public class UnitFieldsValidator extends AbstractValidatorComponent {
 
         List<Field> fields = table.getFields();
         int nfields = fields.size();
+        ValidationPlan plan = ValidationPlan.getPlan(table, cfg);
 
         for (Field field : fields) {
             String header = field.getAttr("header");
-            FieldType cfield = isaConfigSet.getConfigurationField(cfg, header);
+            FieldType cfield = plan.getConfigurationField(field.getIndex());
             if (cfield == null) {
                 continue;
             }
 
-            UnitFieldType ucfield = isaConfigSet.getUnitField(cfield);
+            UnitFieldType ucfield = plan.getUnitField(field.getIndex());
             if (ucfield == null) {
                 continue;
             }
@@ -102,7 +103,7 @@ public class UnitFieldsValidator extends AbstractValidatorComponent {
                 } else {
                     // check the values too
                     for (Record record : table.getRecords()) {
-                        result &= validateUnitValue(record, fcol, cfg, cfield);
+                        result &= validateUnitValue(record, fcol, ucfield);
                     }
                 }
             }
@@ -112,7 +113,7 @@ public class UnitFieldsValidator extends AbstractValidatorComponent {
     }
 
 
-    private boolean validateUnitValue(Record record, int icol, IsaTabConfigurationType cfg, FieldType cfgField) {
+    private boolean validateUnitValue(Record record, int icol, UnitFieldType ucfield) {
         boolean result = true;
         String file = record.getParent().getFileId();
 
@@ -123,15 +124,6 @@ public class UnitFieldsValidator extends AbstractValidatorComponent {
         String val = StringUtils.trimToNull(record.getString(icol));
 
         String header = field.getAttr("header");
-        FieldType cfield = isaConfigSet.getConfigurationField(cfg, header);
-        if (cfield == null) {
-            return true;
-        }
-
-        UnitFieldType ucfield = isaConfigSet.getUnitField(cfield);
-        if (ucfield == null) {
-            return true;
-        }
 
         int icol1 = icol + 1;
         Field rfield = record.getParent().getField(icol + 1);
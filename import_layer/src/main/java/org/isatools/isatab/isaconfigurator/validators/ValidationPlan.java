@@ -0,0 +1,244 @@
+/**
+
+ The ISAconverter, ISAvalidator & BII Management Tool are components of the ISA software suite (http://www.isa-tools.org)
+
+ Exhibit A
+ The ISAconverter, ISAvalidator & BII Management Tool are licensed under the Mozilla Public License (MPL) version
+ 1.1/GPL version 2.0/LGPL version 2.1
+
+ "The contents of this file are subject to the Mozilla Public License
+ Version 1.1 (the "License"). You may not use this file except in compliance with the License.
+ You may obtain copies of the Licenses at http://www.mozilla.org/MPL/MPL-1.1.html.
+
+ Software distributed under the License is distributed on an "AS IS"
+ basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ License for the specific language governing rights and limitations
+ under the License.
+
+ The Original Code is the ISAconverter, ISAvalidator & BII Management Tool.
+
+ The Initial Developer of the Original Code is the ISA Team (Eamonn Maguire, eamonnmag@gmail.com;
+ Philippe Rocca-Serra, proccaserra@gmail.com; Susanna-Assunta Sansone, sa.sanson@gmail.com;
+ http://www.isa-tools.org). All portions of the code written by the ISA Team are Copyright (c)
+ 2007-2011 ISA Team. All Rights Reserved.
+
+ Contributor(s):
+ Rocca-Serra P, Brandizi M, Maguire E, Sklyar N, Taylor C, Begley K, Field D,
+ Harris S, Hide W, Hofmann O, Neumann S, Sterk P, Tong W, Sansone SA. ISA software suite:
+ supporting standards-compliant experimental annotation and enabling curation at the community level.
+ Bioinformatics 2010;26(18):2354-6.
+
+ Alternatively, the contents of this file may be used under the terms of either the GNU General
+ Public License Version 2 or later (the "GPL") - http://www.gnu.org/licenses/gpl-2.0.html, or
+ the GNU Lesser General Public License Version 2.1 or later (the "LGPL") -
+ http://www.gnu.org/licenses/lgpl-2.1.html, in which case the provisions of the GPL
+ or the LGPL are applicable instead of those above. If you wish to allow use of your version
+ of this file only under the terms of either the GPL or the LGPL, and not to allow others to
+ use your version of this file under the terms of the MPL, indicate your decision by deleting
+ the provisions above and replace them with the notice and other provisions required by the
+ GPL or the LGPL. If you do not delete the provisions above, a recipient may use your version
+ of this file under the terms of any one of the MPL, the GPL or the LGPL.
+
+ Sponsors:
+ The ISA Team and the ISA software suite have been funded by the EU Carcinogenomics project
+ (http://www.carcinogenomics.eu), the UK BBSRC (http://www.bbsrc.ac.uk), the UK NERC-NEBC
+ (http://nebc.nerc.ac.uk) and in part by the EU NuGO consortium (http://www.nugo.org/everyone).
+
+ */
+
+package org.isatools.isatab.isaconfigurator.validators;
+
+import org.apache.commons.lang.StringUtils;
+import org.isatools.isatab.configurator.schema.FieldType;
+import org.isatools.isatab.configurator.schema.IsaTabConfigurationType;
+import org.isatools.isatab.configurator.schema.UnitFieldType;
+import org.isatools.isatab.isaconfigurator.CompiledConfiguration;
+import org.isatools.isatab.isaconfigurator.ISAConfigurationSet;
+import org.isatools.tablib.mapping.properties.DatePropertyMappingHelper;
+import org.isatools.tablib.schema.Field;
+import org.isatools.tablib.schema.SectionInstance;
+import org.isatools.tablib.utils.ValueScanners;
+
+import java.util.*;
+
+/**
+ * A validation plan, i.e., the validation information for a table layout, compiled once and reused for all the
+ * tables having the same layout. For every column, the plan resolves the configuration field, its unit field and a
+ * {@link ValueChecker} for its data type (based on {@link ValueScanners}), so that the validators can check the table
+ * column by column, without looking up the configuration for every cell.
+ * <p/>
+ * Plans are cached by configuration and header signature (the list of the table headers), so the many assay files
+ * sharing the same layout use the same plan. Plans are immutable and can be used by multiple threads. The cache is
+ * attached to the {@link CompiledConfiguration configuration index}, so it is discarded together with it.
+ */
+public final class ValidationPlan {
+    /**
+     * Checks the values of a column, which are never null and are already trimmed.
+     */
+    public static interface ValueChecker {
+        public boolean isValid(String value);
+    }
+
+    /**
+     * Used for the data types that we don't know how to check, see {@link #getValueChecker(int)}.
+     */
+    public static final ValueChecker UNKNOWN_TYPE_CHECKER = new ValueChecker() {
+        public boolean isValid(String value) {
+            return false;
+        }
+    };
+
+    private static final Map<CompiledConfiguration, Map<String, ValidationPlan>> plans =
+            new WeakHashMap<CompiledConfiguration, Map<String, ValidationPlan>>();
+
+    private final String signature;
+    private final FieldType[] cfgFields;
+    private final UnitFieldType[] unitFields;
+    private final ValueChecker[] valueCheckers;
+
+
+    private ValidationPlan(String signature, List<String> headers, CompiledConfiguration compiledCfg) {
+        this.signature = signature;
+        int ncols = headers.size();
+        cfgFields = new FieldType[ncols];
+        unitFields = new UnitFieldType[ncols];
+        valueCheckers = new ValueChecker[ncols];
+
+        for (int icol = 0; icol < ncols; icol++) {
+            FieldType cfgField = compiledCfg.getField(headers.get(icol));
+            if (cfgField == null) {
+                continue;
+            }
+            cfgFields[icol] = cfgField;
+            unitFields[icol] = compiledCfg.getUnitField(cfgField);
+            valueCheckers[icol] = createValueChecker(cfgField.getDataType());
+        }
+    }
+
+
+    /**
+     * The plan for the layout of the table and the configuration, which is compiled when it's not in the cache yet.
+     */
+    public static ValidationPlan getPlan(SectionInstance table, IsaTabConfigurationType cfg) {
+        List<Field> fields = table.getFields();
+        List<String> headers = new ArrayList<String>(fields.size());
+        StringBuilder sigBuilder = new StringBuilder();
+        for (Field field : fields) {
+            String header = field.getAttr("header");
+            headers.add(header);
+            sigBuilder.append(header).append('\t');
+        }
+        String signature = sigBuilder.toString();
+
+        CompiledConfiguration compiledCfg = ISAConfigurationSet.getCompiledConfiguration(cfg);
+        synchronized (plans) {
+            Map<String, ValidationPlan> cfgPlans = plans.get(compiledCfg);
+            if (cfgPlans == null) {
+                cfgPlans = new HashMap<String, ValidationPlan>();
+                plans.put(compiledCfg, cfgPlans);
+            }
+            ValidationPlan plan = cfgPlans.get(signature);
+            if (plan == null) {
+                plan = new ValidationPlan(signature, headers, compiledCfg);
+                cfgPlans.put(signature, plan);
+            }
+            return plan;
+        }
+    }
+
+
+    /**
+     * The headers of the table layout this plan was compiled for, tab-separated.
+     */
+    public String getSignature() {
+        return signature;
+    }
+
+    public int getColumnCount() {
+        return cfgFields.length;
+    }
+
+    /**
+     * The configuration field for the column, null if the column is not configured.
+     */
+    public FieldType getConfigurationField(int icol) {
+        return cfgFields[icol];
+    }
+
+    /**
+     * The unit field that the configuration requires after the column, null if there is none.
+     */
+    public UnitFieldType getUnitField(int icol) {
+        return unitFields[icol];
+    }
+
+    /**
+     * The checker for the data type of the column. It is null if the column is not configured or its values
+     * don't need any check (strings), {@link #UNKNOWN_TYPE_CHECKER} if the data type is not supported.
+     */
+    public ValueChecker getValueChecker(int icol) {
+        return valueCheckers[icol];
+    }
+
+
+    /**
+     * The checker for a data type, as it is returned by {@link #getValueChecker(int)}.
+     */
+    static ValueChecker createValueChecker(String dataType) {
+        dataType = StringUtils.trimToNull(dataType);
+        if (dataType == null || "string".equalsIgnoreCase(dataType)) {
+            return null;
+        }
+        if ("boolean".equalsIgnoreCase(dataType)) {
+            return BOOLEAN_CHECKER;
+        }
+        if ("date".equalsIgnoreCase(dataType)) {
+            return DATE_CHECKER;
+        }
+        if ("integer".equalsIgnoreCase(dataType)) {
+            return INTEGER_CHECKER;
+        }
+        if ("double".equalsIgnoreCase(dataType)) {
+            return DOUBLE_CHECKER;
+        }
+        if ("ontology-term".equalsIgnoreCase(dataType) || "Ontology term".equalsIgnoreCase(dataType)) {
+            return ANY_VALUE_CHECKER;
+        }
+        // TODO: list, OEs
+        return UNKNOWN_TYPE_CHECKER;
+    }
+
+
+    /**
+     * Ontology terms are checked by {@link OntologyValidator}, here we only check that the value is there.
+     */
+    private static final ValueChecker ANY_VALUE_CHECKER = new ValueChecker() {
+        public boolean isValid(String value) {
+            return true;
+        }
+    };
+
+    private static final ValueChecker BOOLEAN_CHECKER = new ValueChecker() {
+        public boolean isValid(String value) {
+            return ValueScanners.isBoolean(value);
+        }
+    };
+
+    private static final ValueChecker DATE_CHECKER = new ValueChecker() {
+        public boolean isValid(String value) {
+            return ValueScanners.isDate(value, DatePropertyMappingHelper.VALID_FORMATS);
+        }
+    };
+
+    private static final ValueChecker INTEGER_CHECKER = new ValueChecker() {
+        public boolean isValid(String value) {
+            return ValueScanners.isInteger(value);
+        }
+    };
+
+    private static final ValueChecker DOUBLE_CHECKER = new ValueChecker() {
+        public boolean isValid(String value) {
+            return ValueScanners.isDouble(value);
+        }
+    };
+}
@@ -0,0 +1,312 @@
+/**
+
+ The ISAconverter, ISAvalidator & BII Management Tool are components of the ISA software suite (http://www.isa-tools.org)
+
+ Exhibit A
+ The ISAconverter, ISAvalidator & BII Management Tool are licensed under the Mozilla Public License (MPL) version
+ 1.1/GPL version 2.0/LGPL version 2.1
+
+ "The contents of this file are subject to the Mozilla Public License
+ Version 1.1 (the "License"). You may not use this file except in compliance with the License.
+ You may obtain copies of the Licenses at http://www.mozilla.org/MPL/MPL-1.1.html.
+
+ Software distributed under the License is distributed on an "AS IS"
+ basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ License for the specific language governing rights and limitations
+ under the License.
+
+ The Original Code is the ISAconverter, ISAvalidator & BII Management Tool.
+
+ The Initial Developer of the Original Code is the ISA Team (Eamonn Maguire, eamonnmag@gmail.com;
+ Philippe Rocca-Serra, proccaserra@gmail.com; Susanna-Assunta Sansone, sa.sanson@gmail.com;
+ http://www.isa-tools.org). All portions of the code written by the ISA Team are Copyright (c)
+ 2007-2011 ISA Team. All Rights Reserved.
+
+ Contributor(s):
+ Rocca-Serra P, Brandizi M, Maguire E, Sklyar N, Taylor C, Begley K, Field D,
+ Harris S, Hide W, Hofmann O, Neumann S, Sterk P, Tong W, Sansone SA. ISA software suite:
+ supporting standards-compliant experimental annotation and enabling curation at the community level.
+ Bioinformatics 2010;26(18):2354-6.
+
+ Alternatively, the contents of this file may be used under the terms of either the GNU General
+ Public License Version 2 or later (the "GPL") - http://www.gnu.org/licenses/gpl-2.0.html, or
+ the GNU Lesser General Public License Version 2.1 or later (the "LGPL") -
+ http://www.gnu.org/licenses/lgpl-2.1.html, in which case the provisions of the GPL
+ or the LGPL are applicable instead of those above. If you wish to allow use of your version
+ of this file only under the terms of either the GPL or the LGPL, and not to allow others to
+ use your version of this file under the terms of the MPL, indicate your decision by deleting
+ the provisions above and replace them with the notice and other provisions required by the
+ GPL or the LGPL. If you do not delete the provisions above, a recipient may use your version
+ of this file under the terms of any one of the MPL, the GPL or the LGPL.
+
+ Sponsors:
+ The ISA Team and the ISA software suite have been funded by the EU Carcinogenomics project
+ (http://www.carcinogenomics.eu), the UK BBSRC (http://www.bbsrc.ac.uk), the UK NERC-NEBC
+ (http://nebc.nerc.ac.uk) and in part by the EU NuGO consortium (http://www.nugo.org/everyone).
+
+ */
+
+package org.isatools.isatab.mapping;
+
+import org.apache.commons.lang.StringUtils;
+import org.isatools.tablib.mapping.TabMappingContext;
+import org.isatools.tablib.schema.*;
+import org.isatools.tablib.utils.BIIObjectStore;
+
+import java.util.*;
+
+/**
+ * The names of materials and data in an ISATAB submission, i.e., the values of the fields like "Sample Name" or
+ * "Extract Name" and of the fields about data files (like "Raw Data File"), with the rows where every name occurs,
+ * in every sample or assay file. This is built once per submission (see {@link #getIndex(BIIObjectStore, FormatSetInstance)})
+ * and used for the checks and operations that match names across files, e.g., the assay samples that must be defined
+ * in the study sample file, so that these don't need to scan one table for every row of another.
+ */
+public class SubmissionNameIndex {
+    /**
+     * The key used for the index in the {@link TabMappingContext}.
+     */
+    public static final String CONTEXT_KEY = "submissionNameIndex";
+
+    /**
+     * Where a name occurs: the table, the record and the field.
+     */
+    public static class Occurrence {
+        private final SectionInstance table;
+        private final int row, column;
+
+        public Occurrence(SectionInstance table, int row, int column) {
+            this.table = table;
+            this.row = row;
+            this.column = column;
+        }
+
+        public SectionInstance getTable() {
+            return table;
+        }
+
+        public String getFileId() {
+            return table.getFileId();
+        }
+
+        /**
+         * The index of the record in {@link #getTable()}.
+         */
+        public int getRow() {
+            return row;
+        }
+
+        /**
+         * The index of the field in {@link #getTable()}.
+         */
+        public int getColumn() {
+            return column;
+        }
+
+        public Record getRecord() {
+            return table.getRecord(row);
+        }
+
+        @Override
+        public String toString() {
+            return "Occurrence{ file: " + getFileId() + ", row: " + row + ", column: " + column + " }";
+        }
+    }
+
+    private final FormatSetInstance submission;
+
+    /**
+     * header -> name -> occurrences, in the whole submission
+     */
+    private final Map<String, Map<String, List<Occurrence>>> names = new HashMap<String, Map<String, List<Occurrence>>>();
+
+    /**
+     * table -> header -> name -> first occurrence in the table, in the order they appear
+     */
+    private final Map<SectionInstance, Map<String, Map<String, Occurrence>>> tableNames =
+            new HashMap<SectionInstance, Map<String, Map<String, Occurrence>>>();
+
+    private int size = 0;
+
+
+    /**
+     * Indexes all the tables in the submission, i.e., the sections which have their records in rows.
+     */
+    public SubmissionNameIndex(FormatSetInstance submission) {
+        this.submission = submission;
+        for (FormatInstance formatInstance : submission.getFormatInstances()) {
+            for (SectionInstance table : formatInstance.getSectionInstances()) {
+                if ("many-in-rows".equals(table.getSection().getAttr("type"))) {
+                    addTable(table);
+                }
+            }
+        }
+    }
+
+    /**
+     * Indexes the tables only, which don't need to belong to the same submission.
+     */
+    public SubmissionNameIndex(Collection<SectionInstance> tables) {
+        this.submission = null;
+        for (SectionInstance table : tables) {
+            if (table != null && !tableNames.containsKey(table)) {
+                addTable(table);
+            }
+        }
+    }
+
+
+    /**
+     * The index for the submission, which is built the first time and then kept in the {@link TabMappingContext}
+     * of the store, so that all the components which work on the submission share it. The tables must not be changed
+     * after the index is built.
+     */
+    public static SubmissionNameIndex getIndex(BIIObjectStore store, FormatSetInstance submission) {
+        TabMappingContext context = store.valueOfType(TabMappingContext.class);
+        synchronized (context) {
+            SubmissionNameIndex index = (SubmissionNameIndex) context.get(CONTEXT_KEY);
+            if (index == null || index.submission != submission) {
+                index = new SubmissionNameIndex(submission);
+                context.put(CONTEXT_KEY, index);
+            }
+            return index;
+        }
+    }
+
+    /**
+     * The index of the submission which the table belongs to, or an index of the table alone, if it isn't linked
+     * to a submission.
+     */
+    public static SubmissionNameIndex getIndex(BIIObjectStore store, SectionInstance table) {
+        FormatInstance formatInstance = table.getParent();
+        FormatSetInstance submission = formatInstance == null ? null : formatInstance.getParent();
+        if (submission == null) {
+            return new SubmissionNameIndex(Collections.singletonList(table));
+        }
+        return getIndex(store, submission);
+    }
+
+
+    /**
+     * true for the fields that contain names: material/assay names (e.g. "Sample Name") and data files, i.e., the fields
+     * having the ref-file-type attribute in the format definition.
+     */
+    public static boolean isNameField(Field field) {
+        String id = field.getId();
+        return (id != null && id.endsWith(" Name")) || field.getAttr("ref-file-type") != null;
+    }
+
+    private void addTable(SectionInstance table) {
+        Map<String, Map<String, Occurrence>> headers = new LinkedHashMap<String, Map<String, Occurrence>>();
+        tableNames.put(table, headers);
+
+        List<Field> fields = table.getFields();
+        List<Record> records = table.getRecords();
+        int nrecs = records.size();
+        for (Field field : fields) {
+            if (!isNameField(field)) {
+                continue;
+            }
+            String header = field.getId();
+            int column = field.getIndex();
+
+            Map<String, List<Occurrence>> headerNames = names.get(header);
+            if (headerNames == null) {
+                headerNames = new HashMap<String, List<Occurrence>>();
+                names.put(header, headerNames);
+            }
+            Map<String, Occurrence> tableHeaderNames = headers.get(header);
+            if (tableHeaderNames == null) {
+                tableHeaderNames = new LinkedHashMap<String, Occurrence>();
+                headers.put(header, tableHeaderNames);
+            }
+
+            for (int irec = 0; irec < nrecs; irec++) {
+                String name = StringUtils.trimToNull(records.get(irec).getString(column));
+                if (name == null) {
+                    continue;
+                }
+                Occurrence occurrence = new Occurrence(table, irec, column);
+                List<Occurrence> occurrences = headerNames.get(name);
+                if (occurrences == null) {
+                    occurrences = new ArrayList<Occurrence>(2);
+                    headerNames.put(name, occurrences);
+                }
+                occurrences.add(occurrence);
+                if (!tableHeaderNames.containsKey(name)) {
+                    tableHeaderNames.put(name, occurrence);
+                }
+                size++;
+            }
+        }
+    }
+
+
+    /**
+     * Where the name occurs in the submission, for fields with the header (e.g. "Sample Name"). Returns an empty list
+     * if the name is never used. Like the indexed values, the name is trimmed.
+     */
+    public List<Occurrence> getOccurrences(String header, String name) {
+        Map<String, List<Occurrence>> headerNames = names.get(header);
+        List<Occurrence> result = headerNames == null ? null : headerNames.get(StringUtils.trimToNull(name));
+        if (result == null) {
+            return Collections.emptyList();
+        }
+        return Collections.unmodifiableList(result);
+    }
+
+    /**
+     * The first occurrence of the name in the table, null if the name isn't used there.
+     */
+    public Occurrence getOccurrence(String header, String name, SectionInstance table) {
+        Map<String, Occurrence> tableHeaderNames = getTableNames(table).get(header);
+        return tableHeaderNames == null ? null : tableHeaderNames.get(StringUtils.trimToNull(name));
+    }
+
+    /**
+     * The names used in the table for fields with the header, in the order they appear, each with its first occurrence.
+     */
+    public Map<String, Occurrence> getNames(SectionInstance table, String header) {
+        Map<String, Occurrence> result = getTableNames(table).get(header);
+        if (result == null) {
+            return Collections.emptyMap();
+        }
+        return Collections.unmodifiableMap(result);
+    }
+
+    /**
+     * The headers of the name fields in the table, in the order they appear.
+     */
+    public Set<String> getHeaders(SectionInstance table) {
+        return Collections.unmodifiableSet(getTableNames(table).keySet());
+    }
+
+    /**
+     * true if the table was indexed.
+     */
+    public boolean contains(SectionInstance table) {
+        return tableNames.containsKey(table);
+    }
+
+    private Map<String, Map<String, Occurrence>> getTableNames(SectionInstance table) {
+        Map<String, Map<String, Occurrence>> result = tableNames.get(table);
+        if (result == null) {
+            return Collections.emptyMap();
+        }
+        return result;
+    }
+
+    /**
+     * The submission this index was built from, null if it was built from a set of tables.
+     */
+    public FormatSetInstance getSubmission() {
+        return submission;
+    }
+
+    /**
+     * The total no. of indexed occurrences.
+     */
+    public int size() {
+        return size;
+    }
+}
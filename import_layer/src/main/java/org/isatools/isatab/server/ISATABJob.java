@@ -0,0 +1,169 @@
+/**
+
+ The ISAconverter, ISAvalidator & BII Management Tool are components of the ISA software suite (http://www.isa-tools.org)
+
+ Exhibit A
+ The ISAconverter, ISAvalidator & BII Management Tool are licensed under the Mozilla Public License (MPL) version
+ 1.1/GPL version 2.0/LGPL version 2.1
+
+ "The contents of this file are subject to the Mozilla Public License
+ Version 1.1 (the "License"). You may not use this file except in compliance with the License.
+ You may obtain copies of the Licenses at http://www.mozilla.org/MPL/MPL-1.1.html.
+
+ Software distributed under the License is distributed on an "AS IS"
+ basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ License for the specific language governing rights and limitations
+ under the License.
+
+ The Original Code is the ISAconverter, ISAvalidator & BII Management Tool.
+
+ The Initial Developer of the Original Code is the ISA Team (Eamonn Maguire, eamonnmag@gmail.com;
+ Philippe Rocca-Serra, proccaserra@gmail.com; Susanna-Assunta Sansone, sa.sanson@gmail.com;
+ http://www.isa-tools.org). All portions of the code written by the ISA Team are Copyright (c)
+ 2007-2011 ISA Team. All Rights Reserved.
+
+ Contributor(s):
+ Rocca-Serra P, Brandizi M, Maguire E, Sklyar N, Taylor C, Begley K, Field D,
+ Harris S, Hide W, Hofmann O, Neumann S, Sterk P, Tong W, Sansone SA. ISA software suite:
+ supporting standards-compliant experimental annotation and enabling curation at the community level.
+ Bioinformatics 2010;26(18):2354-6.
+
+ Alternatively, the contents of this file may be used under the terms of either the GNU General
+ Public License Version 2 or later (the "GPL") - http://www.gnu.org/licenses/gpl-2.0.html, or
+ the GNU Lesser General Public License Version 2.1 or later (the "LGPL") -
+ http://www.gnu.org/licenses/lgpl-2.1.html, in which case the provisions of the GPL
+ or the LGPL are applicable instead of those above. If you wish to allow use of your version
+ of this file only under the terms of either the GPL or the LGPL, and not to allow others to
+ use your version of this file under the terms of the MPL, indicate your decision by deleting
+ the provisions above and replace them with the notice and other provisions required by the
+ GPL or the LGPL. If you do not delete the provisions above, a recipient may use your version
+ of this file under the terms of any one of the MPL, the GPL or the LGPL.
+
+ Sponsors:
+ The ISA Team and the ISA software suite have been funded by the EU Carcinogenomics project
+ (http://www.carcinogenomics.eu), the UK BBSRC (http://www.bbsrc.ac.uk), the UK NERC-NEBC
+ (http://nebc.nerc.ac.uk) and in part by the EU NuGO consortium (http://www.nugo.org/everyone).
+
+ */
+
+package org.isatools.isatab.server;
+
+import org.isatools.isatab.gui_invokers.AllowedConversions;
+import org.isatools.isatab.gui_invokers.GUIInvokerResult;
+import org.isatools.tablib.utils.logging.TabErrorEntry;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A validation or conversion of a submission, to be run by {@link ISATABJobRunner}, which also records the outcome
+ * here.
+ */
+public class ISATABJob {
+    public enum Type {
+        VALIDATE, CONVERT
+    }
+
+    /**
+     * How the submission is validated: with {@link org.isatools.isatab.ISATABValidator#validateFull()},
+     * {@link org.isatools.isatab.ISATABValidator#validateSimple()} or
+     * {@link org.isatools.isatab.ISATABStreamingValidator}.
+     */
+    public enum ValidationMode {
+        FULL, SIMPLE, STREAMING
+    }
+
+    private final Type type;
+    private final String sourcePath;
+    private ValidationMode validationMode = ValidationMode.FULL;
+    private AllowedConversions conversion = AllowedConversions.ALL;
+    private String exportPath = null;
+
+    private GUIInvokerResult result = null;
+    private List<TabErrorEntry> errors = Collections.emptyList();
+    private String failure = null;
+    private long time = 0;
+
+    public ISATABJob(Type type, String sourcePath) {
+        this.type = type;
+        this.sourcePath = sourcePath;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public String getSourcePath() {
+        return sourcePath;
+    }
+
+    /**
+     * Default is {@link ValidationMode#FULL}. A conversion always uses the full mode, since it needs the objects
+     * that it creates.
+     */
+    public ValidationMode getValidationMode() {
+        return validationMode;
+    }
+
+    public void setValidationMode(ValidationMode validationMode) {
+        this.validationMode = validationMode;
+    }
+
+    /**
+     * The kind of conversion, for {@link Type#CONVERT}. Default is {@link AllowedConversions#ALL}.
+     */
+    public AllowedConversions getConversion() {
+        return conversion;
+    }
+
+    public void setConversion(AllowedConversions conversion) {
+        this.conversion = conversion;
+    }
+
+    /**
+     * Where the converted files go, default is &lt;source-path&gt;/export.
+     */
+    public String getExportPath() {
+        return exportPath == null ? sourcePath + "/export" : exportPath;
+    }
+
+    public void setExportPath(String exportPath) {
+        this.exportPath = exportPath;
+    }
+
+
+    /**
+     * The outcome, null if the job was not run yet.
+     */
+    public GUIInvokerResult getResult() {
+        return result;
+    }
+
+    /**
+     * The errors found in the submission.
+     */
+    public List<TabErrorEntry> getErrors() {
+        return errors;
+    }
+
+    /**
+     * The message of the exception that stopped the job, if any (e.g., a submission that cannot be loaded).
+     */
+    public String getFailure() {
+        return failure;
+    }
+
+    /**
+     * How long the job took, in milliseconds.
+     */
+    public long getTime() {
+        return time;
+    }
+
+    void setOutcome(GUIInvokerResult result, List<TabErrorEntry> errors, String failure, long time) {
+        this.result = result;
+        this.errors = errors;
+        this.failure = failure;
+        this.time = time;
+    }
+}
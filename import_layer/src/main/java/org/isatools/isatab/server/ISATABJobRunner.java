@@ -0,0 +1,283 @@
+/**
+
+ The ISAconverter, ISAvalidator & BII Management Tool are components of the ISA software suite (http://www.isa-tools.org)
+
+ Exhibit A
+ The ISAconverter, ISAvalidator & BII Management Tool are licensed under the Mozilla Public License (MPL) version
+ 1.1/GPL version 2.0/LGPL version 2.1
+
+ "The contents of this file are subject to the Mozilla Public License
+ Version 1.1 (the "License"). You may not use this file except in compliance with the License.
+ You may obtain copies of the Licenses at http://www.mozilla.org/MPL/MPL-1.1.html.
+
+ Software distributed under the License is distributed on an "AS IS"
+ basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ License for the specific language governing rights and limitations
+ under the License.
+
+ The Original Code is the ISAconverter, ISAvalidator & BII Management Tool.
+
+ The Initial Developer of the Original Code is the ISA Team (Eamonn Maguire, eamonnmag@gmail.com;
+ Philippe Rocca-Serra, proccaserra@gmail.com; Susanna-Assunta Sansone, sa.sanson@gmail.com;
+ http://www.isa-tools.org). All portions of the code written by the ISA Team are Copyright (c)
+ 2007-2011 ISA Team. All Rights Reserved.
+
+ Contributor(s):
+ Rocca-Serra P, Brandizi M, Maguire E, Sklyar N, Taylor C, Begley K, Field D,
+ Harris S, Hide W, Hofmann O, Neumann S, Sterk P, Tong W, Sansone SA. ISA software suite:
+ supporting standards-compliant experimental annotation and enabling curation at the community level.
+ Bioinformatics 2010;26(18):2354-6.
+
+ Alternatively, the contents of this file may be used under the terms of either the GNU General
+ Public License Version 2 or later (the "GPL") - http://www.gnu.org/licenses/gpl-2.0.html, or
+ the GNU Lesser General Public License Version 2.1 or later (the "LGPL") -
+ http://www.gnu.org/licenses/lgpl-2.1.html, in which case the provisions of the GPL
+ or the LGPL are applicable instead of those above. If you wish to allow use of your version
+ of this file only under the terms of either the GPL or the LGPL, and not to allow others to
+ use your version of this file under the terms of the MPL, indicate your decision by deleting
+ the provisions above and replace them with the notice and other provisions required by the
+ GPL or the LGPL. If you do not delete the provisions above, a recipient may use your version
+ of this file under the terms of any one of the MPL, the GPL or the LGPL.
+
+ Sponsors:
+ The ISA Team and the ISA software suite have been funded by the EU Carcinogenomics project
+ (http://www.carcinogenomics.eu), the UK BBSRC (http://www.bbsrc.ac.uk), the UK NERC-NEBC
+ (http://nebc.nerc.ac.uk) and in part by the EU NuGO consortium (http://www.nugo.org/everyone).
+
+ */
+
+package org.isatools.isatab.server;
+
+import org.apache.log4j.AppenderSkeleton;
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+import org.apache.log4j.NDC;
+import org.apache.log4j.PatternLayout;
+import org.apache.log4j.spi.LoggingEvent;
+import org.isatools.isatab.ISATABStreamingValidator;
+import org.isatools.isatab.ISATABValidator;
+import org.isatools.isatab.gui_invokers.GUIISATABConverter;
+import org.isatools.isatab.gui_invokers.GUIInvokerResult;
+import org.isatools.isatab.isaconfigurator.ISAConfigurationSet;
+import org.isatools.isatab.isaconfigurator.ISAConfigurationSnapshot;
+import org.isatools.isatab.isaconfigurator.ontology_services.OfflineOntologyLookupClient;
+import org.isatools.isatab.isaconfigurator.ontology_services.OntologyLookupCache;
+import org.isatools.isatab.isaconfigurator.validators.OntologyValidationManager;
+import org.isatools.isatab_v1.ISATABLoader;
+import org.isatools.tablib.schema.FormatSetInstance;
+import org.isatools.tablib.utils.TaskRunner;
+import org.isatools.tablib.utils.logging.TabErrorCollector;
+import org.isatools.tablib.utils.logging.TabErrorEntry;
+import org.isatools.tablib.utils.logging.TabNDC;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs {@link ISATABJob}s, possibly many at the same time in the same process, keeping what can be shared among
+ * them: the ISATAB schema, the ISA configuration and the ontology caches (the {@link OntologyLookupCache persistent
+ * cache}, the {@link OfflineOntologyLookupClient offline indexes} and an {@link OntologyValidationManager}).
+ * <p/>
+ * Everything else is per job: the job uses the configuration snapshot that is current when it starts, and its log
+ * messages are recognised by a marker in the log4j {@link NDC}, which is passed to the threads that the job uses,
+ * so that they can be sent to a per-job output.
+ */
+public class ISATABJobRunner {
+    private static final String JOB_LOG_LAYOUT = "%d{ISO8601} %p: %m%n";
+
+    private final ISAConfigurationSet isaConfigSet;
+    private long ontologyCacheTtl = 3600 * 1000L;
+
+    private OntologyValidationManager ontologyManager = null;
+    private ISAConfigurationSnapshot ontologyManagerSnapshot = null;
+    private long ontologyManagerTime = 0;
+
+    /**
+     * The ontology lookup threads, shared by the managers that replace each other, so they don't pile up.
+     */
+    private final ExecutorService ontologyLookupExecutor = Executors.newFixedThreadPool(
+            OntologyValidationManager.DEFAULT_PARALLELISM, TaskRunner.newDaemonThreadFactory("ontology-lookup")
+    );
+
+    private final AtomicLong jobCount = new AtomicLong(0);
+
+    protected static final Logger log = Logger.getLogger(ISATABJobRunner.class);
+
+    /**
+     * @param isaConfigSet the configuration used for all the jobs.
+     */
+    public ISATABJobRunner(ISAConfigurationSet isaConfigSet) {
+        this.isaConfigSet = isaConfigSet;
+    }
+
+    /**
+     * Loads what is shared by the jobs. This is recommended before running jobs in parallel, since the ISATAB schema
+     * is loaded lazily and not in a thread-safe way.
+     */
+    public void warmUp() {
+        long ts0 = System.currentTimeMillis();
+        ISATABLoader.getISATABSchema();
+        ISAConfigurationSnapshot snapshot = isaConfigSet.getSnapshot();
+        OntologyLookupCache.getDefault();
+        OfflineOntologyLookupClient.getDefaultIndexes();
+        getOntologyManager(snapshot);
+        log.info("ISATAB jobs, warm-up done in " + (System.currentTimeMillis() - ts0) + " ms");
+    }
+
+    /**
+     * Runs a job and records its outcome in the job itself. A failure (e.g., a submission that cannot be loaded) is
+     * logged and reported as {@link GUIInvokerResult#ERROR}, no exception is thrown.
+     *
+     * @param logOut where the log messages of the job (INFO and above) are written, it can be null.
+     * @return the result of the job, i.e., {@link ISATABJob#getResult()}.
+     */
+    public GUIInvokerResult run(ISATABJob job, Writer logOut) {
+        long jobId = jobCount.incrementAndGet();
+        String marker = "isatab-job-" + jobId;
+        String path = job.getSourcePath();
+
+        JobAppender appender = logOut == null ? null : new JobAppender(marker, logOut);
+        Logger rootLogger = Logger.getRootLogger();
+        NDC.push(marker);
+        if (appender != null) {
+            rootLogger.addAppender(appender);
+        }
+        long ts0 = System.currentTimeMillis();
+        GUIInvokerResult result = GUIInvokerResult.ERROR;
+        List<TabErrorEntry> errors = Collections.emptyList();
+        String failure = null;
+        try {
+            log.info("Job " + jobId + ", " + job.getType().toString().toLowerCase() + " '" + path + "'");
+
+            // The same configuration for the whole job, even if it's reloaded in the meantime
+            ISAConfigurationSnapshot snapshot = isaConfigSet.getSnapshot();
+            ISAConfigurationSet cfgSet = new ISAConfigurationSet(snapshot);
+
+            ISATABJob.ValidationMode mode = job.getValidationMode();
+            if (job.getType() == ISATABJob.Type.VALIDATE && mode == ISATABJob.ValidationMode.STREAMING) {
+                ISATABStreamingValidator validator = new ISATABStreamingValidator(path, cfgSet);
+                result = validator.validate();
+                errors = validator.getErrors();
+            } else {
+                // Wrong study/assay files are reported together with the validation errors
+                ISATABLoader loader = new ISATABLoader(path);
+                TabErrorCollector loadErrors = new TabErrorCollector();
+                loader.setErrorCollector(loadErrors);
+                FormatSetInstance isatabInstance = loader.load();
+                ISATABValidator validator = new ISATABValidator(isatabInstance, cfgSet);
+                validator.setCollectAllErrors(true);
+                validator.setLoadErrors(loadErrors.getErrors());
+                validator.setOntologyManager(getOntologyManager(snapshot));
+                result = job.getType() == ISATABJob.Type.VALIDATE && mode == ISATABJob.ValidationMode.SIMPLE
+                        ? validator.validateSimple()
+                        : validator.validateFull();
+                errors = validator.getErrors();
+
+                if (job.getType() == ISATABJob.Type.CONVERT && result != GUIInvokerResult.ERROR) {
+                    GUIISATABConverter.export(validator.getStore(), path, job.getExportPath(), job.getConversion());
+                }
+            }
+        }
+        catch (Exception ex) {
+            log.error("Job " + jobId + " failed: " + ex.getMessage(), ex);
+            result = GUIInvokerResult.ERROR;
+            failure = ex.getMessage() == null ? ex.toString() : ex.getMessage();
+        }
+        finally {
+            if (appender != null) {
+                rootLogger.removeAppender(appender);
+            }
+            TabNDC.remove();
+        }
+
+        long time = System.currentTimeMillis() - ts0;
+        job.setOutcome(result, errors, failure, time);
+        log.info("Job " + jobId + " done in " + time + " ms, result: " + result);
+        return result;
+    }
+
+    /**
+     * The manager of the ontology lookups shared by the jobs. It's renewed when the configuration changes, since the
+     * results depend on it, and every {@link #getOntologyCacheTtl()} ms, so that the changes in the ontologies are
+     * eventually seen.
+     */
+    private synchronized OntologyValidationManager getOntologyManager(ISAConfigurationSnapshot snapshot) {
+        long now = System.currentTimeMillis();
+        if (ontologyManager == null || snapshot != ontologyManagerSnapshot
+                || now - ontologyManagerTime > ontologyCacheTtl) {
+            ontologyManager = new OntologyValidationManager();
+            ontologyManager.setSharedExecutor(ontologyLookupExecutor);
+            ontologyManagerSnapshot = snapshot;
+            ontologyManagerTime = now;
+        }
+        return ontologyManager;
+    }
+
+    /**
+     * Sends the log messages of a job to its output. The messages of the job are those that have its marker at the
+     * bottom of the {@link NDC}, the other jobs log to the same loggers at the same time.
+     */
+    private static class JobAppender extends AppenderSkeleton {
+        private final String marker;
+        private final Writer out;
+
+        JobAppender(String marker, Writer out) {
+            this.marker = marker;
+            this.out = out;
+            setLayout(new PatternLayout(JOB_LOG_LAYOUT));
+            setThreshold(Level.INFO);
+        }
+
+        @Override
+        protected void append(LoggingEvent event) {
+            String ndc = event.getNDC();
+            if (ndc == null || !(ndc.equals(marker) || ndc.startsWith(marker + " "))) {
+                return;
+            }
+            StringBuilder msg = new StringBuilder(layout.format(event));
+            String[] stackTrace = event.getThrowableStrRep();
+            if (stackTrace != null) {
+                for (String line : stackTrace) {
+                    msg.append(line).append('\n');
+                }
+            }
+            synchronized (out) {
+                try {
+                    out.write(msg.toString());
+                    out.flush();
+                }
+                catch (IOException ex) {
+                    // The client has gone, or the log file is not writable, the job goes ahead anyway
+                }
+            }
+        }
+
+        public boolean requiresLayout() {
+            return true;
+        }
+
+        public void close() {
+        }
+    }
+
+
+    public ISAConfigurationSet getIsaConfigSet() {
+        return isaConfigSet;
+    }
+
+    /**
+     * How long the in-memory results of the ontology lookups are kept, in milliseconds, default is 1 hour.
+     */
+    public long getOntologyCacheTtl() {
+        return ontologyCacheTtl;
+    }
+
+    public void setOntologyCacheTtl(long ontologyCacheTtl) {
+        this.ontologyCacheTtl = ontologyCacheTtl;
+    }
+}
@@ -0,0 +1,582 @@
+/**
+
+ The ISAconverter, ISAvalidator & BII Management Tool are components of the ISA software suite (http://www.isa-tools.org)
+
+ Exhibit A
+ The ISAconverter, ISAvalidator & BII Management Tool are licensed under the Mozilla Public License (MPL) version
+ 1.1/GPL version 2.0/LGPL version 2.1
+
+ "The contents of this file are subject to the Mozilla Public License
+ Version 1.1 (the "License"). You may not use this file except in compliance with the License.
+ You may obtain copies of the Licenses at http://www.mozilla.org/MPL/MPL-1.1.html.
+
+ Software distributed under the License is distributed on an "AS IS"
+ basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ License for the specific language governing rights and limitations
+ under the License.
+
+ The Original Code is the ISAconverter, ISAvalidator & BII Management Tool.
+
+ The Initial Developer of the Original Code is the ISA Team (Eamonn Maguire, eamonnmag@gmail.com;
+ Philippe Rocca-Serra, proccaserra@gmail.com; Susanna-Assunta Sansone, sa.sanson@gmail.com;
+ http://www.isa-tools.org). All portions of the code written by the ISA Team are Copyright (c)
+ 2007-2011 ISA Team. All Rights Reserved.
+
+ Contributor(s):
+ Rocca-Serra P, Brandizi M, Maguire E, Sklyar N, Taylor C, Begley K, Field D,
+ Harris S, Hide W, Hofmann O, Neumann S, Sterk P, Tong W, Sansone SA. ISA software suite:
+ supporting standards-compliant experimental annotation and enabling curation at the community level.
+ Bioinformatics 2010;26(18):2354-6.
+
+ Alternatively, the contents of this file may be used under the terms of either the GNU General
+ Public License Version 2 or later (the "GPL") - http://www.gnu.org/licenses/gpl-2.0.html, or
+ the GNU Lesser General Public License Version 2.1 or later (the "LGPL") -
+ http://www.gnu.org/licenses/lgpl-2.1.html, in which case the provisions of the GPL
+ or the LGPL are applicable instead of those above. If you wish to allow use of your version
+ of this file only under the terms of either the GPL or the LGPL, and not to allow others to
+ use your version of this file under the terms of the MPL, indicate your decision by deleting
+ the provisions above and replace them with the notice and other provisions required by the
+ GPL or the LGPL. If you do not delete the provisions above, a recipient may use your version
+ of this file under the terms of any one of the MPL, the GPL or the LGPL.
+
+ Sponsors:
+ The ISA Team and the ISA software suite have been funded by the EU Carcinogenomics project
+ (http://www.carcinogenomics.eu), the UK BBSRC (http://www.bbsrc.ac.uk), the UK NERC-NEBC
+ (http://nebc.nerc.ac.uk) and in part by the EU NuGO consortium (http://www.nugo.org/everyone).
+
+ */
+
+package org.isatools.isatab.server;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.log4j.Logger;
+import org.isatools.isatab.ISATABStreamingValidator;
+import org.isatools.isatab.ISATABValidator;
+import org.isatools.isatab.gui_invokers.AllowedConversions;
+import org.isatools.isatab.gui_invokers.GUIISATABConverter;
+import org.isatools.isatab.gui_invokers.GUIInvokerResult;
+import org.isatools.isatab.isaconfigurator.ISAConfigurationSet;
+import org.isatools.tablib.exceptions.TabInternalErrorException;
+import org.isatools.tablib.utils.LatencyRecorder;
+import org.isatools.tablib.utils.TaskRunner;
+import org.isatools.tablib.utils.logging.TabErrorEntry;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.net.URLDecoder;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A long-running process that validates and converts ISATAB submissions on request, so that the start-up costs (JVM,
+ * ISATAB schema, ISA configuration, ontology caches) are paid once, rather than once per submission, like it happens
+ * with the command line tools.
+ * <p/>
+ * The server listens to HTTP requests on a local address (the loopback interface by default, the jobs refer to paths
+ * in the local file system). The jobs are started by POST requests, the parameters can be in the query string or in
+ * a form-encoded body. The requests are:
+ * <ul>
+ * <li><b>/validate?path=&lt;submission-path&gt;[&amp;mode=full|simple|streaming]</b>: validates the submission with
+ * {@link ISATABValidator#validateFull()} (the default), {@link ISATABValidator#validateSimple()} or
+ * {@link ISATABStreamingValidator}</li>
+ * <li><b>/convert?path=&lt;submission-path&gt;[&amp;target=all|magetab|prideml|sra][&amp;out=&lt;export-path&gt;]</b>:
+ * validates the submission and, if there are no errors, converts it like {@link GUIISATABConverter}. The export path
+ * defaults to &lt;submission-path&gt;/export, it must be within the submission directory or, if it's set, within
+ * {@link #getExportRoot()}. A relative path is resolved against the export root, if set, or the submission
+ * directory.</li>
+ * <li><b>/status</b>: the no. of jobs and their durations, GET is fine for this.</li>
+ * </ul>
+ * Any page open in a browser can send requests to localhost, so the requests that carry an Origin header (which
+ * the browsers add to cross-site POSTs) are rejected.
+ * The result is plain text, streamed back while the job runs: the log messages of the job (INFO and above), then
+ * one "ERROR: ..." line per error and a final "RESULT: SUCCESS|WARNING|ERROR" line, which is what the clients
+ * should look at, since the HTTP status is sent before the result is known.
+ * <p/>
+ * Up to {@link #getMaxJobs()} jobs run at the same time, the other jobs wait. The requests are read and answered
+ * (e.g., /status, wrong requests) by separate threads, so they don't wait for the jobs, and a client that doesn't send
+ * its request within {@link #getRequestTimeout()} is disconnected. The jobs are run by an
+ * {@link ISATABJobRunner}, which keeps the ISATAB schema, the ISA configuration and the ontology caches across the
+ * jobs and sends to every client the log messages of its job only.
+ */
+public class ISATABJobServer {
+    public static final int DEFAULT_PORT = 8095;
+
+    private final int port;
+    private final ISATABJobRunner jobRunner;
+    private InetAddress bindAddress = null;
+    private int maxJobs = Runtime.getRuntime().availableProcessors();
+    private int requestTimeout = 30000;
+    private File exportRoot = null;
+
+    /**
+     * The max size of a request body, in bytes.
+     */
+    private static final int MAX_REQUEST_BODY = 64 * 1024;
+
+    private ServerSocket serverSocket = null;
+    private ExecutorService executor = null;
+    private ExecutorService requestExecutor = null;
+    private Thread acceptorThread = null;
+
+    private final AtomicLong jobCount = new AtomicLong(0), failedJobCount = new AtomicLong(0);
+    private final LatencyRecorder jobLatencies = new LatencyRecorder();
+
+    protected static final Logger log = Logger.getLogger(ISATABJobServer.class);
+
+    /**
+     * @param port         0 means any free port, see {@link #getPort()}.
+     * @param isaConfigSet the configuration used for all the jobs.
+     */
+    public ISATABJobServer(int port, ISAConfigurationSet isaConfigSet) {
+        this.port = port;
+        this.jobRunner = new ISATABJobRunner(isaConfigSet);
+    }
+
+
+    /**
+     * Loads what is kept across the jobs and starts accepting requests. It returns immediately, the requests are
+     * served by a separate thread, until {@link #stop()}.
+     */
+    public synchronized void start() throws IOException {
+        if (serverSocket != null) {
+            throw new TabInternalErrorException("The ISATAB job server is already started");
+        }
+
+        jobRunner.warmUp();
+
+        serverSocket = new ServerSocket(
+                port, 50, bindAddress == null ? InetAddress.getByName("localhost") : bindAddress
+        );
+        executor = Executors.newFixedThreadPool(maxJobs, TaskRunner.newDaemonThreadFactory("isatab-job"));
+        // Reading a request is short (see requestTimeout), so these threads come and go
+        requestExecutor = Executors.newCachedThreadPool(TaskRunner.newDaemonThreadFactory("isatab-request"));
+        acceptorThread = new Thread(new Runnable() {
+            public void run() {
+                acceptRequests();
+            }
+        }, "isatab-job-server");
+        acceptorThread.start();
+        log.info("ISATAB job server listening on " + serverSocket.getInetAddress().getHostAddress() + ":" + getPort()
+                + ", max jobs at the same time: " + maxJobs);
+    }
+
+    /**
+     * Stops accepting requests and waits (a bit) for the running jobs to finish.
+     */
+    public void stop() {
+        ServerSocket serverSocket;
+        ExecutorService executor, requestExecutor;
+        synchronized (this) {
+            serverSocket = this.serverSocket;
+            executor = this.executor;
+            requestExecutor = this.requestExecutor;
+            this.serverSocket = null;
+        }
+        if (serverSocket == null) {
+            return;
+        }
+
+        try {
+            serverSocket.close();
+        }
+        catch (IOException ex) {
+            log.warn("Error while closing the ISATAB job server socket: " + ex.getMessage());
+        }
+        requestExecutor.shutdown();
+        try {
+            // The requests being read can still start jobs
+            requestExecutor.awaitTermination(requestTimeout + 1000, TimeUnit.MILLISECONDS);
+        }
+        catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(60, TimeUnit.SECONDS)) {
+                log.warn("ISATAB job server, some jobs are still running at the shutdown");
+            }
+        }
+        catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        log.info("ISATAB job server stopped, " + getStatistics());
+    }
+
+    /**
+     * Waits until the server is {@link #stop() stopped}.
+     */
+    public void join() throws InterruptedException {
+        Thread acceptorThread;
+        synchronized (this) {
+            acceptorThread = this.acceptorThread;
+        }
+        if (acceptorThread != null) {
+            acceptorThread.join();
+        }
+    }
+
+    private void acceptRequests() {
+        ServerSocket serverSocket;
+        synchronized (this) {
+            serverSocket = this.serverSocket;
+        }
+        while (serverSocket != null && !serverSocket.isClosed()) {
+            try {
+                final Socket socket = serverSocket.accept();
+                try {
+                    requestExecutor.execute(new Runnable() {
+                        public void run() {
+                            serve(socket);
+                        }
+                    });
+                }
+                catch (RejectedExecutionException ex) {
+                    // Stopped in the meantime
+                    closeSocket(socket);
+                }
+            }
+            catch (SocketException ex) {
+                // Closed by stop()
+            }
+            catch (IOException ex) {
+                log.error("ISATAB job server, error while accepting a request: " + ex.getMessage(), ex);
+            }
+        }
+    }
+
+
+    /**
+     * Reads a request and answers it, or sends its job to the job threads.
+     */
+    private void serve(final Socket socket) {
+        boolean isJobQueued = false;
+        try {
+            socket.setSoTimeout(requestTimeout);
+            BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), "ISO-8859-1"));
+            final PrintWriter out = new PrintWriter(new OutputStreamWriter(socket.getOutputStream(), "UTF-8"));
+
+            String requestLine = in.readLine();
+            Map<String, String> headers = new HashMap<String, String>();
+            for (String line = in.readLine(); line != null && line.length() > 0; line = in.readLine()) {
+                int icolon = line.indexOf(':');
+                if (icolon != -1) {
+                    headers.put(line.substring(0, icolon).trim().toLowerCase(), line.substring(icolon + 1).trim());
+                }
+            }
+
+            String[] tokens = requestLine == null ? new String[0] : requestLine.split(" ");
+            if (tokens.length < 2) {
+                sendResponse(out, 400, "Bad Request", "Malformed request: '" + requestLine + "'\n");
+                return;
+            }
+            String method = tokens[0];
+            String target = tokens[1];
+            int iquery = target.indexOf('?');
+            String command = iquery == -1 ? target : target.substring(0, iquery);
+            Map<String, String> params = parseQuery(iquery == -1 ? "" : target.substring(iquery + 1));
+
+            int bodyLength = 0;
+            try {
+                String contentLength = headers.get("content-length");
+                bodyLength = contentLength == null ? 0 : Integer.parseInt(contentLength);
+            }
+            catch (NumberFormatException ex) {
+                bodyLength = -1;
+            }
+            if (bodyLength < 0 || bodyLength > MAX_REQUEST_BODY) {
+                sendResponse(out, 400, "Bad Request", "Invalid request body size\n");
+                return;
+            }
+            if (bodyLength > 0) {
+                // ISO-8859-1, so one char per byte
+                char[] body = new char[bodyLength];
+                for (int nread = 0; nread < bodyLength; ) {
+                    int n = in.read(body, nread, bodyLength - nread);
+                    if (n == -1) {
+                        sendResponse(out, 400, "Bad Request", "Truncated request body\n");
+                        return;
+                    }
+                    nread += n;
+                }
+                params.putAll(parseQuery(new String(body)));
+            }
+
+            if (headers.containsKey("origin")) {
+                sendResponse(out, 403, "Forbidden", "Requests from web pages are not accepted\n");
+                return;
+            }
+            if ("/status".equals(command)) {
+                sendResponse(out, 200, "OK", getStatistics() + "\n");
+                return;
+            }
+            if (!"/validate".equals(command) && !"/convert".equals(command)) {
+                sendResponse(out, 404, "Not Found", "Unknown request '" + command + "', use /validate or /convert\n");
+                return;
+            }
+            if (!"POST".equals(method)) {
+                sendResponse(out, 405, "Method Not Allowed", "Use POST for " + command + "\n");
+                return;
+            }
+
+            final ISATABJob job;
+            try {
+                job = createJob(command, params);
+            }
+            catch (IllegalArgumentException ex) {
+                sendResponse(out, 400, "Bad Request", ex.getMessage() + "\n");
+                return;
+            }
+
+            try {
+                executor.execute(new Runnable() {
+                    public void run() {
+                        try {
+                            sendHeaders(out, 200, "OK");
+                            runJob(job, out);
+                        }
+                        finally {
+                            closeSocket(socket);
+                        }
+                    }
+                });
+                isJobQueued = true;
+            }
+            catch (RejectedExecutionException ex) {
+                sendResponse(out, 503, "Service Unavailable", "The ISATAB job server is shutting down\n");
+            }
+        }
+        catch (SocketTimeoutException ex) {
+            log.warn("ISATAB job server, the client didn't send its request within " + requestTimeout + " ms");
+        }
+        catch (IOException ex) {
+            log.warn("ISATAB job server, error while serving a request: " + ex.getMessage());
+        }
+        finally {
+            if (!isJobQueued) {
+                closeSocket(socket);
+            }
+        }
+    }
+
+    private static void closeSocket(Socket socket) {
+        try {
+            socket.close();
+        }
+        catch (IOException ex) {
+            // Nothing to do
+        }
+    }
+
+    /**
+     * @throws IllegalArgumentException with a message for the client, if the parameters are not valid.
+     */
+    private ISATABJob createJob(String command, Map<String, String> params) {
+        String path = params.get("path");
+        if (path == null) {
+            throw new IllegalArgumentException("The parameter 'path' is required");
+        }
+        if (!new File(path).exists()) {
+            throw new IllegalArgumentException("The submission path '" + path + "' doesn't exist");
+        }
+        ISATABJob job = new ISATABJob(
+                "/validate".equals(command) ? ISATABJob.Type.VALIDATE : ISATABJob.Type.CONVERT, path
+        );
+
+        String mode = params.get("mode");
+        if (mode != null) {
+            try {
+                job.setValidationMode(ISATABJob.ValidationMode.valueOf(mode.toUpperCase()));
+            }
+            catch (IllegalArgumentException ex) {
+                throw new IllegalArgumentException(
+                        "Invalid validation mode '" + mode + "', use full, simple or streaming"
+                );
+            }
+        }
+        String target = params.get("target");
+        if (target != null) {
+            try {
+                job.setConversion(AllowedConversions.valueOf(target.toUpperCase()));
+            }
+            catch (IllegalArgumentException ex) {
+                throw new IllegalArgumentException(
+                        "Invalid conversion target '" + target + "', use all, magetab, prideml or sra"
+                );
+            }
+        }
+        job.setExportPath(getExportPath(path, params.get("out")));
+        return job;
+    }
+
+    /**
+     * Checks that the export path is within the allowed directory, see the class comment.
+     *
+     * @return the canonical export path, null if out is null.
+     * @throws IllegalArgumentException with a message for the client, if the path is not allowed.
+     */
+    private String getExportPath(String submissionPath, String out) {
+        if (out == null) {
+            return null;
+        }
+        try {
+            File submission = new File(submissionPath);
+            File submissionDir = (submission.isDirectory() ? submission : submission.getAbsoluteFile().getParentFile())
+                    .getCanonicalFile();
+            File root = exportRoot == null ? null : exportRoot.getCanonicalFile();
+
+            File outFile = new File(out);
+            if (!outFile.isAbsolute()) {
+                outFile = new File(root == null ? submissionDir : root, out);
+            }
+            outFile = outFile.getCanonicalFile();
+            if (!isWithin(outFile, submissionDir) && (root == null || !isWithin(outFile, root))) {
+                throw new IllegalArgumentException("The export path '" + out + "' must be within '" + submissionDir
+                        + "'" + (root == null ? "" : " or '" + root + "'"));
+            }
+            return outFile.getPath();
+        }
+        catch (IOException ex) {
+            throw new IllegalArgumentException("Invalid export path '" + out + "': " + ex.getMessage());
+        }
+    }
+
+    private static Map<String, String> parseQuery(String query) throws UnsupportedEncodingException {
+        Map<String, String> result = new HashMap<String, String>();
+        for (String param : query.split("&")) {
+            if (param.length() == 0) {
+                continue;
+            }
+            int ieq = param.indexOf('=');
+            String name = URLDecoder.decode(ieq == -1 ? param : param.substring(0, ieq), "UTF-8");
+            String value = ieq == -1 ? "" : URLDecoder.decode(param.substring(ieq + 1), "UTF-8");
+            result.put(name, StringUtils.trimToNull(value));
+        }
+        return result;
+    }
+
+    private static void sendHeaders(PrintWriter out, int status, String reason) {
+        out.print("HTTP/1.1 " + status + " " + reason + "\r\n");
+        out.print("Content-Type: text/plain; charset=UTF-8\r\n");
+        out.print("Connection: close\r\n\r\n");
+        out.flush();
+    }
+
+    private static void sendResponse(PrintWriter out, int status, String reason, String body) {
+        sendHeaders(out, status, reason);
+        out.print(body);
+        out.flush();
+    }
+
+
+    /**
+     * Runs a validation or conversion job, streaming its log messages and the result to out.
+     */
+    private void runJob(ISATABJob job, PrintWriter out) {
+        jobCount.incrementAndGet();
+        GUIInvokerResult result = jobRunner.run(job, out);
+        jobLatencies.record(job.getTime());
+        if (result == GUIInvokerResult.ERROR) {
+            failedJobCount.incrementAndGet();
+        }
+
+        synchronized (out) {
+            for (TabErrorEntry error : job.getErrors()) {
+                out.println("ERROR: " + error);
+            }
+            out.println("RESULT: " + result);
+            out.flush();
+        }
+    }
+
+
+    /**
+     * The port the server listens to, which is the actual one after {@link #start()}, if the server was created
+     * with 0.
+     */
+    public synchronized int getPort() {
+        return serverSocket == null ? port : serverSocket.getLocalPort();
+    }
+
+    /**
+     * The address the server listens to, default is null, i.e., localhost. To be set before {@link #start()}.
+     */
+    public InetAddress getBindAddress() {
+        return bindAddress;
+    }
+
+    public void setBindAddress(InetAddress bindAddress) {
+        this.bindAddress = bindAddress;
+    }
+
+    /**
+     * How many jobs can run at the same time, default is the number of available processors. To be set before
+     * {@link #start()}.
+     */
+    public int getMaxJobs() {
+        return maxJobs;
+    }
+
+    public void setMaxJobs(int maxJobs) {
+        if (maxJobs < 1) {
+            throw new TabInternalErrorException("ISATABJobServer, max jobs must be at least 1, got " + maxJobs);
+        }
+        this.maxJobs = maxJobs;
+    }
+
+    /**
+     * How long (ms) the server waits for a client to send its request, default is 30s. To be set before
+     * {@link #start()}.
+     */
+    public int getRequestTimeout() {
+        return requestTimeout;
+    }
+
+    public void setRequestTimeout(int requestTimeout) {
+        if (requestTimeout < 1) {
+            throw new TabInternalErrorException(
+                    "ISATABJobServer, the request timeout must be at least 1ms, got " + requestTimeout
+            );
+        }
+        this.requestTimeout = requestTimeout;
+    }
+
+    private static boolean isWithin(File file, File dir) {
+        String dirPath = dir.getPath();
+        String path = file.getPath();
+        return path.equals(dirPath)
+                || path.startsWith(dirPath.endsWith(File.separator) ? dirPath : dirPath + File.separator);
+    }
+
+    /**
+     * The directory the /convert requests can write to, besides the submission directory, default is null, i.e., only
+     * the submission directory. To be set before {@link #start()}.
+     */
+    public File getExportRoot() {
+        return exportRoot;
+    }
+
+    public void setExportRoot(File exportRoot) {
+        this.exportRoot = exportRoot;
+    }
+
+    public ISATABJobRunner getJobRunner() {
+        return jobRunner;
+    }
+
+    /**
+     * The jobs run so far and their durations, in a human-readable form.
+     */
+    public String getStatistics() {
+        return "jobs: " + jobCount.get() + ", failed: " + failedJobCount.get() + ", duration (ms) p50: "
+                + jobLatencies.getPercentile(50) + ", p90: " + jobLatencies.getPercentile(90) + ", max: "
+                + jobLatencies.getPercentile(100);
+    }
+}
@@ -56,6 +56,8 @@ import org.isatools.tablib.exceptions.TabDuplicatedValueException;
 import org.isatools.tablib.exceptions.TabMissingValueException;
 import org.isatools.tablib.exceptions.TabValidationException;
 import org.isatools.tablib.mapping.FormatSetTabMapper;
+import org.isatools.tablib.parser.TabSource;
+import org.isatools.tablib.parser.ZipTabSource;
 import org.isatools.tablib.schema.*;
 import org.isatools.tablib.utils.logging.TabNDC;
 import uk.ac.ebi.bioinvindex.utils.i18n;
@@ -63,7 +65,9 @@ import uk.ac.ebi.bioinvindex.utils.i18n;
 import java.io.BufferedInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Callable;
 
 
 /**
@@ -88,6 +92,14 @@ public class ISATABLoader extends org.isatools.isatab.ISATABLoader {
         super(ISATABLoader.getISATABSchema(), basePath);
     }
 
+    /**
+     * Reads the submission from a source, e.g., a {@link ZipTabSource}, which allows to load an archive without
+     * extracting it. The source is not closed by the loader.
+     */
+    public ISATABLoader(TabSource source) {
+        super(ISATABLoader.getISATABSchema(), source);
+    }
+
 
     public static FormatSet getISATABSchema() {
         if (isatabSchema != null) {
@@ -104,7 +116,7 @@ public class ISATABLoader extends org.isatools.isatab.ISATABLoader {
 
 
     /**
-     * A new version with updated file names.
+     * A new version with updated file names. The files are loaded in parallel if {@link #isParallelMode()} is set.
      */
     @Override
     protected void loadAssays() throws IOException {
@@ -118,6 +130,7 @@ public class ISATABLoader extends org.isatools.isatab.ISATABLoader {
             return;
         }
 
+        List<Callable<FormatInstance>> loadTasks = new ArrayList<Callable<FormatInstance>>();
         for (SectionInstance assayInstance : assayInstances) {
             if (assayInstance.getFields().size() > 0) {
                 int endPointIdx = assayInstance.getField("Study Assay Measurement Type").getIndex();
@@ -132,8 +145,12 @@ public class ISATABLoader extends org.isatools.isatab.ISATABLoader {
                     if (StringUtils.trimToNull(endPoint) == null && assayFileName.isEmpty()) {
                         continue;
                     } else if (endPoint == null) {
-                        throw new TabMissingValueException("No Measurement specified for the assay file: '" + assayFileName
-                                + "' (column #" + (assayFileNameIdx + 1) + "), measurement type is a mandatory attribute for the assay file");
+                        reportInvestigationError(
+                                new TabMissingValueException("No Measurement specified for the assay file: '" + assayFileName
+                                        + "' (column #" + (assayFileNameIdx + 1) + "), measurement type is a mandatory attribute for the assay file"),
+                                "missing_measurement_type", assayInstance, endPointIdx
+                        );
+                        continue;
                     }
 
                     // We can only deal with one of the formats defined in the ISATAB specification, and defined
@@ -148,24 +165,67 @@ public class ISATABLoader extends org.isatools.isatab.ISATABLoader {
                         ndc.pushFormat(assayFormatId, assayFormatId, assayFileName);
                         String alreadyLoadedLabel = alreadyLoadedFiles.get(assayFileName);
                         if (alreadyLoadedLabel != null) {
-                            throw new TabDuplicatedValueException(
-                                    "The file " + assayFileName + " has already been loaded as " + alreadyLoadedLabel
+                            ndc.popTabDescriptor();
+                            reportInvestigationError(
+                                    new TabDuplicatedValueException(
+                                            "The file " + assayFileName + " has already been loaded as " + alreadyLoadedLabel
+                                    ),
+                                    "assay_file_already_exists", assayInstance, assayFileNameIdx
                             );
+                            continue;
                         }
-                        FormatInstance assayFileInstance;
-                        try {
-                            assayFileInstance = load(assayFileName, assayFormatId);
-                        } catch (TabValidationException tve) {
-                            assayFileInstance = load(assayFileName, "generic_assay");
+                        if (isSelectedFile(assayFileName)) {
+                            loadTasks.add(createAssayLoadTask(assayFileName, assayFormatId));
                         }
-
-                        formatSetInstance.addFormatInstance(assayFileInstance);
                         alreadyLoadedFiles.put(assayFileName, "as assay file for an assay");
                         ndc.popTabDescriptor();
                     }
                 } // for record
             }
         } // for assayInstance
+
+        for (FormatInstance assayFileInstance : runLoadTasks(loadTasks)) {
+            // null if it couldn't be loaded in collect-all-errors mode
+            if (assayFileInstance != null) {
+                formatSetInstance.addFormatInstance(assayFileInstance);
+            }
+        }
     } // loadAssays
 
+
+    /**
+     * Loads an assay file, falling back to the generic assay format if the file doesn't comply with assayFormatId.
+     * The headers are {@link #probe(String, String) probed} first, so that the file is parsed once in most cases.
+     * The load happens in the thread running the task, which has its own {@link TabNDC}.
+     */
+    private Callable<FormatInstance> createAssayLoadTask(final String assayFileName, final String assayFormatId) {
+        return new FileLoadTask(assayFileName) {
+            protected FormatInstance loadFile() throws Exception {
+                TabNDC ndc = TabNDC.getInstance();
+                ndc.pushFormat(assayFormatId, assayFormatId, assayFileName);
+                String rejection = probe(assayFileName, assayFormatId);
+                if (rejection != null) {
+                    log.info("Loading '" + assayFileName + "' as generic assay, since it doesn't comply with the format '"
+                            + assayFormatId + "': " + rejection);
+                    FormatInstance assayFileInstance = loadAs("generic_assay");
+                    ndc.popTabDescriptor();
+                    return assayFileInstance;
+                }
+
+                FormatInstance assayFileInstance;
+                try {
+                    // Errors here mean the generic assay has to be tried, even in collect-all-errors mode
+                    assayFileInstance = loadStrictly(assayFormatId);
+                } catch (TabValidationException tve) {
+                    // Something the probe can't see, fall back to the old way
+                    log.info("Loading '" + assayFileName + "' as generic assay, since it doesn't comply with the format '"
+                            + assayFormatId + "': " + tve.getMessage());
+                    assayFileInstance = loadAs("generic_assay");
+                }
+                ndc.popTabDescriptor();
+                return assayFileInstance;
+            }
+        };
+    }
+
 }
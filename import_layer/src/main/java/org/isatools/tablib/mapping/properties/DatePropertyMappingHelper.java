@@ -55,6 +55,7 @@ import org.isatools.isatab.commandline.permission_manager.PermissionManager;
 import org.isatools.tablib.exceptions.TabInternalErrorException;
 import org.isatools.tablib.schema.SectionInstance;
 import org.isatools.tablib.utils.BIIObjectStore;
+import org.isatools.tablib.utils.ValueScanners;
 import uk.ac.ebi.bioinvindex.model.Identifiable;
 import uk.ac.ebi.bioinvindex.utils.i18n;
 
@@ -107,6 +108,11 @@ public class DatePropertyMappingHelper<T extends Identifiable>
             return null;
         }
         Date result = null;
+        // Invalid dates are common enough, don't build an exception for every one of them
+        if (!ValueScanners.isDate(dates, VALID_FORMATS)) {
+            log.warn(i18n.msg("invalid_date_format", dates, sectionInstance.getField(getFieldIndex()).getId()));
+            return null;
+        }
         try {
             result = DateUtils.parseDate(dates, VALID_FORMATS);
             // required to fix problems with day light savings times, particulary BST.
@@ -69,6 +69,15 @@ public class ColSectionParser extends RowSectionParser {
     }
 
 
+    /**
+     * A section spanned over columns needs all of its lines before anything can be parsed.
+     */
+    @Override
+    public boolean isStreamable() {
+        return false;
+    }
+
+
     /**
      * The many-in-cols and one-in-col parser is actually a wrapper of RowSectionParser. When called by a per-column
      * arranged section, it first transposes the whole matrix being received, then it calls RowSectionParser.
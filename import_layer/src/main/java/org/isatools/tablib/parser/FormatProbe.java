@@ -0,0 +1,164 @@
+/**
+
+ The ISAconverter, ISAvalidator & BII Management Tool are components of the ISA software suite (http://www.isa-tools.org)
+
+ Exhibit A
+ The ISAconverter, ISAvalidator & BII Management Tool are licensed under the Mozilla Public License (MPL) version
+ 1.1/GPL version 2.0/LGPL version 2.1
+
+ "The contents of this file are subject to the Mozilla Public License
+ Version 1.1 (the "License"). You may not use this file except in compliance with the License.
+ You may obtain copies of the Licenses at http://www.mozilla.org/MPL/MPL-1.1.html.
+
+ Software distributed under the License is distributed on an "AS IS"
+ basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ License for the specific language governing rights and limitations
+ under the License.
+
+ The Original Code is the ISAconverter, ISAvalidator & BII Management Tool.
+
+ The Initial Developer of the Original Code is the ISA Team (Eamonn Maguire, eamonnmag@gmail.com;
+ Philippe Rocca-Serra, proccaserra@gmail.com; Susanna-Assunta Sansone, sa.sanson@gmail.com;
+ http://www.isa-tools.org). All portions of the code written by the ISA Team are Copyright (c)
+ 2007-2011 ISA Team. All Rights Reserved.
+
+ Contributor(s):
+ Rocca-Serra P, Brandizi M, Maguire E, Sklyar N, Taylor C, Begley K, Field D,
+ Harris S, Hide W, Hofmann O, Neumann S, Sterk P, Tong W, Sansone SA. ISA software suite:
+ supporting standards-compliant experimental annotation and enabling curation at the community level.
+ Bioinformatics 2010;26(18):2354-6.
+
+ Alternatively, the contents of this file may be used under the terms of either the GNU General
+ Public License Version 2 or later (the "GPL") - http://www.gnu.org/licenses/gpl-2.0.html, or
+ the GNU Lesser General Public License Version 2.1 or later (the "LGPL") -
+ http://www.gnu.org/licenses/lgpl-2.1.html, in which case the provisions of the GPL
+ or the LGPL are applicable instead of those above. If you wish to allow use of your version
+ of this file only under the terms of either the GPL or the LGPL, and not to allow others to
+ use your version of this file under the terms of the MPL, indicate your decision by deleting
+ the provisions above and replace them with the notice and other provisions required by the
+ GPL or the LGPL. If you do not delete the provisions above, a recipient may use your version
+ of this file under the terms of any one of the MPL, the GPL or the LGPL.
+
+ Sponsors:
+ The ISA Team and the ISA software suite have been funded by the EU Carcinogenomics project
+ (http://www.carcinogenomics.eu), the UK BBSRC (http://www.bbsrc.ac.uk), the UK NERC-NEBC
+ (http://nebc.nerc.ac.uk) and in part by the EU NuGO consortium (http://www.nugo.org/everyone).
+
+ */
+
+package org.isatools.tablib.parser;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.log4j.Logger;
+import org.isatools.isatab_nano.NANOFormatWrapper;
+import org.isatools.tablib.exceptions.TabInvalidValueException;
+import org.isatools.tablib.schema.Format;
+import org.isatools.tablib.schema.Section;
+import uk.ac.ebi.bioinvindex.utils.i18n;
+
+import java.io.IOException;
+
+
+/**
+ * Checks if a file is compatible with a format by looking at its headers only. This reads the file up to the header
+ * row of the first section spanned over rows (for the sections spanned over columns, the first cell of each line),
+ * with the same logic that {@link TabLoader} uses to detect sections, and checks the headers against the section
+ * fields in the schema. It can be used to choose among candidate formats without parsing the whole file with each of
+ * them (e.g.: specific assay formats vs the generic assay).
+ * <p/>
+ * The probe only detects structure and header problems, a file accepted here might still be rejected by the actual
+ * parsing.
+ */
+public class FormatProbe {
+    protected static final Logger log = Logger.getLogger(FormatProbe.class);
+
+    private final Format format;
+
+    public FormatProbe(Format format) {
+        this.format = format;
+    }
+
+    public Format getFormat() {
+        return format;
+    }
+
+
+    /**
+     * Reads the headers from the tokenizer and checks them against {@link #getFormat()}. The tokenizer is not closed.
+     *
+     * @return null if the headers are compatible with the format, or a message reporting why they are not.
+     */
+    public String probe(TabTokenizer tokenizer) throws IOException {
+        TabCsvReader csvrdr = new TabCsvReader(tokenizer, format);
+        Section section = null;
+
+        for (String[] csvLine; (csvLine = csvrdr.readNext()) != null; ) {
+            if (TabCsvReader.isCommentLine(csvLine)) {
+                continue;
+            }
+
+            if (section == null) {
+                // Waiting for a section
+                if (TabCsvReader.isBlankLine(csvLine)) {
+                    continue;
+                }
+                if (!TabCsvReader.isHeaderLine(csvLine)) {
+                    return i18n.msg("missing_section_header", csvrdr.getLastReadLineIndex());
+                }
+                section = format.getSectionByHeader(csvLine[0], false);
+                if (section == null) {
+                    return i18n.msg("wrong_section_header", csvLine[0], csvrdr.getLastReadLineIndex());
+                }
+                continue;
+            }
+
+            if (TabCsvReader.isBlankLine(csvLine)) {
+                // End of section
+                section = null;
+                continue;
+            }
+
+            NANOFormatWrapper.processFileHeader(csvLine);
+            if ("many-in-rows".equals(section.getAttr("type"))) {
+                // This is the header row, we don't need to look further
+                return checkHeaders(section, csvLine);
+            }
+
+            // Spanned over columns, each line starts with a header
+            String result = checkHeaders(section, new String[]{csvLine[0]});
+            if (result != null) {
+                return result;
+            }
+        }
+
+        return null;
+    }
+
+
+    /**
+     * Checks the headers like {@link RowSectionParser} does, empty headers are ignored.
+     *
+     * @return null if all the headers match a field in the section, the reason of the failure otherwise.
+     */
+    private String checkHeaders(Section section, String[] headers) {
+        for (String header : headers) {
+            header = StringUtils.trimToNull(header);
+            if (header == null) {
+                continue;
+            }
+            try {
+                if (section.getFieldByHeader(header, false) == null) {
+                    return i18n.msg("unexpected_field_in_section_error", header, section.getId());
+                }
+            }
+            catch (TabInvalidValueException ex) {
+                return ex.getMessage();
+            }
+        }
+        if (log.isTraceEnabled()) {
+            log.trace("FormatProbe, headers accepted by the section '" + section.getId() + "' of '" + format.getId() + "'");
+        }
+        return null;
+    }
+
+}
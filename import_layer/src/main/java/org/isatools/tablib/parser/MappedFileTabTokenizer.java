@@ -0,0 +1,366 @@
+/**
+
+ The ISAconverter, ISAvalidator & BII Management Tool are components of the ISA software suite (http://www.isa-tools.org)
+
+ Exhibit A
+ The ISAconverter, ISAvalidator & BII Management Tool are licensed under the Mozilla Public License (MPL) version
+ 1.1/GPL version 2.0/LGPL version 2.1
+
+ "The contents of this file are subject to the Mozilla Public License
+ Version 1.1 (the "License"). You may not use this file except in compliance with the License.
+ You may obtain copies of the Licenses at http://www.mozilla.org/MPL/MPL-1.1.html.
+
+ Software distributed under the License is distributed on an "AS IS"
+ basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ License for the specific language governing rights and limitations
+ under the License.
+
+ The Original Code is the ISAconverter, ISAvalidator & BII Management Tool.
+
+ The Initial Developer of the Original Code is the ISA Team (Eamonn Maguire, eamonnmag@gmail.com;
+ Philippe Rocca-Serra, proccaserra@gmail.com; Susanna-Assunta Sansone, sa.sanson@gmail.com;
+ http://www.isa-tools.org). All portions of the code written by the ISA Team are Copyright (c)
+ 2007-2011 ISA Team. All Rights Reserved.
+
+ Contributor(s):
+ Rocca-Serra P, Brandizi M, Maguire E, Sklyar N, Taylor C, Begley K, Field D,
+ Harris S, Hide W, Hofmann O, Neumann S, Sterk P, Tong W, Sansone SA. ISA software suite:
+ supporting standards-compliant experimental annotation and enabling curation at the community level.
+ Bioinformatics 2010;26(18):2354-6.
+
+ Alternatively, the contents of this file may be used under the terms of either the GNU General
+ Public License Version 2 or later (the "GPL") - http://www.gnu.org/licenses/gpl-2.0.html, or
+ the GNU Lesser General Public License Version 2.1 or later (the "LGPL") -
+ http://www.gnu.org/licenses/lgpl-2.1.html, in which case the provisions of the GPL
+ or the LGPL are applicable instead of those above. If you wish to allow use of your version
+ of this file only under the terms of either the GPL or the LGPL, and not to allow others to
+ use your version of this file under the terms of the MPL, indicate your decision by deleting
+ the provisions above and replace them with the notice and other provisions required by the
+ GPL or the LGPL. If you do not delete the provisions above, a recipient may use your version
+ of this file under the terms of any one of the MPL, the GPL or the LGPL.
+
+ Sponsors:
+ The ISA Team and the ISA software suite have been funded by the EU Carcinogenomics project
+ (http://www.carcinogenomics.eu), the UK BBSRC (http://www.bbsrc.ac.uk), the UK NERC-NEBC
+ (http://nebc.nerc.ac.uk) and in part by the EU NuGO consortium (http://www.nugo.org/everyone).
+
+ */
+package org.isatools.tablib.parser;
+
+import org.isatools.tablib.exceptions.TabInternalErrorException;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A {@link TabTokenizer} that memory-maps the file and scans tabs, quotes and line terminators directly on the mapped
+ * bytes. There is no intermediate character buffering: the bytes of a cell are decoded into a string only once, when
+ * the end of the cell is reached, and all the empty cells share the same string instance. Large files are mapped via a
+ * sliding window, so their size is not limited by the size of a single mapping.
+ * <p/>
+ * The splitting rules are the same used by {@link CsvReaderTokenizer}: double quotes enclose values, a doubled quote
+ * inside a quoted value stands for a literal quote, line terminators (CR, LF or CRLF) inside quoted values are turned
+ * into '\n'. Since separators are recognised at byte level, the file encoding must be compatible with ASCII
+ * (e.g.: UTF-8, ISO-8859-1), see {@link #isSupportedCharset(Charset)}.
+ * <p/>
+ * The tokenizer can also be limited to a range of bytes in the file, which, together with
+ * {@link #findRecordBoundaries(File, long, long)}, allows to split a large file in parts that can be read in parallel.
+ */
+public class MappedFileTabTokenizer implements TabTokenizer {
+    /**
+     * The default size of the region mapped in memory, 64Mb.
+     */
+    public static final int DEFAULT_WINDOW_SIZE = 64 * 1024 * 1024;
+
+    private static final byte SEPARATOR = '\t', QUOTE = '"', CR = '\r', LF = '\n', SPACE = ' ';
+
+    private final FileInputStream input;
+    private final FileChannel channel;
+    private final Charset charset;
+    private final long end;
+    private final int windowSize;
+
+    private MappedByteBuffer window = null;
+    private long windowStart = 0;
+    private long position = 0;
+
+    private final List<String> cells = new ArrayList<String>();
+    private byte[] cellBuffer = new byte[1024];
+    private int cellLength = 0;
+
+
+    /**
+     * Uses the platform default charset, like {@link java.io.FileReader}, and {@link #DEFAULT_WINDOW_SIZE}.
+     */
+    public MappedFileTabTokenizer(File file) throws IOException {
+        this(file, Charset.defaultCharset(), DEFAULT_WINDOW_SIZE);
+    }
+
+    public MappedFileTabTokenizer(File file, Charset charset, int windowSize) throws IOException {
+        this(file, charset, windowSize, 0, -1);
+    }
+
+    /**
+     * Reads the file from the start offset (included) up to the end offset (excluded, -1 means the end of the file).
+     * Both must be record boundaries, i.e.: the beginning of a line that is not inside a quoted value, see
+     * {@link #findRecordBoundaries(File, long, long)}.
+     */
+    public MappedFileTabTokenizer(File file, Charset charset, int windowSize, long start, long end) throws IOException {
+        if (!isSupportedCharset(charset)) {
+            throw new TabInternalErrorException(
+                    "MappedFileTabTokenizer: the charset " + charset.name() + " is not supported, cannot read '" + file + "'"
+            );
+        }
+        if (windowSize <= 0) {
+            throw new TabInternalErrorException("MappedFileTabTokenizer: invalid window size " + windowSize);
+        }
+        this.charset = charset;
+        this.windowSize = windowSize;
+        this.input = new FileInputStream(file);
+        this.channel = input.getChannel();
+        long fileSize = channel.size();
+        this.end = end < 0 ? fileSize : Math.min(end, fileSize);
+        if (start < 0 || start > this.end) {
+            close();
+            throw new TabInternalErrorException(
+                    "MappedFileTabTokenizer: invalid range " + start + "-" + end + " for '" + file + "'"
+            );
+        }
+        this.position = start;
+    }
+
+
+    /**
+     * true if the tabs, quotes and line terminators are encoded with the same single byte as in ASCII, which is what
+     * this tokenizer needs to scan the file.
+     */
+    public static boolean isSupportedCharset(Charset charset) {
+        return Arrays.equals(new byte[]{SEPARATOR, QUOTE, CR, LF}, "\t\"\r\n".getBytes(charset));
+    }
+
+
+    /**
+     * Splits a file into ranges of whole records, to be read by separate tokenizers. This is a fast scan that only
+     * looks at quotes and line terminators: a line terminator ends a record when it is outside quotes, i.e.: when
+     * the number of quotes met so far is even (this is consistent with {@link #readNext()}, where doubled quotes don't
+     * change the quoting state).
+     *
+     * @param from      where to start from, must be a record boundary.
+     * @param rangeSize the approximate size of each range (each range ends at the first record boundary at or after
+     *                  this size).
+     * @return the offsets of the record boundaries that delimit the ranges, from the start offset to the file size.
+     */
+    public static List<Long> findRecordBoundaries(File file, long from, long rangeSize) throws IOException {
+        if (rangeSize <= 0) {
+            throw new TabInternalErrorException("MappedFileTabTokenizer: invalid range size " + rangeSize);
+        }
+
+        List<Long> result = new ArrayList<Long>();
+        result.add(from);
+        long fileSize;
+
+        FileInputStream input = new FileInputStream(file);
+        try {
+            FileChannel channel = input.getChannel();
+            fileSize = channel.size();
+            long target = from + rangeSize;
+            boolean inQuotes = false, isAfterCR = false;
+
+            for (long windowStart = from; windowStart < fileSize && target < fileSize; ) {
+                int size = (int) Math.min(DEFAULT_WINDOW_SIZE, fileSize - windowStart);
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, windowStart, size);
+
+                for (int i = 0; i < size; i++) {
+                    byte b = buffer.get(i);
+                    long boundary = -1;
+
+                    if (isAfterCR && b != LF) {
+                        // A CR alone, the record ended right after it
+                        boundary = windowStart + i;
+                    }
+                    isAfterCR = false;
+
+                    if (b == QUOTE) {
+                        inQuotes = !inQuotes;
+                    } else if (!inQuotes) {
+                        if (b == LF) {
+                            boundary = windowStart + i + 1;
+                        } else if (b == CR) {
+                            isAfterCR = true;
+                        }
+                    }
+
+                    if (boundary >= target && boundary < fileSize) {
+                        result.add(boundary);
+                        target = boundary + rangeSize;
+                    }
+                }
+                windowStart += size;
+            }
+        }
+        finally {
+            input.close();
+        }
+
+        result.add(Math.max(from, fileSize));
+        return result;
+    }
+
+
+    public String[] readNext() throws IOException {
+        if (position >= end) {
+            return null;
+        }
+
+        if (window == null || position >= windowStart + window.limit()) {
+            mapWindow(position, windowSize);
+        }
+
+        int lineEnd;
+        while ((lineEnd = scanLine((int) (position - windowStart))) < 0) {
+            // The line goes beyond the mapped region, map it again from the line begin, with enough room.
+            long size = windowStart + window.limit() - position;
+            if (size >= Integer.MAX_VALUE) {
+                throw new TabInternalErrorException("MappedFileTabTokenizer: line too long at byte #" + position);
+            }
+            mapWindow(position, Math.max(windowSize, Math.min(Integer.MAX_VALUE, 2L * size)));
+        }
+
+        position = windowStart + lineEnd;
+        return cells.toArray(new String[cells.size()]);
+    }
+
+
+    /**
+     * The offset in the file of the next line to be read.
+     */
+    public long getPosition() {
+        return position;
+    }
+
+
+    public void close() throws IOException {
+        window = null;
+        channel.close();
+        input.close();
+    }
+
+
+    private void mapWindow(long start, long size) throws IOException {
+        windowStart = start;
+        window = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(size, end - start));
+    }
+
+
+    /**
+     * Splits the line starting at the from position of the current window into {@link #cells}.
+     *
+     * @return the position in the window right after the line terminator, or -1 if the line doesn't end within the
+     *         current window.
+     */
+    private int scanLine(int from) {
+        cells.clear();
+        cellLength = 0;
+
+        int limit = window.limit();
+        boolean isEof = windowStart + limit >= end;
+        boolean inQuotes = false;
+        int physicalLineStart = from;
+
+        int i = from;
+        while (i < limit) {
+            byte b = window.get(i);
+
+            if (b == QUOTE) {
+                if (i + 1 >= limit && !isEof) {
+                    return -1;
+                }
+                byte next = i + 1 < limit ? window.get(i + 1) : LF;
+
+                if (inQuotes && next == QUOTE) {
+                    // Escaped quote
+                    appendToCell(QUOTE);
+                    i += 2;
+                    continue;
+                }
+
+                inQuotes = !inQuotes;
+
+                // Like opencsv, keep a quote that is in the middle of a value
+                if (i - physicalLineStart > 2 && window.get(i - 1) != SEPARATOR
+                        && next != SEPARATOR && next != CR && next != LF) {
+                    if (cellLength > 0 && isCellBlank()) {
+                        cellLength = 0;
+                    } else {
+                        appendToCell(QUOTE);
+                    }
+                }
+                i++;
+            } else if (b == SEPARATOR && !inQuotes) {
+                endCell();
+                i++;
+            } else if (b == CR || b == LF) {
+                i++;
+                if (b == CR) {
+                    if (i >= limit && !isEof) {
+                        return -1;
+                    }
+                    if (i < limit && window.get(i) == LF) {
+                        i++;
+                    }
+                }
+
+                if (!inQuotes) {
+                    endCell();
+                    return i;
+                }
+
+                // The value continues on the next physical line
+                appendToCell(LF);
+                physicalLineStart = i;
+            } else {
+                appendToCell(b);
+                i++;
+            }
+        }
+
+        if (!isEof) {
+            return -1;
+        }
+
+        // Last line, without terminator
+        endCell();
+        return limit;
+    }
+
+
+    private void appendToCell(byte b) {
+        if (cellLength == cellBuffer.length) {
+            byte[] newBuffer = new byte[cellBuffer.length * 2];
+            System.arraycopy(cellBuffer, 0, newBuffer, 0, cellLength);
+            cellBuffer = newBuffer;
+        }
+        cellBuffer[cellLength++] = b;
+    }
+
+    private boolean isCellBlank() {
+        for (int i = 0; i < cellLength; i++) {
+            if (cellBuffer[i] != SPACE) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void endCell() {
+        cells.add(cellLength == 0 ? "" : new String(cellBuffer, 0, cellLength, charset));
+        cellLength = 0;
+    }
+}
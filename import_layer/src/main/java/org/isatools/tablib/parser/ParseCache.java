@@ -0,0 +1,385 @@
+/**
+
+ The ISAconverter, ISAvalidator & BII Management Tool are components of the ISA software suite (http://www.isa-tools.org)
+
+ Exhibit A
+ The ISAconverter, ISAvalidator & BII Management Tool are licensed under the Mozilla Public License (MPL) version
+ 1.1/GPL version 2.0/LGPL version 2.1
+
+ "The contents of this file are subject to the Mozilla Public License
+ Version 1.1 (the "License"). You may not use this file except in compliance with the License.
+ You may obtain copies of the Licenses at http://www.mozilla.org/MPL/MPL-1.1.html.
+
+ Software distributed under the License is distributed on an "AS IS"
+ basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ License for the specific language governing rights and limitations
+ under the License.
+
+ The Original Code is the ISAconverter, ISAvalidator & BII Management Tool.
+
+ The Initial Developer of the Original Code is the ISA Team (Eamonn Maguire, eamonnmag@gmail.com;
+ Philippe Rocca-Serra, proccaserra@gmail.com; Susanna-Assunta Sansone, sa.sanson@gmail.com;
+ http://www.isa-tools.org). All portions of the code written by the ISA Team are Copyright (c)
+ 2007-2011 ISA Team. All Rights Reserved.
+
+ Contributor(s):
+ Rocca-Serra P, Brandizi M, Maguire E, Sklyar N, Taylor C, Begley K, Field D,
+ Harris S, Hide W, Hofmann O, Neumann S, Sterk P, Tong W, Sansone SA. ISA software suite:
+ supporting standards-compliant experimental annotation and enabling curation at the community level.
+ Bioinformatics 2010;26(18):2354-6.
+
+ Alternatively, the contents of this file may be used under the terms of either the GNU General
+ Public License Version 2 or later (the "GPL") - http://www.gnu.org/licenses/gpl-2.0.html, or
+ the GNU Lesser General Public License Version 2.1 or later (the "LGPL") -
+ http://www.gnu.org/licenses/lgpl-2.1.html, in which case the provisions of the GPL
+ or the LGPL are applicable instead of those above. If you wish to allow use of your version
+ of this file only under the terms of either the GPL or the LGPL, and not to allow others to
+ use your version of this file under the terms of the MPL, indicate your decision by deleting
+ the provisions above and replace them with the notice and other provisions required by the
+ GPL or the LGPL. If you do not delete the provisions above, a recipient may use your version
+ of this file under the terms of any one of the MPL, the GPL or the LGPL.
+
+ Sponsors:
+ The ISA Team and the ISA software suite have been funded by the EU Carcinogenomics project
+ (http://www.carcinogenomics.eu), the UK BBSRC (http://www.bbsrc.ac.uk), the UK NERC-NEBC
+ (http://nebc.nerc.ac.uk) and in part by the EU NuGO consortium (http://www.nugo.org/everyone).
+
+ */
+
+package org.isatools.tablib.parser;
+
+import org.apache.log4j.Logger;
+import org.isatools.tablib.exceptions.TabInternalErrorException;
+import org.isatools.tablib.schema.*;
+
+import java.io.*;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+
+/**
+ * An on-disk cache of parsed files, used by {@link TabLoader#load(String, String, String)} when
+ * {@link TabLoader#setParseCache(ParseCache)} is set. The entries are keyed by the SHA-1 of the file content, of the
+ * format definition, of the charset the file is decoded with and of the cache version, so that an entry is reused only if nothing that affects the parsing
+ * has changed. An entry stores the section instances of a {@link FormatInstance}, with their starting lines, the
+ * fields found in the headers and the record values, in a compact binary format, where repeated values are written
+ * once.
+ * <p/>
+ * Problems with the cache are never fatal: they are logged and the file is parsed again. Entries are written to a
+ * temporary file first and then renamed, so the same cache directory can be shared by concurrent loaders.
+ */
+public class ParseCache {
+    protected static final Logger log = Logger.getLogger(ParseCache.class);
+
+    /**
+     * Change this when the layout of the cache files or the parsing semantics change, older entries will be ignored.
+     */
+    public static final int CACHE_VERSION = 1;
+    private static final int MAGIC = 0x54414243; // "TABC"
+    private static final String ENTRY_EXTENSION = ".tabcache";
+
+    /**
+     * Value codes in the entry files, see {@link #writeValue(DataOutputStream, String, Map)}
+     */
+    private static final int NULL_VALUE = 0, NEW_VALUE = 1, VALUE_REF_BASE = 2;
+
+    private final File cacheDir;
+
+
+    public ParseCache(File cacheDir) {
+        if (cacheDir == null) {
+            throw new TabInternalErrorException("ParseCache: null cache directory");
+        }
+        if (!cacheDir.isDirectory() && !cacheDir.mkdirs()) {
+            throw new TabInternalErrorException("ParseCache: cannot create the cache directory '" + cacheDir + "'");
+        }
+        this.cacheDir = cacheDir;
+    }
+
+    public File getCacheDir() {
+        return cacheDir;
+    }
+
+
+    /**
+     * The key for a file to be parsed with a format, decoding it with a charset. The same bytes decoded with another
+     * charset may give different values, so the charset is part of the key.
+     */
+    public String computeKey(File file, Format format, Charset charset) throws IOException {
+        return computeKey(new FileInputStream(file), format, charset);
+    }
+
+    /**
+     * Like {@link #computeKey(File, Format, Charset)}, but reads the file contents from a stream, e.g., from a
+     * {@link TabSource}. The stream is closed by this method.
+     */
+    public String computeKey(InputStream input, Format format, Charset charset) throws IOException {
+        String prefix = "v" + CACHE_VERSION + "\n" + charset.name() + "\n" + format.getId() + "\n"
+                + format.toString(true) + "\n";
+        return digest(prefix.getBytes("UTF-8"), input);
+    }
+
+    /**
+     * The SHA-1 digest of some bytes followed by the contents of a stream, as an hexadecimal string. This is used for
+     * the keys and it's available to detect changed files in other ways. The stream is closed by this method.
+     */
+    public static String digest(byte[] prefix, InputStream input) throws IOException {
+        MessageDigest digest = newDigest();
+        digest.update(prefix);
+
+        try {
+            byte[] buffer = new byte[64 * 1024];
+            for (int n; (n = input.read(buffer)) != -1; ) {
+                digest.update(buffer, 0, n);
+            }
+        }
+        finally {
+            input.close();
+        }
+
+        return toHex(digest.digest());
+    }
+
+    /**
+     * A new instance of the digest algorithm used by {@link #digest(byte[], InputStream)}, for those who need to
+     * hash the data while they're reading it.
+     */
+    public static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-1");
+        }
+        catch (NoSuchAlgorithmException ex) {
+            throw new TabInternalErrorException("ParseCache: SHA-1 not available: " + ex.getMessage(), ex);
+        }
+    }
+
+    /**
+     * The hash in the same form returned by {@link #digest(byte[], InputStream)}.
+     */
+    public static String toHex(byte[] hash) {
+        StringBuilder result = new StringBuilder();
+        for (byte b : hash) {
+            result.append(String.format("%02x", b));
+        }
+        return result.toString();
+    }
+
+
+    /**
+     * Rebuilds a format instance from the cache.
+     *
+     * @param loader used to get the format set instance and the section instances, via
+     *               {@link TabLoader#createSectionParser(Section, FormatInstance)}, so that its settings
+     *               (e.g.: {@link TabLoader#isColumnarMode()}) are honoured.
+     * @return the format instance or null if there is no valid entry for the key.
+     */
+    public FormatInstance get(String key, String fileId, Format format, TabLoader loader) {
+        File entryFile = getEntryFile(key);
+        if (!entryFile.isFile()) {
+            return null;
+        }
+
+        try {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(entryFile), 64 * 1024));
+            try {
+                FormatInstance result = readFormatInstance(in, fileId, format, loader);
+                if (result != null) {
+                    log.debug("ParseCache, '" + fileId + "' loaded from the cache entry " + key);
+                }
+                return result;
+            }
+            finally {
+                in.close();
+            }
+        }
+        catch (Exception ex) {
+            log.warn("ParseCache, cannot read the cache entry for '" + fileId + "', it will be parsed: " + ex.getMessage());
+            if (!entryFile.delete()) {
+                log.debug("ParseCache, cannot delete the bad cache entry '" + entryFile + "'");
+            }
+            return null;
+        }
+    }
+
+
+    /**
+     * Stores a format instance in the cache. Instances having values that are not strings (i.e., not coming from
+     * the parser) are not stored.
+     */
+    public void put(String key, FormatInstance formatInstance) {
+        File entryFile = getEntryFile(key);
+        File tempFile = null;
+        try {
+            tempFile = File.createTempFile(key, ".tmp", cacheDir);
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile), 64 * 1024));
+            boolean isWritten;
+            try {
+                isWritten = writeFormatInstance(out, formatInstance);
+            }
+            finally {
+                out.close();
+            }
+
+            if (isWritten && (tempFile.renameTo(entryFile) || entryFile.isFile())) {
+                log.debug("ParseCache, '" + formatInstance.getFileId() + "' stored in the cache entry " + key);
+            }
+        }
+        catch (IOException ex) {
+            log.warn("ParseCache, cannot store '" + formatInstance.getFileId() + "' in the cache: " + ex.getMessage());
+        }
+        finally {
+            if (tempFile != null && tempFile.exists() && !tempFile.delete()) {
+                log.debug("ParseCache, cannot delete the temporary file '" + tempFile + "'");
+            }
+        }
+    }
+
+
+    private File getEntryFile(String key) {
+        return new File(cacheDir, key + ENTRY_EXTENSION);
+    }
+
+
+    private boolean writeFormatInstance(DataOutputStream out, FormatInstance formatInstance) throws IOException {
+        Map<String, Integer> dictionary = new HashMap<String, Integer>();
+
+        out.writeInt(MAGIC);
+        out.writeInt(CACHE_VERSION);
+        writeValue(out, formatInstance.getFormat().getId(), dictionary);
+
+        List<SectionInstance> sectionInstances = formatInstance.getSectionInstances();
+        out.writeInt(sectionInstances.size());
+        for (SectionInstance sectionInstance : sectionInstances) {
+            writeValue(out, sectionInstance.getSectionId(), dictionary);
+            out.writeInt(sectionInstance.getStartingLine());
+
+            List<Field> fields = sectionInstance.getFields();
+            out.writeInt(fields.size());
+            for (Field field : fields) {
+                Map<String, String> attrs = field.getAttrs();
+                out.writeInt(attrs.size());
+                for (Map.Entry<String, String> attr : attrs.entrySet()) {
+                    writeValue(out, attr.getKey(), dictionary);
+                    writeValue(out, attr.getValue(), dictionary);
+                }
+            }
+
+            List<Record> records = sectionInstance.getRecords();
+            out.writeInt(records.size());
+            for (Record record : records) {
+                int size = record.size();
+                out.writeInt(size);
+                for (int i = 0; i < size; i++) {
+                    Object value = record.get(i);
+                    if (value != null && !(value instanceof String)) {
+                        log.debug("ParseCache, '" + formatInstance.getFileId() + "' has non-string values, not cached");
+                        return false;
+                    }
+                    writeValue(out, (String) value, dictionary);
+                }
+            }
+        }
+        return true;
+    }
+
+
+    private FormatInstance readFormatInstance(DataInputStream in, String fileId, Format format, TabLoader loader)
+            throws IOException {
+        List<String> dictionary = new ArrayList<String>();
+
+        if (in.readInt() != MAGIC || in.readInt() != CACHE_VERSION) {
+            throw new IOException("not a cache entry or wrong version");
+        }
+        if (!format.getId().equals(readValue(in, dictionary))) {
+            throw new IOException("the entry is about a different format");
+        }
+
+        FormatInstance formatInstance = new FormatInstance(format, loader.getFormatSetInstance());
+        formatInstance.setFileId(fileId);
+
+        for (int nsections = in.readInt(); nsections > 0; nsections--) {
+            String sectionId = readValue(in, dictionary);
+            Section section = format.getSection(sectionId);
+            if (section == null) {
+                throw new IOException("unknown section '" + sectionId + "'");
+            }
+
+            TabParser<SectionInstance> parser = loader.createSectionParser(section, formatInstance);
+            SectionInstance sectionInstance = parser instanceof RowSectionParser
+                    ? ((RowSectionParser) parser).getSectionInstance()
+                    : new SectionInstance(section, formatInstance);
+            sectionInstance.setStartingLine(in.readInt());
+
+            for (int nfields = in.readInt(); nfields > 0; nfields--) {
+                Map<String, String> attrs = new HashMap<String, String>();
+                for (int nattrs = in.readInt(); nattrs > 0; nattrs--) {
+                    String name = readValue(in, dictionary);
+                    attrs.put(name, readValue(in, dictionary));
+                }
+                String fieldId = attrs.get("id");
+                Field schemaField = fieldId == null ? null : section.getField(fieldId);
+                if (schemaField == null) {
+                    throw new IOException("unknown field '" + fieldId + "' in the section '" + sectionId + "'");
+                }
+                Field field = schemaField.clone();
+                field.setAttrs(attrs);
+                sectionInstance.addField(field);
+            }
+
+            for (int nrecords = in.readInt(); nrecords > 0; nrecords--) {
+                Record record = new Record(sectionInstance);
+                for (int i = 0, size = in.readInt(); i < size; i++) {
+                    record.set(i, readValue(in, dictionary));
+                }
+                sectionInstance.addRecord(record);
+            }
+
+            formatInstance.addSectionInstance(sectionInstance);
+        }
+
+        return formatInstance;
+    }
+
+
+    /**
+     * Strings are written the first time they're met and then referred by their position in the dictionary.
+     */
+    private static void writeValue(DataOutputStream out, String value, Map<String, Integer> dictionary)
+            throws IOException {
+        if (value == null) {
+            out.writeInt(NULL_VALUE);
+            return;
+        }
+        Integer ref = dictionary.get(value);
+        if (ref != null) {
+            out.writeInt(VALUE_REF_BASE + ref);
+            return;
+        }
+        dictionary.put(value, dictionary.size());
+        byte[] bytes = value.getBytes("UTF-8");
+        out.writeInt(NEW_VALUE);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readValue(DataInputStream in, List<String> dictionary) throws IOException {
+        int code = in.readInt();
+        if (code == NULL_VALUE) {
+            return null;
+        }
+        if (code == NEW_VALUE) {
+            byte[] bytes = new byte[in.readInt()];
+            in.readFully(bytes);
+            String value = new String(bytes, "UTF-8");
+            dictionary.add(value);
+            return value;
+        }
+        return dictionary.get(code - VALUE_REF_BASE);
+    }
+
+}
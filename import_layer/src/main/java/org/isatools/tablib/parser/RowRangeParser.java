@@ -0,0 +1,254 @@
+/**
+
+ The ISAconverter, ISAvalidator & BII Management Tool are components of the ISA software suite (http://www.isa-tools.org)
+
+ Exhibit A
+ The ISAconverter, ISAvalidator & BII Management Tool are licensed under the Mozilla Public License (MPL) version
+ 1.1/GPL version 2.0/LGPL version 2.1
+
+ "The contents of this file are subject to the Mozilla Public License
+ Version 1.1 (the "License"). You may not use this file except in compliance with the License.
+ You may obtain copies of the Licenses at http://www.mozilla.org/MPL/MPL-1.1.html.
+
+ Software distributed under the License is distributed on an "AS IS"
+ basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ License for the specific language governing rights and limitations
+ under the License.
+
+ The Original Code is the ISAconverter, ISAvalidator & BII Management Tool.
+
+ The Initial Developer of the Original Code is the ISA Team (Eamonn Maguire, eamonnmag@gmail.com;
+ Philippe Rocca-Serra, proccaserra@gmail.com; Susanna-Assunta Sansone, sa.sanson@gmail.com;
+ http://www.isa-tools.org). All portions of the code written by the ISA Team are Copyright (c)
+ 2007-2011 ISA Team. All Rights Reserved.
+
+ Contributor(s):
+ Rocca-Serra P, Brandizi M, Maguire E, Sklyar N, Taylor C, Begley K, Field D,
+ Harris S, Hide W, Hofmann O, Neumann S, Sterk P, Tong W, Sansone SA. ISA software suite:
+ supporting standards-compliant experimental annotation and enabling curation at the community level.
+ Bioinformatics 2010;26(18):2354-6.
+
+ Alternatively, the contents of this file may be used under the terms of either the GNU General
+ Public License Version 2 or later (the "GPL") - http://www.gnu.org/licenses/gpl-2.0.html, or
+ the GNU Lesser General Public License Version 2.1 or later (the "LGPL") -
+ http://www.gnu.org/licenses/lgpl-2.1.html, in which case the provisions of the GPL
+ or the LGPL are applicable instead of those above. If you wish to allow use of your version
+ of this file only under the terms of either the GPL or the LGPL, and not to allow others to
+ use your version of this file under the terms of the MPL, indicate your decision by deleting
+ the provisions above and replace them with the notice and other provisions required by the
+ GPL or the LGPL. If you do not delete the provisions above, a recipient may use your version
+ of this file under the terms of any one of the MPL, the GPL or the LGPL.
+
+ Sponsors:
+ The ISA Team and the ISA software suite have been funded by the EU Carcinogenomics project
+ (http://www.carcinogenomics.eu), the UK BBSRC (http://www.bbsrc.ac.uk), the UK NERC-NEBC
+ (http://nebc.nerc.ac.uk) and in part by the EU NuGO consortium (http://www.nugo.org/everyone).
+
+ */
+
+package org.isatools.tablib.parser;
+
+import org.apache.log4j.Logger;
+import org.isatools.isatab_nano.NANOFormatWrapper;
+import org.isatools.tablib.schema.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+
+/**
+ * Parses a large file made of a single section spanned over rows and with the section header omitted (e.g.: an
+ * ISATAB assay file), using multiple threads. After the header row, the file is split into ranges of whole records
+ * by means of {@link MappedFileTabTokenizer#findRecordBoundaries(File, long, long)}, the ranges are tokenized and
+ * parsed concurrently, and the resulting records are added to the section instance in the file order.
+ * <p/>
+ * The result is the same that {@link TabLoader} would produce in {@link TabLoader#isStreamingMode() streaming mode}.
+ * When the file has a different layout (e.g.: explicit section headers, more sections), {@link #parse(String, Format)}
+ * returns null and the file must be parsed the usual way.
+ */
+public class RowRangeParser {
+    protected static final Logger log = Logger.getLogger(RowRangeParser.class);
+
+    private final TabLoader loader;
+    private final File file;
+    private final Charset charset;
+    private final long rangeSize;
+    private final int nthreads;
+
+    /**
+     * @param loader    used to create the section parser and the format instance.
+     * @param rangeSize the approximate size in bytes of the record ranges the file is split into.
+     * @param nthreads  the max number of ranges parsed at the same time.
+     */
+    public RowRangeParser(TabLoader loader, File file, Charset charset, long rangeSize, int nthreads) {
+        this.loader = loader;
+        this.file = file;
+        this.charset = charset;
+        this.rangeSize = rangeSize;
+        this.nthreads = nthreads;
+    }
+
+
+    /**
+     * What comes from the parsing of a range of records.
+     */
+    private static class RowRange {
+        private final List<Record> records = new ArrayList<Record>();
+        /**
+         * There is at least a line that isn't blank or a comment
+         */
+        private boolean hasLines = false;
+        /**
+         * A line that closes the section was met
+         */
+        private boolean isSectionEnded = false;
+        /**
+         * Something other than blank lines or comments follows the end of the section
+         */
+        private boolean hasLinesAfterEnd = false;
+    }
+
+
+    /**
+     * @return the format instance, with the single section instance, or null if the file has not the layout described
+     *         above.
+     */
+    public FormatInstance parse(String fileId, Format format) throws IOException {
+        FormatInstance formatInstance = new FormatInstance(format, loader.getFormatSetInstance());
+        formatInstance.setFileId(fileId);
+
+        // Parse the header row and find where the records begin
+        //
+        RowSectionParser parser = null;
+        int sectionStartingLine = -1;
+        long dataStart = -1;
+
+        MappedFileTabTokenizer headTokenizer =
+                new MappedFileTabTokenizer(file, charset, MappedFileTabTokenizer.DEFAULT_WINDOW_SIZE);
+        try {
+            TabCsvReader csvrdr = new TabCsvReader(headTokenizer, format);
+            for (String[] csvLine; (csvLine = csvrdr.readNext()) != null; ) {
+                if (TabCsvReader.isCommentLine(csvLine)) {
+                    continue;
+                }
+
+                if (parser == null) {
+                    if (TabCsvReader.isBlankLine(csvLine)) {
+                        continue;
+                    }
+                    if (!TabCsvReader.isHeaderLine(csvLine)) {
+                        return null;
+                    }
+                    Section section = format.getSectionByHeader(csvLine[0], false);
+                    if (section == null || !"true".equals(section.getAttr("is-header-omitted"))) {
+                        return null;
+                    }
+                    TabParser<SectionInstance> sectionParser = loader.createSectionParser(section, formatInstance);
+                    if (!(sectionParser instanceof RowSectionParser) || !((RowSectionParser) sectionParser).isStreamable()) {
+                        return null;
+                    }
+                    parser = (RowSectionParser) sectionParser;
+                    sectionStartingLine = csvrdr.getLastReadLineIndex();
+                    continue;
+                }
+
+                // When the header is generated by TabCsvReader, the header row doesn't require a new read. Otherwise
+                // the header was explicit in the file and the section follows different rules
+                if (csvrdr.getLastReadLineIndex() != sectionStartingLine || TabCsvReader.isBlankLine(csvLine)) {
+                    return null;
+                }
+                NANOFormatWrapper.processFileHeader(csvLine);
+                parser.parseHeaderLine(csvLine);
+                dataStart = headTokenizer.getPosition();
+                break;
+            }
+        }
+        finally {
+            headTokenizer.close();
+        }
+
+        if (dataStart < 0) {
+            return null;
+        }
+
+        // Parse the record ranges and merge them
+        //
+        List<Long> boundaries = MappedFileTabTokenizer.findRecordBoundaries(file, dataStart, rangeSize);
+        List<Callable<RowRange>> tasks = new ArrayList<Callable<RowRange>>();
+        for (int i = 1; i < boundaries.size(); i++) {
+            tasks.add(createRangeTask(format, parser, boundaries.get(i - 1), boundaries.get(i)));
+        }
+        log.debug("RowRangeParser, parsing '" + fileId + "' in " + tasks.size() + " ranges");
+
+        SectionInstance sectionInstance = parser.getSectionInstance();
+        boolean isSectionEnded = false;
+        for (RowRange range : TabLoader.runTasks(tasks, nthreads)) {
+            if (range.hasLinesAfterEnd || isSectionEnded && range.hasLines) {
+                log.debug("RowRangeParser, '" + fileId + "' has lines after the section end, cannot be parsed in ranges");
+                return null;
+            }
+            for (Record record : range.records) {
+                sectionInstance.addRecord(record);
+            }
+            isSectionEnded |= range.isSectionEnded;
+        }
+
+        sectionInstance.setStartingLine(sectionStartingLine);
+        formatInstance.addSectionInstance(sectionInstance);
+        return formatInstance;
+    }
+
+
+    /**
+     * Parses the lines between two record boundaries. The section ends as it would with {@link TabCsvReader}, i.e.:
+     * at a blank line, or after a line that looks like a header.
+     */
+    private Callable<RowRange> createRangeTask(
+            final Format format, final RowSectionParser parser, final long start, final long end) {
+        return new Callable<RowRange>() {
+            public RowRange call() throws Exception {
+                RowRange range = new RowRange();
+                MappedFileTabTokenizer tokenizer =
+                        new MappedFileTabTokenizer(file, charset, MappedFileTabTokenizer.DEFAULT_WINDOW_SIZE, start, end);
+                try {
+                    for (String[] line; (line = tokenizer.readNext()) != null; ) {
+                        if (TabCsvReader.isCommentLine(line)) {
+                            continue;
+                        }
+                        boolean isBlank = TabCsvReader.isBlankLine(line);
+                        if (range.isSectionEnded) {
+                            if (!isBlank) {
+                                range.hasLinesAfterEnd = true;
+                                break;
+                            }
+                            continue;
+                        }
+                        if (isBlank) {
+                            range.isSectionEnded = true;
+                            continue;
+                        }
+
+                        range.hasLines = true;
+                        boolean isLastLine = TabCsvReader.isHeaderLine(line) || format.getSectionByField(line[0]) != null;
+
+                        NANOFormatWrapper.processFileHeader(line);
+                        Record record = parser.parseCsvLine(line);
+                        if (record != null) {
+                            range.records.add(record);
+                        }
+                        range.isSectionEnded = isLastLine;
+                    }
+                }
+                finally {
+                    tokenizer.close();
+                }
+                return range;
+            }
+        };
+    }
+
+}
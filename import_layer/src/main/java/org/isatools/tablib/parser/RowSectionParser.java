@@ -56,6 +56,7 @@ import org.isatools.tablib.exceptions.TabValidationException;
 import org.isatools.tablib.schema.*;
 import uk.ac.ebi.bioinvindex.utils.i18n;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 
@@ -69,12 +70,49 @@ public class RowSectionParser implements TabParser<SectionInstance> {
     protected SectionInstance sectionInstance;
     protected static final Logger log = Logger.getLogger(RowSectionParser.class);
 
+    /**
+     * Used in the streaming mode, where the columns with an empty header cannot be removed from lines not yet read.
+     * For each field in the section instance, it keeps the corresponding column in the input lines.
+     */
+    private int[] lineColumns = null;
+
 
     public RowSectionParser(Section section, FormatInstance formatInstance) {
         this.sectionInstance = new SectionInstance(section, formatInstance);
     }
 
 
+    /**
+     * The section instance the parser is filling.
+     */
+    public SectionInstance getSectionInstance() {
+        return sectionInstance;
+    }
+
+    /**
+     * Allows to choose the section instance implementation to be filled by the parser, e.g.:
+     * {@link ColumnarSectionInstance}. This must be called before parsing anything.
+     */
+    public void setSectionInstance(SectionInstance sectionInstance) {
+        if (sectionInstance == null || sectionInstance.getSection() != this.sectionInstance.getSection()) {
+            throw new TabInternalErrorException(
+                    "RowSectionParser.setSectionInstance(): the new section instance must be about the section "
+                            + this.sectionInstance.getSectionId()
+            );
+        }
+        this.sectionInstance = sectionInstance;
+    }
+
+    /**
+     * true if this parser can work in streaming mode, i.e.: {@link #parseHeaderLine(String[])} and
+     * {@link #parseCsvLine(String[])} can be used to process a line at a time. This is possible only
+     * for sections with values spanned over rows.
+     */
+    public boolean isStreamable() {
+        return true;
+    }
+
+
     /**
      * Parses a CSV header line and creates the corresponding resulting schema in the section
      * (i.e.: a set of fields with positions)
@@ -204,4 +242,82 @@ public class RowSectionParser implements TabParser<SectionInstance> {
         return sectionInstance;
     }
 
+
+    /**
+     * The streaming version of {@link #parseHeaders(List)}. Parses the header line only and sets up the fields of
+     * the section instance. Columns with empty header are ignored by {@link #parseCsvLine(String[])}, since they
+     * cannot be removed from the lines that are still to be read.
+     */
+    public List<Field> parseHeaderLine(String[] headers) {
+        Section section = sectionInstance.getSection();
+        String sectionId = section.getId();
+
+        log.trace("Headers for section " + sectionId + " (streaming mode): " + Arrays.toString(headers));
+
+        List<Integer> columns = new ArrayList<Integer>();
+
+        for (int j = 0; j < headers.length; j++) {
+            String header = StringUtils.trimToNull(headers[j]);
+
+            if (header == null) {
+                log.warn(i18n.msg("empty_column", j));
+                continue;
+            }
+
+            log.trace("Working on header " + j + ":" + header);
+            Field field = section.getFieldByHeader(header, false);
+
+            if (field == null) {
+                throw new TabValidationException(i18n.msg("unexpected_field_in_section_error", header, sectionId));
+            }
+
+            field = field.parseHeader(header, columns.size(), false);
+            sectionInstance.addField(field);
+            columns.add(j);
+        }
+
+        lineColumns = new int[columns.size()];
+        for (int i = 0; i < lineColumns.length; i++) {
+            lineColumns[i] = columns.get(i);
+        }
+
+        return sectionInstance.getFields();
+    }
+
+
+    /**
+     * Builds a record from a single data line, in streaming mode. {@link #parseHeaderLine(String[])} must be
+     * invoked first. The record is linked to the section instance, but it is not added to it, the caller decides
+     * what to do with it.
+     *
+     * @return the new record or null if the line yields an empty record.
+     */
+    public Record parseCsvLine(String[] line) {
+        if (lineColumns == null) {
+            throw new TabInternalErrorException(
+                    "parseCsvLine(): the headers for the section " + sectionInstance.getSectionId() + " were not parsed yet"
+            );
+        }
+
+        if (line == null) {
+            return null;
+        }
+
+        Record record = new Record(sectionInstance);
+        for (int icol = 0; icol < lineColumns.length; icol++) {
+            int linecol = lineColumns[icol];
+            if (linecol >= line.length) {
+                log.debug("The line is too short, ignoring all from col #" + icol);
+                break;
+            }
+            record.set(icol, line[linecol]);
+        }
+
+        if (record.isNull()) {
+            log.trace("Parsing records for section " + sectionInstance.getSectionId() + ": empty record");
+            return null;
+        }
+        return record;
+    }
+
 }
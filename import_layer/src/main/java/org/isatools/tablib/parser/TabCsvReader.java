@@ -48,7 +48,6 @@
 
 package org.isatools.tablib.parser;
 
-import au.com.bytecode.opencsv.CSVReader;
 import org.apache.commons.lang.ArrayUtils;
 import org.apache.commons.lang.StringUtils;
 import org.apache.log4j.Logger;
@@ -59,7 +58,7 @@ import java.io.IOException;
 import java.io.Reader;
 
 /**
- * An extension of {@link CSVReader} that does some pre-processing steps on TAB formats.
+ * A reader of TAB formats that does some pre-processing steps on the lines coming from a {@link TabTokenizer}.
  * The main function played by this class is the following. For the lines:
  * <p/>
  * <pre>
@@ -80,11 +79,14 @@ import java.io.Reader;
  * where the header line comes from the "header" attribute in the defining XML. Plus, it does a number of other tasks,
  * such as counting the lines read (from the underlining reader).
  * <p/>
+ * The actual splitting of the input into lines and cells is delegated to the tokenizer, by default
+ * {@link CsvReaderTokenizer}, which is based on opencsv.
+ * <p/>
  * <p><b>date</b>: Sep 8, 2008</p>
  *
  * @author brandizi
  */
-public class TabCsvReader extends CSVReader {
+public class TabCsvReader {
     private static enum Status {
         /**
          * initial state, waiting for omitted-header section, goes to: here, next ADD_BLANK_LINE_TO_HEADER
@@ -109,6 +111,7 @@ public class TabCsvReader extends CSVReader {
         ADD_BLANK_LINE_TO_HEADER
     }
 
+    private final TabTokenizer tokenizer;
     private final Format format;
     private Status status = Status.NORMAL;
     private String[] lastRead = null;
@@ -120,12 +123,15 @@ public class TabCsvReader extends CSVReader {
 
 
     public TabCsvReader(Reader reader, Format format) {
-        super(reader, '\t', '"', 0);
+        this(new CsvReaderTokenizer(reader), format);
+    }
+
+    public TabCsvReader(TabTokenizer tokenizer, Format format) {
+        this.tokenizer = tokenizer;
         this.format = format;
     }
 
 
-    @Override
     public String[] readNext() throws IOException {
         String[] result = null;
 
@@ -134,7 +140,7 @@ public class TabCsvReader extends CSVReader {
         switch (status) {
             case NORMAL:
                 // Keep reading until we meet the field of a section that has no header
-                String[] next = super.readNext();
+                String[] next = tokenizer.readNext();
                 lastReadLineIndex++;
 
                 if (isCommentLine(next)) {
@@ -179,7 +185,7 @@ public class TabCsvReader extends CSVReader {
                 break;
 
             case INSIDE_HEADER_OMITTED_SECTION:
-                next = super.readNext();
+                next = tokenizer.readNext();
                 lastReadLineIndex++;
                 // We stay inside the header-omitted section until we meet a blank line, or the header of the next section,
                 // or a field which does not belong to the current header-omitted section
@@ -216,6 +222,13 @@ public class TabCsvReader extends CSVReader {
         return result;
     }
 
+    /**
+     * Closes the underlining tokenizer.
+     */
+    public void close() throws IOException {
+        tokenizer.close();
+    }
+
     /**
      * @return The index (real index in the underlining reader) of the last read line.
      */
@@ -53,16 +53,22 @@ import org.apache.log4j.Logger;
 import org.isatools.isatab.ISATABPersister;
 import org.isatools.isatab_nano.NANOFormatWrapper;
 import org.isatools.tablib.exceptions.TabInternalErrorException;
+import org.isatools.tablib.exceptions.TabMissingResourceException;
 import org.isatools.tablib.exceptions.TabStructureError;
+import org.isatools.tablib.exceptions.TabValidationException;
 import org.isatools.tablib.schema.*;
+import org.isatools.tablib.utils.TaskRunner;
+import org.isatools.tablib.utils.logging.TabErrorCollector;
 import org.isatools.tablib.utils.logging.TabNDC;
 import uk.ac.ebi.bioinvindex.utils.i18n;
 
 import java.io.*;
+import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
 
 
 /**
@@ -77,9 +83,20 @@ import java.util.Map;
 public class TabLoader {
     private FormatSetInstance formatSetInstance;
     protected String basePath = "";
+    private TabSource source = null;
+
+    private boolean isStreamingMode = false;
+    private RecordConsumer recordConsumer = null;
+    private boolean isMemoryMappedMode = false;
+    private boolean isColumnarMode = false;
+    private boolean isParallelMode = false;
+    private int parallelism = Runtime.getRuntime().availableProcessors();
+    private long rowRangeSize = 0;
+    private ParseCache parseCache = null;
+    private TabErrorCollector errorCollector = null;
 
     private static enum ParserState {
-        WAITING_SECTION_BEGIN, READING_SECTION_LINES
+        WAITING_SECTION_BEGIN, READING_SECTION_LINES, SKIPPING_SECTION_LINES
     }
 
     protected static final Logger log = Logger.getLogger(TabLoader.class);
@@ -101,6 +118,24 @@ public class TabLoader {
         this.basePath = basePath;
     }
 
+    /**
+     * @param schema the schema  to be used to parse the CSV files
+     * @param source where to read the submission files from, e.g., a {@link ZipTabSource}. The base path is set to
+     *               {@link TabSource#getLocation()}.
+     */
+    public TabLoader(FormatSet schema, TabSource source) {
+        this(schema, source.getLocation());
+        this.source = source;
+    }
+
+    /**
+     * Where the submission files are read from by {@link #load(String, String)}. If this is null, the files are read
+     * from the base path. The loader doesn't close the source, the caller has to.
+     */
+    public TabSource getSource() {
+        return source;
+    }
+
     /**
      * The result of the parsing
      */
@@ -109,26 +144,437 @@ public class TabLoader {
     }
 
     /**
-     * Uses the base path
+     * In streaming mode, the sections with values spanned over rows are parsed a line at a time, each record being
+     * built as soon as its line is read, rather than accumulating all the lines of the section first. Sections spanned
+     * over columns are not affected, since they need to be transposed. Default is false.
+     */
+    public boolean isStreamingMode() {
+        return isStreamingMode;
+    }
+
+    public void setStreamingMode(boolean isStreamingMode) {
+        this.isStreamingMode = isStreamingMode;
+    }
+
+    /**
+     * If this is set, the records parsed in streaming mode are passed to this consumer, instead of being added to
+     * their section instance. This way the section instances returned by the loader only contain the fields and the
+     * memory needed to parse a section doesn't depend on the number of rows. Setting a non-null consumer implies the
+     * {@link #isStreamingMode() streaming mode}.
+     */
+    public RecordConsumer getRecordConsumer() {
+        return recordConsumer;
+    }
+
+    public void setRecordConsumer(RecordConsumer recordConsumer) {
+        this.recordConsumer = recordConsumer;
+        if (recordConsumer != null) {
+            this.isStreamingMode = true;
+        }
+    }
+
+    /**
+     * If true, the files read by {@link #load(String, String, String)} are memory-mapped and tokenized by means of
+     * {@link MappedFileTabTokenizer}, instead of going through opencsv. This is usually faster on large files.
+     * The setting is ignored when the default charset isn't supported by the mapped tokenizer. Default is false.
+     */
+    public boolean isMemoryMappedMode() {
+        return isMemoryMappedMode;
+    }
+
+    public void setMemoryMappedMode(boolean isMemoryMappedMode) {
+        this.isMemoryMappedMode = isMemoryMappedMode;
+    }
+
+    /**
+     * In columnar mode, the sections are loaded into instances of {@link ColumnarSectionInstance}, which store
+     * the values by column and with dictionary encoding. This saves a lot of memory with large tables having many
+     * repeated values. Combined with {@link #isStreamingMode() the streaming mode}, no intermediate list of records is
+     * built either. Default is false.
+     */
+    public boolean isColumnarMode() {
+        return isColumnarMode;
+    }
+
+    public void setColumnarMode(boolean isColumnarMode) {
+        this.isColumnarMode = isColumnarMode;
+    }
+
+    /**
+     * In parallel mode, loaders that read several independent files (e.g.: the study and assay files in ISATAB) parse
+     * them concurrently, by means of {@link #runLoadTasks(List)}. The results are merged in the same order that would
+     * be used in sequential mode. Default is false.
+     */
+    public boolean isParallelMode() {
+        return isParallelMode;
+    }
+
+    public void setParallelMode(boolean isParallelMode) {
+        this.isParallelMode = isParallelMode;
+    }
+
+    /**
+     * The max number of files loaded at the same time in {@link #isParallelMode() parallel mode}. Default is the
+     * number of available processors.
+     */
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    public void setParallelism(int parallelism) {
+        if (parallelism < 1) {
+            throw new TabInternalErrorException("TabLoader, parallelism must be at least 1, got " + parallelism);
+        }
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * When this is greater than 0, large files made of a single section spanned over rows, with omitted section
+     * header (e.g.: ISATAB assay files), are split into ranges of records of about this size (in bytes), which are
+     * parsed in parallel with up to {@link #getParallelism()} threads, see {@link RowRangeParser}. Only files of at least
+     * two ranges are split. This is independent of {@link #isParallelMode()}, it is not used with a
+     * {@link #getRecordConsumer() record consumer} or when the default charset isn't supported by
+     * {@link MappedFileTabTokenizer}. Default is 0, i.e., files are always parsed by a single thread.
+     */
+    public long getRowRangeSize() {
+        return rowRangeSize;
+    }
+
+    public void setRowRangeSize(long rowRangeSize) {
+        this.rowRangeSize = rowRangeSize;
+    }
+
+    /**
+     * If set, {@link #load(String, String, String)} looks up the files in this cache before parsing them, and stores
+     * the files it parses. Not used with a {@link #getRecordConsumer() record consumer}. Default is null.
+     */
+    public ParseCache getParseCache() {
+        return parseCache;
+    }
+
+    public void setParseCache(ParseCache parseCache) {
+        this.parseCache = parseCache;
+    }
+
+    /**
+     * If set, the loader works in collect-all-errors mode: recoverable errors are added to this collector and the
+     * loading goes ahead, rather than throwing an exception at the first error. A section with a wrong header or
+     * that cannot be parsed is skipped up to the next blank line, a file that is missing or cannot be parsed
+     * by a {@link #createLoadTask(String, String) loading task} is skipped. The default is null, i.e., the
+     * first error is thrown.
+     */
+    public TabErrorCollector getErrorCollector() {
+        return errorCollector;
+    }
+
+    public void setErrorCollector(TabErrorCollector errorCollector) {
+        this.errorCollector = errorCollector;
+    }
+
+    /**
+     * Gets the parser for a section via {@link Section#getParser(FormatInstance)} and, in {@link #isColumnarMode()
+     * columnar mode}, makes it fill a {@link ColumnarSectionInstance}.
+     */
+    protected TabParser<SectionInstance> createSectionParser(Section section, FormatInstance formatInstance) {
+        TabParser<SectionInstance> parser = section.getParser(formatInstance);
+        if (isColumnarMode && parser instanceof RowSectionParser) {
+            ((RowSectionParser) parser).setSectionInstance(new ColumnarSectionInstance(section, formatInstance));
+        }
+        return parser;
+    }
+
+    /**
+     * Creates the tokenizer used by {@link #load(String, String, String)} to read a file. Depending on
+     * {@link #isMemoryMappedMode()}, returns either a {@link MappedFileTabTokenizer} or a {@link CsvReaderTokenizer}.
+     * Extensions may override this to plug in a different tokenizer.
+     */
+    protected TabTokenizer createTokenizer(File file) throws IOException {
+        if (isMemoryMappedMode && MappedFileTabTokenizer.isSupportedCharset(Charset.defaultCharset())) {
+            return new MappedFileTabTokenizer(file);
+        }
+        return new CsvReaderTokenizer(new BufferedReader(new FileReader(file)));
+    }
+
+    /**
+     * Uses the {@link #getSource() source} if it's set, the base path otherwise. Files in a source that are not on
+     * the local disk (e.g.: in a ZIP archive) are streamed through {@link CsvReaderTokenizer}, without extracting
+     * them.
      */
     public FormatInstance load(String fileId, String formatId) throws IOException {
-        return load(basePath, fileId, formatId);
+        return doLoad(fileId, formatId, errorCollector);
+    }
+
+    private FormatInstance doLoad(String fileId, String formatId, TabErrorCollector errors) throws IOException {
+        if (source == null) {
+            return load(new File(basePath + "/" + fileId), fileId, formatId, errors);
+        }
+        File localFile = source.getLocalFile(fileId);
+        if (localFile != null) {
+            return load(localFile, fileId, formatId, errors);
+        }
+        return loadFromSource(fileId, formatId, errors);
     }
 
     /**
      * Loads a file which is an instance of formatId, assigns fileId to the result ({@link FormatInstance#getFileId()})
      */
     public FormatInstance load(String prefix, String fileId, String formatId) throws IOException {
-        String filePath = prefix + "/" + fileId;
+        return load(new File(prefix + "/" + fileId), fileId, formatId, errorCollector);
+    }
+
+    private FormatInstance load(File file, String fileId, String formatId, TabErrorCollector errors)
+            throws IOException {
         TabNDC ndc = TabNDC.getInstance();
         ndc.pushFormat(formatId, formatId, fileId);
-        log.info("TabLoader, loading format: " + formatId + " from " + filePath);
-        BufferedReader reader = new BufferedReader(new FileReader(new File(filePath)));
-        FormatInstance result = parse(fileId, reader, formatId);
+        log.info("TabLoader, loading format: " + formatId + " from " + file.getPath());
+        Format format = formatSetInstance.getFormatSet().getFormat(formatId);
+        FormatInstance result = null;
+        Charset charset = Charset.defaultCharset();
+
+        String cacheKey = null;
+        if (parseCache != null && recordConsumer == null && format != null) {
+            cacheKey = parseCache.computeKey(file, format, charset);
+            result = parseCache.get(cacheKey, fileId, format, this);
+            if (result != null) {
+                ndc.popTabDescriptor();
+                return result;
+            }
+        }
+
+        if (rowRangeSize > 0 && recordConsumer == null && errors == null && format != null && parallelism > 1
+                && file.length() >= 2 * rowRangeSize && MappedFileTabTokenizer.isSupportedCharset(charset)) {
+            result = new RowRangeParser(this, file, charset, rowRangeSize, parallelism).parse(fileId, format);
+        }
+
+        int nerrors = errors == null ? 0 : errors.size();
+        if (result == null) {
+            TabTokenizer tokenizer = createTokenizer(file);
+            try {
+                result = parse(fileId, tokenizer, format, errors);
+            }
+            finally {
+                tokenizer.close();
+            }
+        }
+
+        // A file with errors was loaded partially, don't cache it
+        if (cacheKey != null && (errors == null || errors.size() == nerrors)) {
+            parseCache.put(cacheKey, result);
+        }
         ndc.popTabDescriptor();
         return result;
     }
 
+    /**
+     * Loads a file from a {@link #getSource() source} that doesn't have it on the local disk.
+     */
+    private FormatInstance loadFromSource(String fileId, String formatId, TabErrorCollector errors)
+            throws IOException {
+        TabNDC ndc = TabNDC.getInstance();
+        ndc.pushFormat(formatId, formatId, fileId);
+        log.info("TabLoader, loading format: " + formatId + " from " + source.getLocation() + ":" + fileId);
+        Format format = formatSetInstance.getFormatSet().getFormat(formatId);
+        FormatInstance result = null;
+
+        String cacheKey = null;
+        if (parseCache != null && recordConsumer == null && format != null) {
+            cacheKey = parseCache.computeKey(source.open(fileId), format, Charset.defaultCharset());
+            result = parseCache.get(cacheKey, fileId, format, this);
+            if (result != null) {
+                ndc.popTabDescriptor();
+                return result;
+            }
+        }
+
+        int nerrors = errors == null ? 0 : errors.size();
+        TabTokenizer tokenizer = openTokenizer(fileId);
+        try {
+            result = parse(fileId, tokenizer, format, errors);
+        }
+        finally {
+            tokenizer.close();
+        }
+
+        // A file with errors was loaded partially, don't cache it
+        if (cacheKey != null && (errors == null || errors.size() == nerrors)) {
+            parseCache.put(cacheKey, result);
+        }
+        ndc.popTabDescriptor();
+        return result;
+    }
+
+    /**
+     * A tokenizer for a file in the {@link #getSource() source}, or in the base path, if the source is null. Files
+     * available on the local disk go through {@link #createTokenizer(File)}.
+     */
+    protected TabTokenizer openTokenizer(String fileId) throws IOException {
+        if (source == null) {
+            return createTokenizer(new File(basePath + "/" + fileId));
+        }
+        File localFile = source.getLocalFile(fileId);
+        if (localFile != null) {
+            return createTokenizer(localFile);
+        }
+        return new CsvReaderTokenizer(new BufferedReader(new InputStreamReader(source.open(fileId))));
+    }
+
+
+    /**
+     * Checks if the file (in the source or in the base path) is compatible with the format, by means of a {@link FormatProbe}, i.e.,
+     * without parsing the whole file.
+     *
+     * @return null if the file headers are compatible with the format, the reason why they're not otherwise.
+     */
+    public String probe(String fileId, String formatId) throws IOException {
+        Format format = formatSetInstance.getFormatSet().getFormat(formatId);
+        if (format == null) {
+            throw new TabInternalErrorException("probe(): unknown format '" + formatId + "'");
+        }
+        TabTokenizer tokenizer = openTokenizer(fileId);
+        try {
+            return new FormatProbe(format).probe(tokenizer);
+        }
+        finally {
+            tokenizer.close();
+        }
+    }
+
+
+    /**
+     * A task that invokes {@link #load(String, String)}, to be used with {@link #runLoadTasks(List)}.
+     */
+    protected Callable<FormatInstance> createLoadTask(final String fileId, final String formatId) {
+        return new FileLoadTask(fileId) {
+            protected FormatInstance loadFile() throws Exception {
+                return loadAs(formatId);
+            }
+        };
+    }
+
+    /**
+     * A task that loads a single file, to be used with {@link #runLoadTasks(List)}. In
+     * {@link #getErrorCollector() collect-all-errors mode}, the task returns null when the file is missing or cannot
+     * be loaded. Every task has its own collector, which {@link #runLoadTasks(List)} merges into the loader's one,
+     * so that the errors are reported in task order, whatever the order the tasks are actually run.
+     */
+    protected abstract class FileLoadTask implements Callable<FormatInstance> {
+        protected final String fileId;
+        private final TabErrorCollector errors = new TabErrorCollector();
+
+        protected FileLoadTask(String fileId) {
+            this.fileId = fileId;
+        }
+
+        /**
+         * Does the job, by means of {@link #loadAs(String)} or {@link #loadStrictly(String)}.
+         */
+        protected abstract FormatInstance loadFile() throws Exception;
+
+        /**
+         * Loads the file, collecting the errors if the loader is in collect-all-errors mode.
+         */
+        protected FormatInstance loadAs(String formatId) throws IOException {
+            return doLoad(fileId, formatId, errorCollector == null ? null : errors);
+        }
+
+        /**
+         * Loads the file throwing the first error, whatever the loader mode is. This is useful when there is some
+         * fall back for a file that doesn't comply with the format.
+         */
+        protected FormatInstance loadStrictly(String formatId) throws IOException {
+            return doLoad(fileId, formatId, null);
+        }
+
+        public FormatInstance call() throws Exception {
+            if (errorCollector == null) {
+                return loadFile();
+            }
+
+            TabNDC ndc = TabNDC.getInstance();
+            int ndcDepth = ndc.getTabDescriptors().size();
+            try {
+                return loadFile();
+            }
+            catch (FileNotFoundException ex) {
+                reportFileError("missing_file", ex);
+            }
+            catch (TabMissingResourceException ex) {
+                reportFileError("missing_file", ex);
+            }
+            catch (TabValidationException ex) {
+                reportFileError("invalid_file", ex);
+            }
+            catch (IOException ex) {
+                reportFileError("io_error", ex);
+            }
+            // The failed loading didn't clean up its logging context
+            while (ndc.getTabDescriptors().size() > ndcDepth) {
+                ndc.popTabDescriptor();
+            }
+            return null;
+        }
+
+        private void reportFileError(String rule, Exception ex) {
+            log.error("Error while loading the file '" + fileId + "': " + ex.getMessage());
+            errors.add(fileId, -1, -1, rule, ex.getMessage(), ex);
+        }
+    }
+
+
+    /**
+     * Runs a set of loading tasks and returns their results in the same order as the tasks. In
+     * {@link #isParallelMode() parallel mode}, the tasks are run on a pool of at most {@link #getParallelism()}
+     * threads, else they're just run one after the other in the current thread. The tasks must not change the
+     * state of the loader (e.g.: they shouldn't add the loaded instances to {@link #getFormatSetInstance()}, the caller
+     * should do it with the results).
+     * <p/>
+     * If some task fails, the exception of the first failed task (in task order) is re-thrown, as it would happen in
+     * sequential mode, the remaining tasks are cancelled. In {@link #getErrorCollector() collect-all-errors mode},
+     * the {@link FileLoadTask}s don't fail for a recoverable error, they return null
+     * and their errors are added to the collector here, in task order.
+     */
+    protected <T> List<T> runLoadTasks(List<? extends Callable<T>> tasks) throws IOException {
+        List<T> results = runTasks(tasks, isParallelMode ? parallelism : 1);
+        if (errorCollector != null) {
+            for (Callable<T> task : tasks) {
+                if (task instanceof FileLoadTask) {
+                    errorCollector.addAll(((FileLoadTask) task).errors);
+                }
+            }
+        }
+        return results;
+    }
+
+
+    /**
+     * The implementation of {@link #runLoadTasks(List)}, which uses up to nthreads threads, via {@link TaskRunner}.
+     */
+    static <T> List<T> runTasks(List<? extends Callable<T>> tasks, int nthreads) throws IOException {
+        try {
+            return TaskRunner.run(tasks, nthreads, "tab-loader");
+        }
+        catch (Exception ex) {
+            throw toLoadException(ex);
+        }
+    }
+
+
+    /**
+     * Used by {@link #runLoadTasks(List)} to re-throw what comes from a task with the same type it had.
+     */
+    private static RuntimeException toLoadException(Throwable ex) throws IOException {
+        if (ex instanceof IOException) {
+            throw (IOException) ex;
+        }
+        if (ex instanceof Error) {
+            throw (Error) ex;
+        }
+        if (ex instanceof RuntimeException) {
+            return (RuntimeException) ex;
+        }
+        return new TabInternalErrorException("TabLoader, error while loading a file: " + ex.getMessage(), ex);
+    }
+
 
     /**
      * Uses the base path
@@ -207,6 +653,27 @@ public class TabLoader {
      */
     public FormatInstance parse(String fileId, Reader reader, Format format)
             throws IOException {
+        return parse(fileId, new CsvReaderTokenizer(reader), format);
+    }
+
+
+    /**
+     * Like {@link #parse(String, Reader, Format)}, but gets the lines from a {@link TabTokenizer}.
+     *
+     * @param fileId    used to store it in the resulting format instance.
+     * @param tokenizer the source of the lines, split into cells
+     * @param format    the name of format expected in the reader
+     */
+    public FormatInstance parse(String fileId, TabTokenizer tokenizer, Format format)
+            throws IOException {
+        return parse(fileId, tokenizer, format, errorCollector);
+    }
+
+    /**
+     * Parses in collect-all-errors mode if errors isn't null, see {@link #getErrorCollector()}.
+     */
+    private FormatInstance parse(String fileId, TabTokenizer tokenizer, Format format, TabErrorCollector errors)
+            throws IOException {
 
         // ____________ Init ______________
         if (format == null) {
@@ -216,7 +683,7 @@ public class TabLoader {
         log.trace("Parsing the format: " + format.getId());
 
         // The CSV reader
-        TabCsvReader csvrdr = new TabCsvReader(reader, format);
+        TabCsvReader csvrdr = new TabCsvReader(tokenizer, format);
         List<String[]> csvLines = new ArrayList<String[]>();
 
         // The current parser status
@@ -227,9 +694,13 @@ public class TabLoader {
         formatInstance.setFileId(fileId);
 
         // Step through the sections while scanning the lines
-        Section curSection = null;
+        TabParser<SectionInstance> curParser = null;
         int sectionStartingLine = -1;
 
+        // Used in streaming mode, when the current section can be parsed a line at a time
+        RowSectionParser streamingParser = null;
+        boolean isStreamingHeaderParsed = false;
+
         for (String[] csvLine; (csvLine = csvrdr.readNext()) != null; ) {
             log.trace("Parsing line: " + ArrayUtils.toString(csvLine));
 
@@ -257,31 +728,87 @@ public class TabLoader {
 
                             // Start considering the next section
                             status = ParserState.READING_SECTION_LINES;
-                            curSection = section;
+                            curParser = createSectionParser(section, formatInstance);
                             sectionStartingLine = csvrdr.getLastReadLineIndex();
+
+                            if (isStreamingMode) {
+                                if (curParser instanceof RowSectionParser && ((RowSectionParser) curParser).isStreamable()) {
+                                    streamingParser = (RowSectionParser) curParser;
+                                    streamingParser.getSectionInstance().setStartingLine(sectionStartingLine);
+                                    isStreamingHeaderParsed = false;
+                                }
+                            }
                             log.trace(String.format("Start parsing the section: '%s' ('%s') at line %d",
                                     section.getId(), csvHeader, sectionStartingLine)
                             );
                         } else {
-                            throw new TabStructureError(i18n.msg("wrong_section_header", csvHeader, csvrdr.getLastReadLineIndex()));
+                            String msg = i18n.msg("wrong_section_header", csvHeader, csvrdr.getLastReadLineIndex());
+                            if (errors == null) {
+                                throw new TabStructureError(msg);
+                            }
+                            reportStructureError(errors, fileId, csvrdr.getLastReadLineIndex(), "wrong_section_header", msg);
+                            status = ParserState.SKIPPING_SECTION_LINES;
                         }
                     } else {
-                        throw new TabStructureError(i18n.msg("missing_section_header", csvrdr.getLastReadLineIndex()));
+                        String msg = i18n.msg("missing_section_header", csvrdr.getLastReadLineIndex());
+                        if (errors == null) {
+                            throw new TabStructureError(msg);
+                        }
+                        reportStructureError(errors, fileId, csvrdr.getLastReadLineIndex(), "missing_section_header", msg);
+                        status = ParserState.SKIPPING_SECTION_LINES;
+                    }
+                    break;
+
+                case SKIPPING_SECTION_LINES:
+                    // Collect-all-errors mode, ignore the lines of a wrong section, up to the next blank line
+                    if (TabCsvReader.isBlankLine(csvLine)) {
+                        status = ParserState.WAITING_SECTION_BEGIN;
                     }
                     break;
 
                 case READING_SECTION_LINES:
                     if (TabCsvReader.isBlankLine(csvLine)) {
-                        // Pass the accumulated lines to the section parser
-                        log.trace("Invoking the parser");
-                        SectionInstance sectionInstance = curSection.getParser(formatInstance).parseCsvLines(csvLines);
-                        sectionInstance.setStartingLine(sectionStartingLine);
-                        formatInstance.addSectionInstance(sectionInstance);
+                        SectionInstance sectionInstance;
+                        if (streamingParser != null) {
+                            // All the records have already been dispatched
+                            sectionInstance = streamingParser.getSectionInstance();
+                            streamingParser = null;
+                        } else {
+                            // Pass the accumulated lines to the section parser
+                            log.trace("Invoking the parser");
+                            sectionInstance = parseSection(curParser, csvLines, fileId, sectionStartingLine, errors);
+                        }
+                        if (sectionInstance != null) {
+                            sectionInstance.setStartingLine(sectionStartingLine);
+                            formatInstance.addSectionInstance(sectionInstance);
+                        }
 
                         // Clear parsed lines and move to the next section
                         csvLines.clear();
-                        curSection = null;
+                        curParser = null;
                         status = ParserState.WAITING_SECTION_BEGIN;
+                    } else if (streamingParser != null) {
+                        // Streaming mode, process the line straight away
+                        NANOFormatWrapper.processFileHeader(csvLine);
+                        if (!isStreamingHeaderParsed) {
+                            if (!parseStreamingHeader(streamingParser, csvLine, fileId, sectionStartingLine, errors)) {
+                                // Like parseSection(), the wrong section is reported and skipped
+                                streamingParser = null;
+                                curParser = null;
+                                status = ParserState.SKIPPING_SECTION_LINES;
+                                break;
+                            }
+                            isStreamingHeaderParsed = true;
+                        } else {
+                            Record record = streamingParser.parseCsvLine(csvLine);
+                            if (record != null) {
+                                if (recordConsumer != null) {
+                                    recordConsumer.consume(record, csvrdr.getLastReadLineIndex());
+                                } else {
+                                    streamingParser.getSectionInstance().addRecord(record);
+                                }
+                            }
+                        }
                     } else {
                         // Accumulate the lines for the section
 
@@ -299,15 +826,70 @@ public class TabLoader {
         // Check final status and possible inconsistencies
         //
         if (status == ParserState.READING_SECTION_LINES) {
-            // Pass the last accumulated lines to the section parser
-            log.trace("Invoking the parser (at the EOF)");
-            SectionInstance sectionInstance = curSection.getParser(formatInstance).parseCsvLines(csvLines);
-            sectionInstance.setStartingLine(sectionStartingLine);
-            formatInstance.addSectionInstance(sectionInstance);
+            SectionInstance sectionInstance;
+            if (streamingParser != null) {
+                sectionInstance = streamingParser.getSectionInstance();
+            } else {
+                // Pass the last accumulated lines to the section parser
+                log.trace("Invoking the parser (at the EOF)");
+                sectionInstance = parseSection(curParser, csvLines, fileId, sectionStartingLine, errors);
+            }
+            if (sectionInstance != null) {
+                sectionInstance.setStartingLine(sectionStartingLine);
+                formatInstance.addSectionInstance(sectionInstance);
+            }
         }
 
         log.trace("Done parsing format: " + format.getId());
         return formatInstance;
     }
 
+    /**
+     * Parses the header of a section in streaming mode. If errors isn't null and the header cannot be parsed, reports
+     * the error the same way {@link #parseSection(TabParser, List, String, int, TabErrorCollector)} does and returns
+     * false.
+     */
+    private boolean parseStreamingHeader(
+            RowSectionParser parser, String[] csvLine, String fileId, int startingLine, TabErrorCollector errors) {
+        if (errors == null) {
+            parser.parseHeaderLine(csvLine);
+            return true;
+        }
+        try {
+            parser.parseHeaderLine(csvLine);
+            return true;
+        }
+        catch (TabValidationException ex) {
+            errors.add(fileId, startingLine, -1, "invalid_section", ex.getMessage(), ex);
+            log.error(ex.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Parses the lines of a section. If errors isn't null and the lines cannot be parsed, reports the error and
+     * returns null, i.e., the section is skipped.
+     */
+    private SectionInstance parseSection(
+            TabParser<SectionInstance> parser, List<String[]> csvLines, String fileId, int startingLine,
+            TabErrorCollector errors) {
+        if (errors == null) {
+            return parser.parseCsvLines(csvLines);
+        }
+        try {
+            return parser.parseCsvLines(csvLines);
+        }
+        catch (TabValidationException ex) {
+            errors.add(fileId, startingLine, -1, "invalid_section", ex.getMessage(), ex);
+            log.error(ex.getMessage());
+            return null;
+        }
+    }
+
+    private void reportStructureError(
+            TabErrorCollector errors, String fileId, int line, String rule, String msg) {
+        errors.add(fileId, line, -1, rule, msg);
+        log.error(msg);
+    }
+
 }
@@ -0,0 +1,105 @@
+/**
+
+ The ISAconverter, ISAvalidator & BII Management Tool are components of the ISA software suite (http://www.isa-tools.org)
+
+ Exhibit A
+ The ISAconverter, ISAvalidator & BII Management Tool are licensed under the Mozilla Public License (MPL) version
+ 1.1/GPL version 2.0/LGPL version 2.1
+
+ "The contents of this file are subject to the Mozilla Public License
+ Version 1.1 (the "License"). You may not use this file except in compliance with the License.
+ You may obtain copies of the Licenses at http://www.mozilla.org/MPL/MPL-1.1.html.
+
+ Software distributed under the License is distributed on an "AS IS"
+ basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ License for the specific language governing rights and limitations
+ under the License.
+
+ The Original Code is the ISAconverter, ISAvalidator & BII Management Tool.
+
+ The Initial Developer of the Original Code is the ISA Team (Eamonn Maguire, eamonnmag@gmail.com;
+ Philippe Rocca-Serra, proccaserra@gmail.com; Susanna-Assunta Sansone, sa.sanson@gmail.com;
+ http://www.isa-tools.org). All portions of the code written by the ISA Team are Copyright (c)
+ 2007-2011 ISA Team. All Rights Reserved.
+
+ Contributor(s):
+ Rocca-Serra P, Brandizi M, Maguire E, Sklyar N, Taylor C, Begley K, Field D,
+ Harris S, Hide W, Hofmann O, Neumann S, Sterk P, Tong W, Sansone SA. ISA software suite:
+ supporting standards-compliant experimental annotation and enabling curation at the community level.
+ Bioinformatics 2010;26(18):2354-6.
+
+ Alternatively, the contents of this file may be used under the terms of either the GNU General
+ Public License Version 2 or later (the "GPL") - http://www.gnu.org/licenses/gpl-2.0.html, or
+ the GNU Lesser General Public License Version 2.1 or later (the "LGPL") -
+ http://www.gnu.org/licenses/lgpl-2.1.html, in which case the provisions of the GPL
+ or the LGPL are applicable instead of those above. If you wish to allow use of your version
+ of this file only under the terms of either the GPL or the LGPL, and not to allow others to
+ use your version of this file under the terms of the MPL, indicate your decision by deleting
+ the provisions above and replace them with the notice and other provisions required by the
+ GPL or the LGPL. If you do not delete the provisions above, a recipient may use your version
+ of this file under the terms of any one of the MPL, the GPL or the LGPL.
+
+ Sponsors:
+ The ISA Team and the ISA software suite have been funded by the EU Carcinogenomics project
+ (http://www.carcinogenomics.eu), the UK BBSRC (http://www.bbsrc.ac.uk), the UK NERC-NEBC
+ (http://nebc.nerc.ac.uk) and in part by the EU NuGO consortium (http://www.nugo.org/everyone).
+
+ */
+
+package org.isatools.tablib.parser;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+
+/**
+ * Where the files of a TAB submission are read from, e.g.: a directory ({@link DirectoryTabSource}) or a ZIP archive
+ * ({@link ZipTabSource}). Files are identified by their path relative to the submission root, as they're named in the
+ * TAB files (e.g.: "s_study.txt"). {@link TabLoader} reads the TAB files via {@link #open(String)}, while the files
+ * that are needed as files (e.g.: data files to be dispatched) can be obtained via {@link #getFile(String)}, which,
+ * for sources that aren't plain directories, extracts them only when this is invoked.
+ */
+public interface TabSource {
+    /**
+     * The submission location, e.g., a directory or an archive path. This is used for messages and to place the files
+     * that the tools write next to a submission (e.g.: logs).
+     */
+    public String getLocation();
+
+    /**
+     * All the files in the submission, as relative paths.
+     */
+    public List<String> getFileIds();
+
+    /**
+     * true if the file is in the submission.
+     */
+    public boolean exists(String fileId);
+
+    /**
+     * The last modification time of a file, as in {@link File#lastModified()}.
+     */
+    public long lastModified(String fileId);
+
+    /**
+     * Opens a file in the submission for reading.
+     */
+    public InputStream open(String fileId) throws IOException;
+
+    /**
+     * The file in the local file system, if the source has it available without any extra operation, null otherwise.
+     * This allows {@link TabLoader} to use its file-based optimisations when possible.
+     */
+    public File getLocalFile(String fileId);
+
+    /**
+     * The file in the local file system, which might be extracted from the source at this point.
+     */
+    public File getFile(String fileId) throws IOException;
+
+    /**
+     * Releases the resources used by the source, including the files extracted by {@link #getFile(String)}, if any.
+     */
+    public void close() throws IOException;
+}
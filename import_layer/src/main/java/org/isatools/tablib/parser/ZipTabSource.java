@@ -0,0 +1,223 @@
+/**
+
+ The ISAconverter, ISAvalidator & BII Management Tool are components of the ISA software suite (http://www.isa-tools.org)
+
+ Exhibit A
+ The ISAconverter, ISAvalidator & BII Management Tool are licensed under the Mozilla Public License (MPL) version
+ 1.1/GPL version 2.0/LGPL version 2.1
+
+ "The contents of this file are subject to the Mozilla Public License
+ Version 1.1 (the "License"). You may not use this file except in compliance with the License.
+ You may obtain copies of the Licenses at http://www.mozilla.org/MPL/MPL-1.1.html.
+
+ Software distributed under the License is distributed on an "AS IS"
+ basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ License for the specific language governing rights and limitations
+ under the License.
+
+ The Original Code is the ISAconverter, ISAvalidator & BII Management Tool.
+
+ The Initial Developer of the Original Code is the ISA Team (Eamonn Maguire, eamonnmag@gmail.com;
+ Philippe Rocca-Serra, proccaserra@gmail.com; Susanna-Assunta Sansone, sa.sanson@gmail.com;
+ http://www.isa-tools.org). All portions of the code written by the ISA Team are Copyright (c)
+ 2007-2011 ISA Team. All Rights Reserved.
+
+ Contributor(s):
+ Rocca-Serra P, Brandizi M, Maguire E, Sklyar N, Taylor C, Begley K, Field D,
+ Harris S, Hide W, Hofmann O, Neumann S, Sterk P, Tong W, Sansone SA. ISA software suite:
+ supporting standards-compliant experimental annotation and enabling curation at the community level.
+ Bioinformatics 2010;26(18):2354-6.
+
+ Alternatively, the contents of this file may be used under the terms of either the GNU General
+ Public License Version 2 or later (the "GPL") - http://www.gnu.org/licenses/gpl-2.0.html, or
+ the GNU Lesser General Public License Version 2.1 or later (the "LGPL") -
+ http://www.gnu.org/licenses/lgpl-2.1.html, in which case the provisions of the GPL
+ or the LGPL are applicable instead of those above. If you wish to allow use of your version
+ of this file only under the terms of either the GPL or the LGPL, and not to allow others to
+ use your version of this file under the terms of the MPL, indicate your decision by deleting
+ the provisions above and replace them with the notice and other provisions required by the
+ GPL or the LGPL. If you do not delete the provisions above, a recipient may use your version
+ of this file under the terms of any one of the MPL, the GPL or the LGPL.
+
+ Sponsors:
+ The ISA Team and the ISA software suite have been funded by the EU Carcinogenomics project
+ (http://www.carcinogenomics.eu), the UK BBSRC (http://www.bbsrc.ac.uk), the UK NERC-NEBC
+ (http://nebc.nerc.ac.uk) and in part by the EU NuGO consortium (http://www.nugo.org/everyone).
+
+ */
+
+package org.isatools.tablib.parser;
+
+import org.apache.log4j.Logger;
+import org.isatools.tablib.exceptions.TabMissingResourceException;
+
+import java.io.*;
+import java.util.*;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * A {@link TabSource} that reads the submission files straight from a ZIP archive, without extracting it. The
+ * submission root is the directory in the archive that contains the investigation file (i_*.txt), so both the archives
+ * of the submission files and the archives of the submission directory are supported. As in the GUI, entries starting
+ * with '_' or '.' (e.g.: __MACOSX, .DS_Store) are ignored.
+ * <p/>
+ * Files are extracted only when {@link #getFile(String)} is invoked, into a temporary directory that is removed by
+ * {@link #close()}.
+ */
+public class ZipTabSource implements TabSource {
+    protected static final Logger log = Logger.getLogger(ZipTabSource.class);
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final File archive;
+    private final ZipFile zipFile;
+    private final Map<String, ZipEntry> entries = new LinkedHashMap<String, ZipEntry>();
+
+    private File extractionDir = null;
+
+
+    public ZipTabSource(File archive) throws IOException {
+        this.archive = archive;
+        this.zipFile = new ZipFile(archive);
+
+        // Collect the entries and look for the submission root
+        List<ZipEntry> files = new ArrayList<ZipEntry>();
+        String root = null;
+        for (Enumeration<? extends ZipEntry> zipEntries = zipFile.entries(); zipEntries.hasMoreElements(); ) {
+            ZipEntry entry = zipEntries.nextElement();
+            String name = entry.getName().replace('\\', '/');
+            if (entry.isDirectory() || isIgnored(name)) {
+                continue;
+            }
+            files.add(entry);
+
+            int islash = name.lastIndexOf('/');
+            String fileName = name.substring(islash + 1);
+            if (fileName.startsWith("i_") && fileName.endsWith(".txt")) {
+                String dir = name.substring(0, islash + 1);
+                if (root == null || dir.length() < root.length()) {
+                    root = dir;
+                }
+            }
+        }
+        if (root == null) {
+            root = "";
+        }
+
+        for (ZipEntry entry : files) {
+            String name = entry.getName().replace('\\', '/');
+            if (name.startsWith(root)) {
+                entries.put(name.substring(root.length()), entry);
+            }
+        }
+        log.debug("ZipTabSource, '" + archive + "' has " + entries.size() + " files under the root '" + root + "'");
+    }
+
+
+    /**
+     * The junk added by some operating systems: the __MACOSX/ folder of Mac OS X and the hidden (dot) files.
+     */
+    private static boolean isIgnored(String name) {
+        if (name.equals("__MACOSX") || name.startsWith("__MACOSX/") || name.contains("/__MACOSX/")) {
+            return true;
+        }
+        String fileName = name.endsWith("/") ? name.substring(0, name.length() - 1) : name;
+        fileName = fileName.substring(fileName.lastIndexOf('/') + 1);
+        return fileName.startsWith(".");
+    }
+
+
+    public String getLocation() {
+        return archive.getPath();
+    }
+
+    public List<String> getFileIds() {
+        return new ArrayList<String>(entries.keySet());
+    }
+
+    public boolean exists(String fileId) {
+        return entries.containsKey(fileId);
+    }
+
+    public long lastModified(String fileId) {
+        return getEntry(fileId).getTime();
+    }
+
+    public InputStream open(String fileId) throws IOException {
+        return new BufferedInputStream(zipFile.getInputStream(getEntry(fileId)), BUFFER_SIZE);
+    }
+
+    /**
+     * Always null, files must be extracted.
+     */
+    public File getLocalFile(String fileId) {
+        return null;
+    }
+
+    public synchronized File getFile(String fileId) throws IOException {
+        ZipEntry entry = getEntry(fileId);
+
+        if (extractionDir == null) {
+            extractionDir = File.createTempFile("isatab_", "_zip");
+            if (!extractionDir.delete() || !extractionDir.mkdir()) {
+                throw new IOException("Cannot create the extraction directory '" + extractionDir + "'");
+            }
+        }
+
+        File file = new File(extractionDir, fileId);
+        if (file.isFile()) {
+            return file;
+        }
+
+        File parent = file.getParentFile();
+        if (!parent.isDirectory() && !parent.mkdirs()) {
+            throw new IOException("Cannot create the directory '" + parent + "'");
+        }
+
+        log.debug("ZipTabSource, extracting '" + fileId + "' from '" + archive + "'");
+        InputStream in = zipFile.getInputStream(entry);
+        OutputStream out = new FileOutputStream(file);
+        try {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            for (int n; (n = in.read(buffer)) != -1; ) {
+                out.write(buffer, 0, n);
+            }
+        }
+        finally {
+            in.close();
+            out.close();
+        }
+        file.setLastModified(entry.getTime());
+        return file;
+    }
+
+    public synchronized void close() throws IOException {
+        zipFile.close();
+        if (extractionDir != null) {
+            delete(extractionDir);
+            extractionDir = null;
+        }
+    }
+
+
+    private ZipEntry getEntry(String fileId) {
+        ZipEntry entry = entries.get(fileId);
+        if (entry == null) {
+            throw new TabMissingResourceException("The file '" + fileId + "' is not in the archive '" + archive + "'");
+        }
+        return entry;
+    }
+
+    private static void delete(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                delete(child);
+            }
+        }
+        if (!file.delete()) {
+            log.debug("ZipTabSource, cannot delete the extracted file '" + file + "'");
+        }
+    }
+}
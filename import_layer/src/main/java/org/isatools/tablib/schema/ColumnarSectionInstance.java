@@ -0,0 +1,307 @@
+/**
+
+ The ISAconverter, ISAvalidator & BII Management Tool are components of the ISA software suite (http://www.isa-tools.org)
+
+ Exhibit A
+ The ISAconverter, ISAvalidator & BII Management Tool are licensed under the Mozilla Public License (MPL) version
+ 1.1/GPL version 2.0/LGPL version 2.1
+
+ "The contents of this file are subject to the Mozilla Public License
+ Version 1.1 (the "License"). You may not use this file except in compliance with the License.
+ You may obtain copies of the Licenses at http://www.mozilla.org/MPL/MPL-1.1.html.
+
+ Software distributed under the License is distributed on an "AS IS"
+ basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ License for the specific language governing rights and limitations
+ under the License.
+
+ The Original Code is the ISAconverter, ISAvalidator & BII Management Tool.
+
+ The Initial Developer of the Original Code is the ISA Team (Eamonn Maguire, eamonnmag@gmail.com;
+ Philippe Rocca-Serra, proccaserra@gmail.com; Susanna-Assunta Sansone, sa.sanson@gmail.com;
+ http://www.isa-tools.org). All portions of the code written by the ISA Team are Copyright (c)
+ 2007-2011 ISA Team. All Rights Reserved.
+
+ Contributor(s):
+ Rocca-Serra P, Brandizi M, Maguire E, Sklyar N, Taylor C, Begley K, Field D,
+ Harris S, Hide W, Hofmann O, Neumann S, Sterk P, Tong W, Sansone SA. ISA software suite:
+ supporting standards-compliant experimental annotation and enabling curation at the community level.
+ Bioinformatics 2010;26(18):2354-6.
+
+ Alternatively, the contents of this file may be used under the terms of either the GNU General
+ Public License Version 2 or later (the "GPL") - http://www.gnu.org/licenses/gpl-2.0.html, or
+ the GNU Lesser General Public License Version 2.1 or later (the "LGPL") -
+ http://www.gnu.org/licenses/lgpl-2.1.html, in which case the provisions of the GPL
+ or the LGPL are applicable instead of those above. If you wish to allow use of your version
+ of this file only under the terms of either the GPL or the LGPL, and not to allow others to
+ use your version of this file under the terms of the MPL, indicate your decision by deleting
+ the provisions above and replace them with the notice and other provisions required by the
+ GPL or the LGPL. If you do not delete the provisions above, a recipient may use your version
+ of this file under the terms of any one of the MPL, the GPL or the LGPL.
+
+ Sponsors:
+ The ISA Team and the ISA software suite have been funded by the EU Carcinogenomics project
+ (http://www.carcinogenomics.eu), the UK BBSRC (http://www.bbsrc.ac.uk), the UK NERC-NEBC
+ (http://nebc.nerc.ac.uk) and in part by the EU NuGO consortium (http://www.nugo.org/everyone).
+
+ */
+
+package org.isatools.tablib.schema;
+
+import org.isatools.tablib.exceptions.TabInternalErrorException;
+
+import java.util.*;
+
+
+/**
+ * A {@link SectionInstance} that stores its values column by column, rather than as a list of {@link Record}s.
+ * Every field has a column of integer codes and every column has its own dictionary of distinct values, so that the
+ * values which are repeated many times in a table (protocols, term sources, units, characteristics) are stored once.
+ * <p/>
+ * The record-based API is still available: {@link #getRecords()} and {@link #getRecord(int)} return views over the
+ * columns, which write values back into the columns when {@link Record#set(int, Object)} is used. Records passed to
+ * {@link #addRecord(Record)} are encoded into the columns and not kept.
+ * <p/>
+ * Columns whose values are mostly distinct (e.g.: sample names) are not worth a dictionary. When this is detected,
+ * the column stops to look up existing values and just appends the new ones.
+ */
+public class ColumnarSectionInstance extends SectionInstance {
+    private final List<Column> columns = new ArrayList<Column>();
+    private int[] recordSizes = new int[16];
+    private int nrecords = 0;
+
+    /**
+     * The values in a column, encoded as indexes in a dictionary of distinct values. Code 0 is reserved to null.
+     */
+    private static class Column {
+        /**
+         * Below this size we always deduplicate, above it we stop if the distinct values are more than a half of
+         * the records.
+         */
+        private static final int MIN_DICTIONARY_SIZE = 1024;
+
+        private int[] codes = new int[16];
+        private final List<Object> dictionary = new ArrayList<Object>();
+        private Map<Object, Integer> dictionaryIndex = new HashMap<Object, Integer>();
+
+        Column() {
+            dictionary.add(null);
+        }
+
+        Object get(int irec) {
+            return irec < codes.length ? dictionary.get(codes[irec]) : null;
+        }
+
+        void set(int irec, Object value, int nrecords) {
+            if (irec >= codes.length) {
+                codes = Arrays.copyOf(codes, Math.max(irec + 1, codes.length * 2));
+            }
+            codes[irec] = encode(value, nrecords);
+        }
+
+        boolean isNull(int irec) {
+            return irec >= codes.length || codes[irec] == 0;
+        }
+
+        private int encode(Object value, int nrecords) {
+            if (value == null) {
+                return 0;
+            }
+            if (dictionaryIndex != null) {
+                Integer code = dictionaryIndex.get(value);
+                if (code != null) {
+                    return code;
+                }
+            }
+
+            int code = dictionary.size();
+            dictionary.add(value);
+
+            if (dictionaryIndex != null) {
+                if (code > MIN_DICTIONARY_SIZE && code > nrecords / 2) {
+                    // Mostly distinct values, the index costs more than it saves
+                    dictionaryIndex = null;
+                } else {
+                    dictionaryIndex.put(value, code);
+                }
+            }
+            return code;
+        }
+
+        Set<Object> getDistinctValues() {
+            Set<Object> result = new HashSet<Object>(dictionary);
+            result.remove(null);
+            return result;
+        }
+    }
+
+    /**
+     * A view over a row of the columns.
+     */
+    private static class ColumnarRecord extends Record {
+        private final ColumnarSectionInstance sectionInstance;
+        private final int irec;
+
+        ColumnarRecord(ColumnarSectionInstance sectionInstance, int irec) {
+            super(sectionInstance);
+            this.sectionInstance = sectionInstance;
+            this.irec = irec;
+        }
+
+        @Override
+        public Object get(int index) {
+            return sectionInstance.getValue(irec, index);
+        }
+
+        @Override
+        public void set(int index, Object value) {
+            sectionInstance.setValue(irec, index, value);
+        }
+
+        @Override
+        public boolean isNull() {
+            return sectionInstance.isNullRecord(irec);
+        }
+
+        @Override
+        public int size() {
+            return sectionInstance.recordSizes[irec];
+        }
+    }
+
+
+    public ColumnarSectionInstance(Section section) {
+        super(section);
+    }
+
+    public ColumnarSectionInstance(Section section, FormatInstance parent) {
+        super(section, parent);
+    }
+
+
+    /**
+     * A read-only list of views over the columns.
+     */
+    @Override
+    public List<Record> getRecords() {
+        return new AbstractList<Record>() {
+            @Override
+            public Record get(int index) {
+                return getRecord(index);
+            }
+
+            @Override
+            public int size() {
+                return nrecords;
+            }
+        };
+    }
+
+    /**
+     * The values of the record are copied into the columns, the record itself is not kept.
+     */
+    @Override
+    public void addRecord(Record record) {
+        if (record == null) {
+            throw new TabInternalErrorException("Cannot add a null record to the section " + getSectionId());
+        }
+
+        SectionInstance sectionInstance = record.getParent();
+        if (sectionInstance != null && sectionInstance != this) {
+            throw new TabInternalErrorException(
+                    "Attempt to add a record to a section other than the one stored by the instance: "
+                            + "section: " + getSection().getAttr("id") + " record's section: " + record.getSection().getAttr("id")
+            );
+        }
+
+        int irec = nrecords++;
+        if (irec >= recordSizes.length) {
+            recordSizes = Arrays.copyOf(recordSizes, recordSizes.length * 2);
+        }
+
+        int size = record.size();
+        for (int icol = 0; icol < size; icol++) {
+            setValue(irec, icol, record.get(icol));
+        }
+        recordSizes[irec] = size;
+    }
+
+    @Override
+    public Record getRecord(int index) {
+        if (index < 0 || index >= nrecords) {
+            throw new IndexOutOfBoundsException(
+                    "Record #" + index + " doesn't exist in the section " + getSectionId() + ", size is " + nrecords
+            );
+        }
+        return new ColumnarRecord(this, index);
+    }
+
+    /**
+     * Gets the value straight from the column, without building any record view.
+     */
+    @Override
+    public Object getValue(int recordIndex, int fieldIndex) {
+        if (fieldIndex < 0 || fieldIndex >= columns.size()) {
+            return null;
+        }
+        Column column = columns.get(fieldIndex);
+        return column == null ? null : column.get(recordIndex);
+    }
+
+    /**
+     * Gets the value straight from the column, without building any record view.
+     */
+    @Override
+    public String getString(int recordIndex, int fieldIndex) {
+        return (String) getValue(recordIndex, fieldIndex);
+    }
+
+    @Override
+    public int size() {
+        return nrecords;
+    }
+
+    /**
+     * All the distinct non-null values in the column of a field, which allows to check a value once, no matter how many
+     * times it is repeated.
+     */
+    public Set<Object> getDistinctValues(int fieldIndex) {
+        if (fieldIndex < 0 || fieldIndex >= columns.size() || columns.get(fieldIndex) == null) {
+            return new HashSet<Object>();
+        }
+        return columns.get(fieldIndex).getDistinctValues();
+    }
+
+
+    private void setValue(int recordIndex, int fieldIndex, Object value) {
+        if (fieldIndex < 0) {
+            throw new TabInternalErrorException("ColumnarSectionInstance.setValue(), column " + fieldIndex + " is invalid");
+        }
+        while (columns.size() <= fieldIndex) {
+            columns.add(null);
+        }
+        Column column = columns.get(fieldIndex);
+        if (column == null) {
+            if (value == null) {
+                return;
+            }
+            column = new Column();
+            columns.set(fieldIndex, column);
+        }
+        column.set(recordIndex, value, nrecords);
+
+        if (fieldIndex >= recordSizes[recordIndex]) {
+            recordSizes[recordIndex] = fieldIndex + 1;
+        }
+    }
+
+    private boolean isNullRecord(int recordIndex) {
+        for (Column column : columns) {
+            if (column != null && !column.isNull(recordIndex)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+}
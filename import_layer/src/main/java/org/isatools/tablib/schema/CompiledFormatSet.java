@@ -0,0 +1,247 @@
+/**
+
+ The ISAconverter, ISAvalidator & BII Management Tool are components of the ISA software suite (http://www.isa-tools.org)
+
+ Exhibit A
+ The ISAconverter, ISAvalidator & BII Management Tool are licensed under the Mozilla Public License (MPL) version
+ 1.1/GPL version 2.0/LGPL version 2.1
+
+ "The contents of this file are subject to the Mozilla Public License
+ Version 1.1 (the "License"). You may not use this file except in compliance with the License.
+ You may obtain copies of the Licenses at http://www.mozilla.org/MPL/MPL-1.1.html.
+
+ Software distributed under the License is distributed on an "AS IS"
+ basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ License for the specific language governing rights and limitations
+ under the License.
+
+ The Original Code is the ISAconverter, ISAvalidator & BII Management Tool.
+
+ The Initial Developer of the Original Code is the ISA Team (Eamonn Maguire, eamonnmag@gmail.com;
+ Philippe Rocca-Serra, proccaserra@gmail.com; Susanna-Assunta Sansone, sa.sanson@gmail.com;
+ http://www.isa-tools.org). All portions of the code written by the ISA Team are Copyright (c)
+ 2007-2011 ISA Team. All Rights Reserved.
+
+ Contributor(s):
+ Rocca-Serra P, Brandizi M, Maguire E, Sklyar N, Taylor C, Begley K, Field D,
+ Harris S, Hide W, Hofmann O, Neumann S, Sterk P, Tong W, Sansone SA. ISA software suite:
+ supporting standards-compliant experimental annotation and enabling curation at the community level.
+ Bioinformatics 2010;26(18):2354-6.
+
+ Alternatively, the contents of this file may be used under the terms of either the GNU General
+ Public License Version 2 or later (the "GPL") - http://www.gnu.org/licenses/gpl-2.0.html, or
+ the GNU Lesser General Public License Version 2.1 or later (the "LGPL") -
+ http://www.gnu.org/licenses/lgpl-2.1.html, in which case the provisions of the GPL
+ or the LGPL are applicable instead of those above. If you wish to allow use of your version
+ of this file only under the terms of either the GPL or the LGPL, and not to allow others to
+ use your version of this file under the terms of the MPL, indicate your decision by deleting
+ the provisions above and replace them with the notice and other provisions required by the
+ GPL or the LGPL. If you do not delete the provisions above, a recipient may use your version
+ of this file under the terms of any one of the MPL, the GPL or the LGPL.
+
+ Sponsors:
+ The ISA Team and the ISA software suite have been funded by the EU Carcinogenomics project
+ (http://www.carcinogenomics.eu), the UK BBSRC (http://www.bbsrc.ac.uk), the UK NERC-NEBC
+ (http://nebc.nerc.ac.uk) and in part by the EU NuGO consortium (http://www.nugo.org/everyone).
+
+ */
+
+package org.isatools.tablib.schema;
+
+import org.apache.log4j.Logger;
+import org.isatools.tablib.exceptions.TabInvalidValueException;
+
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+
+/**
+ * A lookup-optimised view of a {@link FormatSet}. The schema lookups that are done while parsing (section by header,
+ * section by field, field by header, child by id) were linear scans over the schema nodes, which are repeated for
+ * every line of a TAB file. This class indexes the whole tree once, with hash maps, so that these lookups become
+ * constant-time. It also caches the results of header parsing, since the same headers are seen over and over.
+ * <p/>
+ * You don't usually need to use this class directly, {@link FormatSet#getCompiledFormatSet()} builds it once for a
+ * schema, the schema nodes use it for their lookups and any change to the schema structure causes it to be rebuilt on
+ * demand. Instances are immutable (but for the header cache, which is thread-safe), so they can be shared by
+ * multiple loaders working in parallel over the same schema.
+ * <p/>
+ * As in the original lookup methods, comparisons are case-insensitive and, when more nodes have the same key, the
+ * first one in document order wins.
+ */
+public class CompiledFormatSet {
+    protected static final Logger log = Logger.getLogger(CompiledFormatSet.class);
+
+    /**
+     * Headers parsed by {@link #parseHeaderId(String, boolean)} are cached up to this size. Beyond that, they're
+     * just parsed every time. Only the valid headers are cached and {@link #getSectionByField(Format, String)} caches
+     * only the headers of known fields, since it is invoked with the first cell of every data line too.
+     */
+    public static final int MAX_CACHED_HEADERS = 10000;
+
+    private final FormatSet formatSet;
+
+    private final Map<SchemaNode, Map<String, SchemaNode>> childrenById =
+            new IdentityHashMap<SchemaNode, Map<String, SchemaNode>>();
+    private final Map<Format, Map<String, Section>> sectionsByHeader = new IdentityHashMap<Format, Map<String, Section>>();
+    private final Map<Format, Map<String, Section>> sectionsByFieldId = new IdentityHashMap<Format, Map<String, Section>>();
+
+    private final Map<String, String> headerIds = new ConcurrentHashMap<String, String>();
+    private final Map<String, String> headerIdsCaseInsensitive = new ConcurrentHashMap<String, String>();
+
+
+    /**
+     * Indexes the whole schema. The schema is supposed not to change while this object is in use, that's why you
+     * should use {@link FormatSet#getCompiledFormatSet()}, which takes care of that.
+     */
+    public CompiledFormatSet(FormatSet formatSet) {
+        this.formatSet = formatSet;
+        indexChildren(formatSet);
+        for (Format format : formatSet.getFormats()) {
+            indexFormat(format);
+        }
+        if (log.isTraceEnabled()) {
+            log.trace("CompiledFormatSet, schema '" + formatSet.getId() + "' indexed, "
+                    + childrenById.size() + " nodes with children");
+        }
+    }
+
+
+    public FormatSet getFormatSet() {
+        return formatSet;
+    }
+
+
+    private void indexChildren(SchemaNode node) {
+        if (node.getChildren().isEmpty()) {
+            return;
+        }
+        Map<String, SchemaNode> index = new HashMap<String, SchemaNode>();
+        for (SchemaNode child : node.getChildren()) {
+            String key = toKey(child.getId());
+            if (key != null && !index.containsKey(key)) {
+                index.put(key, child);
+            }
+            indexChildren(child);
+        }
+        childrenById.put(node, index);
+    }
+
+
+    private void indexFormat(Format format) {
+        Map<String, Section> byHeader = new HashMap<String, Section>();
+        Map<String, Section> byFieldId = new HashMap<String, Section>();
+
+        for (Section section : format.getSections()) {
+            String key = toKey(section.getAttr("header"));
+            if (key != null && !byHeader.containsKey(key)) {
+                byHeader.put(key, section);
+            }
+
+            Map<String, SchemaNode> fieldIndex = childrenById.get(section);
+            if (fieldIndex == null) {
+                continue;
+            }
+            for (Map.Entry<String, SchemaNode> entry : fieldIndex.entrySet()) {
+                if (entry.getValue() instanceof Field && !byFieldId.containsKey(entry.getKey())) {
+                    byFieldId.put(entry.getKey(), section);
+                }
+            }
+        }
+
+        sectionsByHeader.put(format, byHeader);
+        sectionsByFieldId.put(format, byFieldId);
+    }
+
+
+    /**
+     * The child of a node having a given id, see {@link SchemaNode#getChild(String, boolean)}.
+     */
+    public SchemaNode getChild(SchemaNode parent, String id) {
+        Map<String, SchemaNode> index = childrenById.get(parent);
+        return index == null ? null : index.get(toKey(id));
+    }
+
+
+    /**
+     * The section in the format having a given header, see {@link Format#getSectionByHeader(String, boolean)}.
+     */
+    public Section getSectionByHeader(Format format, String header) {
+        Map<String, Section> index = sectionsByHeader.get(format);
+        return index == null || header == null ? null : index.get(toKey(header));
+    }
+
+
+    /**
+     * The section in the format which has a field matching the header, see {@link Format#getSectionByField(String)}.
+     * Returns null if the header is not syntactically valid.
+     */
+    public Section getSectionByField(Format format, String fieldHeader) {
+        Map<String, Section> index = sectionsByFieldId.get(format);
+        if (index == null || fieldHeader == null) {
+            return null;
+        }
+        String id = headerIds.get(fieldHeader);
+        if (id != null) {
+            return index.get(toKey(id));
+        }
+        // Don't cache the misses, else the values in the data lines would fill the cache up
+        id = parseHeaderIdUncached(fieldHeader, true);
+        if (id == null) {
+            return null;
+        }
+        Section section = index.get(toKey(id));
+        if (section != null) {
+            cacheHeaderId(headerIds, fieldHeader, id);
+        }
+        return section;
+    }
+
+
+    /**
+     * The field ID in a header like Name[x](y), i.e.: {@link Field#parseHeaderRawResult(String, boolean)}[1]. Results
+     * are cached.
+     *
+     * @return null if the header isn't syntactically valid.
+     */
+    public String parseHeaderId(String header, boolean isCaseSensitive) {
+        if (header == null) {
+            return null;
+        }
+        Map<String, String> cache = isCaseSensitive ? headerIds : headerIdsCaseInsensitive;
+        String id = cache.get(header);
+        if (id == null) {
+            id = parseHeaderIdUncached(header, isCaseSensitive);
+            if (id != null) {
+                cacheHeaderId(cache, header, id);
+            }
+        }
+        return id;
+    }
+
+
+    private static String parseHeaderIdUncached(String header, boolean isCaseSensitive) {
+        try {
+            return Field.parseHeaderRawResult(header, isCaseSensitive)[1].trim();
+        }
+        catch (TabInvalidValueException ex) {
+            return null;
+        }
+    }
+
+
+    private static void cacheHeaderId(Map<String, String> cache, String header, String id) {
+        if (cache.size() < MAX_CACHED_HEADERS) {
+            cache.put(header, id);
+        }
+    }
+
+
+    private static String toKey(String s) {
+        return s == null ? null : s.toLowerCase(Locale.ENGLISH);
+    }
+
+}
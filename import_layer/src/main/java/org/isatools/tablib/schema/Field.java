@@ -55,10 +55,10 @@ import org.isatools.tablib.schema.constraints.FieldCardinalityConstraint;
 import org.isatools.tablib.schema.constraints.FieldConstraint;
 import org.isatools.tablib.schema.constraints.FollowsConstraint;
 import org.isatools.tablib.schema.constraints.PrecedesConstraint;
-import uk.ac.ebi.utils.regex.RegEx;
 
 import java.lang.reflect.Array;
 import java.util.*;
+import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 /**
@@ -85,6 +85,19 @@ public class Field extends SchemaNode implements Cloneable {
     public static final String WORDS_PATTERN = "[\\w_\\s,/\\-\\+#\\(\\)]+";
     public static final String URL_PATTERN = "\\b(((\\S+)?)(@|mailto\\:|(news|(ht|f)tp(s?))\\://)\\S+)\\b";
 
+    /**
+     * The whole header syntax, X or X[Y](Z), see {@link #parseHeaderRawResult(String, boolean)}
+     */
+    public static final String HEADER_PATTERN =
+            "^ *(" + ID_PATTERN + ") *(?:\\[ *(" + ID_PATTERN + ")* *(?:\\( *(" + ID_PATTERN + "|" + WORDS_PATTERN + "|"
+                    + URL_PATTERN + ") *\\))?\\])? *$";
+
+    /**
+     * {@link #HEADER_PATTERN} is compiled once, since it's used for every header that is parsed
+     */
+    private static final Pattern HEADER_RE = Pattern.compile(HEADER_PATTERN);
+    private static final Pattern HEADER_RE_CASE_INSENSITIVE = Pattern.compile(HEADER_PATTERN, Pattern.CASE_INSENSITIVE);
+
     public Field() {
     }
 
@@ -129,11 +142,17 @@ public class Field extends SchemaNode implements Cloneable {
 
         // REs are our friends here
         //
-        String pattern = "^ *(" + ID_PATTERN + ") *(?:\\[ *(" + ID_PATTERN + ")* *(?:\\( *(" + ID_PATTERN + "|" + WORDS_PATTERN + "|" + URL_PATTERN + ") *\\))?\\])? *$";
-//        System.out.println(pattern);
-        log.trace("Field.parseHeader( '" + header + "' ), using the pattern: '" + pattern + "'");
-        String bits[] = new RegEx(pattern, isCaseSensitive ? 0 : Pattern.CASE_INSENSITIVE).groups(header);
-        log.trace(String.format("Field.parseHeaderRawResult('%s'), bits are: %s", header, Arrays.toString(bits)));
+        Matcher matcher = (isCaseSensitive ? HEADER_RE : HEADER_RE_CASE_INSENSITIVE).matcher(header);
+        String bits[] = null;
+        if (matcher.matches()) {
+            bits = new String[matcher.groupCount() + 1];
+            for (int i = 0; i < bits.length; i++) {
+                bits[i] = matcher.group(i);
+            }
+        }
+        if (log.isTraceEnabled()) {
+            log.trace(String.format("Field.parseHeaderRawResult('%s'), bits are: %s", header, Arrays.toString(bits)));
+        }
         if (bits == null || bits.length < 2) {
             log.error("Field.parseHeader(): bad syntax for the header: " + header);
             throw new TabInvalidValueException("Field.parseHeader(): bad syntax for the header: " + header);
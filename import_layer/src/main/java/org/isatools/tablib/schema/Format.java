@@ -106,6 +106,11 @@ public class Format extends SchemaNode {
      * Lookup a section by means of its header
      */
     public Section getSectionByHeader(String header, boolean isCaseSensitive) {
+        CompiledFormatSet compiledFormatSet = getCompiledFormatSet();
+        if (compiledFormatSet != null) {
+            return compiledFormatSet.getSectionByHeader(this, header);
+        }
+
         for (Section section : getSections()) {
             if (isCaseSensitive && header.equals(section.getAttr("header"))
                     || header.equalsIgnoreCase(section.getAttr("header"))) {
@@ -128,6 +133,11 @@ public class Format extends SchemaNode {
      * Returns, if exists, the section the field headed with the parameter string belongs to
      */
     public Section getSectionByField(String fieldHeader) {
+        CompiledFormatSet compiledFormatSet = getCompiledFormatSet();
+        if (compiledFormatSet != null) {
+            return compiledFormatSet.getSectionByField(this, fieldHeader);
+        }
+
         try {
             for (Section section : getSections()) {
                 if (section.getFieldByHeader(fieldHeader) != null) {
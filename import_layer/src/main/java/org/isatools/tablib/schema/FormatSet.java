@@ -61,6 +61,8 @@ import java.util.List;
  */
 public class FormatSet extends SchemaNode {
 
+    private volatile CompiledFormatSet compiledFormatSet = null;
+
     public FormatSet() {
     }
 
@@ -129,4 +131,21 @@ public class FormatSet extends SchemaNode {
         return "format-set";
     }
 
+
+    /**
+     * The indexes used for the schema lookups. They're built the first time this is called (or the first time after
+     * the schema has changed) and then shared by all the users of this schema.
+     */
+    public CompiledFormatSet getCompiledFormatSet() {
+        CompiledFormatSet result = compiledFormatSet;
+        if (result == null) {
+            compiledFormatSet = result = new CompiledFormatSet(this);
+        }
+        return result;
+    }
+
+    protected void invalidateCompiledFormatSet() {
+        compiledFormatSet = null;
+    }
+
 }
@@ -118,6 +118,8 @@ public class SchemaBuilder {
 
             parser.parse(input);
             FormatSet schema = handler.getFormatSet();
+            // Builds the lookup indexes once, they will be shared by all the loaders using this schema
+            schema.getCompiledFormatSet();
             log.trace("Schema Builder, returning the schema '" + schema.getId() + "'");
             return schema;
 
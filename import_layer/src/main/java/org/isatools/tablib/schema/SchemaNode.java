@@ -102,6 +102,7 @@ public class SchemaNode {
      * My children, automatically call setParent().
      */
     public void setChildren(List<SchemaNode> children) {
+        invalidateCompiledFormatSet();
         this.children = new ArrayList<SchemaNode>();
         for (SchemaNode child : children) {
             this.addChild(child);
@@ -114,6 +115,7 @@ public class SchemaNode {
     public void addChild(SchemaNode child) {
         this.children.add(child);
         child.setParent(this);
+        invalidateCompiledFormatSet();
     }
 
     /**
@@ -124,6 +126,11 @@ public class SchemaNode {
             throw new TabInternalErrorException("SchemaNode.getChild (), id is null");
         }
 
+        CompiledFormatSet compiledFormatSet = getCompiledFormatSet();
+        if (compiledFormatSet != null) {
+            return compiledFormatSet.getChild(this, id);
+        }
+
         for (SchemaNode child : children) {
             if (isCaseSensitive && id.equals(child.getAttr("id")) || id.equalsIgnoreCase(child.getAttr("id"))) {
                 return child;
@@ -248,6 +255,9 @@ public class SchemaNode {
 
     public void setAttr(String name, String value) {
         attrs.put(name, value);
+        if ("id".equals(name)) {
+            invalidateCompiledFormatSet();
+        }
     }
 
     public String getAttr(String name) {
@@ -259,7 +269,43 @@ public class SchemaNode {
     }
 
     public void setAttrs(Map<String, String> attrs) {
+        String oldId = getId();
         this.attrs = attrs;
+        String newId = getId();
+        if (oldId == null ? newId != null : !oldId.equals(newId)) {
+            invalidateCompiledFormatSet();
+        }
+    }
+
+
+    /**
+     * The indexed version of the schema I belong to, i.e.: {@link FormatSet#getCompiledFormatSet()} for the root of
+     * my tree. Returns null if I don't belong to any {@link FormatSet} (the lookup methods use plain scans then).
+     */
+    public CompiledFormatSet getCompiledFormatSet() {
+        SchemaNode root = getParent();
+        if (root == null) {
+            return null;
+        }
+        while (root.getParent() != null) {
+            root = root.getParent();
+        }
+        return root instanceof FormatSet ? root.getCompiledFormatSet() : null;
+    }
+
+    /**
+     * Must be called when something used by {@link CompiledFormatSet} changes in the schema, so that the
+     * indexes are rebuilt the next time they're needed.
+     */
+    protected void invalidateCompiledFormatSet() {
+        SchemaNode root = getParent();
+        if (root == null) {
+            return;
+        }
+        while (root.getParent() != null) {
+            root = root.getParent();
+        }
+        root.invalidateCompiledFormatSet();
     }
 
 
@@ -50,6 +50,7 @@ package org.isatools.tablib.schema;
 
 
 import org.isatools.tablib.exceptions.TabInternalErrorException;
+import org.isatools.tablib.exceptions.TabInvalidValueException;
 import org.isatools.tablib.parser.ColSectionParser;
 import org.isatools.tablib.parser.RowSectionParser;
 import org.isatools.tablib.parser.TabParser;
@@ -144,6 +145,15 @@ public class Section extends SchemaNode {
      * Name[x](y)
      */
     public Field getFieldByHeader(String header, boolean isCaseSensitive) {
+        CompiledFormatSet compiledFormatSet = getCompiledFormatSet();
+        if (compiledFormatSet != null) {
+            String id = compiledFormatSet.parseHeaderId(header, isCaseSensitive);
+            if (id == null) {
+                throw new TabInvalidValueException("Section.getFieldByHeader(): bad syntax for the header: '" + header + "'");
+            }
+            return getField(id, isCaseSensitive);
+        }
+
         String bits[] = Field.parseHeaderRawResult(header, isCaseSensitive);
 
         if (bits == null || bits.length < 2) {
@@ -169,6 +179,15 @@ public class Section extends SchemaNode {
     }
 
 
+    public void setAttr(String name, String value) {
+        super.setAttr(name, value);
+        if ("header".equals(name)) {
+            header = null;
+            invalidateCompiledFormatSet();
+        }
+    }
+
+
     /**
      * The label if present, the ID otherwise
      */
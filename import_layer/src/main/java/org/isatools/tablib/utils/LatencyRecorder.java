@@ -0,0 +1,122 @@
+/**
+
+ The ISAconverter, ISAvalidator & BII Management Tool are components of the ISA software suite (http://www.isa-tools.org)
+
+ Exhibit A
+ The ISAconverter, ISAvalidator & BII Management Tool are licensed under the Mozilla Public License (MPL) version
+ 1.1/GPL version 2.0/LGPL version 2.1
+
+ "The contents of this file are subject to the Mozilla Public License
+ Version 1.1 (the "License"). You may not use this file except in compliance with the License.
+ You may obtain copies of the Licenses at http://www.mozilla.org/MPL/MPL-1.1.html.
+
+ Software distributed under the License is distributed on an "AS IS"
+ basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ License for the specific language governing rights and limitations
+ under the License.
+
+ The Original Code is the ISAconverter, ISAvalidator & BII Management Tool.
+
+ The Initial Developer of the Original Code is the ISA Team (Eamonn Maguire, eamonnmag@gmail.com;
+ Philippe Rocca-Serra, proccaserra@gmail.com; Susanna-Assunta Sansone, sa.sanson@gmail.com;
+ http://www.isa-tools.org). All portions of the code written by the ISA Team are Copyright (c)
+ 2007-2011 ISA Team. All Rights Reserved.
+
+ Contributor(s):
+ Rocca-Serra P, Brandizi M, Maguire E, Sklyar N, Taylor C, Begley K, Field D,
+ Harris S, Hide W, Hofmann O, Neumann S, Sterk P, Tong W, Sansone SA. ISA software suite:
+ supporting standards-compliant experimental annotation and enabling curation at the community level.
+ Bioinformatics 2010;26(18):2354-6.
+
+ Alternatively, the contents of this file may be used under the terms of either the GNU General
+ Public License Version 2 or later (the "GPL") - http://www.gnu.org/licenses/gpl-2.0.html, or
+ the GNU Lesser General Public License Version 2.1 or later (the "LGPL") -
+ http://www.gnu.org/licenses/lgpl-2.1.html, in which case the provisions of the GPL
+ or the LGPL are applicable instead of those above. If you wish to allow use of your version
+ of this file only under the terms of either the GPL or the LGPL, and not to allow others to
+ use your version of this file under the terms of the MPL, indicate your decision by deleting
+ the provisions above and replace them with the notice and other provisions required by the
+ GPL or the LGPL. If you do not delete the provisions above, a recipient may use your version
+ of this file under the terms of any one of the MPL, the GPL or the LGPL.
+
+ Sponsors:
+ The ISA Team and the ISA software suite have been funded by the EU Carcinogenomics project
+ (http://www.carcinogenomics.eu), the UK BBSRC (http://www.bbsrc.ac.uk), the UK NERC-NEBC
+ (http://nebc.nerc.ac.uk) and in part by the EU NuGO consortium (http://www.nugo.org/everyone).
+
+ */
+
+package org.isatools.tablib.utils;
+
+import java.util.Arrays;
+
+/**
+ * Keeps the durations of the last operations of some kind (e.g.: the calls to a remote service) and computes their
+ * percentiles. Only the last {@link #getCapacity()} samples are considered, so that the figures reflect the current
+ * behaviour of what is measured.
+ */
+public class LatencyRecorder {
+    private final long[] samples;
+    private int nextSample = 0;
+    private long count = 0;
+
+    public LatencyRecorder() {
+        this(1024);
+    }
+
+    /**
+     * @param capacity how many of the last samples are kept.
+     */
+    public LatencyRecorder(int capacity) {
+        samples = new long[capacity];
+    }
+
+    /**
+     * Records the duration of an operation, in milliseconds.
+     */
+    public synchronized void record(long millis) {
+        samples[nextSample] = millis;
+        nextSample = (nextSample + 1) % samples.length;
+        count++;
+    }
+
+    /**
+     * The percentile (between 0 and 100) of the kept samples, e.g.: 50 is the median. It's -1 if there are no samples.
+     */
+    public synchronized long getPercentile(double percentile) {
+        int n = (int) Math.min(count, samples.length);
+        if (n == 0) {
+            return -1;
+        }
+        long[] sorted = new long[n];
+        System.arraycopy(samples, 0, sorted, 0, n);
+        Arrays.sort(sorted);
+        // Nearest rank
+        int rank = (int) Math.ceil(percentile / 100.0 * n);
+        return sorted[Math.max(0, Math.min(n - 1, rank - 1))];
+    }
+
+    public synchronized void clear() {
+        nextSample = 0;
+        count = 0;
+    }
+
+    /**
+     * The no. of samples recorded so far, including those that aren't kept anymore.
+     */
+    public synchronized long getCount() {
+        return count;
+    }
+
+    public int getCapacity() {
+        return samples.length;
+    }
+
+    /**
+     * The count and the usual percentiles, in a human-readable form.
+     */
+    public String getStatistics() {
+        return "calls: " + getCount() + ", latency (ms) p50: " + getPercentile(50) + ", p90: " + getPercentile(90)
+                + ", p99: " + getPercentile(99) + ", max: " + getPercentile(100);
+    }
+}
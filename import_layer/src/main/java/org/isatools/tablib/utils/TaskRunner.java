@@ -0,0 +1,159 @@
+/**
+
+ The ISAconverter, ISAvalidator & BII Management Tool are components of the ISA software suite (http://www.isa-tools.org)
+
+ Exhibit A
+ The ISAconverter, ISAvalidator & BII Management Tool are licensed under the Mozilla Public License (MPL) version
+ 1.1/GPL version 2.0/LGPL version 2.1
+
+ "The contents of this file are subject to the Mozilla Public License
+ Version 1.1 (the "License"). You may not use this file except in compliance with the License.
+ You may obtain copies of the Licenses at http://www.mozilla.org/MPL/MPL-1.1.html.
+
+ Software distributed under the License is distributed on an "AS IS"
+ basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ License for the specific language governing rights and limitations
+ under the License.
+
+ The Original Code is the ISAconverter, ISAvalidator & BII Management Tool.
+
+ The Initial Developer of the Original Code is the ISA Team (Eamonn Maguire, eamonnmag@gmail.com;
+ Philippe Rocca-Serra, proccaserra@gmail.com; Susanna-Assunta Sansone, sa.sanson@gmail.com;
+ http://www.isa-tools.org). All portions of the code written by the ISA Team are Copyright (c)
+ 2007-2011 ISA Team. All Rights Reserved.
+
+ Contributor(s):
+ Rocca-Serra P, Brandizi M, Maguire E, Sklyar N, Taylor C, Begley K, Field D,
+ Harris S, Hide W, Hofmann O, Neumann S, Sterk P, Tong W, Sansone SA. ISA software suite:
+ supporting standards-compliant experimental annotation and enabling curation at the community level.
+ Bioinformatics 2010;26(18):2354-6.
+
+ Alternatively, the contents of this file may be used under the terms of either the GNU General
+ Public License Version 2 or later (the "GPL") - http://www.gnu.org/licenses/gpl-2.0.html, or
+ the GNU Lesser General Public License Version 2.1 or later (the "LGPL") -
+ http://www.gnu.org/licenses/lgpl-2.1.html, in which case the provisions of the GPL
+ or the LGPL are applicable instead of those above. If you wish to allow use of your version
+ of this file only under the terms of either the GPL or the LGPL, and not to allow others to
+ use your version of this file under the terms of the MPL, indicate your decision by deleting
+ the provisions above and replace them with the notice and other provisions required by the
+ GPL or the LGPL. If you do not delete the provisions above, a recipient may use your version
+ of this file under the terms of any one of the MPL, the GPL or the LGPL.
+
+ Sponsors:
+ The ISA Team and the ISA software suite have been funded by the EU Carcinogenomics project
+ (http://www.carcinogenomics.eu), the UK BBSRC (http://www.bbsrc.ac.uk), the UK NERC-NEBC
+ (http://nebc.nerc.ac.uk) and in part by the EU NuGO consortium (http://www.nugo.org/everyone).
+
+ */
+
+package org.isatools.tablib.utils;
+
+import org.apache.log4j.Logger;
+import org.isatools.tablib.exceptions.TabInternalErrorException;
+import org.isatools.tablib.utils.logging.TabNDC;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs a set of independent tasks on a bounded pool of threads, returning their results in task order. This is used
+ * wherever the tools process several files or tables in parallel (e.g.: loading, validation).
+ */
+public final class TaskRunner {
+    protected static final Logger log = Logger.getLogger(TaskRunner.class);
+
+    private TaskRunner() {
+    }
+
+    /**
+     * Runs the tasks with up to nthreads threads and returns the results in the same order as the tasks. If nthreads
+     * is less than 2, the tasks are just run one after the other in the current thread. Otherwise, each task runs
+     * within its own {@link TabNDC#scoped(Callable) logging context} and on a daemon thread named after
+     * threadNamePrefix, the pool is released at the end.
+     * <p/>
+     * If some task fails, the exception of the first failed task (in task order) is re-thrown as it is, as it would
+     * happen in sequential mode, the remaining tasks are cancelled.
+     */
+    public static <T> List<T> run(List<? extends Callable<T>> tasks, int nthreads, String threadNamePrefix)
+            throws Exception {
+        List<T> results = new ArrayList<T>(tasks.size());
+
+        if (nthreads < 2 || tasks.size() < 2) {
+            for (Callable<T> task : tasks) {
+                results.add(task.call());
+            }
+            return results;
+        }
+
+        nthreads = Math.min(nthreads, tasks.size());
+        log.debug("TaskRunner, running " + tasks.size() + " tasks with " + nthreads + " threads");
+        ExecutorService executor = Executors.newFixedThreadPool(nthreads, newDaemonThreadFactory(threadNamePrefix));
+        try {
+            return run(tasks, executor);
+        }
+        finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Like {@link #run(List, int, String)}, but runs the tasks on an existing executor, which is left running. This
+     * is for components that keep a long-lived pool, so that the tasks they send from several threads are bounded
+     * by the same pool. The tasks that are still pending when some task fails are cancelled.
+     */
+    public static <T> List<T> run(List<? extends Callable<T>> tasks, ExecutorService executor) throws Exception {
+        List<T> results = new ArrayList<T>(tasks.size());
+        List<Future<T>> futures = new ArrayList<Future<T>>(tasks.size());
+        try {
+            for (Callable<T> task : tasks) {
+                // Each task logs within its own context, which starts from the one of the invoking thread
+                futures.add(executor.submit(TabNDC.scoped(task)));
+            }
+            for (Future<T> future : futures) {
+                try {
+                    results.add(future.get());
+                }
+                catch (ExecutionException ex) {
+                    Throwable cause = ex.getCause();
+                    if (cause instanceof Exception) {
+                        throw (Exception) cause;
+                    }
+                    if (cause instanceof Error) {
+                        throw (Error) cause;
+                    }
+                    throw ex;
+                }
+                catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    throw new TabInternalErrorException("TaskRunner, interrupted while running tasks in parallel", ex);
+                }
+            }
+        }
+        finally {
+            if (results.size() < tasks.size()) {
+                for (Future<T> future : futures) {
+                    future.cancel(true);
+                }
+            }
+        }
+        return results;
+    }
+
+    /**
+     * A thread factory for daemon threads named threadNamePrefix-1, threadNamePrefix-2, etc., which is used for the
+     * pools that shouldn't prevent the JVM from exiting.
+     */
+    public static ThreadFactory newDaemonThreadFactory(final String threadNamePrefix) {
+        return new ThreadFactory() {
+            private final AtomicInteger threadCount = new AtomicInteger(0);
+
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, threadNamePrefix + "-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        };
+    }
+}
@@ -0,0 +1,325 @@
+/**
+
+ The ISAconverter, ISAvalidator & BII Management Tool are components of the ISA software suite (http://www.isa-tools.org)
+
+ Exhibit A
+ The ISAconverter, ISAvalidator & BII Management Tool are licensed under the Mozilla Public License (MPL) version
+ 1.1/GPL version 2.0/LGPL version 2.1
+
+ "The contents of this file are subject to the Mozilla Public License
+ Version 1.1 (the "License"). You may not use this file except in compliance with the License.
+ You may obtain copies of the Licenses at http://www.mozilla.org/MPL/MPL-1.1.html.
+
+ Software distributed under the License is distributed on an "AS IS"
+ basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ License for the specific language governing rights and limitations
+ under the License.
+
+ The Original Code is the ISAconverter, ISAvalidator & BII Management Tool.
+
+ The Initial Developer of the Original Code is the ISA Team (Eamonn Maguire, eamonnmag@gmail.com;
+ Philippe Rocca-Serra, proccaserra@gmail.com; Susanna-Assunta Sansone, sa.sanson@gmail.com;
+ http://www.isa-tools.org). All portions of the code written by the ISA Team are Copyright (c)
+ 2007-2011 ISA Team. All Rights Reserved.
+
+ Contributor(s):
+ Rocca-Serra P, Brandizi M, Maguire E, Sklyar N, Taylor C, Begley K, Field D,
+ Harris S, Hide W, Hofmann O, Neumann S, Sterk P, Tong W, Sansone SA. ISA software suite:
+ supporting standards-compliant experimental annotation and enabling curation at the community level.
+ Bioinformatics 2010;26(18):2354-6.
+
+ Alternatively, the contents of this file may be used under the terms of either the GNU General
+ Public License Version 2 or later (the "GPL") - http://www.gnu.org/licenses/gpl-2.0.html, or
+ the GNU Lesser General Public License Version 2.1 or later (the "LGPL") -
+ http://www.gnu.org/licenses/lgpl-2.1.html, in which case the provisions of the GPL
+ or the LGPL are applicable instead of those above. If you wish to allow use of your version
+ of this file only under the terms of either the GPL or the LGPL, and not to allow others to
+ use your version of this file under the terms of the MPL, indicate your decision by deleting
+ the provisions above and replace them with the notice and other provisions required by the
+ GPL or the LGPL. If you do not delete the provisions above, a recipient may use your version
+ of this file under the terms of any one of the MPL, the GPL or the LGPL.
+
+ Sponsors:
+ The ISA Team and the ISA software suite have been funded by the EU Carcinogenomics project
+ (http://www.carcinogenomics.eu), the UK BBSRC (http://www.bbsrc.ac.uk), the UK NERC-NEBC
+ (http://nebc.nerc.ac.uk) and in part by the EU NuGO consortium (http://www.nugo.org/everyone).
+
+ */
+
+package org.isatools.tablib.utils;
+
+import java.text.ParsePosition;
+import java.text.SimpleDateFormat;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Checks if a string is a valid value of a type, i.e., if it would be accepted by the usual parser for the type
+ * ({@link Integer#parseInt(String)}, {@link Double#parseDouble(String)}, etc.). The values are scanned character by
+ * character, without building the parsed value and without throwing exceptions for the invalid values, which is
+ * what makes the parsers expensive when a table has many bad values. These methods are thread-safe.
+ */
+public final class ValueScanners {
+    /**
+     * The formats used by {@link #isDate(String, String[])} for the unusual values, pattern -> format, one set per
+     * thread, since they're not thread-safe.
+     */
+    private static final ThreadLocal<Map<String, SimpleDateFormat>> dateFormats =
+            new ThreadLocal<Map<String, SimpleDateFormat>>() {
+                @Override
+                protected Map<String, SimpleDateFormat> initialValue() {
+                    return new HashMap<String, SimpleDateFormat>();
+                }
+            };
+
+    private ValueScanners() {
+    }
+
+
+    /**
+     * "true" or "false", case-insensitive.
+     */
+    public static boolean isBoolean(String value) {
+        return "true".equalsIgnoreCase(value) || "false".equalsIgnoreCase(value);
+    }
+
+    /**
+     * Accepts the same values as {@link Integer#parseInt(String)}.
+     */
+    public static boolean isInteger(String value) {
+        if (value == null) {
+            return false;
+        }
+        int len = value.length(), i = 0;
+        if (len == 0) {
+            return false;
+        }
+        boolean isNegative = false;
+        char first = value.charAt(0);
+        if (first == '-' || first == '+') {
+            isNegative = first == '-';
+            if (++i == len) {
+                return false;
+            }
+        }
+        long limit = isNegative ? -(long) Integer.MIN_VALUE : Integer.MAX_VALUE, result = 0;
+        for (; i < len; i++) {
+            int digit = Character.digit(value.charAt(i), 10);
+            if (digit < 0) {
+                return false;
+            }
+            result = result * 10 + digit;
+            if (result > limit) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Accepts the same values as {@link Double#parseDouble(String)}, i.e., decimal numbers with optional exponent and
+     * type suffix (e.g.: "1.5e-3", "2f"), "NaN", "Infinity" and the hexadecimal forms, with the surrounding
+     * whitespace. Only the latter are passed to parseDouble() (they are valid if they start with "0x").
+     */
+    public static boolean isDouble(String value) {
+        if (value == null) {
+            return false;
+        }
+        // Like String.trim(), which is what parseDouble() uses
+        int len = value.length(), i = 0;
+        while (len > 0 && value.charAt(len - 1) <= ' ') {
+            len--;
+        }
+        while (i < len && value.charAt(i) <= ' ') {
+            i++;
+        }
+        if (i == len) {
+            return false;
+        }
+
+        char c = value.charAt(i);
+        if (c == '-' || c == '+') {
+            i++;
+        }
+        if (value.startsWith("NaN", i)) {
+            return i + 3 == len;
+        }
+        if (value.startsWith("Infinity", i)) {
+            return i + 8 == len;
+        }
+        if (i + 1 < len && value.charAt(i) == '0' && ((c = value.charAt(i + 1)) == 'x' || c == 'X')) {
+            try {
+                Double.parseDouble(value);
+                return true;
+            }
+            catch (NumberFormatException ex) {
+                return false;
+            }
+        }
+
+        int ndigits = 0;
+        for (; i < len && (c = value.charAt(i)) >= '0' && c <= '9'; i++) {
+            ndigits++;
+        }
+        if (i < len && value.charAt(i) == '.') {
+            for (i++; i < len && (c = value.charAt(i)) >= '0' && c <= '9'; i++) {
+                ndigits++;
+            }
+        }
+        if (ndigits == 0) {
+            return false;
+        }
+        if (i < len && ((c = value.charAt(i)) == 'e' || c == 'E')) {
+            i++;
+            if (i < len && ((c = value.charAt(i)) == '-' || c == '+')) {
+                i++;
+            }
+            int nexpDigits = 0;
+            for (; i < len && (c = value.charAt(i)) >= '0' && c <= '9'; i++) {
+                nexpDigits++;
+            }
+            if (nexpDigits == 0) {
+                return false;
+            }
+        }
+        if (i < len && ((c = value.charAt(i)) == 'f' || c == 'F' || c == 'd' || c == 'D')) {
+            i++;
+        }
+        return i == len;
+    }
+
+    /**
+     * Accepts the same values as {@link org.apache.commons.lang.time.DateUtils#parseDate(String, String[])}, i.e.,
+     * the values that a lenient {@link SimpleDateFormat} parses entirely with one of the patterns.
+     * <p/>
+     * The patterns made of numeric fields (y, M, d, H, m, s, month names excluded) and separators (e.g.: "yyyy-MM-dd",
+     * "dd/MM/yyyy") are matched by scanning the value, without the date formats. The formats are used only for the
+     * unusual values that a lenient format could still accept, such as values with spaces or signs, while the values
+     * having characters that can't be in a date (e.g.: "n/a") are rejected straight away.
+     */
+    public static boolean isDate(String value, String[] patterns) {
+        if (value == null || value.length() == 0) {
+            return false;
+        }
+        boolean isUnusual = false;
+        for (String pattern : patterns) {
+            int match = matchNumericPattern(value, pattern);
+            if (match > 0) {
+                return true;
+            }
+            if (match < 0) {
+                isUnusual = true;
+            }
+        }
+        if (!isUnusual && !isLenientDateCandidate(value, patterns)) {
+            return false;
+        }
+
+        Map<String, SimpleDateFormat> formats = dateFormats.get();
+        ParsePosition pos = new ParsePosition(0);
+        for (String pattern : patterns) {
+            SimpleDateFormat format = formats.get(pattern);
+            if (format == null) {
+                format = new SimpleDateFormat(pattern);
+                formats.put(pattern, format);
+            }
+            pos.setIndex(0);
+            pos.setErrorIndex(-1);
+            if (format.parse(value, pos) != null && pos.getIndex() == value.length()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Matches the value against a pattern made of numeric fields and separators, every field matching a run of
+     * digits. Returns 1 if the value matches, 0 if it doesn't and -1 if the pattern isn't of such type, or the value
+     * has digit runs too long to be scanned like this.
+     */
+    private static int matchNumericPattern(String value, String pattern) {
+        int len = value.length(), plen = pattern.length(), i = 0, j = 0;
+        char prev = 0;
+        while (j < plen) {
+            char p = pattern.charAt(j);
+            if (p == '\'') {
+                return -1;
+            }
+            if ((p >= 'a' && p <= 'z') || (p >= 'A' && p <= 'Z')) {
+                if ("yMdHms".indexOf(p) == -1 || isLetter(prev)) {
+                    // Non numeric field, or adjacent fields, which need the field widths
+                    return -1;
+                }
+                int j0 = j;
+                while (j < plen && pattern.charAt(j) == p) {
+                    j++;
+                }
+                if (p == 'M' && j - j0 >= 3) {
+                    // Month names
+                    return -1;
+                }
+                int ndigits = 0;
+                char c;
+                while (i < len && (c = value.charAt(i)) >= '0' && c <= '9') {
+                    i++;
+                    ndigits++;
+                }
+                if (ndigits == 0) {
+                    return 0;
+                }
+                if (ndigits > 9) {
+                    return -1;
+                }
+                prev = p;
+                continue;
+            }
+            if (i == len || value.charAt(i) != p) {
+                return 0;
+            }
+            i++;
+            j++;
+            prev = p;
+        }
+        return i == len ? 1 : 0;
+    }
+
+    private static boolean isLetter(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+    }
+
+    /**
+     * true if a lenient date format could accept a value that {@link #matchNumericPattern(String, String)} rejects
+     * with all the patterns. That's possible for values with spaces, signs, exponents, infinity/NaN symbols (the
+     * numbers are parsed by a {@link java.text.DecimalFormat}) or non-ASCII digits. A value made of ASCII digits and
+     * separators only, or a value with characters that can't be in such dates, is certainly invalid.
+     */
+    private static boolean isLenientDateCandidate(String value, String[] patterns) {
+        boolean result = false;
+        for (int i = 0, len = value.length(); i < len; i++) {
+            char c = value.charAt(i);
+            if (c >= '0' && c <= '9') {
+                continue;
+            }
+            if (Character.isDigit(c) || Character.isWhitespace(c) || c == '+' || c == 'E'
+                    || c == '\u221e' || c == '\ufffd') {
+                result = true;
+                continue;
+            }
+            boolean isSeparator = false;
+            for (String pattern : patterns) {
+                if (!isLetter(c) && c != '\'' && pattern.indexOf(c) != -1) {
+                    isSeparator = true;
+                    break;
+                }
+            }
+            if (!isSeparator && c != '-') {
+                return false;
+            }
+            if (c == '-' && (i == 0 || value.charAt(i - 1) < '0' || value.charAt(i - 1) > '9')) {
+                // Might be a sign
+                result = true;
+            }
+        }
+        return result;
+    }
+}
@@ -59,10 +59,9 @@ import uk.ac.ebi.bioinvindex.model.Investigation;
 import uk.ac.ebi.bioinvindex.model.Material;
 import uk.ac.ebi.bioinvindex.model.Study;
 
-import java.util.Hashtable;
 import java.util.List;
-import java.util.Map;
 import java.util.Stack;
+import java.util.concurrent.Callable;
 
 /**
  * This is an {@link NDC} that is specialized in reporting the context we are during the process of an TAB format and
@@ -72,7 +71,12 @@ import java.util.Stack;
  * and another one to trace the objects in the BII model that are being processed.
  * <p/>
  * As the Log4j's NDC, there is one TabNDC per thread. Differently than the original Log4j NDC, you must {@link #getInstance()}
- * to use the TabNDC methods (I think the singleton pattern is cleaner).
+ * to use the TabNDC methods (I think the singleton pattern is cleaner). Don't keep the instance in static fields, or in
+ * objects used by multiple threads, it refers to the thread where it was obtained.
+ * <p/>
+ * Instances are kept in a {@link ThreadLocal}. When tasks run in pooled or long-lived threads, either wrap them with
+ * {@link #scoped(Callable)}, which gives the task its own context and discards it at the end, or call {@link #remove()}
+ * when the task is over, so that the thread doesn't hold the objects in the stacks after the task.
  * <p/>
  * Moreover, the class keeps {@link NDC} synchronized, so that log4j appenders report automatically the information managed
  * here.
@@ -88,9 +92,16 @@ public class TabNDC {
     }
 
     /**
-     * Delegating synchronization to {@link Hashtable} is enough here.
+     * A new context that starts with the same stacks as parent, if it is not null.
      */
-    private static Map<Thread, TabNDC> instances = new Hashtable<Thread, TabNDC>();
+    private TabNDC(TabNDC parent) {
+        if (parent != null) {
+            tabDescriptorStack.addAll(parent.tabDescriptorStack);
+            objectStack.addAll(parent.objectStack);
+        }
+    }
+
+    private static final ThreadLocal<TabNDC> instances = new ThreadLocal<TabNDC>();
 
     private Stack<TabLogDescriptor> tabDescriptorStack = new Stack<TabLogDescriptor>();
     private final Stack<Identifiable> objectStack = new Stack<Identifiable>();
@@ -100,15 +111,67 @@ public class TabNDC {
      * One instance per thread. There is internal management of synchronization, so all should be thread-safe.
      */
     public static TabNDC getInstance() {
-        Thread thread = Thread.currentThread();
-        TabNDC instance = instances.get(thread);
+        TabNDC instance = instances.get();
         if (instance == null) {
             instance = new TabNDC();
-            instances.put(thread, instance);
+            instances.set(instance);
         }
         return instance;
     }
 
+    /**
+     * Discards the context of the current thread, including the log4j {@link NDC}. The next {@link #getInstance()}
+     * returns a new empty context.
+     */
+    public static void remove() {
+        instances.remove();
+        NDC.remove();
+    }
+
+    /**
+     * Wraps a task so that it runs within its own context, whatever thread runs it. The context starts with a copy
+     * of the context that the current thread has when this method is invoked (so that the messages logged by the task
+     * report where it was created, e.g., which file is being loaded), and is discarded when the task ends, restoring
+     * the context that the running thread had before.
+     */
+    public static <T> Callable<T> scoped(final Callable<T> task) {
+        final TabNDC parent = new TabNDC(instances.get());
+        final Stack parentNdcStack = cloneNdcStack();
+
+        return new Callable<T>() {
+            @SuppressWarnings("unchecked")
+            public T call() throws Exception {
+                TabNDC previous = instances.get();
+                Stack previousNdcStack = cloneNdcStack();
+
+                instances.set(new TabNDC(parent));
+                NDC.inherit((Stack) parentNdcStack.clone());
+                try {
+                    return task.call();
+                }
+                finally {
+                    NDC.remove();
+                    if (!previousNdcStack.isEmpty()) {
+                        NDC.inherit(previousNdcStack);
+                    }
+                    if (previous == null) {
+                        instances.remove();
+                    } else {
+                        instances.set(previous);
+                    }
+                }
+            }
+        };
+    }
+
+    /**
+     * Older log4j versions return null when the thread has no NDC.
+     */
+    private static Stack cloneNdcStack() {
+        Stack result = NDC.cloneStack();
+        return result == null ? new Stack() : result;
+    }
+
     /**
      * Generic push of a TAB descriptor
      */
@@ -0,0 +1,136 @@
+/**
+
+ The ISAconverter, ISAvalidator & BII Management Tool are components of the ISA software suite (http://www.isa-tools.org)
+
+ Exhibit A
+ The ISAconverter, ISAvalidator & BII Management Tool are licensed under the Mozilla Public License (MPL) version
+ 1.1/GPL version 2.0/LGPL version 2.1
+
+ "The contents of this file are subject to the Mozilla Public License
+ Version 1.1 (the "License"). You may not use this file except in compliance with the License.
+ You may obtain copies of the Licenses at http://www.mozilla.org/MPL/MPL-1.1.html.
+
+ Software distributed under the License is distributed on an "AS IS"
+ basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ License for the specific language governing rights and limitations
+ under the License.
+
+ The Original Code is the ISAconverter, ISAvalidator & BII Management Tool.
+
+ The Initial Developer of the Original Code is the ISA Team (Eamonn Maguire, eamonnmag@gmail.com;
+ Philippe Rocca-Serra, proccaserra@gmail.com; Susanna-Assunta Sansone, sa.sanson@gmail.com;
+ http://www.isa-tools.org). All portions of the code written by the ISA Team are Copyright (c)
+ 2007-2011 ISA Team. All Rights Reserved.
+
+ Contributor(s):
+ Rocca-Serra P, Brandizi M, Maguire E, Sklyar N, Taylor C, Begley K, Field D,
+ Harris S, Hide W, Hofmann O, Neumann S, Sterk P, Tong W, Sansone SA. ISA software suite:
+ supporting standards-compliant experimental annotation and enabling curation at the community level.
+ Bioinformatics 2010;26(18):2354-6.
+
+ Alternatively, the contents of this file may be used under the terms of either the GNU General
+ Public License Version 2 or later (the "GPL") - http://www.gnu.org/licenses/gpl-2.0.html, or
+ the GNU Lesser General Public License Version 2.1 or later (the "LGPL") -
+ http://www.gnu.org/licenses/lgpl-2.1.html, in which case the provisions of the GPL
+ or the LGPL are applicable instead of those above. If you wish to allow use of your version
+ of this file only under the terms of either the GPL or the LGPL, and not to allow others to
+ use your version of this file under the terms of the MPL, indicate your decision by deleting
+ the provisions above and replace them with the notice and other provisions required by the
+ GPL or the LGPL. If you do not delete the provisions above, a recipient may use your version
+ of this file under the terms of any one of the MPL, the GPL or the LGPL.
+
+ Sponsors:
+ The ISA Team and the ISA software suite have been funded by the EU Carcinogenomics project
+ (http://www.carcinogenomics.eu), the UK BBSRC (http://www.bbsrc.ac.uk), the UK NERC-NEBC
+ (http://nebc.nerc.ac.uk) and in part by the EU NuGO consortium (http://www.nugo.org/everyone).
+
+ */
+
+package org.isatools.isatab;
+
+import org.apache.commons.io.FileUtils;
+import org.isatools.isatab.gui_invokers.GUIInvokerResult;
+import org.isatools.isatab.isaconfigurator.ISAConfigurationSet;
+import org.isatools.tablib.utils.logging.TabErrorEntry;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.List;
+
+import static java.lang.System.out;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ISATABStreamingValidatorTest {
+
+    @Test
+    public void testValidation() throws Exception {
+        String baseDir = System.getProperty("basedir");
+        String cfgPath = baseDir + "/target/test-classes/test-data/isatab/batch_test/configs/isa_configurator";
+        String isapath = baseDir + "/target/test-classes/test-data/isatab/isatab_bii/JCastrillo-BII-I-1";
+        ISAConfigurationSet.setConfigPath(cfgPath);
+
+        ISATABStreamingValidator validator = new ISATABStreamingValidator(isapath);
+        assertEquals("Gosh! The validator should return WARNING", GUIInvokerResult.WARNING, validator.validate());
+        assertTrue("Gosh! Errors reported for a good submission!", validator.getErrors().isEmpty());
+        assertTrue("Gosh! No rows checked!", validator.getRecordCount() > 0);
+    }
+
+    @Test
+    public void testUndefinedSample() throws Exception {
+        String baseDir = System.getProperty("basedir");
+        String cfgPath = baseDir + "/target/test-classes/test-data/isatab/batch_test/configs/isa_configurator";
+        File filesDir = new File(baseDir + "/target/test-classes/test-data/isatab/isatab_bii/JCastrillo-BII-I-1");
+        File testDir = new File(baseDir + "/target/streaming_validator_test");
+        FileUtils.deleteDirectory(testDir);
+        FileUtils.copyDirectory(filesDir, testDir);
+        ISAConfigurationSet.setConfigPath(cfgPath);
+
+        File assayFile = new File(testDir, "a_metabolome.txt");
+        String assay = FileUtils.readFileToString(assayFile);
+        FileUtils.writeStringToFile(assayFile, assay.replace("S-0.2-aliquot8\tinternal", "S-undefined\tinternal"));
+
+        ISATABStreamingValidator validator = new ISATABStreamingValidator(testDir.getPath());
+        assertEquals("Gosh! The validator should return ERROR", GUIInvokerResult.ERROR, validator.validate());
+
+        List<TabErrorEntry> errors = validator.getErrors();
+        for (TabErrorEntry error : errors) {
+            out.println(error);
+        }
+        assertEquals("Wrong no. of errors!", 1, errors.size());
+        TabErrorEntry error = errors.get(0);
+        assertEquals("Wrong rule for the undefined sample!", "undefined_sample_name", error.getRule());
+        assertEquals("Wrong file for the undefined sample!", "a_metabolome.txt", error.getFileId());
+        assertTrue("The undefined sample isn't reported!", error.getMessage().contains("S-undefined"));
+    }
+
+    @Test
+    public void testWrongColumn() throws Exception {
+        String baseDir = System.getProperty("basedir");
+        String cfgPath = baseDir + "/target/test-classes/test-data/isatab/batch_test/configs/isa_configurator";
+        File filesDir = new File(baseDir + "/target/test-classes/test-data/isatab/isatab_bii/JCastrillo-BII-I-1");
+        File testDir = new File(baseDir + "/target/streaming_validator_column_test");
+        FileUtils.deleteDirectory(testDir);
+        FileUtils.copyDirectory(filesDir, testDir);
+        ISAConfigurationSet.setConfigPath(cfgPath);
+
+        File assayFile = new File(testDir, "a_metabolome.txt");
+        String assay = FileUtils.readFileToString(assayFile);
+        FileUtils.writeStringToFile(assayFile, assay.replaceFirst("Labeled Extract Name", "Bogus Column"));
+
+        // The wrong header must be reported, not abort the validation
+        ISATABStreamingValidator validator = new ISATABStreamingValidator(testDir.getPath());
+        assertEquals("Gosh! The validator should return ERROR", GUIInvokerResult.ERROR, validator.validate());
+
+        boolean isReported = false;
+        for (TabErrorEntry error : validator.getErrors()) {
+            out.println(error);
+            if ("invalid_section".equals(error.getRule()) && "a_metabolome.txt".equals(error.getFileId())) {
+                isReported = true;
+            }
+        }
+        assertTrue("The wrong column isn't reported!", isReported);
+        assertTrue("Gosh! The other files aren't checked!", validator.getRecordCount() > 0);
+    }
+
+}
@@ -0,0 +1,119 @@
+/**
+
+ The ISAconverter, ISAvalidator & BII Management Tool are components of the ISA software suite (http://www.isa-tools.org)
+
+ Exhibit A
+ The ISAconverter, ISAvalidator & BII Management Tool are licensed under the Mozilla Public License (MPL) version
+ 1.1/GPL version 2.0/LGPL version 2.1
+
+ "The contents of this file are subject to the Mozilla Public License
+ Version 1.1 (the "License"). You may not use this file except in compliance with the License.
+ You may obtain copies of the Licenses at http://www.mozilla.org/MPL/MPL-1.1.html.
+
+ Software distributed under the License is distributed on an "AS IS"
+ basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ License for the specific language governing rights and limitations
+ under the License.
+
+ The Original Code is the ISAconverter, ISAvalidator & BII Management Tool.
+
+ The Initial Developer of the Original Code is the ISA Team (Eamonn Maguire, eamonnmag@gmail.com;
+ Philippe Rocca-Serra, proccaserra@gmail.com; Susanna-Assunta Sansone, sa.sanson@gmail.com;
+ http://www.isa-tools.org). All portions of the code written by the ISA Team are Copyright (c)
+ 2007-2011 ISA Team. All Rights Reserved.
+
+ Contributor(s):
+ Rocca-Serra P, Brandizi M, Maguire E, Sklyar N, Taylor C, Begley K, Field D,
+ Harris S, Hide W, Hofmann O, Neumann S, Sterk P, Tong W, Sansone SA. ISA software suite:
+ supporting standards-compliant experimental annotation and enabling curation at the community level.
+ Bioinformatics 2010;26(18):2354-6.
+
+ Alternatively, the contents of this file may be used under the terms of either the GNU General
+ Public License Version 2 or later (the "GPL") - http://www.gnu.org/licenses/gpl-2.0.html, or
+ the GNU Lesser General Public License Version 2.1 or later (the "LGPL") -
+ http://www.gnu.org/licenses/lgpl-2.1.html, in which case the provisions of the GPL
+ or the LGPL are applicable instead of those above. If you wish to allow use of your version
+ of this file only under the terms of either the GPL or the LGPL, and not to allow others to
+ use your version of this file under the terms of the MPL, indicate your decision by deleting
+ the provisions above and replace them with the notice and other provisions required by the
+ GPL or the LGPL. If you do not delete the provisions above, a recipient may use your version
+ of this file under the terms of any one of the MPL, the GPL or the LGPL.
+
+ Sponsors:
+ The ISA Team and the ISA software suite have been funded by the EU Carcinogenomics project
+ (http://www.carcinogenomics.eu), the UK BBSRC (http://www.bbsrc.ac.uk), the UK NERC-NEBC
+ (http://nebc.nerc.ac.uk) and in part by the EU NuGO consortium (http://www.nugo.org/everyone).
+
+ */
+
+package org.isatools.isatab;
+
+import org.apache.commons.io.FileUtils;
+import org.isatools.isatab.gui_invokers.GUIInvokerResult;
+import org.isatools.isatab.isaconfigurator.ISAConfigurationSet;
+import org.isatools.tablib.utils.logging.TabErrorEntry;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+
+import static java.lang.System.out;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ISATABValidationSessionTest {
+
+    @Test
+    public void testIncrementalValidation() throws Exception {
+        String baseDir = System.getProperty("basedir");
+        String cfgPath = baseDir + "/target/test-classes/test-data/isatab/batch_test/configs/isa_configurator";
+        File filesDir = new File(baseDir + "/target/test-classes/test-data/isatab/isatab_bii/JCastrillo-BII-I-1");
+        File testDir = new File(baseDir + "/target/validation_session_test");
+        FileUtils.deleteDirectory(testDir);
+        FileUtils.copyDirectory(filesDir, testDir);
+        ISAConfigurationSet.setConfigPath(cfgPath);
+
+        ISATABValidationSession session = new ISATABValidationSession(testDir.getPath());
+        assertEquals("Gosh! The validator should return WARNING", GUIInvokerResult.WARNING, session.validate());
+        assertEquals("Wrong files validated the first time!", new HashSet<String>(Arrays.asList(
+                "s_BII-S-1.txt", "s_BII-S-2.txt", "a_proteome.txt", "a_metabolome.txt", "a_transcriptome.txt",
+                "a_microarray.txt"
+        )), session.getRevalidatedFileIds());
+        int nmessages = session.getMessages().size();
+
+        assertEquals("Gosh! The validator should return WARNING", GUIInvokerResult.WARNING, session.validate());
+        assertTrue("Files validated without changes!", session.getRevalidatedFileIds().isEmpty());
+        assertEquals("Wrong no. of messages without changes!", nmessages, session.getMessages().size());
+
+        // An undefined sample in an assay file
+        File assayFile = new File(testDir, "a_metabolome.txt");
+        String assay = FileUtils.readFileToString(assayFile);
+        FileUtils.writeStringToFile(assayFile, assay.replace("S-0.2-aliquot8\tinternal", "S-undefined\tinternal"));
+
+        assertEquals("Gosh! The validator should return ERROR", GUIInvokerResult.ERROR, session.validate());
+        assertEquals("Wrong files validated after a change!", new HashSet<String>(Arrays.asList("a_metabolome.txt")),
+                session.getRevalidatedFileIds());
+        List<TabErrorEntry> errors = session.getErrors();
+        for (TabErrorEntry error : errors) {
+            out.println(error);
+        }
+        assertEquals("Wrong no. of errors!", 1, errors.size());
+        assertEquals("Wrong rule for the undefined sample!", "undefined_sample_name", errors.get(0).getRule());
+
+        // Now the sample is defined, only the sample file is read, the assay is checked against the new names
+        File studyFile = new File(testDir, "s_BII-S-1.txt");
+        String study = FileUtils.readFileToString(studyFile);
+        assertTrue("Test sample not found!", study.contains("S-0.2-aliquot8"));
+        FileUtils.writeStringToFile(studyFile, study.replace("S-0.2-aliquot8", "S-undefined"));
+
+        session.validate();
+        assertEquals("Wrong files validated after a change!", new HashSet<String>(Arrays.asList("s_BII-S-1.txt")),
+                session.getRevalidatedFileIds());
+        for (TabErrorEntry error : session.getErrors()) {
+            assertTrue("Undefined sample still reported!", !"undefined_sample_name".equals(error.getRule()));
+        }
+    }
+
+}
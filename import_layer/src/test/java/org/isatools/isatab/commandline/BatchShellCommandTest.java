@@ -0,0 +1,138 @@
+/**
+
+ The ISAconverter, ISAvalidator & BII Management Tool are components of the ISA software suite (http://www.isa-tools.org)
+
+ Exhibit A
+ The ISAconverter, ISAvalidator & BII Management Tool are licensed under the Mozilla Public License (MPL) version
+ 1.1/GPL version 2.0/LGPL version 2.1
+
+ "The contents of this file are subject to the Mozilla Public License
+ Version 1.1 (the "License"). You may not use this file except in compliance with the License.
+ You may obtain copies of the Licenses at http://www.mozilla.org/MPL/MPL-1.1.html.
+
+ Software distributed under the License is distributed on an "AS IS"
+ basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ License for the specific language governing rights and limitations
+ under the License.
+
+ The Original Code is the ISAconverter, ISAvalidator & BII Management Tool.
+
+ The Initial Developer of the Original Code is the ISA Team (Eamonn Maguire, eamonnmag@gmail.com;
+ Philippe Rocca-Serra, proccaserra@gmail.com; Susanna-Assunta Sansone, sa.sanson@gmail.com;
+ http://www.isa-tools.org). All portions of the code written by the ISA Team are Copyright (c)
+ 2007-2011 ISA Team. All Rights Reserved.
+
+ Contributor(s):
+ Rocca-Serra P, Brandizi M, Maguire E, Sklyar N, Taylor C, Begley K, Field D,
+ Harris S, Hide W, Hofmann O, Neumann S, Sterk P, Tong W, Sansone SA. ISA software suite:
+ supporting standards-compliant experimental annotation and enabling curation at the community level.
+ Bioinformatics 2010;26(18):2354-6.
+
+ Alternatively, the contents of this file may be used under the terms of either the GNU General
+ Public License Version 2 or later (the "GPL") - http://www.gnu.org/licenses/gpl-2.0.html, or
+ the GNU Lesser General Public License Version 2.1 or later (the "LGPL") -
+ http://www.gnu.org/licenses/lgpl-2.1.html, in which case the provisions of the GPL
+ or the LGPL are applicable instead of those above. If you wish to allow use of your version
+ of this file only under the terms of either the GPL or the LGPL, and not to allow others to
+ use your version of this file under the terms of the MPL, indicate your decision by deleting
+ the provisions above and replace them with the notice and other provisions required by the
+ GPL or the LGPL. If you do not delete the provisions above, a recipient may use your version
+ of this file under the terms of any one of the MPL, the GPL or the LGPL.
+
+ Sponsors:
+ The ISA Team and the ISA software suite have been funded by the EU Carcinogenomics project
+ (http://www.carcinogenomics.eu), the UK BBSRC (http://www.bbsrc.ac.uk), the UK NERC-NEBC
+ (http://nebc.nerc.ac.uk) and in part by the EU NuGO consortium (http://www.nugo.org/everyone).
+
+ */
+
+package org.isatools.isatab.commandline;
+
+import org.apache.commons.io.FileUtils;
+import org.isatools.isatab.gui_invokers.AllowedConversions;
+import org.isatools.isatab.gui_invokers.GUIInvokerResult;
+import org.isatools.isatab.isaconfigurator.ISAConfigurationSet;
+import org.isatools.isatab.server.ISATABJob;
+import org.isatools.isatab.server.ISATABJobRunner;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.*;
+
+import static java.lang.System.out;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class BatchShellCommandTest {
+
+    @Test
+    public void testBatch() throws Exception {
+        String baseDir = System.getProperty("basedir");
+        String cfgPath = baseDir + "/target/test-classes/test-data/isatab/batch_test/configs/isa_configurator";
+        File filesDir = new File(baseDir + "/target/test-classes/test-data/isatab/isatab_bii/JCastrillo-BII-I-1");
+        File testDir = new File(baseDir + "/target/batch_command_test");
+        FileUtils.deleteDirectory(testDir);
+        FileUtils.copyDirectory(filesDir, new File(testDir, "good"));
+        File badDir = new File(testDir, "bad");
+        FileUtils.copyDirectory(filesDir, badDir);
+        new File(badDir, "a_metabolome.txt").delete();
+        new File(testDir, "not_a_submission").mkdir();
+
+        List<String> submissions = BatchShellCommand.findSubmissions(testDir);
+        assertEquals("Wrong submissions found!", Arrays.asList(
+                new File(testDir, "bad").getPath(), new File(testDir, "good").getPath()
+        ), submissions);
+
+        List<ISATABJob> jobs = new ArrayList<ISATABJob>();
+        Map<ISATABJob, File> logFiles = new HashMap<ISATABJob, File>();
+        for (String submission : submissions) {
+            ISATABJob job = new ISATABJob(ISATABJob.Type.VALIDATE, submission);
+            job.setValidationMode(ISATABJob.ValidationMode.STREAMING);
+            jobs.add(job);
+            logFiles.put(job, new File(testDir, "logs/" + new File(submission).getName() + ".log"));
+        }
+        BatchShellCommand.runJobs(new ISATABJobRunner(new ISAConfigurationSet(cfgPath)), jobs, logFiles, 2);
+
+        assertEquals("Wrong result for the bad submission!", GUIInvokerResult.ERROR, jobs.get(0).getResult());
+        assertEquals("Wrong result for the good submission!", GUIInvokerResult.WARNING, jobs.get(1).getResult());
+        assertTrue("Log file not written!", new File(testDir, "logs/good.log").length() > 0);
+
+        File summaryFile = new File(testDir, "summary.tsv");
+        BatchShellCommand.writeSummary(jobs, logFiles, summaryFile);
+        List<String> lines = FileUtils.readLines(summaryFile, "UTF-8");
+        for (String line : lines) {
+            out.println(line);
+        }
+        assertEquals("Wrong no. of summary lines!", 3, lines.size());
+        assertTrue("Wrong summary line!", lines.get(2).contains("\tvalidate\tWARNING\t"));
+
+        File jsonSummaryFile = new File(testDir, "summary.json");
+        BatchShellCommand.writeSummary(jobs, logFiles, jsonSummaryFile);
+        String json = FileUtils.readFileToString(jsonSummaryFile, "UTF-8");
+        out.println(json);
+        assertTrue("Wrong JSON summary!", json.contains("\"result\": \"ERROR\""));
+    }
+
+    @Test
+    public void testOptionValues() throws Exception {
+        assertEquals("Wrong validation mode!",
+                ISATABJob.ValidationMode.STREAMING, BatchShellCommand.getValidationMode("streaming"));
+        assertEquals("Wrong conversion!", AllowedConversions.SRA, BatchShellCommand.getConversion("sra"));
+        try {
+            BatchShellCommand.getValidationMode("quick");
+            fail("An invalid validation mode was accepted!");
+        }
+        catch (IllegalArgumentException ex) {
+            assertTrue("Wrong error message!", ex.getMessage().contains("use full, simple or streaming"));
+        }
+        try {
+            BatchShellCommand.getConversion("pdf");
+            fail("An invalid conversion was accepted!");
+        }
+        catch (IllegalArgumentException ex) {
+            assertTrue("Wrong error message!", ex.getMessage().contains("use all, magetab, prideml or sra"));
+        }
+    }
+
+}
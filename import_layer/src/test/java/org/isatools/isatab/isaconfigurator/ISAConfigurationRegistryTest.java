@@ -0,0 +1,116 @@
+/**
+
+ The ISAconverter, ISAvalidator & BII Management Tool are components of the ISA software suite (http://www.isa-tools.org)
+
+ Exhibit A
+ The ISAconverter, ISAvalidator & BII Management Tool are licensed under the Mozilla Public License (MPL) version
+ 1.1/GPL version 2.0/LGPL version 2.1
+
+ "The contents of this file are subject to the Mozilla Public License
+ Version 1.1 (the "License"). You may not use this file except in compliance with the License.
+ You may obtain copies of the Licenses at http://www.mozilla.org/MPL/MPL-1.1.html.
+
+ Software distributed under the License is distributed on an "AS IS"
+ basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ License for the specific language governing rights and limitations
+ under the License.
+
+ The Original Code is the ISAconverter, ISAvalidator & BII Management Tool.
+
+ The Initial Developer of the Original Code is the ISA Team (Eamonn Maguire, eamonnmag@gmail.com;
+ Philippe Rocca-Serra, proccaserra@gmail.com; Susanna-Assunta Sansone, sa.sanson@gmail.com;
+ http://www.isa-tools.org). All portions of the code written by the ISA Team are Copyright (c)
+ 2007-2011 ISA Team. All Rights Reserved.
+
+ Contributor(s):
+ Rocca-Serra P, Brandizi M, Maguire E, Sklyar N, Taylor C, Begley K, Field D,
+ Harris S, Hide W, Hofmann O, Neumann S, Sterk P, Tong W, Sansone SA. ISA software suite:
+ supporting standards-compliant experimental annotation and enabling curation at the community level.
+ Bioinformatics 2010;26(18):2354-6.
+
+ Alternatively, the contents of this file may be used under the terms of either the GNU General
+ Public License Version 2 or later (the "GPL") - http://www.gnu.org/licenses/gpl-2.0.html, or
+ the GNU Lesser General Public License Version 2.1 or later (the "LGPL") -
+ http://www.gnu.org/licenses/lgpl-2.1.html, in which case the provisions of the GPL
+ or the LGPL are applicable instead of those above. If you wish to allow use of your version
+ of this file only under the terms of either the GPL or the LGPL, and not to allow others to
+ use your version of this file under the terms of the MPL, indicate your decision by deleting
+ the provisions above and replace them with the notice and other provisions required by the
+ GPL or the LGPL. If you do not delete the provisions above, a recipient may use your version
+ of this file under the terms of any one of the MPL, the GPL or the LGPL.
+
+ Sponsors:
+ The ISA Team and the ISA software suite have been funded by the EU Carcinogenomics project
+ (http://www.carcinogenomics.eu), the UK BBSRC (http://www.bbsrc.ac.uk), the UK NERC-NEBC
+ (http://nebc.nerc.ac.uk) and in part by the EU NuGO consortium (http://www.nugo.org/everyone).
+
+ */
+
+package org.isatools.isatab.isaconfigurator;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.Collection;
+
+import static java.lang.System.out;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class ISAConfigurationRegistryTest {
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testReload() throws Exception {
+        String baseDir = System.getProperty("basedir");
+        File srcDir = new File(baseDir + "/target/test-classes/test-data/isatab/batch_test/configs/isa_configurator");
+        File cfgDir = new File(baseDir + "/target/isa_configuration_registry_test");
+        FileUtils.deleteDirectory(cfgDir);
+        FileUtils.copyDirectory(srcDir, cfgDir);
+
+        ISAConfigurationRegistry registry = ISAConfigurationRegistry.getInstance();
+        long checkInterval = registry.getCheckInterval();
+        try {
+            registry.setCheckInterval(0);
+
+            ISAConfigurationSnapshot snapshot = registry.getSnapshot(cfgDir.getPath());
+            out.println("Loaded: " + snapshot);
+            assertTrue("No configuration loaded!", snapshot.getConfigCount() > 0);
+            assertTrue("Wrong size reported!", snapshot.getTotalBytes() > 0);
+            assertSame("Configuration reloaded without changes!", snapshot, registry.getSnapshot(cfgDir.getPath()));
+            assertSame("Configuration not shared by path!",
+                    snapshot, registry.getSnapshot(cfgDir.getPath() + "/../" + cfgDir.getName()));
+
+            // A different directory is independent of this one
+            ISAConfigurationSnapshot srcSnapshot = registry.getSnapshot(srcDir.getPath());
+            assertNotSame("Different directories share the configuration!", snapshot, srcSnapshot);
+            assertEquals("Wrong no. of configurations in the copied directory!",
+                    srcSnapshot.getConfigCount(), snapshot.getConfigCount());
+
+            // Changes are detected and the whole directory is reloaded, the old snapshot stays as it was
+            Collection<File> files = FileUtils.listFiles(cfgDir.getCanonicalFile(), new String[]{"xml"}, true);
+            File file = files.iterator().next();
+            assertTrue("Cannot remove the test file!", file.delete());
+
+            ISAConfigurationSnapshot newSnapshot = registry.getSnapshot(cfgDir.getPath());
+            out.println("Reloaded: " + newSnapshot);
+            assertNotSame("Configuration not reloaded!", snapshot, newSnapshot);
+            assertEquals("Wrong no. of files after the reload!", snapshot.getFileCount() - 1, newSnapshot.getFileCount());
+            assertNotNull("The old snapshot was changed!", snapshot.getConfigFiles().get(file.getAbsolutePath()));
+
+            // The sets that use a snapshot keep using it
+            ISAConfigurationSet pinnedSet = new ISAConfigurationSet(snapshot);
+            ISAConfigurationSet liveSet = new ISAConfigurationSet(cfgDir.getPath());
+            assertSame("Wrong snapshot in the pinned set!", snapshot, pinnedSet.getSnapshot());
+            assertSame("Wrong snapshot in the set!", newSnapshot, liveSet.getSnapshot());
+        }
+        finally {
+            registry.setCheckInterval(checkInterval);
+            registry.invalidate(cfgDir.getPath());
+        }
+    }
+}
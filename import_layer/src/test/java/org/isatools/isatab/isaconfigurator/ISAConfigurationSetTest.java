@@ -52,10 +52,12 @@
 
 package org.isatools.isatab.isaconfigurator;
 
+import org.apache.xmlbeans.XmlObject;
 import org.isatools.isatab.configurator.schema.FieldType;
 import org.isatools.isatab.configurator.schema.IsaTabConfigurationType;
 import org.isatools.isatab.configurator.schema.OntologyEntryType;
 import org.isatools.isatab.configurator.schema.ProtocolFieldType;
+import org.isatools.isatab.configurator.schema.UnitFieldType;
 import org.junit.BeforeClass;
 import org.junit.Test;
 
@@ -64,6 +66,8 @@ import java.util.List;
 import static java.lang.System.out;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 
 @SuppressWarnings("static-access")
 public class ISAConfigurationSetTest {
@@ -113,6 +117,26 @@ public class ISAConfigurationSetTest {
         assertEquals("Argh! Wrong no of returned by getProtocolsBetween()!", 1, protos.size());
     }
 
+    @Test
+    public void testCompiledConfiguration() {
+        IsaTabConfigurationType cfg = cfgSet.getConfig("cell counting", "flow cytometry");
+        assertNotNull("Ouch! I couldn't get the expected configuration!", cfg);
+
+        FieldType f = cfgSet.getConfigurationField(cfg, "parameter value [DETECTOR VOLTAGE]");
+        assertNotNull("Case-insensitive lookup via the index doesn't work!", f);
+        assertNotNull("Unit field not found via the index!", cfgSet.getUnitField(f));
+        assertNull("Non-existing field found!", cfgSet.getConfigurationField(cfg, "Foo Name"));
+
+        // The index must give the same unit fields as XPath
+        for (FieldType field : cfg.getFieldArray()) {
+            XmlObject[] siblings = field.selectPath("./following-sibling::*");
+            UnitFieldType expected = siblings.length > 1 && siblings[1] instanceof UnitFieldType
+                    ? (UnitFieldType) siblings[1] : null;
+            assertSame("Wrong unit field from the index for '" + field.getHeader() + "'!",
+                    expected, cfgSet.getUnitField(field));
+        }
+    }
+
     @Test
     public void testGetMeasurment() {
         IsaTabConfigurationType cfg = cfgSet.getConfig("transcription profiling", "DNA microarray");
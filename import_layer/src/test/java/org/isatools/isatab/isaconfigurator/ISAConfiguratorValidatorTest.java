@@ -58,6 +58,8 @@ import org.isatools.isatab_v1.mapping.ISATABReducedMapper;
 import org.isatools.tablib.utils.BIIObjectStore;
 import org.junit.Test;
 
+import java.util.ArrayList;
+
 import static org.junit.Assert.assertEquals;
 
 public class ISAConfiguratorValidatorTest {
@@ -76,4 +78,27 @@ public class ISAConfiguratorValidatorTest {
         assertEquals("Gosh! The validator should return WARNING", GUIInvokerResult.WARNING, validator.validate());
     }
 
+    @Test
+    public void testParallelValidation() throws Exception {
+        String baseDir = System.getProperty("basedir");
+        String cfgPath = baseDir + "/target/test-classes/test-data/isatab/batch_test/configs/isa_configurator";
+        String isapath = baseDir + "/target/test-classes/test-data/isatab/isatab_bii/JCastrillo-BII-I-1";
+        ISAConfigurationSet.setConfigPath(cfgPath);
+
+        ISATABLoader loader = new ISATABLoader(isapath);
+        ISATABReducedMapper mapper = new ISATABReducedMapper(new BIIObjectStore(), loader.load());
+        BIIObjectStore store = mapper.map();
+
+        ISAConfiguratorValidator sequentialValidator = new ISAConfiguratorValidator(store);
+        sequentialValidator.setParallelism(1);
+        ISAConfiguratorValidator parallelValidator = new ISAConfiguratorValidator(store);
+        parallelValidator.setParallelism(4);
+
+        assertEquals("Gosh! Parallel and sequential validation give different results!",
+                sequentialValidator.validate(), parallelValidator.validate());
+        assertEquals("Gosh! Parallel and sequential validation give different messages!",
+                new ArrayList<String>(sequentialValidator.getMessages()),
+                new ArrayList<String>(parallelValidator.getMessages()));
+    }
+
 }
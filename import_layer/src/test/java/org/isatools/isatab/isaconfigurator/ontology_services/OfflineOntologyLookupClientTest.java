@@ -0,0 +1,154 @@
+/**
+
+ The ISAconverter, ISAvalidator & BII Management Tool are components of the ISA software suite (http://www.isa-tools.org)
+
+ Exhibit A
+ The ISAconverter, ISAvalidator & BII Management Tool are licensed under the Mozilla Public License (MPL) version
+ 1.1/GPL version 2.0/LGPL version 2.1
+
+ "The contents of this file are subject to the Mozilla Public License
+ Version 1.1 (the "License"). You may not use this file except in compliance with the License.
+ You may obtain copies of the Licenses at http://www.mozilla.org/MPL/MPL-1.1.html.
+
+ Software distributed under the License is distributed on an "AS IS"
+ basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ License for the specific language governing rights and limitations
+ under the License.
+
+ The Original Code is the ISAconverter, ISAvalidator & BII Management Tool.
+
+ The Initial Developer of the Original Code is the ISA Team (Eamonn Maguire, eamonnmag@gmail.com;
+ Philippe Rocca-Serra, proccaserra@gmail.com; Susanna-Assunta Sansone, sa.sanson@gmail.com;
+ http://www.isa-tools.org). All portions of the code written by the ISA Team are Copyright (c)
+ 2007-2011 ISA Team. All Rights Reserved.
+
+ Contributor(s):
+ Rocca-Serra P, Brandizi M, Maguire E, Sklyar N, Taylor C, Begley K, Field D,
+ Harris S, Hide W, Hofmann O, Neumann S, Sterk P, Tong W, Sansone SA. ISA software suite:
+ supporting standards-compliant experimental annotation and enabling curation at the community level.
+ Bioinformatics 2010;26(18):2354-6.
+
+ Alternatively, the contents of this file may be used under the terms of either the GNU General
+ Public License Version 2 or later (the "GPL") - http://www.gnu.org/licenses/gpl-2.0.html, or
+ the GNU Lesser General Public License Version 2.1 or later (the "LGPL") -
+ http://www.gnu.org/licenses/lgpl-2.1.html, in which case the provisions of the GPL
+ or the LGPL are applicable instead of those above. If you wish to allow use of your version
+ of this file only under the terms of either the GPL or the LGPL, and not to allow others to
+ use your version of this file under the terms of the MPL, indicate your decision by deleting
+ the provisions above and replace them with the notice and other provisions required by the
+ GPL or the LGPL. If you do not delete the provisions above, a recipient may use your version
+ of this file under the terms of any one of the MPL, the GPL or the LGPL.
+
+ Sponsors:
+ The ISA Team and the ISA software suite have been funded by the EU Carcinogenomics project
+ (http://www.carcinogenomics.eu), the UK BBSRC (http://www.bbsrc.ac.uk), the UK NERC-NEBC
+ (http://nebc.nerc.ac.uk) and in part by the EU NuGO consortium (http://www.nugo.org/everyone).
+
+ */
+
+package org.isatools.isatab.isaconfigurator.ontology_services;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.util.*;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class OfflineOntologyLookupClientTest {
+
+    private static final String ONTOLOGIES_PATH =
+            System.getProperty("basedir") + "/target/test-classes/test-data/isatab/offline_ontologies";
+
+    private static Set<String> set(String... accs) {
+        return new HashSet<String>(Arrays.asList(accs));
+    }
+
+    @Test
+    public void testOboLookup() throws Exception {
+        OfflineOntologyLookupClient client = new OfflineOntologyLookupClient(ONTOLOGIES_PATH, null);
+
+        assertTrue("Source not found!", client.sourceExists("TST"));
+        assertTrue("Source not found (case-insensitive)!", client.sourceExists("tst"));
+        assertFalse("Non-existing source found!", client.sourceExists("FOO"));
+
+        assertTrue("Term not found!", client.termExists("TST", "0000003"));
+        assertTrue("Term not found via OBO ID!", client.termExists("TST", "TST:0000003"));
+        assertTrue("Term not found via OWL name!", client.termExists("TST", "TST_0000003"));
+        assertTrue("Term not found via alt_id!", client.termExists("TST", "TST:0000099"));
+        assertFalse("Non-existing term found!", client.termExists("TST", "0000100"));
+        assertFalse("External term found!", client.termExists("TST", "EXT:0000001"));
+        assertNull("Non-existing term has parents!", client.lookupTerm("TST", "0000100"));
+
+        assertEquals("Wrong parents!", set("0000002"), client.getTermParentAccessions("TST", "0000003"));
+        assertEquals("Wrong part_of parents!", set("0000003"), client.getTermParentAccessions("TST", "0000004"));
+        assertTrue("Wrong root parents!", client.getTermParentAccessions("TST", "0000001").isEmpty());
+        assertEquals("Wrong external parents!",
+                set("0000005", "EXT:0000001"), client.getTermParentAccessions("TST", "0000006"));
+
+        assertTrue("Branch not matched!", client.isUnderBranch("TST", "0000004", set("0000001")));
+        assertTrue("Branch not matched!", client.isUnderBranch("TST", "TST:0000004", set("TST:0000002")));
+        assertTrue("The branch itself not matched!", client.isUnderBranch("TST", "0000002", set("0000002")));
+        assertFalse("Wrong branch matched!", client.isUnderBranch("TST", "0000002", set("0000004")));
+        assertTrue("Branch not matched in a loop!", client.isUnderBranch("TST", "0000005", set("EXT:0000001")));
+        assertFalse("Wrong branch matched in a loop!", client.isUnderBranch("TST", "0000005", set("0000001")));
+        assertFalse("Non-existing source has branches!", client.isUnderBranch("FOO", "0000005", set("0000001")));
+        assertFalse("External term matched as a branch!",
+                client.isUnderBranch("TST", "EXT:0000001", set("EXT:0000001")));
+
+        assertTrue("Local source is not local!", client.isLocalSource("TST"));
+        assertFalse("Non-existing source is local!", client.isLocalSource("FOO"));
+    }
+
+    @Test
+    public void testOwlLookup() throws Exception {
+        OntologyIndex index = OntologyIndex.load(new File(ONTOLOGIES_PATH, "TOWL.owl"));
+        assertEquals("Wrong no. of terms!", 4, index.size());
+
+        assertTrue("Term not found!", index.containsTerm("TOWL_0000002"));
+        assertTrue("Term not found via URI!", index.containsTerm("http://purl.obolibrary.org/obo/TOWL_0000002"));
+        assertTrue("Term not found via OBO ID!", index.containsTerm("TOWL:0000002"));
+        assertEquals("Wrong parents!", set("TOWL_0000001"), index.getParentAccessions("TOWL_0000002"));
+        assertEquals("Wrong part_of parents!", set("TOWL_0000002"), index.getParentAccessions("TOWL_0000003"));
+        assertTrue("Wrong parents for non part_of restriction!",
+                index.getParentAccessions("TOWL_0000004").isEmpty());
+
+        assertTrue("Branch not matched!", index.isUnder("TOWL_0000003", set("TOWL_0000001")));
+        assertFalse("Wrong branch matched!", index.isUnder("TOWL_0000004", set("TOWL_0000001")));
+
+        index.precomputeAncestors();
+        assertTrue("Branch not matched with ancestors!", index.isUnder("TOWL_0000003", set("TOWL_0000001")));
+        assertFalse("Wrong branch matched with ancestors!", index.isUnder("TOWL_0000004", set("TOWL_0000001")));
+    }
+
+    @Test
+    public void testFallback() throws Exception {
+        OntologyLookupClient fallbackClient = new OntologyLookupClient() {
+            @Override
+            public boolean sourceExists(String sourceSymbol) {
+                return "REMOTE".equals(sourceSymbol);
+            }
+
+            @Override
+            public boolean termExists(String sourceSymbol, String acc) {
+                return "REMOTE".equals(sourceSymbol);
+            }
+
+            @Override
+            public Set<String> getTermParentAccessions(String sourceSymbol, String acc) {
+                return Collections.emptySet();
+            }
+        };
+
+        OfflineOntologyLookupClient client = new OfflineOntologyLookupClient(ONTOLOGIES_PATH, fallbackClient);
+        assertTrue("Remote source not found!", client.sourceExists("REMOTE"));
+        assertTrue("Remote term not found!", client.termExists("REMOTE", "123"));
+        assertFalse("Remote source is local!", client.isLocalSource("REMOTE"));
+        assertNull("Remote source has offline branches!", client.isUnderBranch("REMOTE", "123", set("1")));
+        assertTrue("Local source is not local!", client.isLocalSource("TOWL"));
+        assertFalse("Local term not checked locally!", client.termExists("TST", "123"));
+    }
+}
@@ -0,0 +1,226 @@
+/**
+
+ The ISAconverter, ISAvalidator & BII Management Tool are components of the ISA software suite (http://www.isa-tools.org)
+
+ Exhibit A
+ The ISAconverter, ISAvalidator & BII Management Tool are licensed under the Mozilla Public License (MPL) version
+ 1.1/GPL version 2.0/LGPL version 2.1
+
+ "The contents of this file are subject to the Mozilla Public License
+ Version 1.1 (the "License"). You may not use this file except in compliance with the License.
+ You may obtain copies of the Licenses at http://www.mozilla.org/MPL/MPL-1.1.html.
+
+ Software distributed under the License is distributed on an "AS IS"
+ basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ License for the specific language governing rights and limitations
+ under the License.
+
+ The Original Code is the ISAconverter, ISAvalidator & BII Management Tool.
+
+ The Initial Developer of the Original Code is the ISA Team (Eamonn Maguire, eamonnmag@gmail.com;
+ Philippe Rocca-Serra, proccaserra@gmail.com; Susanna-Assunta Sansone, sa.sanson@gmail.com;
+ http://www.isa-tools.org). All portions of the code written by the ISA Team are Copyright (c)
+ 2007-2011 ISA Team. All Rights Reserved.
+
+ Contributor(s):
+ Rocca-Serra P, Brandizi M, Maguire E, Sklyar N, Taylor C, Begley K, Field D,
+ Harris S, Hide W, Hofmann O, Neumann S, Sterk P, Tong W, Sansone SA. ISA software suite:
+ supporting standards-compliant experimental annotation and enabling curation at the community level.
+ Bioinformatics 2010;26(18):2354-6.
+
+ Alternatively, the contents of this file may be used under the terms of either the GNU General
+ Public License Version 2 or later (the "GPL") - http://www.gnu.org/licenses/gpl-2.0.html, or
+ the GNU Lesser General Public License Version 2.1 or later (the "LGPL") -
+ http://www.gnu.org/licenses/lgpl-2.1.html, in which case the provisions of the GPL
+ or the LGPL are applicable instead of those above. If you wish to allow use of your version
+ of this file only under the terms of either the GPL or the LGPL, and not to allow others to
+ use your version of this file under the terms of the MPL, indicate your decision by deleting
+ the provisions above and replace them with the notice and other provisions required by the
+ GPL or the LGPL. If you do not delete the provisions above, a recipient may use your version
+ of this file under the terms of any one of the MPL, the GPL or the LGPL.
+
+ Sponsors:
+ The ISA Team and the ISA software suite have been funded by the EU Carcinogenomics project
+ (http://www.carcinogenomics.eu), the UK BBSRC (http://www.bbsrc.ac.uk), the UK NERC-NEBC
+ (http://nebc.nerc.ac.uk) and in part by the EU NuGO consortium (http://www.nugo.org/everyone).
+
+ */
+
+package org.isatools.isatab.isaconfigurator.ontology_services;
+
+import org.apache.commons.io.FileUtils;
+import org.isatools.tablib.exceptions.TabIOException;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class OntologyLookupCacheTest {
+
+    /**
+     * A fake client, which counts how many times it is invoked.
+     */
+    private static class CountingClient extends OntologyLookupClient {
+        int ncalls = 0;
+
+        @Override
+        public boolean sourceExists(String sourceSymbol) {
+            ncalls++;
+            return "OBI".equals(sourceSymbol);
+        }
+
+        @Override
+        public boolean termExists(String sourceSymbol, String acc) {
+            ncalls++;
+            return "OBI".equals(sourceSymbol) && acc.startsWith("OBI_");
+        }
+
+        @Override
+        public Set<String> getTermParentAccessions(String sourceSymbol, String acc) {
+            ncalls++;
+            return "OBI_0000070".equals(acc) ? Collections.singleton("OBI_0000011") : Collections.<String>emptySet();
+        }
+    }
+
+    /**
+     * A client that can be down.
+     */
+    private static class FlakyClient extends CountingClient {
+        volatile boolean isDown = false;
+
+        @Override
+        public boolean termExists(String sourceSymbol, String acc) {
+            if (isDown) {
+                ncalls++;
+                throw new TabIOException("Service down");
+            }
+            return super.termExists(sourceSymbol, acc);
+        }
+    }
+
+    private static File newCacheDir(String name) throws Exception {
+        File dir = new File(System.getProperty("basedir") + "/target/" + name);
+        FileUtils.deleteDirectory(dir);
+        return dir;
+    }
+
+    @Test
+    public void testPersistence() throws Exception {
+        String path = newCacheDir("ontology_cache_test") + "/cache";
+
+        OntologyLookupCache cache = new OntologyLookupCache(path);
+        CountingClient client = new CountingClient();
+        CachingOntologyLookupClient cachingClient = new CachingOntologyLookupClient(client, cache);
+
+        assertTrue("Wrong source lookup!", cachingClient.sourceExists("OBI"));
+        assertFalse("Wrong source lookup!", cachingClient.sourceExists("FOO"));
+        assertTrue("Wrong term lookup!", cachingClient.termExists("OBI", "OBI_0000070"));
+        assertEquals("Wrong parents!",
+                Collections.singleton("OBI_0000011"), cachingClient.getTermParentAccessions("OBI", "OBI_0000070"));
+        assertTrue("Wrong parents!", cachingClient.getTermParentAccessions("OBI", "OBI_0000011").isEmpty());
+        assertEquals("Wrong no. of remote calls!", 5, client.ncalls);
+        cache.close();
+
+        // Another run, everything comes from the cache
+        cache = new OntologyLookupCache(path);
+        client = new CountingClient();
+        cachingClient = new CachingOntologyLookupClient(client, cache);
+        assertTrue("Wrong cached source lookup!", cachingClient.sourceExists("OBI"));
+        assertFalse("Wrong cached source lookup!", cachingClient.sourceExists("FOO"));
+        assertTrue("Wrong cached term lookup!", cachingClient.termExists("OBI", "OBI_0000070"));
+        assertEquals("Wrong cached parents!",
+                Collections.singleton("OBI_0000011"), cachingClient.getTermParentAccessions("OBI", "OBI_0000070"));
+        assertTrue("Wrong cached parents!", cachingClient.getTermParentAccessions("OBI", "OBI_0000011").isEmpty());
+        assertEquals("Cache not used!", 0, client.ncalls);
+        assertEquals("Wrong no. of hits!", 5, cache.getHits());
+        cache.close();
+    }
+
+    @Test
+    public void testExpirationAndEviction() throws Exception {
+        String path = newCacheDir("ontology_cache_eviction_test") + "/cache";
+        OntologyLookupCache cache = new OntologyLookupCache(path);
+        try {
+            cache.setNegativeTtl(1);
+            cache.put("negative", "0", true);
+            cache.put("positive", "1", false);
+            Thread.sleep(10);
+            assertNull("Negative result not expired!", cache.get("negative"));
+            assertEquals("Positive result expired!", "1", cache.get("positive"));
+            assertEquals("Wrong no. of expirations!", 1, cache.getExpirations());
+
+            cache.setMaxEntries(10);
+            // Record every access, so that the LRU order is exact
+            cache.setAccessUpdateInterval(0);
+            for (int i = 0; i < 20; i++) {
+                cache.put("key" + i, "" + i, false);
+                Thread.sleep(2);
+            }
+            // So it's more recent than the others
+            cache.get("key0");
+            cache.evict();
+            assertEquals("Wrong size after the eviction!", 10, cache.size());
+            // Entries still in memory are served anyway
+            assertEquals("Entry in memory lost by the eviction!", "1", cache.get("key1"));
+
+            // A new instance sees the database only
+            cache.close();
+            cache = new OntologyLookupCache(path);
+            assertEquals("Recently used entry evicted!", "0", cache.get("key0"));
+            assertNull("Old entry not evicted!", cache.get("key1"));
+        }
+        finally {
+            cache.close();
+        }
+    }
+
+    @Test
+    public void testStaleWhileRevalidate() throws Exception {
+        OntologyLookupCache cache = new OntologyLookupCache(newCacheDir("ontology_cache_stale_test") + "/cache");
+        try {
+            FlakyClient client = new FlakyClient();
+            CachingOntologyLookupClient cachingClient = new CachingOntologyLookupClient(client, cache);
+            String key = "term:OBI:OBI_0000070";
+
+            cache.setTtl(1);
+            assertTrue("Wrong term lookup!", cachingClient.termExists("OBI", "OBI_0000070"));
+            Thread.sleep(10);
+
+            // The stale value is used and the failed refresh doesn't remove it
+            client.isDown = true;
+            assertTrue("Stale value not used!", cachingClient.termExists("OBI", "OBI_0000070"));
+            waitForRefreshes();
+            assertEquals("Refresh not attempted!", 2, client.ncalls);
+            OntologyLookupCache.Entry entry = cache.getEntry(key);
+            assertEquals("Stale value lost after a failed refresh!", "1", entry.getValue());
+            assertTrue("Stale value refreshed by a failure!", entry.isExpired());
+
+            // Without a cached value, a failure gives a negative answer, which is not cached
+            assertFalse("Wrong term lookup with a failing service!", cachingClient.termExists("OBI", "OBI_0000011"));
+            assertNull("Failure cached!", cache.getEntry("term:OBI:OBI_0000011"));
+
+            // The service is back, the refresh updates the entry
+            client.isDown = false;
+            cache.setTtl(3600 * 1000L);
+            assertTrue("Stale value not used!", cachingClient.termExists("OBI", "OBI_0000070"));
+            waitForRefreshes();
+            assertFalse("Entry not refreshed!", cache.getEntry(key).isExpired());
+            assertTrue("No stale hits counted!", cache.getStaleHits() > 0);
+        }
+        finally {
+            cache.close();
+        }
+    }
+
+    private static void waitForRefreshes() throws InterruptedException {
+        for (int i = 0; i < 500 && CachingOntologyLookupClient.getPendingRefreshes() > 0; i++) {
+            Thread.sleep(10);
+        }
+    }
+}
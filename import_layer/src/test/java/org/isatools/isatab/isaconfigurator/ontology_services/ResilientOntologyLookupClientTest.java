@@ -0,0 +1,273 @@
+/**
+
+ The ISAconverter, ISAvalidator & BII Management Tool are components of the ISA software suite (http://www.isa-tools.org)
+
+ Exhibit A
+ The ISAconverter, ISAvalidator & BII Management Tool are licensed under the Mozilla Public License (MPL) version
+ 1.1/GPL version 2.0/LGPL version 2.1
+
+ "The contents of this file are subject to the Mozilla Public License
+ Version 1.1 (the "License"). You may not use this file except in compliance with the License.
+ You may obtain copies of the Licenses at http://www.mozilla.org/MPL/MPL-1.1.html.
+
+ Software distributed under the License is distributed on an "AS IS"
+ basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ License for the specific language governing rights and limitations
+ under the License.
+
+ The Original Code is the ISAconverter, ISAvalidator & BII Management Tool.
+
+ The Initial Developer of the Original Code is the ISA Team (Eamonn Maguire, eamonnmag@gmail.com;
+ Philippe Rocca-Serra, proccaserra@gmail.com; Susanna-Assunta Sansone, sa.sanson@gmail.com;
+ http://www.isa-tools.org). All portions of the code written by the ISA Team are Copyright (c)
+ 2007-2011 ISA Team. All Rights Reserved.
+
+ Contributor(s):
+ Rocca-Serra P, Brandizi M, Maguire E, Sklyar N, Taylor C, Begley K, Field D,
+ Harris S, Hide W, Hofmann O, Neumann S, Sterk P, Tong W, Sansone SA. ISA software suite:
+ supporting standards-compliant experimental annotation and enabling curation at the community level.
+ Bioinformatics 2010;26(18):2354-6.
+
+ Alternatively, the contents of this file may be used under the terms of either the GNU General
+ Public License Version 2 or later (the "GPL") - http://www.gnu.org/licenses/gpl-2.0.html, or
+ the GNU Lesser General Public License Version 2.1 or later (the "LGPL") -
+ http://www.gnu.org/licenses/lgpl-2.1.html, in which case the provisions of the GPL
+ or the LGPL are applicable instead of those above. If you wish to allow use of your version
+ of this file only under the terms of either the GPL or the LGPL, and not to allow others to
+ use your version of this file under the terms of the MPL, indicate your decision by deleting
+ the provisions above and replace them with the notice and other provisions required by the
+ GPL or the LGPL. If you do not delete the provisions above, a recipient may use your version
+ of this file under the terms of any one of the MPL, the GPL or the LGPL.
+
+ Sponsors:
+ The ISA Team and the ISA software suite have been funded by the EU Carcinogenomics project
+ (http://www.carcinogenomics.eu), the UK BBSRC (http://www.bbsrc.ac.uk), the UK NERC-NEBC
+ (http://nebc.nerc.ac.uk) and in part by the EU NuGO consortium (http://www.nugo.org/everyone).
+
+ */
+
+package org.isatools.isatab.isaconfigurator.ontology_services;
+
+import org.isatools.tablib.exceptions.TabIOException;
+import org.junit.Test;
+
+import java.io.*;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ResilientOntologyLookupClientTest {
+
+    /**
+     * A client that fails when it's down, counting the calls.
+     */
+    private static class FlakyClient extends OntologyLookupClient {
+        volatile boolean isDown = false;
+        volatile int failuresBeforeSuccess = 0;
+        int ncalls = 0;
+
+        @Override
+        public boolean sourceExists(String sourceSymbol) {
+            ncalls++;
+            if (isDown || failuresBeforeSuccess-- > 0) {
+                throw new TabIOException("Service down");
+            }
+            return true;
+        }
+
+        @Override
+        public boolean termExists(String sourceSymbol, String acc) {
+            return sourceExists(sourceSymbol);
+        }
+
+        @Override
+        public Set<String> getTermParentAccessions(String sourceSymbol, String acc) {
+            sourceExists(sourceSymbol);
+            return Collections.emptySet();
+        }
+    }
+
+    /**
+     * A minimal HTTP server, which answers like BioPortal, with the configured status and delay.
+     */
+    private static class FakeBioPortalServer implements Runnable {
+        final ServerSocket serverSocket;
+        volatile int status = 200;
+        volatile long delay = 0;
+
+        FakeBioPortalServer() throws IOException {
+            serverSocket = new ServerSocket(0);
+            Thread thread = new Thread(this, "fake-bioportal");
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        String getBaseUrl() {
+            return "http://localhost:" + serverSocket.getLocalPort() + "/bioportal";
+        }
+
+        public void run() {
+            while (!serverSocket.isClosed()) {
+                try {
+                    final Socket socket = serverSocket.accept();
+                    new Thread(new Runnable() {
+                        public void run() {
+                            answer(socket);
+                        }
+                    }).start();
+                }
+                catch (IOException ex) {
+                    // Closed
+                }
+            }
+        }
+
+        private void answer(Socket socket) {
+            try {
+                BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), "UTF-8"));
+                String path = in.readLine().split(" ")[1];
+                // Skip the headers
+                String line = in.readLine();
+                while (line != null && line.length() > 0) {
+                    line = in.readLine();
+                }
+                Thread.sleep(delay);
+
+                String body = "<success><data><list></list></data></success>";
+                if (path.endsWith("/ontologies")) {
+                    body = "<success><data><list><ontologyBean><abbreviation>TST</abbreviation>"
+                            + "<ontologyId>42</ontologyId></ontologyBean></list></data></success>";
+                } else if (path.contains("/virtual/ontology/42/TST:123")) {
+                    body = "<success><data><classBean><id>TST:123</id></classBean></data></success>";
+                }
+                byte[] bytes = body.getBytes("UTF-8");
+                OutputStream out = socket.getOutputStream();
+                out.write(("HTTP/1.1 " + status + " Fake\r\nContent-Type: text/xml\r\nContent-Length: " + bytes.length
+                        + "\r\nConnection: close\r\n\r\n").getBytes("UTF-8"));
+                out.write(bytes);
+                out.flush();
+                socket.close();
+            }
+            catch (Exception ex) {
+                // The client has gone, e.g., after a timeout
+            }
+        }
+
+        void close() throws IOException {
+            serverSocket.close();
+        }
+    }
+
+
+    @Test
+    public void testCircuitBreaker() throws Exception {
+        OntologyServiceMonitor monitor = new OntologyServiceMonitor("test-breaker");
+        monitor.setMaxRetries(0);
+        monitor.setFailureThreshold(3);
+        monitor.setOpenTime(200);
+
+        FlakyClient flakyClient = new FlakyClient();
+        ResilientOntologyLookupClient client = new ResilientOntologyLookupClient(flakyClient, monitor);
+
+        flakyClient.isDown = true;
+        for (int i = 0; i < 5; i++) {
+            try {
+                client.sourceExists("TST");
+                fail("Failure not reported!");
+            }
+            catch (TabIOException ex) {
+                // Expected
+            }
+        }
+        assertEquals("The service is called when it's down!", 3, flakyClient.ncalls);
+        assertEquals("Wrong no. of rejections!", 2, monitor.getRejections());
+        assertFalse("The service is available!", monitor.isAvailable());
+
+        flakyClient.isDown = false;
+        Thread.sleep(250);
+        assertTrue("Wrong result after the service is back!", client.sourceExists("TST"));
+        assertTrue("The service is not available after it's back!", monitor.isAvailable());
+        assertEquals("Wrong no. of calls after the service is back!", 4, flakyClient.ncalls);
+    }
+
+    @Test
+    public void testRetries() throws Exception {
+        OntologyServiceMonitor monitor = new OntologyServiceMonitor("test-retries");
+        monitor.setMaxRetries(2);
+        monitor.setRetryDelay(5);
+
+        FlakyClient flakyClient = new FlakyClient();
+        ResilientOntologyLookupClient client = new ResilientOntologyLookupClient(flakyClient, monitor);
+
+        flakyClient.failuresBeforeSuccess = 2;
+        assertTrue("Wrong result after the retries!", client.termExists("TST", "123"));
+        assertEquals("Wrong no. of retries!", 2, monitor.getRetries());
+        assertEquals("Wrong no. of failures!", 2, monitor.getFailures());
+        assertEquals("Latencies not recorded!", 3, monitor.getLatencies().getCount());
+        assertTrue("Wrong latency percentile!", monitor.getLatencies().getPercentile(50) >= 0);
+
+        flakyClient.failuresBeforeSuccess = 3;
+        try {
+            client.termExists("TST", "123");
+            fail("Failure not reported after the retries!");
+        }
+        catch (TabIOException ex) {
+            // Expected
+        }
+    }
+
+    @Test
+    public void testBioPortalTimeouts() throws Exception {
+        FakeBioPortalServer server = new FakeBioPortalServer();
+        try {
+            BioPortalClient bioPortalClient = new BioPortalClient();
+            bioPortalClient.setBaseUrl(server.getBaseUrl());
+            bioPortalClient.setTimeout(300);
+            assertTrue("Source not found!", bioPortalClient.sourceExists("TST"));
+            assertTrue("Term not found!", bioPortalClient.termExists("TST", "123"));
+            assertFalse("Non-existing term found!", bioPortalClient.termExists("TST", "456"));
+
+            // A slow server
+            server.delay = 2000;
+            bioPortalClient.setBaseUrl(server.getBaseUrl());
+            long ts0 = System.currentTimeMillis();
+            try {
+                bioPortalClient.sourceExists("TST");
+                fail("Timeout not reported!");
+            }
+            catch (TabIOException ex) {
+                assertTrue("Timeout not applied!", System.currentTimeMillis() - ts0 < 1500);
+            }
+
+            // A broken server, through the default client, which skips the failing service
+            server.delay = 0;
+            server.status = 500;
+            OntologyServiceMonitor monitor = new OntologyServiceMonitor("test-bioportal");
+            monitor.setRetryDelay(5);
+            DefaultOntologyLookupClient client = new DefaultOntologyLookupClient(Arrays.asList(
+                    new ResilientOntologyLookupClient(bioPortalClient, monitor)
+            ));
+            assertFalse("Source found on a broken server!", client.sourceExists("TST"));
+            assertEquals("Wrong no. of failures!", 3, monitor.getFailures());
+
+            client.setFailOnServiceErrors(true);
+            try {
+                client.sourceExists("TST");
+                fail("Service failure not reported!");
+            }
+            catch (TabIOException ex) {
+                // Expected
+            }
+        }
+        finally {
+            server.close();
+        }
+    }
+}
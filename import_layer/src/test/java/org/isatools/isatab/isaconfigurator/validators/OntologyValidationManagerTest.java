@@ -0,0 +1,194 @@
+/**
+
+ The ISAconverter, ISAvalidator & BII Management Tool are components of the ISA software suite (http://www.isa-tools.org)
+
+ Exhibit A
+ The ISAconverter, ISAvalidator & BII Management Tool are licensed under the Mozilla Public License (MPL) version
+ 1.1/GPL version 2.0/LGPL version 2.1
+
+ "The contents of this file are subject to the Mozilla Public License
+ Version 1.1 (the "License"). You may not use this file except in compliance with the License.
+ You may obtain copies of the Licenses at http://www.mozilla.org/MPL/MPL-1.1.html.
+
+ Software distributed under the License is distributed on an "AS IS"
+ basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ License for the specific language governing rights and limitations
+ under the License.
+
+ The Original Code is the ISAconverter, ISAvalidator & BII Management Tool.
+
+ The Initial Developer of the Original Code is the ISA Team (Eamonn Maguire, eamonnmag@gmail.com;
+ Philippe Rocca-Serra, proccaserra@gmail.com; Susanna-Assunta Sansone, sa.sanson@gmail.com;
+ http://www.isa-tools.org). All portions of the code written by the ISA Team are Copyright (c)
+ 2007-2011 ISA Team. All Rights Reserved.
+
+ Contributor(s):
+ Rocca-Serra P, Brandizi M, Maguire E, Sklyar N, Taylor C, Begley K, Field D,
+ Harris S, Hide W, Hofmann O, Neumann S, Sterk P, Tong W, Sansone SA. ISA software suite:
+ supporting standards-compliant experimental annotation and enabling curation at the community level.
+ Bioinformatics 2010;26(18):2354-6.
+
+ Alternatively, the contents of this file may be used under the terms of either the GNU General
+ Public License Version 2 or later (the "GPL") - http://www.gnu.org/licenses/gpl-2.0.html, or
+ the GNU Lesser General Public License Version 2.1 or later (the "LGPL") -
+ http://www.gnu.org/licenses/lgpl-2.1.html, in which case the provisions of the GPL
+ or the LGPL are applicable instead of those above. If you wish to allow use of your version
+ of this file only under the terms of either the GPL or the LGPL, and not to allow others to
+ use your version of this file under the terms of the MPL, indicate your decision by deleting
+ the provisions above and replace them with the notice and other provisions required by the
+ GPL or the LGPL. If you do not delete the provisions above, a recipient may use your version
+ of this file under the terms of any one of the MPL, the GPL or the LGPL.
+
+ Sponsors:
+ The ISA Team and the ISA software suite have been funded by the EU Carcinogenomics project
+ (http://www.carcinogenomics.eu), the UK BBSRC (http://www.bbsrc.ac.uk), the UK NERC-NEBC
+ (http://nebc.nerc.ac.uk) and in part by the EU NuGO consortium (http://www.nugo.org/everyone).
+
+ */
+
+package org.isatools.isatab.isaconfigurator.validators;
+
+import org.isatools.isatab.isaconfigurator.ontology_services.OntologyLookupClient;
+import org.junit.Test;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class OntologyValidationManagerTest {
+
+    /**
+     * A local stand-in for the Ontology Lookup Services: a small tree of terms, where every term but the root has
+     * the parent named by its accession without the last character, i.e.: T123 => T12 => T1 => T. T21 has T1 as
+     * parent too.
+     */
+    private static class StubLookupClient extends OntologyLookupClient {
+        private final ConcurrentMap<String, AtomicInteger> lookups;
+
+        StubLookupClient(ConcurrentMap<String, AtomicInteger> lookups) {
+            this.lookups = lookups;
+        }
+
+        @Override
+        public boolean sourceExists(String sourceSymbol) {
+            return "STUB".equals(sourceSymbol);
+        }
+
+        @Override
+        public boolean termExists(String sourceSymbol, String acc) {
+            return acc.startsWith("T");
+        }
+
+        @Override
+        public Set<String> getTermParentAccessions(String sourceSymbol, String acc) {
+            if ("T21".equals(acc)) {
+                return new HashSet<String>(Arrays.asList("T2", "T1"));
+            }
+            return acc.length() == 1 ? Collections.<String>emptySet() : Collections.singleton(acc.substring(0, acc.length() - 1));
+        }
+
+        @Override
+        public Set<String> lookupTerm(String sourceSymbol, String acc) {
+            AtomicInteger count = lookups.putIfAbsent(acc, new AtomicInteger(1));
+            if (count != null) {
+                count.incrementAndGet();
+            }
+            try {
+                // Like a remote call, so that concurrent lookups overlap
+                Thread.sleep(20);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            return super.lookupTerm(sourceSymbol, acc);
+        }
+    }
+
+    private static class StubValidationManager extends OntologyValidationManager {
+        final ConcurrentMap<String, AtomicInteger> lookups = new ConcurrentHashMap<String, AtomicInteger>();
+
+        @Override
+        protected OntologyLookupClient createClient() {
+            return new StubLookupClient(lookups);
+        }
+    }
+
+
+    @Test
+    public void testResolveTerms() throws Exception {
+        StubValidationManager manager = new StubValidationManager();
+        manager.setParallelism(4);
+
+        manager.resolveTerms("STUB", Arrays.asList("T123", "T124", "T13", "X1"), Collections.singleton("T1"));
+
+        // The ancestors are resolved up to the branch, every term once
+        assertEquals("Wrong terms looked up!",
+                new HashSet<String>(Arrays.asList("T123", "T124", "T13", "X1", "T12", "T1")), manager.lookups.keySet());
+        for (AtomicInteger count : manager.lookups.values()) {
+            assertEquals("A term was looked up more than once!", 1, count.get());
+        }
+
+        // The checks use what was resolved
+        assertTrue("Existing term not found!", manager.validateTermExistence("STUB", "T124"));
+        assertFalse("Non-existing term found!", manager.validateTermExistence("STUB", "X1"));
+        assertEquals("Checks made new lookups!", 6, manager.lookups.size());
+    }
+
+    @Test
+    public void testResolveTermsStopsAtBranches() throws Exception {
+        StubValidationManager manager = new StubValidationManager();
+        manager.setParallelism(4);
+
+        manager.resolveTerms("STUB", Arrays.asList("T21", "T12"), Collections.singleton("T1"));
+
+        // T21 is under the branch, its other parent isn't needed
+        assertEquals("Wrong terms looked up!",
+                new HashSet<String>(Arrays.asList("T21", "T12", "T1")), manager.lookups.keySet());
+    }
+
+    @Test
+    public void testConcurrentResolution() throws Exception {
+        final StubValidationManager manager = new StubValidationManager();
+        manager.setParallelism(8);
+
+        final List<String> accs = new ArrayList<String>();
+        for (int i = 0; i < 20; i++) {
+            accs.add("T" + i);
+        }
+
+        // Several validators resolving the same terms at the same time
+        final CountDownLatch start = new CountDownLatch(1);
+        final List<Throwable> errors = Collections.synchronizedList(new ArrayList<Throwable>());
+        List<Thread> threads = new ArrayList<Thread>();
+        for (int i = 0; i < 4; i++) {
+            Thread thread = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                        manager.resolveTerms("STUB", accs, null);
+                    } catch (Throwable ex) {
+                        errors.add(ex);
+                    }
+                }
+            };
+            thread.start();
+            threads.add(thread);
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertTrue("Errors during the resolution: " + errors, errors.isEmpty());
+        assertEquals("Wrong no. of terms looked up!", 21, manager.lookups.size());
+        for (Map.Entry<String, AtomicInteger> entry : manager.lookups.entrySet()) {
+            assertEquals("The term " + entry.getKey() + " was looked up more than once!", 1, entry.getValue().get());
+        }
+    }
+}
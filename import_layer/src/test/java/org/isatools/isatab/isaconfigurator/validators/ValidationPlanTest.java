@@ -0,0 +1,134 @@
+/**
+
+ The ISAconverter, ISAvalidator & BII Management Tool are components of the ISA software suite (http://www.isa-tools.org)
+
+ Exhibit A
+ The ISAconverter, ISAvalidator & BII Management Tool are licensed under the Mozilla Public License (MPL) version
+ 1.1/GPL version 2.0/LGPL version 2.1
+
+ "The contents of this file are subject to the Mozilla Public License
+ Version 1.1 (the "License"). You may not use this file except in compliance with the License.
+ You may obtain copies of the Licenses at http://www.mozilla.org/MPL/MPL-1.1.html.
+
+ Software distributed under the License is distributed on an "AS IS"
+ basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ License for the specific language governing rights and limitations
+ under the License.
+
+ The Original Code is the ISAconverter, ISAvalidator & BII Management Tool.
+
+ The Initial Developer of the Original Code is the ISA Team (Eamonn Maguire, eamonnmag@gmail.com;
+ Philippe Rocca-Serra, proccaserra@gmail.com; Susanna-Assunta Sansone, sa.sanson@gmail.com;
+ http://www.isa-tools.org). All portions of the code written by the ISA Team are Copyright (c)
+ 2007-2011 ISA Team. All Rights Reserved.
+
+ Contributor(s):
+ Rocca-Serra P, Brandizi M, Maguire E, Sklyar N, Taylor C, Begley K, Field D,
+ Harris S, Hide W, Hofmann O, Neumann S, Sterk P, Tong W, Sansone SA. ISA software suite:
+ supporting standards-compliant experimental annotation and enabling curation at the community level.
+ Bioinformatics 2010;26(18):2354-6.
+
+ Alternatively, the contents of this file may be used under the terms of either the GNU General
+ Public License Version 2 or later (the "GPL") - http://www.gnu.org/licenses/gpl-2.0.html, or
+ the GNU Lesser General Public License Version 2.1 or later (the "LGPL") -
+ http://www.gnu.org/licenses/lgpl-2.1.html, in which case the provisions of the GPL
+ or the LGPL are applicable instead of those above. If you wish to allow use of your version
+ of this file only under the terms of either the GPL or the LGPL, and not to allow others to
+ use your version of this file under the terms of the MPL, indicate your decision by deleting
+ the provisions above and replace them with the notice and other provisions required by the
+ GPL or the LGPL. If you do not delete the provisions above, a recipient may use your version
+ of this file under the terms of any one of the MPL, the GPL or the LGPL.
+
+ Sponsors:
+ The ISA Team and the ISA software suite have been funded by the EU Carcinogenomics project
+ (http://www.carcinogenomics.eu), the UK BBSRC (http://www.bbsrc.ac.uk), the UK NERC-NEBC
+ (http://nebc.nerc.ac.uk) and in part by the EU NuGO consortium (http://www.nugo.org/everyone).
+
+ */
+
+package org.isatools.isatab.isaconfigurator.validators;
+
+import org.isatools.isatab.configurator.schema.IsaTabConfigurationType;
+import org.isatools.isatab.isaconfigurator.ISAConfigurationSet;
+import org.isatools.isatab_v1.ISATABLoader;
+import org.isatools.tablib.schema.FormatInstance;
+import org.isatools.tablib.schema.SectionInstance;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class ValidationPlanTest {
+
+    @Test
+    public void testPlanCaching() throws Exception {
+        String baseDir = System.getProperty("basedir");
+        String cfgPath = baseDir + "/target/test-classes/test-data/isatab/batch_test/configs/isa_configurator";
+        String isapath = baseDir + "/target/test-classes/test-data/isatab/isatab_bii/JCastrillo-BII-I-1";
+        ISAConfigurationSet.setConfigPath(cfgPath);
+        IsaTabConfigurationType cfg = new ISAConfigurationSet().getConfig("[sample]", "");
+        assertNotNull("Ouch! I couldn't get the expected configuration", cfg);
+
+        // Two tables with the same layout
+        SectionInstance table = getStudyTable(isapath), table1 = getStudyTable(isapath);
+        ValidationPlan plan = ValidationPlan.getPlan(table, cfg);
+        assertSame("The plan wasn't reused for the same layout!", plan, ValidationPlan.getPlan(table1, cfg));
+
+        assertEquals("Wrong no. of columns in the plan!", table.getFields().size(), plan.getColumnCount());
+        for (int icol = 0; icol < plan.getColumnCount(); icol++) {
+            assertSame("Wrong configuration field in the plan!",
+                    ISAConfigurationSet.getConfigurationField(cfg, table.getField(icol).getAttr("header")),
+                    plan.getConfigurationField(icol));
+        }
+    }
+
+    @Test
+    public void testValueCheckers() {
+        String[] ints = {"0", "-12", "+7", "2147483647", "-2147483648", "2147483648", "-", "1.0", "12a", "\u0661\u0662"};
+        ValidationPlan.ValueChecker checker = ValidationPlan.createValueChecker("Integer");
+        for (String value : ints) {
+            boolean isValid = true;
+            try {
+                Integer.parseInt(value);
+            }
+            catch (NumberFormatException e) {
+                isValid = false;
+            }
+            assertEquals("Wrong integer check for '" + value + "'!", isValid, checker.isValid(value));
+        }
+
+        String[] doubles = {"0", "-1.5", ".5", "5.", "1e10", "-2.5E-3", "1e", ".", "+", "NaN", "-Infinity", "1.5f",
+                "0x1p3", "1.2.3", "e5", "1e+"};
+        checker = ValidationPlan.createValueChecker("Double");
+        for (String value : doubles) {
+            boolean isValid = true;
+            try {
+                Double.parseDouble(value);
+            }
+            catch (NumberFormatException e) {
+                isValid = false;
+            }
+            assertEquals("Wrong double check for '" + value + "'!", isValid, checker.isValid(value));
+        }
+
+        checker = ValidationPlan.createValueChecker("Date");
+        assertEquals("Wrong date check!", true, checker.isValid("2009-10-21"));
+        assertEquals("Wrong date check!", true, checker.isValid("21/10/2009"));
+        assertEquals("Wrong date check!", false, checker.isValid("2009-10-21 foo"));
+
+        assertNull("Strings shouldn't be checked!", ValidationPlan.createValueChecker("String"));
+        assertSame("Wrong checker for an unknown type!",
+                ValidationPlan.UNKNOWN_TYPE_CHECKER, ValidationPlan.createValueChecker("Foo Type"));
+    }
+
+    private static SectionInstance getStudyTable(String isapath) throws Exception {
+        for (FormatInstance formatInstance : new ISATABLoader(isapath).load().getFormatInstances()) {
+            if ("s_BII-S-1.txt".equals(formatInstance.getFileId())) {
+                return formatInstance.getSectionInstances().get(0);
+            }
+        }
+        throw new IllegalStateException("Study file not found in '" + isapath + "'");
+    }
+}
@@ -0,0 +1,145 @@
+/**
+
+ The ISAconverter, ISAvalidator & BII Management Tool are components of the ISA software suite (http://www.isa-tools.org)
+
+ Exhibit A
+ The ISAconverter, ISAvalidator & BII Management Tool are licensed under the Mozilla Public License (MPL) version
+ 1.1/GPL version 2.0/LGPL version 2.1
+
+ "The contents of this file are subject to the Mozilla Public License
+ Version 1.1 (the "License"). You may not use this file except in compliance with the License.
+ You may obtain copies of the Licenses at http://www.mozilla.org/MPL/MPL-1.1.html.
+
+ Software distributed under the License is distributed on an "AS IS"
+ basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ License for the specific language governing rights and limitations
+ under the License.
+
+ The Original Code is the ISAconverter, ISAvalidator & BII Management Tool.
+
+ The Initial Developer of the Original Code is the ISA Team (Eamonn Maguire, eamonnmag@gmail.com;
+ Philippe Rocca-Serra, proccaserra@gmail.com; Susanna-Assunta Sansone, sa.sanson@gmail.com;
+ http://www.isa-tools.org). All portions of the code written by the ISA Team are Copyright (c)
+ 2007-2011 ISA Team. All Rights Reserved.
+
+ Contributor(s):
+ Rocca-Serra P, Brandizi M, Maguire E, Sklyar N, Taylor C, Begley K, Field D,
+ Harris S, Hide W, Hofmann O, Neumann S, Sterk P, Tong W, Sansone SA. ISA software suite:
+ supporting standards-compliant experimental annotation and enabling curation at the community level.
+ Bioinformatics 2010;26(18):2354-6.
+
+ Alternatively, the contents of this file may be used under the terms of either the GNU General
+ Public License Version 2 or later (the "GPL") - http://www.gnu.org/licenses/gpl-2.0.html, or
+ the GNU Lesser General Public License Version 2.1 or later (the "LGPL") -
+ http://www.gnu.org/licenses/lgpl-2.1.html, in which case the provisions of the GPL
+ or the LGPL are applicable instead of those above. If you wish to allow use of your version
+ of this file only under the terms of either the GPL or the LGPL, and not to allow others to
+ use your version of this file under the terms of the MPL, indicate your decision by deleting
+ the provisions above and replace them with the notice and other provisions required by the
+ GPL or the LGPL. If you do not delete the provisions above, a recipient may use your version
+ of this file under the terms of any one of the MPL, the GPL or the LGPL.
+
+ Sponsors:
+ The ISA Team and the ISA software suite have been funded by the EU Carcinogenomics project
+ (http://www.carcinogenomics.eu), the UK BBSRC (http://www.bbsrc.ac.uk), the UK NERC-NEBC
+ (http://nebc.nerc.ac.uk) and in part by the EU NuGO consortium (http://www.nugo.org/everyone).
+
+ */
+
+package org.isatools.isatab.mapping;
+
+import org.isatools.isatab.gui_invokers.GUIInvokerResult;
+import org.isatools.isatab.isaconfigurator.validators.SampleNameValidator;
+import org.isatools.isatab_v1.ISATABLoader;
+import org.isatools.tablib.schema.FormatInstance;
+import org.isatools.tablib.schema.FormatSetInstance;
+import org.isatools.tablib.schema.SectionInstance;
+import org.isatools.tablib.utils.BIIObjectStore;
+import org.isatools.tablib.utils.logging.TabErrorCollector;
+import org.isatools.tablib.utils.logging.TabErrorEntry;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static java.lang.System.out;
+import static org.junit.Assert.*;
+
+public class SubmissionNameIndexTest {
+
+    private static final String TEST_DATA_PATH =
+            System.getProperty("basedir") + "/target/test-classes/test-data/isatab/isatab_bii/";
+
+    private static SectionInstance getTable(FormatSetInstance submission, String fileId) {
+        for (FormatInstance formatInstance : submission.getFormatInstances()) {
+            if (fileId.equals(formatInstance.getFileId())) {
+                return formatInstance.getSectionInstances().get(0);
+            }
+        }
+        fail("Table " + fileId + " not found!");
+        return null;
+    }
+
+    @Test
+    public void testNameIndex() throws Exception {
+        out.println("\n\n_______ Testing the Submission Name Index _______\n");
+
+        FormatSetInstance submission = new ISATABLoader(TEST_DATA_PATH + "JCastrillo-BII-I-1").load();
+        SubmissionNameIndex index = new SubmissionNameIndex(submission);
+        assertTrue("Nothing indexed!", index.size() > 0);
+
+        SectionInstance sampleTable = getTable(submission, "s_BII-S-1.txt");
+        SectionInstance assayTable = getTable(submission, "a_metabolome.txt");
+        assertTrue("Sample table not indexed!", index.contains(sampleTable));
+        assertTrue("Assay table not indexed!", index.contains(assayTable));
+
+        int nsources = 0;
+        for (SubmissionNameIndex.Occurrence occurrence : index.getOccurrences("Source Name", "culture1")) {
+            if (occurrence.getTable() == sampleTable) {
+                assertEquals("Wrong indexed value!", "culture1", occurrence.getRecord().getString(occurrence.getColumn()));
+                nsources++;
+            }
+        }
+        assertEquals("Wrong no. of occurrences for a source!", 10, nsources);
+        assertTrue("Non-existing name found!", index.getOccurrences("Source Name", "foo-source").isEmpty());
+
+        SubmissionNameIndex.Occurrence assaySample = index.getOccurrence("Sample Name", "S-0.2-aliquot8", assayTable);
+        assertNotNull("Assay sample not found!", assaySample);
+        assertEquals("Wrong row for the assay sample!", 0, assaySample.getRow());
+        assertNotNull("Assay sample not found in the sample file!",
+                index.getOccurrence("Sample Name", " S-0.2-aliquot8 ", sampleTable));
+
+        Map<String, SubmissionNameIndex.Occurrence> dataFiles = index.getNames(assayTable, "Raw Spectral Data File");
+        assertTrue("Data file not indexed!", dataFiles.containsKey("JIC36_Sulphate_0.20_Internal_1_3.txt"));
+        assertTrue("Data file header not indexed!", index.getHeaders(assayTable).contains("Raw Spectral Data File"));
+        assertFalse("Non-name field indexed!", index.getHeaders(assayTable).contains("Protocol REF"));
+
+        BIIObjectStore store = new BIIObjectStore();
+        SubmissionNameIndex storeIndex = SubmissionNameIndex.getIndex(store, submission);
+        assertSame("The index isn't kept in the store!", storeIndex, SubmissionNameIndex.getIndex(store, assayTable));
+
+        out.println("\n\n_______ /end: Testing the Submission Name Index _______\n");
+    }
+
+    @Test
+    public void testUndefinedSamples() throws Exception {
+        FormatSetInstance submission = new ISATABLoader(TEST_DATA_PATH + "MTBLS35").load();
+        SubmissionNameIndex index = new SubmissionNameIndex(submission);
+
+        AssayGroup assayGroup = new AssayGroup();
+        assayGroup.setFilePath("a_salmonella.txt");
+        assayGroup.setAssaySectionInstance(getTable(submission, "a_salmonella.txt"));
+        SectionInstance sampleTable = getTable(submission, "s_salmonella.txt");
+
+        TabErrorCollector errors = new TabErrorCollector();
+        GUIInvokerResult result = new SampleNameValidator().validate(index, sampleTable, assayGroup, errors);
+        assertEquals("Undefined sample not reported!", GUIInvokerResult.ERROR, result);
+
+        List<TabErrorEntry> entries = errors.getErrors();
+        assertEquals("Wrong no. of errors!", 1, entries.size());
+        assertTrue("Wrong undefined sample!", entries.get(0).getMessage().contains("SBEP_STM_LPM4_6"));
+
+        assertEquals("Wrong result without the index!", GUIInvokerResult.ERROR,
+                new SampleNameValidator().validate(sampleTable, assayGroup));
+    }
+}
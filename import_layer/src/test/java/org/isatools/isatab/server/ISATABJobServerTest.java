@@ -0,0 +1,175 @@
+/**
+
+ The ISAconverter, ISAvalidator & BII Management Tool are components of the ISA software suite (http://www.isa-tools.org)
+
+ Exhibit A
+ The ISAconverter, ISAvalidator & BII Management Tool are licensed under the Mozilla Public License (MPL) version
+ 1.1/GPL version 2.0/LGPL version 2.1
+
+ "The contents of this file are subject to the Mozilla Public License
+ Version 1.1 (the "License"). You may not use this file except in compliance with the License.
+ You may obtain copies of the Licenses at http://www.mozilla.org/MPL/MPL-1.1.html.
+
+ Software distributed under the License is distributed on an "AS IS"
+ basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ License for the specific language governing rights and limitations
+ under the License.
+
+ The Original Code is the ISAconverter, ISAvalidator & BII Management Tool.
+
+ The Initial Developer of the Original Code is the ISA Team (Eamonn Maguire, eamonnmag@gmail.com;
+ Philippe Rocca-Serra, proccaserra@gmail.com; Susanna-Assunta Sansone, sa.sanson@gmail.com;
+ http://www.isa-tools.org). All portions of the code written by the ISA Team are Copyright (c)
+ 2007-2011 ISA Team. All Rights Reserved.
+
+ Contributor(s):
+ Rocca-Serra P, Brandizi M, Maguire E, Sklyar N, Taylor C, Begley K, Field D,
+ Harris S, Hide W, Hofmann O, Neumann S, Sterk P, Tong W, Sansone SA. ISA software suite:
+ supporting standards-compliant experimental annotation and enabling curation at the community level.
+ Bioinformatics 2010;26(18):2354-6.
+
+ Alternatively, the contents of this file may be used under the terms of either the GNU General
+ Public License Version 2 or later (the "GPL") - http://www.gnu.org/licenses/gpl-2.0.html, or
+ the GNU Lesser General Public License Version 2.1 or later (the "LGPL") -
+ http://www.gnu.org/licenses/lgpl-2.1.html, in which case the provisions of the GPL
+ or the LGPL are applicable instead of those above. If you wish to allow use of your version
+ of this file only under the terms of either the GPL or the LGPL, and not to allow others to
+ use your version of this file under the terms of the MPL, indicate your decision by deleting
+ the provisions above and replace them with the notice and other provisions required by the
+ GPL or the LGPL. If you do not delete the provisions above, a recipient may use your version
+ of this file under the terms of any one of the MPL, the GPL or the LGPL.
+
+ Sponsors:
+ The ISA Team and the ISA software suite have been funded by the EU Carcinogenomics project
+ (http://www.carcinogenomics.eu), the UK BBSRC (http://www.bbsrc.ac.uk), the UK NERC-NEBC
+ (http://nebc.nerc.ac.uk) and in part by the EU NuGO consortium (http://www.nugo.org/everyone).
+
+ */
+
+package org.isatools.isatab.server;
+
+import org.isatools.isatab.isaconfigurator.ISAConfigurationSet;
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.net.URLEncoder;
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.lang.System.out;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ISATABJobServerTest {
+
+    /**
+     * Sends a request and returns the response lines, the status line first.
+     */
+    private static List<String> request(ISATABJobServer server, String target) throws Exception {
+        return request(server, "POST", target, "");
+    }
+
+    private static List<String> request(ISATABJobServer server, String method, String target, String extraHeaders)
+            throws Exception {
+        Socket socket = new Socket("localhost", server.getPort());
+        try {
+            OutputStream os = socket.getOutputStream();
+            os.write((method + " " + target + " HTTP/1.1\r\nHost: localhost\r\n" + extraHeaders + "\r\n")
+                    .getBytes("UTF-8"));
+            os.flush();
+
+            BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), "UTF-8"));
+            List<String> result = new ArrayList<String>();
+            result.add(in.readLine());
+            // The headers
+            for (String line = in.readLine(); line != null && line.length() > 0; line = in.readLine()) {
+            }
+            for (String line = in.readLine(); line != null; line = in.readLine()) {
+                out.println(line);
+                result.add(line);
+            }
+            return result;
+        }
+        finally {
+            socket.close();
+        }
+    }
+
+    @Test
+    public void testJobs() throws Exception {
+        String baseDir = System.getProperty("basedir");
+        String cfgPath = baseDir + "/target/test-classes/test-data/isatab/batch_test/configs/isa_configurator";
+        String isapath = baseDir + "/target/test-classes/test-data/isatab/isatab_bii/JCastrillo-BII-I-1";
+
+        ISATABJobServer server = new ISATABJobServer(0, new ISAConfigurationSet(cfgPath));
+        server.setMaxJobs(2);
+        server.start();
+        try {
+            String target = "/validate?mode=streaming&path=" + URLEncoder.encode(isapath, "UTF-8");
+            for (int i = 0; i < 2; i++) {
+                List<String> response = request(server, target);
+                assertEquals("Wrong HTTP status!", "HTTP/1.1 200 OK", response.get(0));
+                assertEquals("Wrong result!", "RESULT: WARNING", response.get(response.size() - 1));
+                assertTrue("Job log not sent!", response.size() > 2);
+            }
+
+            List<String> response = request(server, "/validate?path=" + URLEncoder.encode(isapath + "/foo", "UTF-8"));
+            assertEquals("Wrong HTTP status for a missing path!", "HTTP/1.1 400 Bad Request", response.get(0));
+
+            response = request(server, "/foo");
+            assertEquals("Wrong HTTP status for an unknown request!", "HTTP/1.1 404 Not Found", response.get(0));
+
+            response = request(server, "GET", target, "");
+            assertEquals("Wrong HTTP status for a GET job!", "HTTP/1.1 405 Method Not Allowed", response.get(0));
+
+            response = request(server, "POST", target, "Origin: http://www.example.com\r\n");
+            assertEquals("Wrong HTTP status for a web page request!", "HTTP/1.1 403 Forbidden", response.get(0));
+
+            response = request(server, "/convert?path=" + URLEncoder.encode(isapath, "UTF-8")
+                    + "&out=" + URLEncoder.encode(isapath + "/../../outside", "UTF-8"));
+            assertEquals("Wrong HTTP status for an export path outside the submission!",
+                    "HTTP/1.1 400 Bad Request", response.get(0));
+
+            response = request(server, "GET", "/status", "");
+            assertTrue("Wrong status!", response.get(1).startsWith("jobs: 2, failed: 0"));
+        }
+        finally {
+            server.stop();
+        }
+    }
+
+    @Test
+    public void testSilentClient() throws Exception {
+        String baseDir = System.getProperty("basedir");
+        String cfgPath = baseDir + "/target/test-classes/test-data/isatab/batch_test/configs/isa_configurator";
+
+        ISATABJobServer server = new ISATABJobServer(0, new ISAConfigurationSet(cfgPath));
+        server.setMaxJobs(1);
+        server.setRequestTimeout(1000);
+        server.start();
+        try {
+            // Connects and sends nothing, this must not block the other requests
+            Socket silentSocket = new Socket("localhost", server.getPort());
+            try {
+                List<String> response = request(server, "/status");
+                assertEquals("Wrong HTTP status!", "HTTP/1.1 200 OK", response.get(0));
+                assertTrue("Wrong status!", response.get(1).startsWith("jobs: 0"));
+
+                silentSocket.setSoTimeout(10000);
+                InputStream in = silentSocket.getInputStream();
+                assertEquals("The silent client wasn't disconnected!", -1, in.read());
+            }
+            finally {
+                silentSocket.close();
+            }
+        }
+        finally {
+            server.stop();
+        }
+    }
+
+}
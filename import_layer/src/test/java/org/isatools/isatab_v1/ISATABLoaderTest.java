@@ -52,21 +52,29 @@
 
 package org.isatools.isatab_v1;
 
+import org.apache.commons.io.FileUtils;
 import org.apache.soap.encoding.soapenc.SoapEncUtils;
 import org.isatools.isatab.ISATABValidator;
 import org.isatools.isatab.gui_invokers.GUIInvokerResult;
+import org.isatools.tablib.parser.ZipTabSource;
 import org.isatools.tablib.schema.FormatInstance;
 import org.isatools.tablib.schema.FormatSetInstance;
 import org.isatools.tablib.schema.Record;
 import org.isatools.tablib.schema.SectionInstance;
+import org.isatools.tablib.utils.logging.TabErrorCollector;
+import org.isatools.tablib.utils.logging.TabErrorEntry;
 import org.junit.Ignore;
 import org.junit.Test;
 import uk.ac.ebi.bioinvindex.model.*;
 import uk.ac.ebi.bioinvindex.model.processing.Assay;
 import uk.ac.ebi.bioinvindex.utils.processing.ProcessingUtils;
 
+import java.io.File;
+import java.io.FileOutputStream;
 import java.util.Collection;
 import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
 
 import static java.lang.System.out;
 import static org.junit.Assert.assertEquals;
@@ -145,5 +153,175 @@ public class ISATABLoaderTest {
     }
 
 
+    @Test
+    public void parallelLoadTest() throws Exception {
+        out.println("\n\n__________ parallelLoadTest __________\n\n");
+
+        String baseDir = System.getProperty("basedir");
+        String filesPath = baseDir + "/target/test-classes/test-data/isatab/isatab_bii/JCastrillo-BII-I-1";
+
+        FormatSetInstance sequentialInstance = new ISATABLoader(filesPath).load();
+
+        ISATABLoader loader = new ISATABLoader(filesPath);
+        loader.setParallelMode(true);
+        loader.setParallelism(4);
+        FormatSetInstance parallelInstance = loader.load();
+
+        List<FormatInstance> sequentialFormats = sequentialInstance.getFormatInstances();
+        List<FormatInstance> parallelFormats = parallelInstance.getFormatInstances();
+        assertEquals("Wrong no. of formats loaded in parallel!", sequentialFormats.size(), parallelFormats.size());
+        assertTrue("Not enough files to test parallel loading!", parallelFormats.size() > 3);
+
+        for (int i = 0; i < sequentialFormats.size(); i++) {
+            FormatInstance sequentialFormat = sequentialFormats.get(i), parallelFormat = parallelFormats.get(i);
+            assertEquals("Wrong file order in parallel loading!", sequentialFormat.getFileId(), parallelFormat.getFileId());
+            assertEquals("Wrong format in parallel loading!",
+                    sequentialFormat.getFormat().getId(), parallelFormat.getFormat().getId());
+
+            List<SectionInstance> sequentialSections = sequentialFormat.getSectionInstances();
+            List<SectionInstance> parallelSections = parallelFormat.getSectionInstances();
+            assertEquals("Wrong no. of sections in parallel loading!", sequentialSections.size(), parallelSections.size());
+            for (int j = 0; j < sequentialSections.size(); j++) {
+                assertEquals("Wrong no. of records in parallel loading!",
+                        sequentialSections.get(j).getRecords().size(), parallelSections.get(j).getRecords().size());
+            }
+        }
+
+        out.println("\n\n_________ /end: parallelLoadTest __________\n\n\n");
+    }
+
+
+    @Test
+    public void rowRangeLoadTest() throws Exception {
+        out.println("\n\n__________ rowRangeLoadTest __________\n\n");
+
+        String baseDir = System.getProperty("basedir");
+        String filesPath = baseDir + "/target/test-classes/test-data/isatab/isatab_bii/JCastrillo-BII-I-1";
+
+        FormatSetInstance sequentialInstance = new ISATABLoader(filesPath).load();
+
+        ISATABLoader loader = new ISATABLoader(filesPath);
+        loader.setParallelism(4);
+        // Small ranges, so that the assay files are split in many of them
+        loader.setRowRangeSize(512);
+        FormatSetInstance rangeInstance = loader.load();
+
+        List<FormatInstance> sequentialFormats = sequentialInstance.getFormatInstances();
+        List<FormatInstance> rangeFormats = rangeInstance.getFormatInstances();
+        assertEquals("Wrong no. of formats loaded by row ranges!", sequentialFormats.size(), rangeFormats.size());
+
+        for (int i = 0; i < sequentialFormats.size(); i++) {
+            FormatInstance sequentialFormat = sequentialFormats.get(i), rangeFormat = rangeFormats.get(i);
+            assertEquals("Wrong file order in row range loading!",
+                    sequentialFormat.getFileId(), rangeFormat.getFileId());
+
+            List<SectionInstance> sequentialSections = sequentialFormat.getSectionInstances();
+            List<SectionInstance> rangeSections = rangeFormat.getSectionInstances();
+            assertEquals("Wrong no. of sections in row range loading!", sequentialSections.size(), rangeSections.size());
+            for (int j = 0; j < sequentialSections.size(); j++) {
+                List<Record> sequentialRecords = sequentialSections.get(j).getRecords();
+                List<Record> rangeRecords = rangeSections.get(j).getRecords();
+                assertEquals("Wrong no. of records in row range loading!",
+                        sequentialRecords.size(), rangeRecords.size());
+                // The records must keep the file order
+                for (int k = 0; k < sequentialRecords.size(); k++) {
+                    assertEquals("Wrong record in row range loading!",
+                            sequentialRecords.get(k).toString(), rangeRecords.get(k).toString());
+                }
+            }
+        }
+
+        out.println("\n\n_________ /end: rowRangeLoadTest __________\n\n\n");
+    }
+
+
+    @Test
+    public void zipLoadTest() throws Exception {
+        out.println("\n\n__________ zipLoadTest __________\n\n");
+
+        String baseDir = System.getProperty("basedir");
+        File filesDir = new File(baseDir + "/target/test-classes/test-data/isatab/isatab_bii/JCastrillo-BII-I-1");
+
+        // Pack the submission into a directory of the archive, with some junk like the one added by Mac OS X
+        File zipFile = new File(baseDir + "/target/zip_load_test.zip");
+        ZipOutputStream zout = new ZipOutputStream(new FileOutputStream(zipFile));
+        zout.putNextEntry(new ZipEntry("__MACOSX/JCastrillo-BII-I-1/i_junk.txt"));
+        zout.closeEntry();
+        for (File file : filesDir.listFiles()) {
+            if (!file.isFile()) {
+                continue;
+            }
+            zout.putNextEntry(new ZipEntry("JCastrillo-BII-I-1/" + file.getName()));
+            zout.write(FileUtils.readFileToByteArray(file));
+            zout.closeEntry();
+        }
+        zout.close();
+
+        FormatSetInstance dirInstance = new ISATABLoader(filesDir.getPath()).load();
+
+        ZipTabSource source = new ZipTabSource(zipFile);
+        FormatSetInstance zipInstance;
+        try {
+            zipInstance = new ISATABLoader(source).load();
+        }
+        finally {
+            source.close();
+        }
+
+        List<FormatInstance> dirFormats = dirInstance.getFormatInstances();
+        List<FormatInstance> zipFormats = zipInstance.getFormatInstances();
+        assertEquals("Wrong no. of formats loaded from the archive!", dirFormats.size(), zipFormats.size());
+
+        for (int i = 0; i < dirFormats.size(); i++) {
+            FormatInstance dirFormat = dirFormats.get(i), zipFormat = zipFormats.get(i);
+            assertEquals("Wrong file loaded from the archive!", dirFormat.getFileId(), zipFormat.getFileId());
+
+            List<SectionInstance> dirSections = dirFormat.getSectionInstances();
+            List<SectionInstance> zipSections = zipFormat.getSectionInstances();
+            assertEquals("Wrong no. of sections loaded from the archive!", dirSections.size(), zipSections.size());
+            for (int j = 0; j < dirSections.size(); j++) {
+                assertEquals("Wrong no. of records loaded from the archive!",
+                        dirSections.get(j).getRecords().size(), zipSections.get(j).getRecords().size());
+            }
+        }
+
+        out.println("\n\n_________ /end: zipLoadTest __________\n\n\n");
+    }
+
+
+    @Test
+    public void collectAllErrorsLoadTest() throws Exception {
+        out.println("\n\n__________ collectAllErrorsLoadTest __________\n\n");
+
+        String baseDir = System.getProperty("basedir");
+        File filesDir = new File(baseDir + "/target/test-classes/test-data/isatab/isatab_bii/JCastrillo-BII-I-1");
+        File testDir = new File(baseDir + "/target/collect_errors_load_test");
+        FileUtils.deleteDirectory(testDir);
+        FileUtils.copyDirectory(filesDir, testDir);
+
+        FormatSetInstance fullInstance = new ISATABLoader(filesDir.getPath()).load();
+        String missingFileId = fullInstance.getFormatInstances().get(2).getFileId();
+        assertTrue("Cannot remove the test file!", new File(testDir, missingFileId).delete());
+
+        ISATABLoader loader = new ISATABLoader(testDir.getPath());
+        loader.setParallelMode(true);
+        TabErrorCollector errors = new TabErrorCollector();
+        loader.setErrorCollector(errors);
+        FormatSetInstance instance = loader.load();
+
+        for (TabErrorEntry error : errors.getErrors()) {
+            out.println(error);
+        }
+        assertEquals("Wrong no. of errors collected!", 1, errors.size());
+        TabErrorEntry error = errors.getErrors().get(0);
+        assertEquals("Wrong rule for the missing file!", "missing_file", error.getRule());
+        assertEquals("Wrong file for the missing file error!", missingFileId, error.getFileId());
+        assertEquals("The files after the missing one weren't loaded!",
+                fullInstance.getFormatInstances().size() - 1, instance.getFormatInstances().size());
+
+        out.println("\n\n_________ /end: collectAllErrorsLoadTest __________\n\n\n");
+    }
+
+
 
 }
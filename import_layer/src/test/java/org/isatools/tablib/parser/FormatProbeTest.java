@@ -0,0 +1,107 @@
+/**
+
+ The ISAconverter, ISAvalidator & BII Management Tool are components of the ISA software suite (http://www.isa-tools.org)
+
+ Exhibit A
+ The ISAconverter, ISAvalidator & BII Management Tool are licensed under the Mozilla Public License (MPL) version
+ 1.1/GPL version 2.0/LGPL version 2.1
+
+ "The contents of this file are subject to the Mozilla Public License
+ Version 1.1 (the "License"). You may not use this file except in compliance with the License.
+ You may obtain copies of the Licenses at http://www.mozilla.org/MPL/MPL-1.1.html.
+
+ Software distributed under the License is distributed on an "AS IS"
+ basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ License for the specific language governing rights and limitations
+ under the License.
+
+ The Original Code is the ISAconverter, ISAvalidator & BII Management Tool.
+
+ The Initial Developer of the Original Code is the ISA Team (Eamonn Maguire, eamonnmag@gmail.com;
+ Philippe Rocca-Serra, proccaserra@gmail.com; Susanna-Assunta Sansone, sa.sanson@gmail.com;
+ http://www.isa-tools.org). All portions of the code written by the ISA Team are Copyright (c)
+ 2007-2011 ISA Team. All Rights Reserved.
+
+ Contributor(s):
+ Rocca-Serra P, Brandizi M, Maguire E, Sklyar N, Taylor C, Begley K, Field D,
+ Harris S, Hide W, Hofmann O, Neumann S, Sterk P, Tong W, Sansone SA. ISA software suite:
+ supporting standards-compliant experimental annotation and enabling curation at the community level.
+ Bioinformatics 2010;26(18):2354-6.
+
+ Alternatively, the contents of this file may be used under the terms of either the GNU General
+ Public License Version 2 or later (the "GPL") - http://www.gnu.org/licenses/gpl-2.0.html, or
+ the GNU Lesser General Public License Version 2.1 or later (the "LGPL") -
+ http://www.gnu.org/licenses/lgpl-2.1.html, in which case the provisions of the GPL
+ or the LGPL are applicable instead of those above. If you wish to allow use of your version
+ of this file only under the terms of either the GPL or the LGPL, and not to allow others to
+ use your version of this file under the terms of the MPL, indicate your decision by deleting
+ the provisions above and replace them with the notice and other provisions required by the
+ GPL or the LGPL. If you do not delete the provisions above, a recipient may use your version
+ of this file under the terms of any one of the MPL, the GPL or the LGPL.
+
+ Sponsors:
+ The ISA Team and the ISA software suite have been funded by the EU Carcinogenomics project
+ (http://www.carcinogenomics.eu), the UK BBSRC (http://www.bbsrc.ac.uk), the UK NERC-NEBC
+ (http://nebc.nerc.ac.uk) and in part by the EU NuGO consortium (http://www.nugo.org/everyone).
+
+ */
+
+package org.isatools.tablib.parser;
+
+import org.isatools.isatab_v1.ISATABLoader;
+import org.isatools.tablib.schema.Format;
+import org.isatools.tablib.schema.FormatSet;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+import static java.lang.System.out;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests {@link FormatProbe} with a few assay headers.
+ */
+public class FormatProbeTest {
+
+	private String probe(String formatId, String content) throws IOException {
+		FormatSet schema = ISATABLoader.getISATABSchema();
+		Format format = schema.getFormat(formatId);
+		TabTokenizer tokenizer = new CsvReaderTokenizer(new StringReader(content));
+		try {
+			return new FormatProbe(format).probe(tokenizer);
+		}
+		finally {
+			tokenizer.close();
+		}
+	}
+
+	@Test
+	public void testProbe() throws IOException {
+		out.println("--- Testing the format probe ---");
+
+		String header = "Sample Name\tExtract Name\tLabeled Extract Name\tLabel\tHybridization Assay Name"
+				+ "\tArray Design REF\tComment[foo]\tArray Data File\n";
+		String data = "s1\te1\tle1\tCy3\th1\tA-AFFY-1\tbar\tfile1.cel\n";
+
+		assertNull("Valid header rejected!", probe("transcriptomics_assay", header + data));
+		assertNull("Header with a comment line rejected!",
+				probe("transcriptomics_assay", "#a comment\n" + header + data));
+
+		String unexpected = probe("transcriptomics_assay", header.replace("Label\t", "Label\tFoo Bar\t") + data);
+		assertNotNull("Unexpected field not rejected!", unexpected);
+		assertTrue("The rejection reason doesn't mention the offending header!", unexpected.contains("Foo Bar"));
+		out.println("  Rejection reason: " + unexpected);
+
+		String generic = "Sample Name\tExtract Name\tAssay Name\tRaw Data File\n";
+		assertNotNull("Generic assay header accepted by the transcriptomics format!", probe("transcriptomics_assay", generic));
+		assertNull("Generic assay header rejected by the generic format!", probe("generic_assay", generic + "s1\te1\ta1\tf1\n"));
+
+		assertNotNull("Unknown first column not rejected!", probe("generic_assay", "Foo\tSample Name\n"));
+
+		out.println("--- /end: Testing the format probe ---\n\n");
+	}
+
+}
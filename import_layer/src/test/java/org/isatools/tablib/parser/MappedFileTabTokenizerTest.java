@@ -0,0 +1,146 @@
+/**
+
+ The ISAconverter, ISAvalidator & BII Management Tool are components of the ISA software suite (http://www.isa-tools.org)
+
+ Exhibit A
+ The ISAconverter, ISAvalidator & BII Management Tool are licensed under the Mozilla Public License (MPL) version
+ 1.1/GPL version 2.0/LGPL version 2.1
+
+ "The contents of this file are subject to the Mozilla Public License
+ Version 1.1 (the "License"). You may not use this file except in compliance with the License.
+ You may obtain copies of the Licenses at http://www.mozilla.org/MPL/MPL-1.1.html.
+
+ Software distributed under the License is distributed on an "AS IS"
+ basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ License for the specific language governing rights and limitations
+ under the License.
+
+ The Original Code is the ISAconverter, ISAvalidator & BII Management Tool.
+
+ The Initial Developer of the Original Code is the ISA Team (Eamonn Maguire, eamonnmag@gmail.com;
+ Philippe Rocca-Serra, proccaserra@gmail.com; Susanna-Assunta Sansone, sa.sanson@gmail.com;
+ http://www.isa-tools.org). All portions of the code written by the ISA Team are Copyright (c)
+ 2007-2011 ISA Team. All Rights Reserved.
+
+ Contributor(s):
+ Rocca-Serra P, Brandizi M, Maguire E, Sklyar N, Taylor C, Begley K, Field D,
+ Harris S, Hide W, Hofmann O, Neumann S, Sterk P, Tong W, Sansone SA. ISA software suite:
+ supporting standards-compliant experimental annotation and enabling curation at the community level.
+ Bioinformatics 2010;26(18):2354-6.
+
+ Alternatively, the contents of this file may be used under the terms of either the GNU General
+ Public License Version 2 or later (the "GPL") - http://www.gnu.org/licenses/gpl-2.0.html, or
+ the GNU Lesser General Public License Version 2.1 or later (the "LGPL") -
+ http://www.gnu.org/licenses/lgpl-2.1.html, in which case the provisions of the GPL
+ or the LGPL are applicable instead of those above. If you wish to allow use of your version
+ of this file only under the terms of either the GPL or the LGPL, and not to allow others to
+ use your version of this file under the terms of the MPL, indicate your decision by deleting
+ the provisions above and replace them with the notice and other provisions required by the
+ GPL or the LGPL. If you do not delete the provisions above, a recipient may use your version
+ of this file under the terms of any one of the MPL, the GPL or the LGPL.
+
+ Sponsors:
+ The ISA Team and the ISA software suite have been funded by the EU Carcinogenomics project
+ (http://www.carcinogenomics.eu), the UK BBSRC (http://www.bbsrc.ac.uk), the UK NERC-NEBC
+ (http://nebc.nerc.ac.uk) and in part by the EU NuGO consortium (http://www.nugo.org/everyone).
+
+ */
+
+package org.isatools.tablib.parser;
+
+import org.junit.Test;
+
+import java.io.*;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.List;
+
+import static java.lang.System.out;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks that {@link MappedFileTabTokenizer} splits the files the same way {@link CsvReaderTokenizer} does.
+ */
+public class MappedFileTabTokenizerTest {
+
+	private static final Charset CHARSET = Charset.forName("ISO-8859-1");
+
+	private void compareTokenizers(String resourcePath, int windowSize) throws IOException {
+		File file = new File(this.getClass().getResource(resourcePath).getFile());
+
+		TabTokenizer csvTokenizer = new CsvReaderTokenizer(
+				new BufferedReader(new InputStreamReader(new FileInputStream(file), CHARSET))
+		);
+		TabTokenizer mappedTokenizer = new MappedFileTabTokenizer(file, CHARSET, windowSize);
+
+		int iline = 0;
+		for (String[] line; (line = csvTokenizer.readNext()) != null; iline++) {
+			String[] mappedLine = mappedTokenizer.readNext();
+			assertEquals(
+					"Wrong result from the mapped tokenizer in '" + resourcePath + "' at line #" + iline + "!",
+					Arrays.asList(line), Arrays.asList(mappedLine)
+			);
+		}
+		assertNull("The mapped tokenizer returns more lines than expected!", mappedTokenizer.readNext());
+
+		csvTokenizer.close();
+		mappedTokenizer.close();
+
+		out.println("  " + resourcePath + ": " + iline + " lines, window size: " + windowSize);
+	}
+
+
+	@Test
+	public void testTokenizer() throws IOException {
+		out.println("--- Testing the memory-mapped tokenizer ---");
+
+		String[] paths = new String[]{
+				"/test-data/tablib/foo_format_sample.csv",
+				"/test-data/tablib/sample_format_instance.csv",
+				"/test-data/isatab/isatab_v1_200810/griffin_gauguier_200810/a-S1.A1.txt"
+		};
+
+		for (String path : paths) {
+			compareTokenizers(path, MappedFileTabTokenizer.DEFAULT_WINDOW_SIZE);
+			// Forces the remapping of the window, several times per line
+			compareTokenizers(path, 7);
+		}
+
+		out.println("--- /end: Testing the memory-mapped tokenizer ---\n\n");
+	}
+
+
+	@Test
+	public void testRecordRanges() throws IOException {
+		out.println("--- Testing the memory-mapped tokenizer over record ranges ---");
+
+		String path = "/test-data/isatab/isatab_v1_200810/griffin_gauguier_200810/a-S1.A1.txt";
+		File file = new File(this.getClass().getResource(path).getFile());
+
+		TabTokenizer fullTokenizer = new MappedFileTabTokenizer(file, CHARSET, MappedFileTabTokenizer.DEFAULT_WINDOW_SIZE);
+
+		List<Long> boundaries = MappedFileTabTokenizer.findRecordBoundaries(file, 0, 100);
+		assertTrue("The file wasn't split!", boundaries.size() > 2);
+		assertEquals("Wrong last boundary!", file.length(), (long) boundaries.get(boundaries.size() - 1));
+
+		for (int i = 1; i < boundaries.size(); i++) {
+			TabTokenizer rangeTokenizer = new MappedFileTabTokenizer(
+					file, CHARSET, MappedFileTabTokenizer.DEFAULT_WINDOW_SIZE, boundaries.get(i - 1), boundaries.get(i)
+			);
+			for (String[] line; (line = rangeTokenizer.readNext()) != null; ) {
+				assertEquals("Wrong result from the range tokenizer, range #" + i + "!",
+						Arrays.asList(fullTokenizer.readNext()), Arrays.asList(line)
+				);
+			}
+			rangeTokenizer.close();
+		}
+		assertNull("The range tokenizers return less lines than expected!", fullTokenizer.readNext());
+		fullTokenizer.close();
+
+		out.println("  " + path + ": " + (boundaries.size() - 1) + " ranges");
+		out.println("--- /end: Testing the memory-mapped tokenizer over record ranges ---\n\n");
+	}
+
+}
@@ -56,10 +56,13 @@ import org.isatools.tablib.schema.*;
 import org.junit.Test;
 
 import java.io.*;
+import java.util.ArrayList;
 import java.util.List;
 
 import static java.lang.System.out;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
 
 
 /**
@@ -73,6 +76,14 @@ public class TabLoaderTest {
 
 
 	private FormatInstance load() throws IOException {
+		return load(false, null);
+	}
+
+	private FormatInstance load(boolean isStreamingMode, RecordConsumer consumer) throws IOException {
+		return load(isStreamingMode, consumer, false);
+	}
+
+	private FormatInstance load(boolean isStreamingMode, RecordConsumer consumer, boolean isColumnarMode) throws IOException {
 		InputStream input = new BufferedInputStream(this.getClass().getResourceAsStream("/test-data/tablib/foo_format_def.xml"));
 		schema = SchemaBuilder.loadFormatSetFromXML(input);
 		assertNotNull("I didn't get a schema", schema);
@@ -80,6 +91,9 @@ public class TabLoaderTest {
 		// out.println( schema.toString ( true ) );
 
 		loader = new TabLoader(schema);
+		loader.setStreamingMode(isStreamingMode);
+		loader.setRecordConsumer(consumer);
+		loader.setColumnarMode(isColumnarMode);
 		FormatInstance formatInstance = loader.parse(
 				null,
 				new BufferedReader(new InputStreamReader(this.getClass().getResourceAsStream("/test-data/tablib/foo_format_sample.csv"))),
@@ -140,4 +154,139 @@ public class TabLoaderTest {
 		out.println("--- Testing TabLoader class, second section case, results: ---");
 	}
 
+
+	/**
+	 * The streaming mode must give the same results as the default one
+	 */
+	@Test
+	public void testStreamingMode() throws IOException {
+		out.println("--- Testing TabLoader class, streaming mode ---");
+
+		FormatInstance formatInstance = load();
+		SectionInstance newsInstance = formatInstance.getSectionInstance("news");
+		SectionInstance pubsInstance = formatInstance.getSectionInstance("pubs");
+
+		FormatInstance streamedInstance = load(true, null);
+		SectionInstance streamedNewsInstance = streamedInstance.getSectionInstance("news");
+		SectionInstance streamedPubsInstance = streamedInstance.getSectionInstance("pubs");
+
+		assertEquals("Wrong no. of fields in streaming mode!", newsInstance.getFields().size(), streamedNewsInstance.getFields().size());
+		assertEquals("Wrong no. of records in streaming mode!", newsInstance.size(), streamedNewsInstance.size());
+		assertEquals("Wrong no. of records in streaming mode!", pubsInstance.size(), streamedPubsInstance.size());
+		assertEquals("Wrong starting line in streaming mode!", pubsInstance.getStartingLine(), streamedPubsInstance.getStartingLine());
+
+		for (int i = 0; i < newsInstance.size(); i++) {
+			for (int j = 0; j < newsInstance.getFields().size(); j++) {
+				assertEquals("Wrong value in streaming mode!", newsInstance.getString(i, j), streamedNewsInstance.getString(i, j));
+			}
+		}
+
+		out.println("--- Testing TabLoader class, streaming mode, end ---\n\n");
+	}
+
+	/**
+	 * Records go to the consumer and not to the section instances
+	 */
+	@Test
+	public void testRecordConsumer() throws IOException {
+		out.println("--- Testing TabLoader class, record consumer ---");
+
+		int nrecords = load().getSectionInstance("news").size();
+
+		final List<Record> consumed = new ArrayList<Record>();
+		FormatInstance formatInstance = load(true, new RecordConsumer() {
+			public void consume(Record record, int lineIndex) {
+				if ("news".equals(record.getParent().getSectionId())) {
+					consumed.add(record);
+				}
+			}
+		});
+
+		assertEquals("The consumer didn't get all the records!", nrecords, consumed.size());
+		assertEquals("Records shouldn't be stored with a consumer!", 0, formatInstance.getSectionInstance("news").size());
+
+		out.println("--- Testing TabLoader class, record consumer, end ---\n\n");
+	}
+
+	/**
+	 * The columnar mode must give the same results as the default one, either with or without streaming
+	 */
+	@Test
+	public void testColumnarMode() throws IOException {
+		out.println("--- Testing TabLoader class, columnar mode ---");
+
+		SectionInstance newsInstance = load().getSectionInstance("news");
+
+		for (boolean isStreamingMode : new boolean[]{false, true}) {
+			SectionInstance columnarInstance = load(isStreamingMode, null, true).getSectionInstance("news");
+			assertTrue("Wrong section instance type in columnar mode!", columnarInstance instanceof ColumnarSectionInstance);
+			assertEquals("Wrong no. of records in columnar mode!", newsInstance.size(), columnarInstance.size());
+
+			List<Record> records = newsInstance.getRecords(), columnarRecords = columnarInstance.getRecords();
+			for (int i = 0; i < newsInstance.size(); i++) {
+				Record record = records.get(i), columnarRecord = columnarRecords.get(i);
+				assertEquals("Wrong record size in columnar mode!", record.size(), columnarRecord.size());
+				for (int j = 0; j < record.size(); j++) {
+					assertEquals("Wrong value in columnar mode!", record.getString(j), columnarRecord.getString(j));
+					assertEquals("Wrong value in columnar mode!", record.getString(j), columnarInstance.getString(i, j));
+				}
+			}
+		}
+
+		out.println("--- Testing TabLoader class, columnar mode, end ---\n\n");
+	}
+
+	/**
+	 * The second load must come from the cache and give the same results as the first
+	 */
+	@Test
+	public void testParseCache() throws IOException {
+		out.println("--- Testing TabLoader class, parse cache ---");
+
+		File file = new File(this.getClass().getResource("/test-data/tablib/foo_format_sample.csv").getFile());
+		File cacheDir = new File(System.getProperty("basedir") + "/target/parse_cache_test");
+		ParseCache cache = new ParseCache(cacheDir);
+		for (File entry : cacheDir.listFiles()) {
+			entry.delete();
+		}
+
+		load();
+		FormatInstance[] instances = new FormatInstance[2];
+		for (int i = 0; i < 2; i++) {
+			loader = new TabLoader(schema);
+			loader.setParseCache(cache);
+			instances[i] = loader.load(file.getParent(), file.getName(), "fooFormat");
+			assertEquals("The cache entry wasn't created!", 1, cacheDir.listFiles().length);
+		}
+
+		List<SectionInstance> sectionInstances = instances[0].getSectionInstances();
+		List<SectionInstance> cachedInstances = instances[1].getSectionInstances();
+		assertEquals("Wrong no. of sections from the cache!", sectionInstances.size(), cachedInstances.size());
+		assertEquals("Wrong file ID from the cache!", file.getName(), instances[1].getFileId());
+
+		for (int isect = 0; isect < sectionInstances.size(); isect++) {
+			SectionInstance sectionInstance = sectionInstances.get(isect), cachedInstance = cachedInstances.get(isect);
+			assertEquals("Wrong section from the cache!", sectionInstance.getSectionId(), cachedInstance.getSectionId());
+			assertEquals("Wrong starting line from the cache!", sectionInstance.getStartingLine(), cachedInstance.getStartingLine());
+
+			List<Field> fields = sectionInstance.getFields(), cachedFields = cachedInstance.getFields();
+			assertEquals("Wrong no. of fields from the cache!", fields.size(), cachedFields.size());
+			for (int j = 0; j < fields.size(); j++) {
+				assertEquals("Wrong field from the cache!", fields.get(j).getAttrs(), cachedFields.get(j).getAttrs());
+				assertEquals("Wrong field index from the cache!", fields.get(j).getIndex(), cachedFields.get(j).getIndex());
+			}
+
+			assertEquals("Wrong no. of records from the cache!", sectionInstance.size(), cachedInstance.size());
+			for (int i = 0; i < sectionInstance.size(); i++) {
+				Record record = sectionInstance.getRecord(i), cachedRecord = cachedInstance.getRecord(i);
+				assertEquals("Wrong record size from the cache!", record.size(), cachedRecord.size());
+				for (int j = 0; j < record.size(); j++) {
+					assertEquals("Wrong value from the cache!", record.getString(j), cachedRecord.getString(j));
+				}
+			}
+		}
+
+		out.println("--- Testing TabLoader class, parse cache, end ---\n\n");
+	}
+
 }
@@ -55,7 +55,11 @@ package org.isatools.tablib.schema;
 import org.junit.BeforeClass;
 import org.junit.Test;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 
 /**
  * Simple test about TAB schema construction
@@ -95,4 +99,35 @@ public class SchemaBuildTest {
 		assertNotNull("Sigh! Initialization wasn't unable to create a test schema", root);
 	}
 
+	@Test
+	public void testCompiledLookups() {
+		Format fmt = root.getFormat("expDesign");
+		Section section = fmt.getSection("idf");
+		CompiledFormatSet compiled = root.getCompiledFormatSet();
+		assertSame("Compiled schema not reused!", compiled, root.getCompiledFormatSet());
+
+		assertSame("Section by header not found!", section, fmt.getSectionByHeader("idf", false));
+		assertSame("Section by field not found!", section, fmt.getSectionByField("Factor Type REF[foo]"));
+		assertNull("Section by bad field header should be null!", fmt.getSectionByField("Foo[["));
+		assertEquals("Field by header not found!", "Experiment Name",
+				section.getFieldByHeader("experiment name").getId());
+		assertEquals("Wrong parsed header id!", "Factor Type REF",
+				compiled.parseHeaderId(" Factor Type REF [ foo ]", true));
+
+		// Changes in the schema must be seen by the lookups
+		Section newSection = new Section("sdrf");
+		newSection.setAttr("header", "SDRF");
+		Format newFmt = new Format("expDesign2");
+		newFmt.addSection(newSection);
+		root.addFormat(newFmt);
+		assertNotSame("Compiled schema not rebuilt!", compiled, root.getCompiledFormatSet());
+		assertSame("New format not found!", newFmt, root.getFormat("expDesign2"));
+
+		newSection.addField(new Field("Source Name"));
+		assertSame("New field not found!", newSection, newFmt.getSectionByField("Source Name"));
+		newSection.setAttr("header", "SDRF2");
+		assertNull("Old header still found!", newFmt.getSectionByHeader("SDRF"));
+		assertSame("New header not found!", newSection, newFmt.getSectionByHeader("SDRF2"));
+	}
+
 }
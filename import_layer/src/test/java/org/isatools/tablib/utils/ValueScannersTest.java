@@ -0,0 +1,111 @@
+/**
+
+ The ISAconverter, ISAvalidator & BII Management Tool are components of the ISA software suite (http://www.isa-tools.org)
+
+ Exhibit A
+ The ISAconverter, ISAvalidator & BII Management Tool are licensed under the Mozilla Public License (MPL) version
+ 1.1/GPL version 2.0/LGPL version 2.1
+
+ "The contents of this file are subject to the Mozilla Public License
+ Version 1.1 (the "License"). You may not use this file except in compliance with the License.
+ You may obtain copies of the Licenses at http://www.mozilla.org/MPL/MPL-1.1.html.
+
+ Software distributed under the License is distributed on an "AS IS"
+ basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ License for the specific language governing rights and limitations
+ under the License.
+
+ The Original Code is the ISAconverter, ISAvalidator & BII Management Tool.
+
+ The Initial Developer of the Original Code is the ISA Team (Eamonn Maguire, eamonnmag@gmail.com;
+ Philippe Rocca-Serra, proccaserra@gmail.com; Susanna-Assunta Sansone, sa.sanson@gmail.com;
+ http://www.isa-tools.org). All portions of the code written by the ISA Team are Copyright (c)
+ 2007-2011 ISA Team. All Rights Reserved.
+
+ Contributor(s):
+ Rocca-Serra P, Brandizi M, Maguire E, Sklyar N, Taylor C, Begley K, Field D,
+ Harris S, Hide W, Hofmann O, Neumann S, Sterk P, Tong W, Sansone SA. ISA software suite:
+ supporting standards-compliant experimental annotation and enabling curation at the community level.
+ Bioinformatics 2010;26(18):2354-6.
+
+ Alternatively, the contents of this file may be used under the terms of either the GNU General
+ Public License Version 2 or later (the "GPL") - http://www.gnu.org/licenses/gpl-2.0.html, or
+ the GNU Lesser General Public License Version 2.1 or later (the "LGPL") -
+ http://www.gnu.org/licenses/lgpl-2.1.html, in which case the provisions of the GPL
+ or the LGPL are applicable instead of those above. If you wish to allow use of your version
+ of this file only under the terms of either the GPL or the LGPL, and not to allow others to
+ use your version of this file under the terms of the MPL, indicate your decision by deleting
+ the provisions above and replace them with the notice and other provisions required by the
+ GPL or the LGPL. If you do not delete the provisions above, a recipient may use your version
+ of this file under the terms of any one of the MPL, the GPL or the LGPL.
+
+ Sponsors:
+ The ISA Team and the ISA software suite have been funded by the EU Carcinogenomics project
+ (http://www.carcinogenomics.eu), the UK BBSRC (http://www.bbsrc.ac.uk), the UK NERC-NEBC
+ (http://nebc.nerc.ac.uk) and in part by the EU NuGO consortium (http://www.nugo.org/everyone).
+
+ */
+
+package org.isatools.tablib.utils;
+
+import org.isatools.tablib.mapping.properties.DatePropertyMappingHelper;
+import org.junit.Test;
+
+import java.text.ParsePosition;
+import java.text.SimpleDateFormat;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ValueScannersTest {
+
+    private static boolean parseDate(String value, String[] patterns) {
+        for (String pattern : patterns) {
+            ParsePosition pos = new ParsePosition(0);
+            if (new SimpleDateFormat(pattern).parse(value, pos) != null && pos.getIndex() == value.length()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Test
+    public void testDates() {
+        String[] patterns = DatePropertyMappingHelper.VALID_FORMATS;
+        String[] dates = {"2009-10-21", "21-10-2009", "21/10/2009", "1/2/3", "2009-13-45", "2009/10-21", "2009-10",
+                "2009-10-21 foo", "n/a", "", "-1-10-2009", "2009--1-21", " 2009-10-21", "2009-10- 21", "+21/10/2009",
+                "2E3-10-21", "0000000002009-10-21", "21.10.2009", "20091021", "\u0662\u0660-10-2009"};
+        for (String value : dates) {
+            assertEquals("Wrong date check for '" + value + "'!",
+                    parseDate(value, patterns), ValueScanners.isDate(value, patterns));
+        }
+
+        // A pattern that can't be scanned
+        String[] monthNames = {"dd MMM yyyy"};
+        assertEquals("Wrong check with month names!",
+                parseDate("21 Oct 2009", monthNames), ValueScanners.isDate("21 Oct 2009", monthNames));
+        assertFalse("Null date accepted!", ValueScanners.isDate(null, patterns));
+    }
+
+    @Test
+    public void testNumbers() {
+        String[] doubles = {" 1.5 ", "1d", "1.5F", "1e5f", "Infinityx", "-NaN", "0x", "0x1.8p1", "1 5", "1e5.5"};
+        for (String value : doubles) {
+            boolean isValid = true;
+            try {
+                Double.parseDouble(value);
+            }
+            catch (NumberFormatException e) {
+                isValid = false;
+            }
+            assertEquals("Wrong double check for '" + value + "'!", isValid, ValueScanners.isDouble(value));
+        }
+
+        assertFalse("Empty integer accepted!", ValueScanners.isInteger(""));
+        assertFalse("Integer with spaces accepted!", ValueScanners.isInteger(" 1"));
+        assertTrue("Integer not accepted!", ValueScanners.isInteger("-2147483648"));
+        assertTrue("Boolean not accepted!", ValueScanners.isBoolean("TRUE"));
+        assertFalse("Wrong boolean accepted!", ValueScanners.isBoolean("yes"));
+    }
+}
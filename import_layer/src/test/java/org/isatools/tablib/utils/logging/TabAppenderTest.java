@@ -60,6 +60,9 @@ import org.junit.Test;
 import uk.ac.ebi.bioinvindex.model.Study;
 
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import static java.lang.System.out;
 import static org.junit.Assert.assertEquals;
@@ -119,4 +122,47 @@ public class TabAppenderTest {
 
 		out.println(StringUtils.center(" /end:Testing TabAppender ", 120, "-") + "\n\n");
 	}
+
+	@Test
+	public void testScopedContext() throws Exception {
+		out.println("\n" + StringUtils.center(" Testing TabNDC.scoped() ", 120, "-"));
+
+		TabNDC ndc = TabNDC.getInstance();
+		ndc.pushFormat("fooFormat", "A Foo Test Format", "some/path");
+
+		// Simulates a task that fails before popping what it has pushed
+		Callable<Integer> task = TabNDC.scoped(new Callable<Integer>() {
+			public Integer call() throws Exception {
+				TabNDC taskNdc = TabNDC.getInstance();
+				taskNdc.pushSection("barSection", "BAR SECTION", 1);
+				taskNdc.pushObject(new Study("Task Study"));
+				return taskNdc.getTabDescriptors().size();
+			}
+		});
+
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			assertEquals("The task doesn't inherit the context!", Integer.valueOf(2), executor.submit(task).get());
+			assertTrue("The task context wasn't discarded!", executor.submit(new Callable<Boolean>() {
+				public Boolean call() throws Exception {
+					TabNDC poolNdc = TabNDC.getInstance();
+					return poolNdc.getTabDescriptors().isEmpty() && poolNdc.getObjectStack().isEmpty();
+				}
+			}).get());
+		}
+		finally {
+			executor.shutdown();
+		}
+
+		// In the current thread, the previous context is restored
+		assertEquals("Wrong context after running the task!", Integer.valueOf(2), task.call());
+		assertEquals("The current context was changed by the task!", 1, ndc.getTabDescriptors().size());
+		assertTrue("The current context was changed by the task!", ndc.getObjectStack().isEmpty());
+		ndc.popTabDescriptor();
+
+		TabNDC.remove();
+		assertTrue("TabNDC.remove() didn't discard the context!", TabNDC.getInstance() != ndc);
+
+		out.println(StringUtils.center(" /end:Testing TabNDC.scoped() ", 120, "-") + "\n\n");
+	}
 }
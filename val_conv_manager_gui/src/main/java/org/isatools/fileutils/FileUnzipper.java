@@ -63,7 +63,7 @@ import java.util.zip.ZipFile;
 
 public class FileUnzipper {
 
-    public static final int BUFFER_SIZE = 1024;
+    public static final int BUFFER_SIZE = 64 * 1024;
     // return name of parent directory to now use!
 
     public static String unzip(File toUnpack) throws IOException {
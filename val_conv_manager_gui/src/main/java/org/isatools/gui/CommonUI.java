@@ -49,6 +49,7 @@
 package org.isatools.gui;
 
 import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
 import org.isatools.effects.GenericPanel;
 import org.isatools.effects.SmallLoader;
 import org.isatools.effects.UIHelper;
@@ -86,6 +87,7 @@ import java.util.List;
 
 public abstract class CommonUI extends JLayeredPane {
     public static final String DATABASE_ERROR = "database error";
+    protected static final Logger log = Logger.getLogger(CommonUI.class);
     private GenericPanel generic;
 
     protected AppContainer appContainer;
@@ -181,18 +183,25 @@ public abstract class CommonUI extends JLayeredPane {
         isatabValidator = new GUIISATABValidator();
         File location = new File(fileLoc[0]);
 
-        if (!new File(fileLoc[0]).isDirectory()) {
-            // then need to unzip to a directory and change fileloc to point to this!
-            try {
-                fileLoc[0] = FileUnzipper.unzip(location);
-            } catch (Exception e) {
-                System.out.println("problem occurred \n" + e.getMessage());
+        // validate the file. Archives are validated without extracting them
+        GUIInvokerResult result;
+        if (!location.isDirectory()) {
+            result = isatabValidator.validateArchive(fileLoc[0]);
+
+            if (result == GUIInvokerResult.SUCCESS && useAs != ApplicationType.VALIDATOR) {
+                // conversion and loading need the files, so unzip to a directory and change fileloc to point to this!
+                try {
+                    fileLoc[0] = FileUnzipper.unzip(location);
+                } catch (Exception e) {
+                    // Goes to the validator log too, so it's shown in the error report
+                    log.error("Cannot extract the archive '" + fileLoc[0] + "': " + e.getMessage(), e);
+                    result = GUIInvokerResult.ERROR;
+                }
             }
+        } else {
+            result = isatabValidator.validate(fileLoc[0]);
         }
 
-        // validate the file.
-        GUIInvokerResult result = isatabValidator.validate(fileLoc[0]);
-
         if (result == GUIInvokerResult.SUCCESS) {
             if (useAs == ApplicationType.VALIDATOR) {
                 SwingUtilities.invokeLater(new Runnable() {